@@ -176,6 +176,8 @@ public class FeatureIndexerTest extends CreateGeoPackageTestCase {
         db.open();
         try {
             GeometryMetadataDataSource ds = new GeometryMetadataDataSource(db);
+            // The R-tree is maintained on the bindings connection
+            assertTrue(ds.isRTree());
             Cursor cursor = ds.query(geoPackage.getName(), featureDao.getTableName(), envelope);
             try {
                 assertNotNull(cursor);
@@ -0,0 +1,105 @@
+package mil.nga.geopackage.test.db;
+
+import android.database.Cursor;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.db.GeoPackageDatabase;
+import mil.nga.geopackage.db.GeoPackageSQLiteStatement;
+import mil.nga.geopackage.db.GeoPackageStatementCache;
+import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.test.CreateGeoPackageTestCase;
+
+/**
+ * Test the statement cache of repeated query SQL
+ *
+ * @author osbornb
+ */
+public class StatementCacheTest extends CreateGeoPackageTestCase {
+
+    /**
+     * Test compiled statement cache hits, misses, and evictions
+     */
+    @Test
+    public void testStatementCache() {
+
+        GeoPackageDatabase db = geoPackage.getConnection().getDb();
+        GeoPackageStatementCache cache = db.getStatementCache();
+        TestCase.assertEquals(GeoPackageStatementCache.DEFAULT_MAX_SIZE,
+                cache.getMaxSize());
+
+        for (String featureTable : geoPackage.getFeatureTables()) {
+
+            FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+            String sql = "SELECT COUNT(*) FROM "
+                    + CoreSQLUtils.quoteWrap(featureTable) + " WHERE "
+                    + CoreSQLUtils.quoteWrap(featureDao.getPkColumnName())
+                    + " > ?";
+
+            // Repeated statements of the same SQL with different arguments
+            long hits = cache.getHits();
+            long misses = cache.getMisses();
+            for (int i = 0; i < 5; i++) {
+                GeoPackageSQLiteStatement statement = db.getCachedStatement(sql);
+                statement.bindLong(1, i);
+                statement.simpleQueryForLong();
+            }
+            TestCase.assertEquals(misses + 1, cache.getMisses());
+            TestCase.assertEquals(hits + 4, cache.getHits());
+            TestCase.assertTrue(cache.contains(sql));
+
+            // Cursor queries are not cached statements
+            Cursor cursor = db.rawQuery(sql, new String[]{"0"});
+            cursor.close();
+            TestCase.assertEquals(misses + 1, cache.getMisses());
+            TestCase.assertEquals(hits + 4, cache.getHits());
+
+            // Compiled statements are reused
+            GeoPackageSQLiteStatement statement = db.getCachedStatement(sql);
+            statement.bindLong(1, Long.MIN_VALUE);
+            TestCase.assertEquals(featureDao.count(), statement.simpleQueryForLong());
+            hits = cache.getHits();
+            GeoPackageSQLiteStatement statement2 = db.getCachedStatement(sql);
+            TestCase.assertSame(statement, statement2);
+            TestCase.assertEquals(hits + 1, cache.getHits());
+            statement2.bindLong(1, Long.MIN_VALUE);
+            TestCase.assertEquals(featureDao.count(), statement2.simpleQueryForLong());
+        }
+
+        // Least recently used eviction
+        db.setStatementCacheSize(2);
+        TestCase.assertTrue(cache.size() <= 2);
+        long evictions = cache.getEvictions();
+        String[] sqls = new String[3];
+        for (int i = 0; i < sqls.length; i++) {
+            sqls[i] = "SELECT " + i;
+            TestCase.assertEquals(i, db.getCachedStatement(sqls[i]).simpleQueryForLong());
+        }
+        TestCase.assertEquals(2, cache.size());
+        TestCase.assertFalse(cache.contains(sqls[0]));
+        TestCase.assertTrue(cache.contains(sqls[1]));
+        TestCase.assertTrue(cache.contains(sqls[2]));
+        TestCase.assertTrue(cache.getEvictions() > evictions);
+        TestCase.assertTrue(cache.getHitRate() > 0.0);
+
+        // Uncached statements remain usable until the next request
+        db.setStatementCacheSize(0);
+        TestCase.assertEquals(0, cache.size());
+        GeoPackageSQLiteStatement uncached = db.getCachedStatement("SELECT 0");
+        TestCase.assertEquals(0, uncached.simpleQueryForLong());
+        GeoPackageSQLiteStatement uncached2 = db.getCachedStatement("SELECT 0");
+        TestCase.assertNotSame(uncached, uncached2);
+        TestCase.assertEquals(0, uncached2.simpleQueryForLong());
+        TestCase.assertEquals(0, cache.size());
+
+        db.setStatementCacheSize(GeoPackageStatementCache.DEFAULT_MAX_SIZE);
+        cache.resetStatistics();
+        TestCase.assertEquals(0, cache.getHits());
+        TestCase.assertEquals(0, cache.getMisses());
+
+    }
+
+}
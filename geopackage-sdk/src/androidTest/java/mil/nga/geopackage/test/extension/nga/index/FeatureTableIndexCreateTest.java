@@ -34,6 +34,18 @@ public class FeatureTableIndexCreateTest extends CreateGeoPackageTestCase {
 
     }
 
+    /**
+     * Test parallel index
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testParallelIndex() throws SQLException {
+
+        FeatureTableIndexUtils.testParallelIndex(geoPackage);
+
+    }
+
     /**
      * Test delete all table indices
      *
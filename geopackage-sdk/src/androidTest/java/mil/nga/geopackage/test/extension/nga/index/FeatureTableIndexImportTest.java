@@ -34,6 +34,18 @@ public class FeatureTableIndexImportTest extends ImportGeoPackageTestCase {
 
     }
 
+    /**
+     * Test parallel index
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testParallelIndex() throws SQLException {
+
+        FeatureTableIndexUtils.testParallelIndex(geoPackage);
+
+    }
+
     /**
      * Test delete all table indices
      *
@@ -1,5 +1,7 @@
 package mil.nga.geopackage.test.extension.nga.index;
 
+import android.database.sqlite.SQLiteDatabase;
+
 import com.j256.ormlite.dao.CloseableIterator;
 
 import junit.framework.TestCase;
@@ -297,6 +299,80 @@ public class FeatureTableIndexUtils {
 
     }
 
+    /**
+     * Test parallel indexing with multiple reader threads
+     *
+     * @param geoPackage
+     * @throws SQLException
+     */
+    public static void testParallelIndex(GeoPackage geoPackage) throws SQLException {
+
+        // Parallel reads need write-ahead logging, and fall back to the
+        // calling thread otherwise
+        SQLiteDatabase db = geoPackage.getConnection().getDb().getDb();
+        boolean enabledWriteAheadLogging = !db.isWriteAheadLoggingEnabled()
+                && db.enableWriteAheadLogging();
+        try {
+
+            List<String> featureTables = geoPackage.getFeatureTables();
+            for (String featureTable : featureTables) {
+
+                FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+                FeatureTableIndex featureTableIndex = new FeatureTableIndex(
+                        geoPackage, featureDao);
+
+                // Index sequentially for the expected results
+                TestCase.assertEquals(1, featureTableIndex.getIndexThreads());
+                int expectedCount = featureTableIndex.index(true);
+                TestCase.assertEquals(expectedCount, featureTableIndex.count());
+
+                for (int threads : new int[]{2, 4}) {
+
+                    featureTableIndex.deleteIndex();
+                    TestCase.assertFalse(featureTableIndex.isIndexed());
+
+                    featureTableIndex.setIndexThreads(threads);
+                    TestCase.assertEquals(threads, featureTableIndex.getIndexThreads());
+
+                    TestGeoPackageProgress progress = new TestGeoPackageProgress();
+                    featureTableIndex.setProgress(progress);
+                    int indexCount = featureTableIndex.index();
+                    TestUtils.validateGeoPackage(geoPackage);
+
+                    TestCase.assertEquals(expectedCount, indexCount);
+                    TestCase.assertEquals(featureDao.count(), progress.getProgress());
+                    TestCase.assertTrue(featureTableIndex.isIndexed());
+                    TestCase.assertEquals(expectedCount, featureTableIndex.count());
+
+                    int resultCount = 0;
+                    CloseableIterator<GeometryIndex> featureTableResults = featureTableIndex
+                            .query();
+                    while (featureTableResults.hasNext()) {
+                        GeometryIndex geometryIndex = featureTableResults.next();
+                        validateGeometryIndex(featureTableIndex, geometryIndex);
+                        resultCount++;
+                    }
+                    featureTableResults.close();
+                    TestCase.assertEquals(expectedCount, resultCount);
+
+                    featureTableIndex.setProgress(null);
+                }
+
+                try {
+                    featureTableIndex.setIndexThreads(0);
+                    TestCase.fail("Index threads of 0 did not fail");
+                } catch (Exception e) {
+                    // expected
+                }
+
+            }
+        } finally {
+            if (enabledWriteAheadLogging) {
+                db.disableWriteAheadLogging();
+            }
+        }
+    }
+
     /**
      * Test table index delete all
      *
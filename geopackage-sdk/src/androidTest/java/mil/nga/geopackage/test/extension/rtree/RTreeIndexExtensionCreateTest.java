@@ -32,6 +32,30 @@ public class RTreeIndexExtensionCreateTest extends CreateGeoPackageTestCase {
 
     }
 
+    /**
+     * Test RTree maintenance from feature writes
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testRTreeFeatureWrites() throws SQLException {
+
+        RTreeIndexExtensionUtils.testRTreeFeatureWrites(geoPackage);
+
+    }
+
+    /**
+     * Test RTree joined feature queries
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testRTreeJoinedFeatures() throws SQLException {
+
+        RTreeIndexExtensionUtils.testRTreeJoinedFeatures(geoPackage);
+
+    }
+
     @Override
     public boolean allowEmptyFeatures() {
         return false;
@@ -32,4 +32,28 @@ public class RTreeIndexExtensionImportTest extends ImportGeoPackageTestCase {
 
     }
 
+    /**
+     * Test RTree maintenance from feature writes
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testRTreeFeatureWrites() throws SQLException {
+
+        RTreeIndexExtensionUtils.testRTreeFeatureWrites(geoPackage);
+
+    }
+
+    /**
+     * Test RTree joined feature queries
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testRTreeJoinedFeatures() throws SQLException {
+
+        RTreeIndexExtensionUtils.testRTreeJoinedFeatures(geoPackage);
+
+    }
+
 }
@@ -1,21 +1,30 @@
 package mil.nga.geopackage.test.extension.rtree;
 
+import android.content.ContentValues;
+
 import junit.framework.TestCase;
 
 import java.sql.SQLException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.db.CoreSQLUtils;
 import mil.nga.geopackage.extension.Extensions;
+import mil.nga.geopackage.extension.rtree.FeatureIndexRTreeJoinResults;
 import mil.nga.geopackage.extension.rtree.RTreeIndexExtension;
 import mil.nga.geopackage.extension.rtree.RTreeIndexTableDao;
 import mil.nga.geopackage.extension.rtree.RTreeIndexTableRow;
+import mil.nga.geopackage.features.user.FeatureCursor;
 import mil.nga.geopackage.features.user.FeatureDao;
 import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.features.user.FeatureTable;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
 import mil.nga.geopackage.user.custom.UserCustomCursor;
 import mil.nga.sf.GeometryEnvelope;
+import mil.nga.sf.Point;
 import mil.nga.sf.proj.Projection;
 import mil.nga.sf.proj.ProjectionConstants;
 import mil.nga.sf.proj.ProjectionFactory;
@@ -44,19 +53,22 @@ public class RTreeIndexExtensionUtils {
             FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
             FeatureTable table = featureDao.getTable();
 
+            boolean created = false;
             if (!extension.has(table)) {
-                // TODO RTree write functionality currently not supported in Android
-                if(true) {
-                    continue;
-                }
                 Extensions createdExtension = extension.create(table);
                 TestCase.assertNotNull(createdExtension);
+                created = true;
             }
 
             RTreeIndexTableDao tableDao = extension.getTableDao(featureDao);
             TestCase.assertTrue(tableDao.has());
 
-            TestCase.assertEquals(featureDao.count(), tableDao.count());
+            if (created) {
+                // Null and empty geometries are not loaded into the index
+                TestCase.assertEquals(countEnvelopes(featureDao), tableDao.count());
+            } else {
+                TestCase.assertEquals(featureDao.count(), tableDao.count());
+            }
 
             GeometryEnvelope totalEnvelope = null;
 
@@ -156,4 +168,224 @@ public class RTreeIndexExtensionUtils {
 
     }
 
+    /**
+     * Test RTree index maintenance through feature inserts, updates, and deletes
+     *
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    public static void testRTreeFeatureWrites(GeoPackage geoPackage) throws SQLException {
+
+        RTreeIndexExtension extension = new RTreeIndexExtension(geoPackage);
+
+        List<String> featureTables = geoPackage.getFeatureTables();
+        for (String featureTable : featureTables) {
+
+            FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+            RTreeIndexTableDao tableDao = extension.getTableDao(featureDao);
+            if (!tableDao.has()) {
+                tableDao.create();
+            }
+            TestCase.assertNotNull(featureDao.getRTreeIndexExtension());
+
+            FeatureCursor cursor = featureDao.query();
+            if (!cursor.moveToNext()) {
+                cursor.close();
+                continue;
+            }
+            FeatureRow featureRow = cursor.getRow().copy();
+            cursor.close();
+            featureRow.resetId();
+
+            long indexCount = tableDao.count();
+
+            // Insert a feature and verify it is indexed
+            Point point = new Point(5, 5);
+            featureRow.setGeometry(GeoPackageGeometryData.create(featureDao.getSrsId(), point));
+            long id = featureDao.insert(featureRow);
+            TestCase.assertEquals(indexCount + 1, tableDao.count());
+            TestCase.assertTrue(containsId(tableDao, new GeometryEnvelope(5, 5, 5, 5), id));
+
+            // Update the geometry and verify the index moved
+            featureRow.setGeometry(GeoPackageGeometryData.create(featureDao.getSrsId(), new Point(-5, -5)));
+            TestCase.assertEquals(1, featureDao.update(featureRow));
+            TestCase.assertEquals(indexCount + 1, tableDao.count());
+            TestCase.assertFalse(containsId(tableDao, new GeometryEnvelope(5, 5, 5, 5), id));
+            TestCase.assertTrue(containsId(tableDao, new GeometryEnvelope(-5, -5, -5, -5), id));
+
+            // Clear the geometry and verify the index row is removed
+            featureRow.setGeometry(null);
+            TestCase.assertEquals(1, featureDao.update(featureRow));
+            TestCase.assertEquals(indexCount, tableDao.count());
+
+            // Update through content values and verify the index row is restored
+            featureRow.setGeometry(GeoPackageGeometryData.create(featureDao.getSrsId(), new Point(7, 7)));
+            ContentValues values = featureRow.toContentValues();
+            TestCase.assertEquals(1, featureDao.update(values,
+                    CoreSQLUtils.quoteWrap(featureDao.getPkColumnName()) + " = ?",
+                    new String[]{String.valueOf(id)}));
+            TestCase.assertEquals(indexCount + 1, tableDao.count());
+            TestCase.assertTrue(containsId(tableDao, new GeometryEnvelope(7, 7, 7, 7), id));
+
+            // Roll back a feature delete together with its index row delete,
+            // within a transaction on the bindings connection
+            featureDao.setUseBindings(true);
+            featureDao.beginTransaction();
+            try {
+                TestCase.assertEquals(1, featureDao.deleteById(id));
+                TestCase.assertEquals(indexCount, tableDao.count());
+            } finally {
+                featureDao.endTransaction(false);
+            }
+            TestCase.assertEquals(indexCount + 1, tableDao.count());
+            TestCase.assertTrue(containsId(tableDao, new GeometryEnvelope(7, 7, 7, 7), id));
+
+            // Delete a feature and verify the index row is removed
+            featureRow.setGeometry(GeoPackageGeometryData.create(featureDao.getSrsId(), point));
+            TestCase.assertEquals(1, featureDao.update(featureRow));
+            TestCase.assertEquals(indexCount + 1, tableDao.count());
+            TestCase.assertEquals(1, featureDao.deleteById(id));
+            TestCase.assertEquals(indexCount, tableDao.count());
+            TestCase.assertFalse(containsId(tableDao, new GeometryEnvelope(5, 5, 5, 5), id));
+        }
+
+    }
+
+    /**
+     * Test RTree joined feature queries against the nested id queries
+     *
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    public static void testRTreeJoinedFeatures(GeoPackage geoPackage) throws SQLException {
+
+        RTreeIndexExtension extension = new RTreeIndexExtension(geoPackage);
+
+        List<String> featureTables = geoPackage.getFeatureTables();
+        for (String featureTable : featureTables) {
+
+            FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+            RTreeIndexTableDao tableDao = extension.getTableDao(featureDao);
+            if (!tableDao.has()) {
+                tableDao.create();
+            }
+
+            BoundingBox boundingBox = tableDao.getBoundingBox();
+            if (boundingBox == null) {
+                continue;
+            }
+            GeometryEnvelope envelope = boundingBox.buildEnvelope();
+
+            Set<Long> expectedIds = featureIds(tableDao.queryFeatures(envelope));
+            TestCase.assertEquals(expectedIds, featureIds(
+                    tableDao.queryJoinedFeatures(false, null, envelope, null, null)));
+
+            // Column subsets
+            String[] columns = new String[]{featureDao.getGeometryColumnName(),
+                    featureDao.getIdColumnName()};
+            FeatureCursor cursor = tableDao.queryJoinedFeatures(false, columns,
+                    envelope, null, null);
+            try {
+                while (cursor.moveToNext()) {
+                    FeatureRow featureRow = cursor.getRow();
+                    TestCase.assertEquals(2, featureRow.columnCount());
+                    TestCase.assertTrue(expectedIds.contains(featureRow.getId()));
+                    TestCase.assertNotNull(featureRow.getGeometryEnvelope());
+                }
+            } finally {
+                cursor.close();
+            }
+
+            // Where clauses on feature columns
+            long minId = Long.MAX_VALUE;
+            for (long id : expectedIds) {
+                minId = Math.min(minId, id);
+            }
+            String where = featureDao.getIdColumnName() + " > ?";
+            String[] whereArgs = new String[]{String.valueOf(minId)};
+            Set<Long> whereIds = featureIds(tableDao.queryJoinedFeatures(false,
+                    null, envelope, where, whereArgs));
+            TestCase.assertEquals(expectedIds.size() - 1, whereIds.size());
+            TestCase.assertFalse(whereIds.contains(minId));
+            TestCase.assertEquals(whereIds.size(),
+                    tableDao.countFeatures(envelope, where, whereArgs));
+
+            FeatureIndexRTreeJoinResults results = new FeatureIndexRTreeJoinResults(
+                    tableDao, false, null, envelope, null, null);
+            try {
+                TestCase.assertEquals(expectedIds.size(), results.count());
+                int resultCount = 0;
+                for (FeatureRow featureRow : results) {
+                    TestCase.assertTrue(expectedIds.contains(featureRow.getId()));
+                    resultCount++;
+                }
+                TestCase.assertEquals(expectedIds.size(), resultCount);
+            } finally {
+                results.close();
+            }
+        }
+
+    }
+
+    /**
+     * Read and close the feature ids of the cursor
+     *
+     * @param cursor feature cursor
+     * @return feature ids
+     */
+    private static Set<Long> featureIds(FeatureCursor cursor) {
+        Set<Long> ids = new HashSet<>();
+        try {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getId());
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
+    /**
+     * Count the features with a geometry envelope
+     *
+     * @param featureDao feature dao
+     * @return count
+     */
+    private static int countEnvelopes(FeatureDao featureDao) {
+        int count = 0;
+        FeatureCursor cursor = featureDao.query();
+        try {
+            while (cursor.moveToNext()) {
+                GeometryEnvelope envelope = cursor.getRow().getGeometryEnvelope();
+                if (envelope != null) {
+                    count++;
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return count;
+    }
+
+    /**
+     * Determine if the RTree envelope query contains the feature id
+     *
+     * @param tableDao RTree index table dao
+     * @param envelope query envelope
+     * @param id       feature id
+     * @return true if found
+     */
+    private static boolean containsId(RTreeIndexTableDao tableDao, GeometryEnvelope envelope, long id) {
+        boolean found = false;
+        UserCustomCursor results = tableDao.query(envelope);
+        try {
+            while (!found && results.moveToNext()) {
+                found = tableDao.getRow(results).getId() == id;
+            }
+        } finally {
+            results.close();
+        }
+        return found;
+    }
+
 }
@@ -49,6 +49,18 @@ public class FeatureIndexManagerCreateTest extends CreateGeoPackageTestCase {
 
     }
 
+    /**
+     * Test indexing a geometry larger than the cursor window
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testLargeGeometryIndex() throws SQLException {
+
+        FeatureIndexManagerUtils.testLargeGeometryIndex(activity, geoPackage);
+
+    }
+
     /**
      * Test timed index
      *
@@ -61,4 +73,88 @@ public class FeatureIndexManagerCreateTest extends CreateGeoPackageTestCase {
 
     }
 
+    /**
+     * Test memory index snapshot
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testMemoryIndexSnapshot() throws SQLException {
+
+        FeatureIndexManagerUtils.testMemoryIndexSnapshot(activity, geoPackage);
+
+    }
+
+    /**
+     * Test index changes
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testIndexChanges() throws SQLException {
+
+        FeatureIndexManagerUtils.testIndexChanges(activity, geoPackage);
+
+    }
+
+    /**
+     * Test batched index results
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testBatchResults() throws SQLException {
+
+        FeatureIndexManagerUtils.testBatchResults(activity, geoPackage);
+
+    }
+
+    /**
+     * Test spatial predicate refinement
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testSpatialPredicates() throws SQLException {
+
+        FeatureIndexManagerUtils.testSpatialPredicates(activity, geoPackage);
+
+    }
+
+    /**
+     * Test k nearest neighbor queries
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testNearest() throws SQLException {
+
+        FeatureIndexManagerUtils.testNearest(activity, geoPackage);
+
+    }
+
+    /**
+     * Test parallel manual query scans
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testManualParallel() throws SQLException {
+
+        FeatureIndexManagerUtils.testManualParallel(activity, geoPackage);
+
+    }
+
+    /**
+     * Test feature density pyramid
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testDensity() throws SQLException {
+
+        FeatureIndexManagerUtils.testDensity(activity, geoPackage);
+
+    }
+
 }
@@ -1,12 +1,15 @@
 package mil.nga.geopackage.test.features.index;
 
 import android.app.Activity;
+import android.database.sqlite.SQLiteDatabase;
 
 import junit.framework.TestCase;
 
+import java.io.File;
 import java.sql.SQLException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -14,11 +17,24 @@ import java.util.Map;
 
 import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.db.FeatureIndexer;
 import mil.nga.geopackage.db.GeoPackageDataType;
 import mil.nga.geopackage.db.TableColumnKey;
+import mil.nga.geopackage.extension.nga.index.FeatureTableIndex;
+import mil.nga.geopackage.extension.rtree.FeatureIndexRTreeResults;
+import mil.nga.geopackage.extension.rtree.RTreeIndexTableDao;
 import mil.nga.geopackage.features.columns.GeometryColumns;
+import mil.nga.geopackage.features.index.FeatureDensityPyramid;
+import mil.nga.geopackage.features.index.FeatureIndexChanges;
+import mil.nga.geopackage.features.index.FeatureIndexGeoPackageResults;
 import mil.nga.geopackage.features.index.FeatureIndexManager;
+import mil.nga.geopackage.features.index.FeatureIndexMetadataResults;
+import mil.nga.geopackage.features.index.FeatureIndexNearestResults;
 import mil.nga.geopackage.features.index.FeatureIndexResults;
+import mil.nga.geopackage.features.index.FeatureMemoryIndex;
+import mil.nga.geopackage.features.index.GeometryDistance;
+import mil.nga.geopackage.features.index.PreparedEnvelope;
+import mil.nga.geopackage.features.index.SpatialPredicate;
 import mil.nga.geopackage.features.index.FeatureIndexType;
 import mil.nga.geopackage.features.user.FeatureColumn;
 import mil.nga.geopackage.features.user.FeatureCursor;
@@ -26,14 +42,20 @@ import mil.nga.geopackage.features.user.FeatureDao;
 import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.features.user.FeatureTable;
 import mil.nga.geopackage.features.user.FeatureTableMetadata;
+import mil.nga.geopackage.features.user.GeometryEnvelopeReader;
+import mil.nga.geopackage.features.user.ManualFeatureQuery;
+import mil.nga.geopackage.features.user.ManualFeatureQueryResults;
 import mil.nga.geopackage.geom.GeoPackageGeometryData;
 import mil.nga.geopackage.srs.SpatialReferenceSystem;
 import mil.nga.geopackage.test.GeoPackageTestUtils;
 import mil.nga.geopackage.test.TestUtils;
 import mil.nga.geopackage.test.io.TestGeoPackageProgress;
+import mil.nga.geopackage.tiles.TileBoundingBoxUtils;
 import mil.nga.sf.GeometryEnvelope;
 import mil.nga.sf.GeometryType;
+import mil.nga.sf.LineString;
 import mil.nga.sf.Point;
+import mil.nga.sf.Polygon;
 import mil.nga.sf.proj.Projection;
 import mil.nga.sf.proj.ProjectionConstants;
 import mil.nga.sf.proj.ProjectionFactory;
@@ -633,6 +655,103 @@ public class FeatureIndexManagerUtils {
         testTimedIndex(activity, geoPackage, featureTable, true, verbose);
     }
 
+    /**
+     * Test indexing a feature geometry larger than the cursor window
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    public static void testLargeGeometryIndex(Activity activity, GeoPackage geoPackage)
+            throws SQLException {
+
+        String featureTable = "large_geometry_index";
+
+        SpatialReferenceSystem srs = geoPackage.getSpatialReferenceSystemDao()
+                .getOrCreateCode(ProjectionConstants.AUTHORITY_EPSG,
+                        ProjectionConstants.EPSG_WORLD_GEODETIC_SYSTEM);
+
+        GeometryColumns geometryColumns = new GeometryColumns();
+        geometryColumns.setId(new TableColumnKey(featureTable, "geom"));
+        geometryColumns.setGeometryType(GeometryType.LINESTRING);
+        geometryColumns.setZ((byte) 0);
+        geometryColumns.setM((byte) 0);
+        geometryColumns.setSrs(srs);
+
+        geoPackage.createFeatureTable(FeatureTableMetadata.create(geometryColumns,
+                new BoundingBox(-180, -90, 180, 90)));
+
+        FeatureDao featureDao = geoPackage.getFeatureDao(geometryColumns);
+
+        // Small features outside of the large feature envelope
+        for (int i = 0; i < 3; i++) {
+            LineString lineString = new LineString();
+            lineString.addPoint(new Point(i * 10, i * 10));
+            lineString.addPoint(new Point(i * 10 + 1, i * 10 + 1));
+            FeatureRow row = featureDao.newRow();
+            row.setGeometry(GeoPackageGeometryData.create(srs.getSrsId(), lineString));
+            featureDao.insert(row);
+        }
+
+        // Well-known binary larger than the 2 MB default cursor window
+        int numPoints = 200000;
+        LineString largeLineString = new LineString();
+        for (int i = 0; i < numPoints; i++) {
+            double fraction = i / (double) (numPoints - 1);
+            largeLineString.addPoint(new Point(-100.0 + 80.0 * fraction,
+                    -40.0 + 30.0 * fraction + (i % 2) * 0.001));
+        }
+        FeatureRow largeRow = featureDao.newRow();
+        largeRow.setGeometry(GeoPackageGeometryData.create(srs.getSrsId(),
+                largeLineString));
+        long largeId = featureDao.insert(largeRow);
+
+        BoundingBox largeBoundingBox = new BoundingBox(-101, -41, -19, -9);
+        BoundingBox allBoundingBox = new BoundingBox(-180, -90, 180, 90);
+
+        // Envelope reads recover the large row from the invalid row requery
+        GeometryEnvelopeReader envelopeReader = new GeometryEnvelopeReader();
+        boolean foundLarge = false;
+        FeatureCursor cursor = featureDao.query(featureDao.getIdAndGeometryColumnNames());
+        try {
+            while (cursor.moveToNext()) {
+                if (cursor.isInvalidRow()) {
+                    continue;
+                }
+                if (cursor.getId() == largeId) {
+                    TestCase.assertTrue(cursor.isInvalidRequery());
+                    TestCase.assertTrue(cursor.readGeometryEnvelope(envelopeReader));
+                    TestCase.assertEquals(-100.0, envelopeReader.getMinX(), 0.0000001);
+                    TestCase.assertEquals(-20.0, envelopeReader.getMaxX(), 0.0000001);
+                    foundLarge = true;
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        TestCase.assertTrue(foundLarge);
+
+        ManualFeatureQuery manualFeatureQuery = new ManualFeatureQuery(featureDao);
+        TestCase.assertEquals(1, manualFeatureQuery.count(largeBoundingBox));
+        TestCase.assertEquals(4, manualFeatureQuery.count(allBoundingBox));
+
+        FeatureIndexManager featureIndexManager = new FeatureIndexManager(activity,
+                geoPackage, featureDao);
+        featureIndexManager.setContinueOnError(false);
+        try {
+            for (FeatureIndexType type : new FeatureIndexType[]{
+                    FeatureIndexType.GEOPACKAGE, FeatureIndexType.METADATA,
+                    FeatureIndexType.RTREE, FeatureIndexType.MEMORY}) {
+                TestCase.assertEquals(4, featureIndexManager.index(type, true));
+                featureIndexManager.prioritizeQueryLocation(type);
+                TestCase.assertEquals(1, featureIndexManager.count(largeBoundingBox));
+                TestCase.assertEquals(4, featureIndexManager.count(allBoundingBox));
+            }
+        } finally {
+            featureIndexManager.close();
+        }
+    }
+
     /**
      * Test large index
      *
@@ -709,10 +828,715 @@ public class FeatureIndexManagerUtils {
                 envelopes, .0000000001, compareProjectionCounts, .001, verbose);
         testTimedIndex(activity, geoPackage, FeatureIndexType.RTREE, featureDao,
                 envelopes, .0000000001, .0001, compareProjectionCounts, .001, verbose);
+        testTimedIndex(activity, geoPackage, FeatureIndexType.MEMORY, featureDao,
+                envelopes, .0000000001, compareProjectionCounts, .001, verbose);
         testTimedIndex(activity, geoPackage, FeatureIndexType.NONE, featureDao,
                 envelopes, .0000000001, compareProjectionCounts, .001, verbose);
     }
 
+    /**
+     * Test the memory index snapshot save and load
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    public static void testMemoryIndexSnapshot(Activity activity, GeoPackage geoPackage)
+            throws SQLException {
+
+        for (String featureTable : geoPackage.getFeatureTables()) {
+
+            FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+
+            FeatureIndexManager featureIndexManager = new FeatureIndexManager(activity,
+                    geoPackage, featureDao);
+            featureIndexManager.setContinueOnError(false);
+            featureIndexManager.setIndexLocation(FeatureIndexType.MEMORY);
+            featureIndexManager.prioritizeQueryLocation(FeatureIndexType.MEMORY);
+
+            File snapshot = new File(activity.getCacheDir(), featureTable + ".rtree");
+            try {
+
+                TestCase.assertFalse(featureIndexManager.isIndexed(FeatureIndexType.MEMORY));
+                int indexCount = featureIndexManager.index();
+                TestCase.assertTrue(featureIndexManager.isIndexed(FeatureIndexType.MEMORY));
+                TestCase.assertEquals(indexCount, featureIndexManager.count());
+
+                BoundingBox boundingBox = featureIndexManager.getBoundingBox();
+                long boundingBoxCount = 0;
+                if (boundingBox != null) {
+                    boundingBoxCount = featureIndexManager.count(boundingBox);
+                    TestCase.assertEquals(indexCount, boundingBoxCount);
+                }
+
+                FeatureMemoryIndex memoryIndex = featureIndexManager.getFeatureMemoryIndex();
+                memoryIndex.saveSnapshot(snapshot);
+                TestCase.assertTrue(featureIndexManager.deleteIndex(FeatureIndexType.MEMORY));
+                TestCase.assertFalse(featureIndexManager.isIndexed(FeatureIndexType.MEMORY));
+
+                // Warm start from the snapshot
+                TestCase.assertTrue(memoryIndex.loadSnapshot(snapshot));
+                TestCase.assertTrue(featureIndexManager.isIndexed(FeatureIndexType.MEMORY));
+                TestCase.assertEquals(indexCount, featureIndexManager.count());
+                if (boundingBox != null) {
+                    TestCase.assertEquals(boundingBoxCount, featureIndexManager.count(boundingBox));
+                    FeatureIndexResults results = featureIndexManager.query(boundingBox);
+                    int resultCount = 0;
+                    for (FeatureRow featureRow : results) {
+                        TestCase.assertNotNull(featureRow.getGeometryEnvelope());
+                        resultCount++;
+                    }
+                    results.close();
+                    TestCase.assertEquals(boundingBoxCount, resultCount);
+                }
+
+            } finally {
+                snapshot.delete();
+                featureIndexManager.close();
+            }
+        }
+    }
+
+    /**
+     * Test indexing the tracked feature changes
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    public static void testIndexChanges(Activity activity, GeoPackage geoPackage)
+            throws SQLException {
+
+        List<FeatureIndexType> types = new ArrayList<>();
+        types.add(FeatureIndexType.GEOPACKAGE);
+        types.add(FeatureIndexType.METADATA);
+        types.add(FeatureIndexType.MEMORY);
+
+        for (String featureTable : geoPackage.getFeatureTables()) {
+
+            FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+
+            // Find two features with geometries
+            FeatureRow updateRow = null;
+            FeatureRow deleteRow = null;
+            FeatureCursor cursor = featureDao.query();
+            while (deleteRow == null && cursor.moveToNext()) {
+                FeatureRow row = cursor.getRow();
+                if (row.getGeometryEnvelope() != null) {
+                    if (updateRow == null) {
+                        updateRow = row;
+                    } else {
+                        deleteRow = row;
+                    }
+                }
+            }
+            cursor.close();
+            if (deleteRow == null) {
+                continue;
+            }
+
+            FeatureIndexManager featureIndexManager = new FeatureIndexManager(activity,
+                    geoPackage, featureDao);
+            featureIndexManager.setContinueOnError(false);
+            FeatureIndexChanges changes = featureIndexManager.getFeatureIndexChanges();
+
+            // Second manager with only a memory index of the same table
+            FeatureIndexManager memoryIndexManager = new FeatureIndexManager(activity,
+                    geoPackage, featureDao);
+            memoryIndexManager.setContinueOnError(false);
+            memoryIndexManager.setIndexLocation(FeatureIndexType.MEMORY);
+            try {
+
+                featureIndexManager.index(true, types);
+                memoryIndexManager.index(true);
+                changes.track();
+                TestCase.assertTrue(changes.isTracking());
+                TestCase.assertEquals(0, changes.count());
+
+                // Insert, update and delete features without indexing them
+                FeatureRow insertRow = deleteRow.copy();
+                insertRow.resetId();
+                long insertId = featureDao.insert(insertRow);
+                updateRow.setGeometry(GeoPackageGeometryData.create(
+                        featureDao.getSrsId(), new Point(5, 5)));
+                TestCase.assertEquals(1, featureDao.update(updateRow));
+                TestCase.assertEquals(1, featureDao.deleteById(deleteRow.getId()));
+                TestCase.assertEquals(3, changes.count());
+
+                TestCase.assertEquals(3, featureIndexManager.indexChanges());
+                TestCase.assertEquals(0, changes.count());
+                TestCase.assertTrue(changes.isTracking());
+
+                long expectedCount = 0;
+                cursor = featureDao.query();
+                while (cursor.moveToNext()) {
+                    if (cursor.getGeometryEnvelope() != null) {
+                        expectedCount++;
+                    }
+                }
+                cursor.close();
+
+                // Changes cleared by the first manager rebuild the memory index
+                TestCase.assertTrue(memoryIndexManager.indexChanges() > 0);
+                memoryIndexManager.prioritizeQueryLocation(FeatureIndexType.MEMORY);
+                TestCase.assertEquals(expectedCount, memoryIndexManager.count());
+
+                BoundingBox pointBoundingBox = new BoundingBox(5, 5, 5, 5);
+                for (FeatureIndexType type : types) {
+                    featureIndexManager.prioritizeQueryLocation(type);
+                    TestCase.assertEquals(expectedCount, featureIndexManager.count());
+
+                    boolean inserted = false;
+                    boolean deleted = true;
+                    FeatureIndexResults results = featureIndexManager.query();
+                    for (FeatureRow row : results) {
+                        if (row.getId() == insertId) {
+                            inserted = true;
+                        } else if (row.getId() == deleteRow.getId()) {
+                            deleted = false;
+                        }
+                    }
+                    results.close();
+                    TestCase.assertTrue(inserted);
+                    TestCase.assertTrue(deleted);
+
+                    boolean updated = false;
+                    results = featureIndexManager.query(pointBoundingBox);
+                    for (FeatureRow row : results) {
+                        if (row.getId() == updateRow.getId()) {
+                            updated = true;
+                        }
+                    }
+                    results.close();
+                    TestCase.assertTrue(updated);
+                }
+
+            } finally {
+                changes.untrack();
+                featureIndexManager.close();
+                memoryIndexManager.close();
+            }
+
+            TestCase.assertFalse(changes.isTracking());
+        }
+    }
+
+    /**
+     * Test batched feature row hydration of index results
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    public static void testBatchResults(Activity activity, GeoPackage geoPackage)
+            throws SQLException {
+
+        for (String featureTable : geoPackage.getFeatureTables()) {
+
+            FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+
+            FeatureIndexManager featureIndexManager = new FeatureIndexManager(activity,
+                    geoPackage, featureDao);
+            featureIndexManager.setContinueOnError(false);
+            try {
+
+                featureIndexManager.index(FeatureIndexType.GEOPACKAGE, true);
+                featureIndexManager.index(FeatureIndexType.METADATA, true);
+                featureIndexManager.index(FeatureIndexType.RTREE);
+
+                FeatureTableIndex featureTableIndex = featureIndexManager.getFeatureTableIndex();
+                FeatureIndexGeoPackageResults geoPackageResults = new FeatureIndexGeoPackageResults(
+                        featureTableIndex, featureTableIndex.count(), featureTableIndex.query());
+                geoPackageResults.setBatch(false);
+                List<Long> expectedIds = featureRowIds(geoPackageResults);
+                geoPackageResults = new FeatureIndexGeoPackageResults(
+                        featureTableIndex, featureTableIndex.count(), featureTableIndex.query());
+                TestCase.assertTrue(geoPackageResults.isBatch());
+                TestCase.assertEquals(expectedIds, featureRowIds(geoPackageResults));
+
+                FeatureIndexer featureIndexer = featureIndexManager.getFeatureIndexer();
+                FeatureIndexMetadataResults metadataResults = new FeatureIndexMetadataResults(
+                        featureIndexer, featureIndexer.query());
+                metadataResults.setBatch(false);
+                expectedIds = featureRowIds(metadataResults);
+                metadataResults = new FeatureIndexMetadataResults(
+                        featureIndexer, featureIndexer.query());
+                TestCase.assertTrue(metadataResults.isBatch());
+                TestCase.assertEquals(expectedIds, featureRowIds(metadataResults));
+
+                RTreeIndexTableDao rTreeIndexTableDao = featureIndexManager.getRTreeIndexTableDao();
+                FeatureIndexRTreeResults rTreeResults = new FeatureIndexRTreeResults(
+                        rTreeIndexTableDao, rTreeIndexTableDao.query());
+                rTreeResults.setBatch(false);
+                expectedIds = featureRowIds(rTreeResults);
+                rTreeResults = new FeatureIndexRTreeResults(
+                        rTreeIndexTableDao, rTreeIndexTableDao.query());
+                TestCase.assertTrue(rTreeResults.isBatch());
+                TestCase.assertEquals(expectedIds, featureRowIds(rTreeResults));
+
+            } finally {
+                featureIndexManager.close();
+            }
+        }
+    }
+
+    /**
+     * Iterate the feature rows of the results and close them
+     *
+     * @param results feature index results
+     * @return feature row ids in result order
+     */
+    private static List<Long> featureRowIds(FeatureIndexResults results) {
+        List<Long> ids = new ArrayList<>();
+        try {
+            for (FeatureRow featureRow : results) {
+                TestCase.assertNotNull(featureRow);
+                ids.add(featureRow.getId());
+            }
+        } finally {
+            results.close();
+        }
+        return ids;
+    }
+
+    /**
+     * Test spatial predicate refinement of index queries
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    public static void testSpatialPredicates(Activity activity, GeoPackage geoPackage)
+            throws SQLException {
+
+        // Thin diagonal line with an envelope overlapping the query area
+        PreparedEnvelope prepared = new PreparedEnvelope(0, 0, 10, 10);
+        LineString diagonal = new LineString();
+        diagonal.addPoint(new Point(-5, 30));
+        diagonal.addPoint(new Point(30, -5));
+        TestCase.assertFalse(prepared.matches(SpatialPredicate.INTERSECTS, diagonal));
+        diagonal = new LineString();
+        diagonal.addPoint(new Point(-5, 20));
+        diagonal.addPoint(new Point(20, -5));
+        TestCase.assertTrue(prepared.matches(SpatialPredicate.INTERSECTS, diagonal));
+        TestCase.assertFalse(prepared.matches(SpatialPredicate.WITHIN, diagonal));
+
+        Polygon polygon = new Polygon();
+        LineString ring = new LineString();
+        ring.addPoint(new Point(-1, -1));
+        ring.addPoint(new Point(11, -1));
+        ring.addPoint(new Point(11, 11));
+        ring.addPoint(new Point(-1, 11));
+        ring.addPoint(new Point(-1, -1));
+        polygon.addRing(ring);
+        TestCase.assertTrue(prepared.matches(SpatialPredicate.CONTAINS, polygon));
+        TestCase.assertTrue(prepared.matches(SpatialPredicate.INTERSECTS, polygon));
+        LineString hole = new LineString();
+        hole.addPoint(new Point(4, 4));
+        hole.addPoint(new Point(6, 4));
+        hole.addPoint(new Point(6, 6));
+        hole.addPoint(new Point(4, 6));
+        hole.addPoint(new Point(4, 4));
+        polygon.addRing(hole);
+        TestCase.assertFalse(prepared.matches(SpatialPredicate.CONTAINS, polygon));
+        TestCase.assertTrue(prepared.matches(SpatialPredicate.INTERSECTS, polygon));
+
+        for (String featureTable : geoPackage.getFeatureTables()) {
+
+            FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+
+            FeatureIndexManager featureIndexManager = new FeatureIndexManager(activity,
+                    geoPackage, featureDao);
+            featureIndexManager.setContinueOnError(false);
+            try {
+
+                featureIndexManager.index(FeatureIndexType.GEOPACKAGE, true);
+                featureIndexManager.prioritizeQueryLocation(FeatureIndexType.GEOPACKAGE);
+
+                BoundingBox boundingBox = featureIndexManager.getBoundingBox();
+                if (boundingBox == null) {
+                    continue;
+                }
+                double width = boundingBox.getMaxLongitude() - boundingBox.getMinLongitude();
+                double height = boundingBox.getMaxLatitude() - boundingBox.getMinLatitude();
+                BoundingBox queryBoundingBox = new BoundingBox(
+                        boundingBox.getMinLongitude() + width * .25,
+                        boundingBox.getMinLatitude() + height * .25,
+                        boundingBox.getMaxLongitude() - width * .25,
+                        boundingBox.getMaxLatitude() - height * .25);
+                PreparedEnvelope queryEnvelope = new PreparedEnvelope(
+                        queryBoundingBox.buildEnvelope());
+
+                List<FeatureRow> envelopeRows = new ArrayList<>();
+                FeatureIndexResults results = featureIndexManager.query(queryBoundingBox);
+                for (FeatureRow featureRow : results) {
+                    envelopeRows.add(featureRow);
+                }
+                results.close();
+
+                for (SpatialPredicate predicate : SpatialPredicate.values()) {
+
+                    List<Long> expectedIds = new ArrayList<>();
+                    for (FeatureRow featureRow : envelopeRows) {
+                        if (queryEnvelope.matches(predicate, featureRow)) {
+                            expectedIds.add(featureRow.getId());
+                        }
+                    }
+
+                    featureIndexManager.setRefinementThreads(1);
+                    results = featureIndexManager.query(queryBoundingBox, predicate);
+                    TestCase.assertEquals(expectedIds.size(), results.count());
+                    TestCase.assertEquals(expectedIds, featureRowIds(results));
+
+                    featureIndexManager.setRefinementThreads(4);
+                    results = featureIndexManager.query(queryBoundingBox, predicate);
+                    TestCase.assertEquals(expectedIds.size(), results.count());
+                    TestCase.assertEquals(expectedIds, featureRowIds(results));
+                }
+
+            } finally {
+                featureIndexManager.close();
+            }
+        }
+    }
+
+    /**
+     * Test k nearest neighbor queries
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    public static void testNearest(Activity activity, GeoPackage geoPackage)
+            throws SQLException {
+
+        final int k = 5;
+
+        for (String featureTable : geoPackage.getFeatureTables()) {
+
+            FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+
+            FeatureIndexManager featureIndexManager = new FeatureIndexManager(activity,
+                    geoPackage, featureDao);
+            featureIndexManager.setContinueOnError(false);
+            try {
+
+                BoundingBox boundingBox = featureDao.getBoundingBox();
+                if (boundingBox == null) {
+                    continue;
+                }
+                Point point = new Point(
+                        (boundingBox.getMinLongitude() + boundingBox.getMaxLongitude()) / 2.0,
+                        (boundingBox.getMinLatitude() + boundingBox.getMaxLatitude()) / 2.0);
+
+                // Brute force distances of every feature
+                List<Double> expectedDistances = new ArrayList<>();
+                FeatureCursor cursor = featureDao.queryForAll();
+                try {
+                    while (cursor.moveToNext()) {
+                        double distance = GeometryDistance.distance(
+                                cursor.getGeometry(), point.getX(), point.getY());
+                        if (!Double.isInfinite(distance)) {
+                            expectedDistances.add(distance);
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+                Collections.sort(expectedDistances);
+                expectedDistances = expectedDistances.subList(0,
+                        Math.min(k, expectedDistances.size()));
+
+                ManualFeatureQuery manualFeatureQuery = new ManualFeatureQuery(featureDao);
+                validateNearest(featureDao, point, expectedDistances,
+                        manualFeatureQuery.nearest(point.getX(), point.getY(), k,
+                                Double.POSITIVE_INFINITY));
+
+                featureIndexManager.index(FeatureIndexType.RTREE);
+                featureIndexManager.prioritizeQueryLocation(FeatureIndexType.RTREE);
+                validateNearest(featureDao, point, expectedDistances,
+                        featureIndexManager.nearest(point, k));
+
+                // Expanding box queries of the table index
+                featureIndexManager.index(FeatureIndexType.GEOPACKAGE, true);
+                featureIndexManager.prioritizeQueryLocation(FeatureIndexType.GEOPACKAGE);
+                validateNearest(featureDao, point, expectedDistances,
+                        featureIndexManager.nearest(point, k));
+
+                featureIndexManager.index(FeatureIndexType.METADATA, true);
+                featureIndexManager.prioritizeQueryLocation(FeatureIndexType.METADATA);
+                validateNearest(featureDao, point, expectedDistances,
+                        featureIndexManager.nearest(point, k,
+                                featureDao.getProjection()));
+
+                featureIndexManager.index(FeatureIndexType.MEMORY);
+                featureIndexManager.prioritizeQueryLocation(FeatureIndexType.MEMORY);
+                validateNearest(featureDao, point, expectedDistances,
+                        featureIndexManager.nearest(point, k,
+                                featureDao.getProjection()));
+
+                if (!expectedDistances.isEmpty()) {
+                    double maxDistance = expectedDistances.get(
+                            expectedDistances.size() / 2);
+                    FeatureIndexNearestResults results = featureIndexManager
+                            .nearest(point, k, null, maxDistance);
+                    TestCase.assertTrue(results.count() > 0);
+                    for (double distance : results.getDistances()) {
+                        TestCase.assertTrue(distance <= maxDistance);
+                    }
+                }
+
+            } finally {
+                featureIndexManager.close();
+            }
+        }
+    }
+
+    /**
+     * Test parallel manual query scans
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    public static void testManualParallel(Activity activity, GeoPackage geoPackage)
+            throws SQLException {
+
+        // Parallel scans read on pooled connections in write-ahead logging
+        // mode, and fall back to the calling thread otherwise
+        SQLiteDatabase db = geoPackage.getConnection().getDb().getDb();
+        boolean enabledWriteAheadLogging = !db.isWriteAheadLoggingEnabled()
+                && db.enableWriteAheadLogging();
+        try {
+            for (String featureTable : geoPackage.getFeatureTables()) {
+
+                FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+
+                ManualFeatureQuery sequentialQuery = new ManualFeatureQuery(featureDao);
+                ManualFeatureQuery parallelQuery = new ManualFeatureQuery(featureDao);
+                parallelQuery.setQueryThreads(4);
+                parallelQuery.setChunkLimit(7);
+                TestCase.assertEquals(4, parallelQuery.getQueryThreads());
+
+                BoundingBox boundingBox = sequentialQuery.getBoundingBox();
+                BoundingBox parallelBoundingBox = parallelQuery.getBoundingBox();
+                if (boundingBox == null) {
+                    TestCase.assertNull(parallelBoundingBox);
+                    continue;
+                }
+                TestCase.assertEquals(boundingBox, parallelBoundingBox);
+
+                double width = boundingBox.getMaxLongitude() - boundingBox.getMinLongitude();
+                double height = boundingBox.getMaxLatitude() - boundingBox.getMinLatitude();
+                BoundingBox queryBoundingBox = new BoundingBox(
+                        boundingBox.getMinLongitude() + width * .25,
+                        boundingBox.getMinLatitude() + height * .25,
+                        boundingBox.getMaxLongitude() - width * .25,
+                        boundingBox.getMaxLatitude() - height * .25);
+
+                List<Long> expectedIds = new ArrayList<>();
+                ManualFeatureQueryResults results = sequentialQuery.query(queryBoundingBox);
+                for (long id : results.ids()) {
+                    expectedIds.add(id);
+                }
+                results.close();
+
+                List<Long> ids = new ArrayList<>();
+                results = parallelQuery.query(queryBoundingBox);
+                TestCase.assertEquals(expectedIds.size(), results.count());
+                for (long id : results.ids()) {
+                    ids.add(id);
+                }
+                results.close();
+                TestCase.assertEquals(expectedIds, ids);
+
+                FeatureIndexManager featureIndexManager = new FeatureIndexManager(activity,
+                        geoPackage, featureDao);
+                try {
+                    featureIndexManager.setManualQueryThreads(4);
+                    TestCase.assertEquals(4, featureIndexManager.getManualQueryThreads());
+                    TestCase.assertEquals(4, featureIndexManager.getManualFeatureQuery().getQueryThreads());
+                } finally {
+                    featureIndexManager.close();
+                }
+            }
+        } finally {
+            if (enabledWriteAheadLogging) {
+                db.disableWriteAheadLogging();
+            }
+        }
+    }
+
+    /**
+     * Test feature density pyramid counts and GeoPackage storage
+     *
+     * @param activity   activity
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    public static void testDensity(Activity activity, GeoPackage geoPackage)
+            throws SQLException {
+
+        final int maxZoom = 4;
+
+        for (String featureTable : geoPackage.getFeatureTables()) {
+
+            FeatureDao featureDao = geoPackage.getFeatureDao(featureTable);
+
+            FeatureIndexManager featureIndexManager = new FeatureIndexManager(activity,
+                    geoPackage, featureDao);
+            featureIndexManager.setContinueOnError(false);
+
+            try {
+
+                TestCase.assertNull(featureIndexManager.getDensityPyramid());
+                featureIndexManager.setDensityZoom(maxZoom);
+                TestCase.assertEquals(maxZoom, featureIndexManager.getDensityZoom());
+                featureIndexManager.index(FeatureIndexType.GEOPACKAGE, true);
+
+                FeatureDensityPyramid density = featureIndexManager.getDensityPyramid();
+                TestCase.assertNotNull(density);
+                TestCase.assertEquals(maxZoom, density.getMaxZoom());
+                TestCase.assertEquals(featureTable, density.getTableName());
+                TestCase.assertEquals(density.getCount(), density.count(0, 0, 0));
+
+                // Child tiles are bounded by their parent tile and cover it
+                for (int zoom = 0; zoom < maxZoom; zoom++) {
+                    TestCase.assertTrue(density.isExact(zoom));
+                    int tilesPerSide = TileBoundingBoxUtils.tilesPerSide(zoom);
+                    for (int x = 0; x < tilesPerSide; x++) {
+                        for (int y = 0; y < tilesPerSide; y++) {
+                            long count = density.count(x, y, zoom);
+                            long childCount = 0;
+                            for (int childX = 2 * x; childX <= 2 * x + 1; childX++) {
+                                for (int childY = 2 * y; childY <= 2 * y + 1; childY++) {
+                                    long child = density.count(childX, childY, zoom + 1);
+                                    TestCase.assertTrue(child <= count);
+                                    childCount += child;
+                                }
+                            }
+                            TestCase.assertTrue(childCount >= count);
+                        }
+                    }
+                }
+
+                // Deeper tiles are bounded by the max zoom ancestor
+                TestCase.assertFalse(density.isExact(maxZoom + 2));
+                TestCase.assertEquals(density.count(3, 5, maxZoom),
+                        density.count(12, 21, maxZoom + 2));
+                TestCase.assertTrue(density.estimateCount(12, 21, maxZoom + 2)
+                        <= density.count(12, 21, maxZoom + 2));
+
+                // The built pyramid is saved to the GeoPackage
+                FeatureIndexManager loadedManager = new FeatureIndexManager(activity,
+                        geoPackage, featureDao);
+                FeatureDensityPyramid loaded;
+                try {
+                    loaded = loadedManager.getDensityPyramid();
+                } finally {
+                    loadedManager.close();
+                }
+                TestCase.assertNotNull(loaded);
+                TestCase.assertEquals(density.getCount(), loaded.getCount());
+                TestCase.assertEquals(density.getExactZoom(), loaded.getExactZoom());
+                for (int zoom = 0; zoom <= maxZoom; zoom++) {
+                    int tilesPerSide = TileBoundingBoxUtils.tilesPerSide(zoom);
+                    for (int x = 0; x < tilesPerSide; x++) {
+                        for (int y = 0; y < tilesPerSide; y++) {
+                            TestCase.assertEquals(density.count(x, y, zoom),
+                                    loaded.count(x, y, zoom));
+                        }
+                    }
+                }
+
+                // Feature index maintenance marks the pyramid stale, rebuilt on next use
+                FeatureCursor cursor = featureDao.queryForAll();
+                try {
+                    if (cursor.moveToNext()) {
+                        featureIndexManager.index(FeatureIndexType.GEOPACKAGE, cursor.getRow());
+                        featureIndexManager.index(FeatureIndexType.GEOPACKAGE, cursor.getRow());
+                        TestCase.assertNull(FeatureDensityPyramid.load(featureDao));
+                        FeatureDensityPyramid rebuilt = featureIndexManager.getDensityPyramid();
+                        TestCase.assertNotNull(rebuilt);
+                        TestCase.assertEquals(maxZoom, rebuilt.getMaxZoom());
+                        TestCase.assertEquals(density.getCount(), rebuilt.getCount());
+                        TestCase.assertNotNull(FeatureDensityPyramid.load(featureDao));
+                    }
+                } finally {
+                    cursor.close();
+                }
+                featureIndexManager.setDensityPyramid(loaded);
+                TestCase.assertNotNull(featureIndexManager.getDensityPyramid());
+                featureIndexManager.deleteDensity();
+                TestCase.assertNull(featureIndexManager.getDensityPyramid());
+
+            } finally {
+                featureIndexManager.close();
+            }
+        }
+
+        testDensityFanOut();
+    }
+
+    /**
+     * Test that features covering tiles are counted at the covering tile and
+     * that features overlapping too many tiles stop splitting
+     */
+    private static void testDensityFanOut() {
+
+        int maxZoom = FeatureDensityPyramid.MAX_ZOOM_LIMIT;
+        FeatureDensityPyramid density = new FeatureDensityPyramid("density",
+                "density", maxZoom, new Date());
+
+        // World covering feature is counted once at the root tile
+        density.add(new BoundingBox(
+                -ProjectionConstants.WEB_MERCATOR_HALF_WORLD_WIDTH,
+                -ProjectionConstants.WEB_MERCATOR_HALF_WORLD_WIDTH,
+                ProjectionConstants.WEB_MERCATOR_HALF_WORLD_WIDTH,
+                ProjectionConstants.WEB_MERCATOR_HALF_WORLD_WIDTH));
+        TestCase.assertEquals(maxZoom, density.getExactZoom());
+        TestCase.assertEquals(1, density.count(0, 0, 0));
+        TestCase.assertEquals(1, density.count(123456, 654321, maxZoom));
+
+        // World wide thin feature overlaps a full row of tiles at each zoom
+        density.add(new BoundingBox(
+                -ProjectionConstants.WEB_MERCATOR_HALF_WORLD_WIDTH, 1.0,
+                ProjectionConstants.WEB_MERCATOR_HALF_WORLD_WIDTH, 2.0));
+        int exactZoom = density.getExactZoom();
+        TestCase.assertTrue(exactZoom < maxZoom);
+        TestCase.assertTrue(TileBoundingBoxUtils.tilesPerSide(exactZoom)
+                > FeatureDensityPyramid.MAX_FAN_OUT);
+        TestCase.assertTrue(density.isExact(exactZoom));
+        TestCase.assertFalse(density.isExact(exactZoom + 1));
+        int tilesPerSide = TileBoundingBoxUtils.tilesPerSide(exactZoom);
+        int row = tilesPerSide / 2 - 1;
+        TestCase.assertEquals(2, density.count(0, row, exactZoom));
+        TestCase.assertEquals(1, density.count(0, 0, exactZoom));
+        TestCase.assertEquals(2, density.count(0, 2 * row, exactZoom + 1));
+        TestCase.assertEquals(2, density.getCount());
+    }
+
+    /**
+     * Validate nearest results against the expected distances
+     *
+     * @param featureDao        feature DAO
+     * @param point             query point
+     * @param expectedDistances expected nearest distances
+     * @param results           nearest results
+     */
+    private static void validateNearest(FeatureDao featureDao, Point point,
+                                        List<Double> expectedDistances,
+                                        FeatureIndexNearestResults results) {
+        TestCase.assertEquals(expectedDistances.size(), results.count());
+        for (int i = 0; i < expectedDistances.size(); i++) {
+            FeatureRow featureRow = results.getRow(i);
+            TestCase.assertEquals(featureDao.getTableName(), featureRow.getTable().getTableName());
+            TestCase.assertEquals(expectedDistances.get(i), results.getDistance(i), .0000000001);
+            TestCase.assertEquals(results.getDistance(i), GeometryDistance.distance(
+                    featureRow.getGeometry(), point.getX(), point.getY()), .0000000001);
+        }
+    }
+
     private static List<FeatureIndexTestEnvelope> createEnvelopes(
             GeometryEnvelope envelope) {
         List<FeatureIndexTestEnvelope> envelopes = new ArrayList<>();
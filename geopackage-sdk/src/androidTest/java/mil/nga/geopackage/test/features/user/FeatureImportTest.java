@@ -82,6 +82,55 @@ public class FeatureImportTest extends ImportGeoPackageTestCase {
 
     }
 
+    /**
+     * Test primary key chunked queries
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testChunkAfterId() throws SQLException {
+
+        FeatureUtils.testChunkAfterId(geoPackage);
+
+    }
+
+    /**
+     * Test forward only streams and cursor window sizes
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testStream() throws SQLException {
+
+        FeatureUtils.testStream(geoPackage);
+
+    }
+
+    /**
+     * Test columnar batch scans
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testColumnScan() throws SQLException {
+
+        FeatureUtils.testColumnScan(geoPackage);
+
+    }
+
+    /**
+     * Test geometry envelope reader
+     *
+     * @throws SQLException upon error
+     * @throws IOException  upon error
+     */
+    @Test
+    public void testGeometryEnvelopeReader() throws SQLException, IOException {
+
+        FeatureUtils.testGeometryEnvelopeReader(geoPackage);
+
+    }
+
     /**
      * Test Feature DAO primary key modifications and disabling value validation
      *
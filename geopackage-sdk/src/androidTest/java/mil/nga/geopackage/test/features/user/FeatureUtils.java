@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -20,6 +21,7 @@ import java.util.UUID;
 import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackage;
 import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.db.CoreSQLUtils;
 import mil.nga.geopackage.db.DateConverter;
 import mil.nga.geopackage.db.GeoPackageDataType;
 import mil.nga.geopackage.db.ResultUtils;
@@ -32,13 +34,19 @@ import mil.nga.geopackage.features.user.FeatureDao;
 import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.features.user.FeatureTable;
 import mil.nga.geopackage.features.user.FeatureTableMetadata;
+import mil.nga.geopackage.features.user.GeometryEnvelopeReader;
 import mil.nga.geopackage.geom.GeoPackageGeometryData;
 import mil.nga.geopackage.srs.SpatialReferenceSystem;
 import mil.nga.geopackage.test.TestUtils;
 import mil.nga.geopackage.test.geom.GeoPackageGeometryDataUtils;
 import mil.nga.geopackage.user.ColumnValue;
+import mil.nga.geopackage.user.UserColumnBatch;
+import mil.nga.geopackage.user.UserColumnScan;
+import mil.nga.geopackage.user.UserCursor;
+import mil.nga.geopackage.user.UserStream;
 import mil.nga.sf.Geometry;
 import mil.nga.sf.GeometryCollection;
+import mil.nga.sf.GeometryEnvelope;
 import mil.nga.sf.GeometryType;
 import mil.nga.sf.LineString;
 import mil.nga.sf.MultiLineString;
@@ -48,6 +56,7 @@ import mil.nga.sf.Point;
 import mil.nga.sf.Polygon;
 import mil.nga.sf.proj.ProjectionConstants;
 import mil.nga.sf.util.ByteReader;
+import mil.nga.sf.util.GeometryEnvelopeBuilder;
 import mil.nga.sf.wkb.GeometryReader;
 
 /**
@@ -1495,6 +1504,298 @@ public class FeatureUtils {
         }
     }
 
+    /**
+     * Test primary key chunked queries
+     *
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    public static void testChunkAfterId(GeoPackage geoPackage) throws SQLException {
+
+        GeometryColumnsDao geometryColumnsDao = geoPackage
+                .getGeometryColumnsDao();
+
+        if (geometryColumnsDao.isTableExists()) {
+            List<GeometryColumns> results = geometryColumnsDao.queryForAll();
+
+            for (GeometryColumns geometryColumns : results) {
+
+                FeatureDao dao = geoPackage.getFeatureDao(geometryColumns);
+                TestCase.assertNotNull(dao);
+
+                int count = dao.count();
+                int chunkLimit = Math.max(1, count / 3);
+
+                Set<Long> ids = new HashSet<>();
+                long lastId = Long.MIN_VALUE;
+                boolean hasResults = true;
+                while (hasResults) {
+                    hasResults = false;
+                    FeatureCursor cursor = dao.queryForChunkAfterId(
+                            dao.getIdAndGeometryColumnNames(), lastId, chunkLimit);
+                    TestCase.assertTrue(cursor.getCount() <= chunkLimit);
+                    while (cursor.moveToNext()) {
+                        FeatureRow featureRow = cursor.getRow();
+                        TestCase.assertTrue(featureRow.getId() > lastId);
+                        lastId = featureRow.getId();
+                        TestCase.assertTrue(ids.add(lastId));
+                        hasResults = true;
+                    }
+                    cursor.close();
+                }
+
+                TestCase.assertEquals(count, ids.size());
+            }
+        }
+    }
+
+    /**
+     * Test forward only streams and cursor window sizes
+     *
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    public static void testStream(GeoPackage geoPackage) throws SQLException {
+
+        GeometryColumnsDao geometryColumnsDao = geoPackage
+                .getGeometryColumnsDao();
+
+        if (geometryColumnsDao.isTableExists()) {
+            List<GeometryColumns> results = geometryColumnsDao.queryForAll();
+
+            for (GeometryColumns geometryColumns : results) {
+
+                FeatureDao dao = geoPackage.getFeatureDao(geometryColumns);
+                TestCase.assertNotNull(dao);
+
+                int count = dao.count();
+                int chunkLimit = Math.max(1, count / 4);
+                dao.setStreamChunkLimit(chunkLimit);
+                dao.setStreamWindowSize(64 * 1024);
+
+                Set<Long> ids = new HashSet<>();
+                long lastId = Long.MIN_VALUE;
+                UserStream<FeatureColumn, FeatureTable, FeatureRow, FeatureCursor> stream = dao
+                        .queryForStream();
+                try {
+                    for (FeatureRow featureRow : stream) {
+                        TestCase.assertTrue(featureRow.getId() > lastId);
+                        lastId = featureRow.getId();
+                        TestCase.assertTrue(ids.add(lastId));
+                    }
+                    TestCase.assertNull(stream.getCursor());
+                    TestCase.assertTrue(stream.getChunks() >= count / chunkLimit);
+                } finally {
+                    stream.close();
+                }
+                TestCase.assertEquals(count, ids.size());
+
+                // Moving without reading rows still advances
+                stream = dao.queryForStream(dao.getIdAndGeometryColumnNames());
+                int streamCount = 0;
+                while (stream.moveToNext()) {
+                    streamCount++;
+                }
+                stream.close();
+                TestCase.assertEquals(count, streamCount);
+
+                // Filtered stream
+                if (count > 0) {
+                    String where = CoreSQLUtils.quoteWrap(dao.getPkColumnName()) + " <= ?";
+                    String[] whereArgs = new String[]{String.valueOf(lastId)};
+                    stream = dao.queryForStream(where, whereArgs);
+                    streamCount = 0;
+                    while (stream.moveToNext()) {
+                        TestCase.assertTrue(stream.getRow().getId() <= lastId);
+                        streamCount++;
+                    }
+                    stream.close();
+                    TestCase.assertEquals(dao.count(where, whereArgs), streamCount);
+                }
+
+                // Configured cursor window size
+                dao.setCursorWindowSize(4 * 1024 * 1024);
+                TestCase.assertEquals(4 * 1024 * 1024, dao.getCursorWindowSize());
+                FeatureCursor cursor = dao.queryForAll();
+                int cursorCount = 0;
+                while (cursor.moveToNext()) {
+                    cursor.getRow();
+                    cursorCount++;
+                }
+                cursor.close();
+                TestCase.assertEquals(count, cursorCount);
+                cursor = dao.queryForAll();
+                TestCase.assertEquals(UserCursor.isWindowSizeSupported(),
+                        cursor.setWindowSize(1024 * 1024));
+                cursor.close();
+                dao.setCursorWindowSize(0);
+            }
+        }
+    }
+
+    /**
+     * Test columnar batch scans of ids, numeric values, and geometry blobs
+     *
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     */
+    public static void testColumnScan(GeoPackage geoPackage) throws SQLException {
+
+        GeometryColumnsDao geometryColumnsDao = geoPackage
+                .getGeometryColumnsDao();
+
+        if (geometryColumnsDao.isTableExists()) {
+            List<GeometryColumns> results = geometryColumnsDao.queryForAll();
+
+            for (GeometryColumns geometryColumns : results) {
+
+                FeatureDao dao = geoPackage.getFeatureDao(geometryColumns);
+                TestCase.assertNotNull(dao);
+
+                String pkColumn = dao.getPkColumnName();
+                String geometryColumn = dao.getGeometryColumnName();
+                String sql = "SELECT " + CoreSQLUtils.quoteWrap(geometryColumn)
+                        + " FROM " + CoreSQLUtils.quoteWrap(dao.getTableName())
+                        + " ORDER BY " + CoreSQLUtils.quoteWrap(pkColumn);
+
+                int count = dao.count();
+                int batchSize = Math.max(1, count / 3);
+
+                int scanCount = 0;
+                long lastId = Long.MIN_VALUE;
+                Cursor cursor = dao.getDatabaseConnection().rawQuery(sql, null);
+                UserColumnScan scan = dao.scanColumns(new String[]{pkColumn},
+                        new String[]{geometryColumn}, batchSize);
+                try {
+                    UserColumnBatch batch = scan.getBatch();
+                    TestCase.assertEquals(batchSize, batch.getCapacity());
+                    while (scan.next()) {
+                        TestCase.assertSame(batch, scan.getBatch());
+                        TestCase.assertTrue(batch.size() <= batchSize);
+                        long[] ids = batch.getIds();
+                        double[] pkValues = batch.getNumericValues(pkColumn);
+                        boolean[] pkNulls = batch.getNumericNulls(0);
+                        byte[][] geometries = batch.getBlobValues(geometryColumn);
+                        for (int i = 0; i < batch.size(); i++) {
+                            TestCase.assertTrue(ids[i] > lastId);
+                            lastId = ids[i];
+                            TestCase.assertFalse(pkNulls[i]);
+                            TestCase.assertEquals((double) ids[i], pkValues[i]);
+                            TestCase.assertTrue(cursor.moveToNext());
+                            TestCase.assertTrue(Arrays.equals(cursor.getBlob(0),
+                                    geometries[i]));
+                            scanCount++;
+                        }
+                    }
+                    TestCase.assertTrue(batch.isEmpty());
+                    TestCase.assertFalse(scan.next());
+                    TestCase.assertTrue(scan.getBatches() >= count / batchSize);
+                } finally {
+                    scan.close();
+                    cursor.close();
+                }
+                TestCase.assertEquals(count, scanCount);
+
+                // Filtered id only scan
+                if (count > 0) {
+                    String where = CoreSQLUtils.quoteWrap(pkColumn) + " <= ?";
+                    String[] whereArgs = new String[]{String.valueOf(lastId)};
+                    scan = dao.scanColumns(null, null, where, whereArgs, 2);
+                    scanCount = 0;
+                    while (scan.next()) {
+                        for (int i = 0; i < scan.getBatch().size(); i++) {
+                            TestCase.assertTrue(scan.getBatch().getIds()[i] <= lastId);
+                            scanCount++;
+                        }
+                    }
+                    scan.close();
+                    TestCase.assertEquals(dao.count(where, whereArgs), scanCount);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test reading geometry envelopes without building geometries
+     *
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     * @throws IOException  upon error
+     */
+    public static void testGeometryEnvelopeReader(GeoPackage geoPackage)
+            throws SQLException, IOException {
+
+        GeometryColumnsDao geometryColumnsDao = geoPackage
+                .getGeometryColumnsDao();
+
+        if (geometryColumnsDao.isTableExists()) {
+            List<GeometryColumns> results = geometryColumnsDao.queryForAll();
+
+            GeometryEnvelopeReader reader = new GeometryEnvelopeReader();
+
+            for (GeometryColumns geometryColumns : results) {
+
+                FeatureDao dao = geoPackage.getFeatureDao(geometryColumns);
+                TestCase.assertNotNull(dao);
+
+                FeatureCursor cursor = dao.queryForAll();
+                while (cursor.moveToNext()) {
+
+                    GeometryEnvelope envelope = cursor.getGeometryEnvelope();
+
+                    GeoPackageGeometryData geometryData = cursor.getGeometry();
+                    if (geometryData == null || geometryData.isEmpty()) {
+                        TestCase.assertNull(envelope);
+                        continue;
+                    }
+                    compareEnvelopes(geometryData.getOrBuildEnvelope(), envelope);
+
+                    // Scan the well-known binary without a header envelope
+                    Geometry geometry = geometryData.getGeometry();
+                    if (geometry != null && !geometry.isEmpty()) {
+                        GeoPackageGeometryData noEnvelopeData = GeoPackageGeometryData
+                                .create(geometryData.getSrsId(), geometry);
+                        noEnvelopeData.setEnvelope(null);
+                        TestCase.assertTrue(reader.read(noEnvelopeData.toBytes()));
+                        compareEnvelopes(
+                                GeometryEnvelopeBuilder.buildEnvelope(geometry),
+                                reader.buildEnvelope());
+                    }
+                }
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * Compare the expected envelope to a read envelope
+     *
+     * @param expected expected envelope
+     * @param envelope read envelope
+     */
+    private static void compareEnvelopes(GeometryEnvelope expected,
+                                         GeometryEnvelope envelope) {
+        if (expected == null) {
+            TestCase.assertNull(envelope);
+        } else {
+            TestCase.assertNotNull(envelope);
+            TestCase.assertEquals(expected.getMinX(), envelope.getMinX(), 0.0);
+            TestCase.assertEquals(expected.getMaxX(), envelope.getMaxX(), 0.0);
+            TestCase.assertEquals(expected.getMinY(), envelope.getMinY(), 0.0);
+            TestCase.assertEquals(expected.getMaxY(), envelope.getMaxY(), 0.0);
+            TestCase.assertEquals(expected.hasZ(), envelope.hasZ());
+            if (expected.hasZ()) {
+                TestCase.assertEquals(expected.getMinZ(), envelope.getMinZ(), 0.0);
+                TestCase.assertEquals(expected.getMaxZ(), envelope.getMaxZ(), 0.0);
+            }
+            TestCase.assertEquals(expected.hasM(), envelope.hasM());
+            if (expected.hasM()) {
+                TestCase.assertEquals(expected.getMinM(), envelope.getMinM(), 0.0);
+                TestCase.assertEquals(expected.getMaxM(), envelope.getMaxM(), 0.0);
+            }
+        }
+    }
+
     /**
      * Test Feature DAO primary key modifications and disabling value validation
      *
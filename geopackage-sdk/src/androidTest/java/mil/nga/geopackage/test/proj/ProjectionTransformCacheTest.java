@@ -0,0 +1,86 @@
+package mil.nga.geopackage.test.proj;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mil.nga.geopackage.proj.ProjectionTransformCache;
+import mil.nga.sf.Point;
+import mil.nga.sf.proj.Projection;
+import mil.nga.sf.proj.ProjectionConstants;
+import mil.nga.sf.proj.ProjectionFactory;
+import mil.nga.sf.proj.ProjectionTransform;
+
+/**
+ * Test the projection transform cache and batch transformations
+ *
+ * @author osbornb
+ */
+public class ProjectionTransformCacheTest {
+
+    /**
+     * Test cached transformations and batch transformations against single
+     * point transformations
+     */
+    @Test
+    public void testTransformCache() {
+
+        Projection wgs84 = ProjectionFactory
+                .getProjection(ProjectionConstants.EPSG_WORLD_GEODETIC_SYSTEM);
+        Projection webMercator = ProjectionFactory
+                .getProjection(ProjectionConstants.EPSG_WEB_MERCATOR);
+
+        ProjectionTransform transform = ProjectionTransformCache
+                .getTransformation(wgs84, webMercator);
+        TestCase.assertSame(transform, ProjectionTransformCache
+                .getTransformation(wgs84, ProjectionConstants.EPSG_WEB_MERCATOR));
+
+        ProjectionTransform inverse = ProjectionTransformCache
+                .getInverseTransformation(transform);
+        TestCase.assertSame(inverse, ProjectionTransformCache
+                .getTransformation(webMercator, wgs84));
+        TestCase.assertNotSame(transform, inverse);
+
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            points.add(new Point(-180.0 + i * 7.2, -80.0 + i * 3.2));
+        }
+
+        double[] coordinates = ProjectionTransformCache.toCoordinates(points);
+        TestCase.assertEquals(points.size() * 2, coordinates.length);
+        ProjectionTransformCache.transform(transform, coordinates);
+
+        ProjectionTransform singleTransform = wgs84.getTransformation(webMercator);
+        for (int i = 0; i < points.size(); i++) {
+            Point expected = singleTransform.transform(points.get(i));
+            TestCase.assertEquals(expected.getX(), coordinates[i * 2], 0.0000001);
+            TestCase.assertEquals(expected.getY(), coordinates[i * 2 + 1], 0.0000001);
+        }
+
+        // Transform a sub range back in place
+        ProjectionTransformCache.transform(inverse, coordinates, 2, 3);
+        for (int i = 1; i <= 3; i++) {
+            Point point = points.get(i);
+            TestCase.assertEquals(point.getX(), coordinates[i * 2], 0.0000001);
+            TestCase.assertEquals(point.getY(), coordinates[i * 2 + 1], 0.0000001);
+        }
+        Point expected = singleTransform.transform(points.get(4));
+        TestCase.assertEquals(expected.getX(), coordinates[8], 0.0000001);
+
+        // Same projection transformations leave the coordinates unchanged
+        double[] same = new double[]{1.0, 2.0};
+        ProjectionTransformCache.transform(ProjectionTransformCache
+                .getTransformation(wgs84, wgs84), same);
+        TestCase.assertEquals(1.0, same[0]);
+        TestCase.assertEquals(2.0, same[1]);
+
+        ProjectionTransformCache.clear();
+        TestCase.assertNotSame(transform, ProjectionTransformCache
+                .getTransformation(wgs84, webMercator));
+
+    }
+
+}
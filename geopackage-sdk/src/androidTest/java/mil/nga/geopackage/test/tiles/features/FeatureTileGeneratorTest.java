@@ -14,7 +14,6 @@ import mil.nga.geopackage.features.index.FeatureIndexType;
 import mil.nga.geopackage.features.user.FeatureDao;
 import mil.nga.geopackage.test.CreateGeoPackageTestCase;
 import mil.nga.geopackage.tiles.TileBoundingBoxUtils;
-import mil.nga.geopackage.tiles.TileGenerator;
 import mil.nga.geopackage.tiles.TileGrid;
 import mil.nga.geopackage.tiles.features.FeatureTileGenerator;
 import mil.nga.geopackage.tiles.features.FeatureTiles;
@@ -107,6 +106,41 @@ public class FeatureTileGeneratorTest extends CreateGeoPackageTestCase {
         testTileGenerator(true, true, true);
     }
 
+    /**
+     * Test tile generator with metatiles
+     *
+     * @throws java.io.IOException
+     * @throws java.sql.SQLException
+     */
+    @Test
+    public void testTileGeneratorWithMetatiles() throws IOException, SQLException {
+        testTileGenerator(false, false, false, 4);
+    }
+
+    /**
+     * Test tile generator with index and metatiles
+     *
+     * @throws java.io.IOException
+     * @throws java.sql.SQLException
+     */
+    @Test
+    public void testTileGeneratorWithIndexAndMetatiles() throws IOException,
+            SQLException {
+        testTileGenerator(true, false, false, 4);
+    }
+
+    /**
+     * Test tile generator with index, icon, max features, and metatiles
+     *
+     * @throws java.io.IOException
+     * @throws java.sql.SQLException
+     */
+    @Test
+    public void testTileGeneratorWithIndexAndIconAndMaxFeaturesAndMetatiles()
+            throws IOException, SQLException {
+        testTileGenerator(true, true, true, 2);
+    }
+
     /**
      * Test tile generator
      *
@@ -118,6 +152,21 @@ public class FeatureTileGeneratorTest extends CreateGeoPackageTestCase {
      */
     public void testTileGenerator(boolean index, boolean useIcon,
                                   boolean maxFeatures) throws IOException, SQLException {
+        testTileGenerator(index, useIcon, maxFeatures, 1);
+    }
+
+    /**
+     * Test tile generator
+     *
+     * @param index
+     * @param useIcon
+     * @param maxFeatures
+     * @param metatileSize
+     * @throws java.io.IOException
+     * @throws java.sql.SQLException
+     */
+    public void testTileGenerator(boolean index, boolean useIcon,
+                                  boolean maxFeatures, int metatileSize) throws IOException, SQLException {
 
         int minZoom = 0;
         int maxZoom = 4;
@@ -147,11 +196,13 @@ public class FeatureTileGeneratorTest extends CreateGeoPackageTestCase {
                 featureTiles.setMaxFeaturesTileDraw(numberFeaturesTile);
             }
 
-            TileGenerator tileGenerator = new FeatureTileGenerator(activity, geoPackage,
+            FeatureTileGenerator tileGenerator = new FeatureTileGenerator(activity, geoPackage,
                     "gen_feature_tiles", featureTiles, minZoom, maxZoom,
                     ProjectionFactory
                             .getProjection(ProjectionConstants.EPSG_WEB_MERCATOR));
             tileGenerator.setXYZTiles(false);
+            tileGenerator.setMetatileSize(metatileSize);
+            assertEquals(metatileSize, tileGenerator.getMetatileSize());
 
             int tiles = tileGenerator.generateTiles();
 
@@ -1,20 +1,56 @@
 package mil.nga.geopackage.test.tiles.features;
 
 import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
 
 import org.junit.Test;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.db.FeatureIndexer;
+import mil.nga.geopackage.extension.ExtensionsDao;
+import mil.nga.geopackage.extension.nga.generalize.FeatureGeneralization;
+import mil.nga.geopackage.features.index.FeatureIndexChanges;
 import mil.nga.geopackage.features.index.FeatureIndexManager;
+import mil.nga.geopackage.features.index.FeatureIndexResults;
 import mil.nga.geopackage.features.index.FeatureIndexType;
+import mil.nga.geopackage.features.index.FeatureIndexWindowResults;
+import mil.nga.geopackage.features.user.FeatureCursor;
 import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.features.user.FeatureRow;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.geopackage.io.BitmapPool;
 import mil.nga.geopackage.test.CreateGeoPackageTestCase;
 import mil.nga.geopackage.tiles.TileBoundingBoxUtils;
+import mil.nga.geopackage.tiles.TileGrid;
+import mil.nga.geopackage.tiles.features.DefaultFeatureTiles;
+import mil.nga.geopackage.tiles.features.FeatureTileRenderer;
 import mil.nga.geopackage.tiles.features.FeatureTiles;
+import mil.nga.geopackage.tiles.features.ProjectedGeometryCache;
+import mil.nga.sf.GeometryEnvelope;
+import mil.nga.sf.LineString;
+import mil.nga.sf.Point;
+import mil.nga.sf.proj.Projection;
+import mil.nga.sf.proj.ProjectionConstants;
+import mil.nga.sf.proj.ProjectionFactory;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -85,6 +121,457 @@ public class FeatureTilesTest extends CreateGeoPackageTestCase {
         }
     }
 
+    /**
+     * Test feature tiles multiple window queries
+     *
+     * @throws java.sql.SQLException
+     */
+    @Test
+    public void testFeatureTilesWindows() throws SQLException {
+
+        FeatureDao featureDao = FeatureTileUtils.createFeatureDao(geoPackage);
+
+        int num = FeatureTileUtils.insertFeatures(geoPackage, featureDao);
+
+        FeatureTiles featureTiles = FeatureTileUtils.createFeatureTiles(activity, geoPackage, featureDao, false);
+
+        try {
+            FeatureIndexManager indexManager = new FeatureIndexManager(activity, geoPackage, featureDao);
+            featureTiles.setIndexManager(indexManager);
+
+            indexManager.setIndexLocation(FeatureIndexType.GEOPACKAGE);
+            int indexed = indexManager.index();
+            assertEquals(num, indexed);
+
+            for (int zoom = 0; zoom <= 3; zoom++) {
+
+                int tilesPerSide = TileBoundingBoxUtils.tilesPerSide(zoom);
+                TileGrid tileGrid = new TileGrid(0, 0, tilesPerSide - 1, tilesPerSide - 1);
+
+                FeatureIndexWindowResults windowResults = featureTiles
+                        .queryIndexedFeatures(tileGrid, zoom);
+                assertEquals(tilesPerSide * tilesPerSide, windowResults.getWindowCount());
+                assertTrue(windowResults.getRowCount() <= num);
+
+                int window = 0;
+                for (int y = 0; y < tilesPerSide; y++) {
+                    for (int x = 0; x < tilesPerSide; x++) {
+
+                        Set<Long> expectedIds = new HashSet<>();
+                        FeatureIndexResults results = featureTiles.queryIndexedFeatures(x, y, zoom);
+                        try {
+                            for (long id : results.ids()) {
+                                expectedIds.add(id);
+                            }
+                        } finally {
+                            results.close();
+                        }
+
+                        assertEquals(expectedIds.size(), windowResults.count(window));
+                        assertEquals(expectedIds, new HashSet<>(windowResults.getIds(window)));
+
+                        Bitmap bitmap = featureTiles.drawTileQueryIndex(zoom,
+                                TileBoundingBoxUtils.getWebMercatorBoundingBox(x, y, zoom),
+                                windowResults.getResults(window));
+                        if (bitmap != null) {
+                            assertTrue(windowResults.count(window) > 0);
+                            assertEquals(featureTiles.getTileWidth(), bitmap.getWidth());
+                            assertEquals(featureTiles.getTileHeight(), bitmap.getHeight());
+                        }
+
+                        window++;
+                    }
+                }
+            }
+
+            // Overlapping windows share distinct features, streamed by id
+            Projection webMercator = ProjectionFactory
+                    .getProjection(ProjectionConstants.EPSG_WEB_MERCATOR);
+            BoundingBox world = TileBoundingBoxUtils.getWebMercatorBoundingBox(0, 0, 0);
+            BoundingBox west = TileBoundingBoxUtils.getWebMercatorBoundingBox(
+                    new TileGrid(0, 0, 0, 1), 1);
+            BoundingBox north = TileBoundingBoxUtils.getWebMercatorBoundingBox(
+                    new TileGrid(0, 0, 1, 0), 1);
+            List<BoundingBox> overlapping = new ArrayList<>();
+            overlapping.add(world);
+            overlapping.add(west);
+            overlapping.add(north);
+            overlapping.add(world);
+            FeatureIndexWindowResults windowResults = indexManager.query(overlapping,
+                    webMercator);
+            assertEquals(overlapping.size(), windowResults.getWindowCount());
+
+            Set<Long> unionIds = new HashSet<>();
+            for (int window = 0; window < overlapping.size(); window++) {
+
+                Set<Long> expectedIds = new HashSet<>();
+                FeatureIndexResults results = indexManager.query(
+                        overlapping.get(window), webMercator);
+                try {
+                    for (FeatureRow row : results) {
+                        GeometryEnvelope envelope = row.getGeometryEnvelope();
+                        GeometryEnvelope windowEnvelope = windowResults.getWindow(window);
+                        if (envelope != null
+                                && envelope.getMinX() <= windowEnvelope.getMaxX()
+                                && envelope.getMaxX() >= windowEnvelope.getMinX()
+                                && envelope.getMinY() <= windowEnvelope.getMaxY()
+                                && envelope.getMaxY() >= windowEnvelope.getMinY()) {
+                            expectedIds.add(row.getId());
+                        }
+                    }
+                } finally {
+                    results.close();
+                }
+
+                List<Long> windowIds = windowResults.getIds(window);
+                assertEquals(windowIds.size(), new HashSet<>(windowIds).size());
+                assertEquals(expectedIds, new HashSet<>(windowIds));
+                unionIds.addAll(windowIds);
+
+                List<Long> streamedIds = new ArrayList<>();
+                FeatureIndexResults windowRows = windowResults.getResults(window);
+                try {
+                    assertEquals(windowIds.size(), windowRows.count());
+                    for (FeatureRow row : windowRows) {
+                        assertNotNull(row.getGeometry());
+                        streamedIds.add(row.getId());
+                    }
+                } finally {
+                    windowRows.close();
+                }
+                assertEquals(windowIds, streamedIds);
+            }
+            assertEquals(windowResults.getIds(0), windowResults.getIds(3));
+            assertEquals(unionIds.size(), windowResults.getRowCount());
+        } finally {
+            featureTiles.close();
+        }
+    }
+
+    /**
+     * Test concurrent feature tile rendering against sequential rendering
+     *
+     * @throws java.sql.SQLException
+     */
+    @Test
+    public void testFeatureTilesConcurrent() throws SQLException {
+
+        FeatureDao featureDao = FeatureTileUtils.createFeatureDao(geoPackage);
+
+        int num = FeatureTileUtils.insertFeatures(geoPackage, featureDao);
+
+        FeatureTiles featureTiles = FeatureTileUtils.createFeatureTiles(activity, geoPackage, featureDao, true);
+
+        try {
+            FeatureIndexManager indexManager = new FeatureIndexManager(activity, geoPackage, featureDao);
+            featureTiles.setIndexManager(indexManager);
+
+            indexManager.setIndexLocation(FeatureIndexType.GEOPACKAGE);
+            int indexed = indexManager.index();
+            assertEquals(num, indexed);
+
+            for (int zoom = 0; zoom <= 3; zoom++) {
+
+                int tilesPerSide = TileBoundingBoxUtils.tilesPerSide(zoom);
+                TileGrid tileGrid = new TileGrid(0, 0, tilesPerSide - 1, tilesPerSide - 1);
+
+                Map<String, byte[]> expected = new HashMap<>();
+                for (int x = 0; x < tilesPerSide; x++) {
+                    for (int y = 0; y < tilesPerSide; y++) {
+                        byte[] tileData = featureTiles.drawTileBytes(x, y, zoom);
+                        if (tileData != null) {
+                            expected.put(x + "," + y, tileData);
+                        }
+                    }
+                }
+
+                final Map<String, byte[]> drawn = new ConcurrentHashMap<>();
+                FeatureTileRenderer renderer = new FeatureTileRenderer(featureTiles, 4);
+                try {
+                    assertTrue(featureTiles.isThreadPaints());
+                    int count = renderer.drawTiles(tileGrid, zoom, new FeatureTileRenderer.TileListener() {
+                        @Override
+                        public void onTile(int x, int y, int zoom, byte[] tileData) {
+                            drawn.put(x + "," + y, tileData);
+                        }
+                    });
+                    assertEquals(expected.size(), count);
+                } finally {
+                    renderer.close();
+                }
+
+                assertEquals(expected.keySet(), drawn.keySet());
+                for (Map.Entry<String, byte[]> tile : expected.entrySet()) {
+                    Bitmap expectedBitmap = BitmapFactory.decodeByteArray(
+                            tile.getValue(), 0, tile.getValue().length);
+                    byte[] tileData = drawn.get(tile.getKey());
+                    Bitmap bitmap = BitmapFactory.decodeByteArray(tileData, 0, tileData.length);
+                    assertTrue(expectedBitmap.sameAs(bitmap));
+                    expectedBitmap.recycle();
+                    bitmap.recycle();
+                }
+            }
+        } finally {
+            featureTiles.close();
+        }
+    }
+
+    /**
+     * Test the bitmap pool reuse of tile and layer bitmaps
+     *
+     * @throws java.sql.SQLException
+     */
+    @Test
+    public void testBitmapPool() throws SQLException {
+
+        BitmapPool pool = new BitmapPool(2);
+        Bitmap bitmap = pool.acquire(16, 16);
+        bitmap.eraseColor(Color.RED);
+        pool.release(bitmap);
+        assertEquals(1, pool.size());
+        Bitmap reused = pool.acquire(16, 16);
+        assertSame(bitmap, reused);
+        assertEquals(Color.TRANSPARENT, reused.getPixel(8, 8));
+        assertEquals(1, pool.getHits());
+        Bitmap other = pool.acquire(8, 16);
+        assertNotSame(reused, other);
+        assertEquals(2, pool.getMisses());
+        pool.release(reused);
+        pool.release(other);
+        pool.release(Bitmap.createBitmap(16, 16, Bitmap.Config.ARGB_8888));
+        assertEquals(2, pool.size());
+        pool.clear();
+        assertEquals(0, pool.size());
+        assertTrue(reused.isRecycled());
+
+        FeatureDao featureDao = FeatureTileUtils.createFeatureDao(geoPackage);
+
+        FeatureTileUtils.insertFeatures(geoPackage, featureDao);
+
+        FeatureTiles featureTiles = FeatureTileUtils.createFeatureTiles(activity, geoPackage, featureDao, false);
+
+        try {
+            BitmapPool bitmapPool = featureTiles.getBitmapPool();
+            for (int pass = 0; pass < 2; pass++) {
+                for (int zoom = 0; zoom <= 2; zoom++) {
+                    int tilesPerSide = TileBoundingBoxUtils.tilesPerSide(zoom);
+                    for (int x = 0; x < tilesPerSide; x++) {
+                        for (int y = 0; y < tilesPerSide; y++) {
+                            featureTiles.drawTileBytes(x, y, zoom);
+                        }
+                    }
+                }
+            }
+            assertTrue(bitmapPool.getHits() > 0);
+            assertTrue(bitmapPool.size() <= bitmapPool.getMaxSize());
+        } finally {
+            featureTiles.close();
+        }
+    }
+
+    /**
+     * Test drawing feature tiles from cached web mercator projected geometries
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testProjectedGeometryCache() throws SQLException {
+
+        FeatureDao featureDao = FeatureTileUtils.createFeatureDao(geoPackage);
+
+        FeatureTileUtils.insertFeatures(geoPackage, featureDao);
+
+        DefaultFeatureTiles featureTiles = (DefaultFeatureTiles) FeatureTileUtils.createFeatureTiles(activity, geoPackage, featureDao, false);
+
+        try {
+            assertTrue(featureTiles.isCacheProjectedGeometries());
+            ProjectedGeometryCache cache = featureTiles.getProjectedGeometryCache();
+
+            Set<String> drawnTiles = new HashSet<>();
+            for (int pass = 0; pass < 2; pass++) {
+                for (int zoom = 0; zoom <= 2; zoom++) {
+                    int tilesPerSide = TileBoundingBoxUtils.tilesPerSide(zoom);
+                    for (int x = 0; x < tilesPerSide; x++) {
+                        for (int y = 0; y < tilesPerSide; y++) {
+                            if (featureTiles.drawTileBytes(x, y, zoom) != null) {
+                                drawnTiles.add(zoom + "/" + x + "/" + y);
+                            }
+                        }
+                    }
+                }
+            }
+            assertTrue(cache.size() > 0);
+            assertTrue(cache.getHits() > 0);
+            assertTrue(cache.getBytes() <= cache.getMaxBytes());
+
+            // Drawn tiles match drawing without the projected cache
+            featureTiles.setCacheProjectedGeometries(false);
+            for (int zoom = 0; zoom <= 2; zoom++) {
+                int tilesPerSide = TileBoundingBoxUtils.tilesPerSide(zoom);
+                for (int x = 0; x < tilesPerSide; x++) {
+                    for (int y = 0; y < tilesPerSide; y++) {
+                        assertEquals(drawnTiles.contains(zoom + "/" + x + "/" + y),
+                                featureTiles.drawTileBytes(x, y, zoom) != null);
+                    }
+                }
+            }
+
+            // Byte budget evicts least recently used geometries
+            long maxBytes = cache.getBytes() / 2;
+            featureTiles.setProjectedGeometryCacheBytes(maxBytes);
+            assertTrue(cache.getBytes() <= maxBytes);
+            featureTiles.clearCache();
+            assertEquals(0, cache.size());
+            assertEquals(0, cache.getBytes());
+        } finally {
+            featureTiles.close();
+        }
+    }
+
+    /**
+     * Test drawing feature tiles from generalized zoom band geometries
+     *
+     * @throws SQLException upon error
+     */
+    @Test
+    public void testFeatureGeneralization() throws SQLException, IOException {
+
+        FeatureDao featureDao = FeatureTileUtils.createFeatureDao(geoPackage);
+
+        int num = FeatureTileUtils.insertFeatures(geoPackage, featureDao);
+
+        // Dense line with small deviations removed when generalized
+        double[][] densePoints = new double[501][];
+        for (int i = 0; i < densePoints.length; i++) {
+            densePoints[i] = new double[]{-150.0 + i * 0.2, -30.0 + (i % 2) * 0.001};
+        }
+        long denseId = FeatureTileUtils.insertLine(featureDao, densePoints);
+        num++;
+
+        FeatureGeneralization generalization = new FeatureGeneralization(geoPackage, featureDao);
+        assertFalse(generalization.has());
+        assertEquals(num * 2, generalization.create(4, 2));
+        assertTrue(generalization.has());
+        assertEquals(2, generalization.getZooms().size());
+        assertEquals(2, generalization.getLevel(0));
+        assertEquals(2, generalization.getLevel(2));
+        assertEquals(4, generalization.getLevel(3));
+        assertEquals(-1, generalization.getLevel(5));
+        assertEquals(num, generalization.count(2));
+
+        // Extension registered for the feature table and completed bands
+        ExtensionsDao extensionsDao = geoPackage.getExtensionsDao();
+        assertNotNull(extensionsDao.queryByExtension(FeatureGeneralization.EXTENSION_NAME,
+                featureDao.getTableName(), featureDao.getGeometryColumnName()));
+        for (int zoom : generalization.getZooms()) {
+            assertNotNull(extensionsDao.queryByExtension(FeatureGeneralization.EXTENSION_NAME,
+                    generalization.getTableName(zoom), null));
+        }
+
+        // Unregistered band tables of interrupted creations are not used
+        geoPackage.execSQL("CREATE TABLE \"" + generalization.getTableName(6)
+                + "\" (geom_id INTEGER PRIMARY KEY, geom BLOB NOT NULL)");
+        assertFalse(new FeatureGeneralization(geoPackage, featureDao).getZooms().contains(6));
+
+        // Batched band queries match single feature queries
+        List<Long> ids = new ArrayList<>();
+        FeatureCursor idCursor = featureDao.queryForAll();
+        try {
+            while (idCursor.moveToNext()) {
+                ids.add(idCursor.getId());
+            }
+        } finally {
+            idCursor.close();
+        }
+        Map<Long, GeoPackageGeometryData> batch = generalization.queryGeometries(2, ids);
+        assertEquals(num, batch.size());
+        for (long id : ids) {
+            assertArrayEquals(generalization.queryGeometry(2, id).toBytes(),
+                    batch.get(id).toBytes());
+        }
+
+        LineString denseLine = (LineString) generalization.queryGeometry(2, denseId).getGeometry();
+        assertTrue(denseLine.numPoints() < densePoints.length);
+        assertEquals(densePoints.length, ((LineString) featureDao.queryForIdRow(denseId)
+                .getGeometry().getGeometry()).numPoints());
+
+        DefaultFeatureTiles featureTiles = (DefaultFeatureTiles) FeatureTileUtils.createFeatureTiles(activity, geoPackage, featureDao, false);
+
+        try {
+            FeatureIndexManager indexManager = new FeatureIndexManager(activity, geoPackage, featureDao);
+            featureTiles.setIndexManager(indexManager);
+            indexManager.setIndexLocation(FeatureIndexType.GEOPACKAGE);
+            assertEquals(num, indexManager.index());
+
+            // Drawn tiles at full resolution
+            Set<String> drawnTiles = new HashSet<>();
+            for (int zoom = 0; zoom <= 5; zoom++) {
+                int tilesPerSide = TileBoundingBoxUtils.tilesPerSide(zoom);
+                for (int x = 0; x < tilesPerSide; x++) {
+                    for (int y = 0; y < tilesPerSide; y++) {
+                        if (featureTiles.drawTileBytes(x, y, zoom) != null) {
+                            drawnTiles.add(zoom + "/" + x + "/" + y);
+                        }
+                    }
+                }
+            }
+
+            // Drawn tiles from generalized geometries, with and without the
+            // projected geometry cache
+            featureTiles.setGeneralization(generalization);
+            featureTiles.clearCache();
+            for (boolean cacheProjected : new boolean[]{true, false}) {
+                featureTiles.setCacheProjectedGeometries(cacheProjected);
+                for (int zoom = 0; zoom <= 5; zoom++) {
+                    int tilesPerSide = TileBoundingBoxUtils.tilesPerSide(zoom);
+                    for (int x = 0; x < tilesPerSide; x++) {
+                        for (int y = 0; y < tilesPerSide; y++) {
+                            assertEquals(drawnTiles.contains(zoom + "/" + x + "/" + y),
+                                    featureTiles.drawTileBytes(x, y, zoom) != null);
+                        }
+                    }
+                }
+            }
+
+            // Changed features are not generalized until the bands are updated
+            FeatureIndexChanges changes = new FeatureIndexChanges(featureDao);
+            changes.track();
+            try {
+                FeatureRow denseRow = featureDao.queryForIdRow(denseId);
+                denseRow.setGeometry(GeoPackageGeometryData.create(
+                        featureDao.getSrsId(), new Point(10, 10)));
+                assertEquals(1, featureDao.update(denseRow));
+                assertNull(generalization.queryGeometry(2, denseId));
+                assertEquals(num - 1, generalization.queryGeometries(2, ids).size());
+                assertEquals(1, generalization.update());
+                assertTrue(generalization.queryGeometry(2, denseId).getGeometry() instanceof Point);
+                assertEquals(num, generalization.queryGeometries(2, ids).size());
+            } finally {
+                changes.untrack();
+            }
+
+            // Bands are copied and deleted with the feature table
+            String copyTable = featureDao.getTableName() + "_copy";
+            geoPackage.copyTable(featureDao.getTableName(), copyTable);
+            FeatureGeneralization copyGeneralization = new FeatureGeneralization(
+                    geoPackage, geoPackage.getFeatureDao(copyTable));
+            assertEquals(generalization.getZooms(), copyGeneralization.getZooms());
+            assertEquals(num, copyGeneralization.count(2));
+            geoPackage.deleteTable(copyTable);
+            assertFalse(geoPackage.isTable(copyGeneralization.getTableName(2)));
+            assertTrue(extensionsDao.queryByExtension(FeatureGeneralization.EXTENSION_NAME,
+                    copyGeneralization.getTableName(2)).isEmpty());
+
+            generalization.deleteAll();
+            assertFalse(generalization.has());
+            assertFalse(geoPackage.isTable(generalization.getTableName(6)));
+            assertTrue(extensionsDao.queryByExtension(FeatureGeneralization.EXTENSION_NAME,
+                    featureDao.getTableName()).isEmpty());
+        } finally {
+            featureTiles.close();
+        }
+    }
+
     private void createTiles(FeatureTiles featureTiles, int minZoom, int maxZoom) {
         for (int i = minZoom; i <= maxZoom; i++) {
             createTiles(featureTiles, i);
@@ -106,6 +106,19 @@ public class TileCreateTest extends CreateGeoPackageTestCase {
 
 	}
 
+	/**
+	 * Test streaming tile data
+	 *
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	@Test
+	public void testTileDataStream() throws SQLException, IOException {
+
+		TileUtils.testTileDataStream(geoPackage);
+
+	}
+
 	/**
 	 * Test testThreadedTileDao
 	 *
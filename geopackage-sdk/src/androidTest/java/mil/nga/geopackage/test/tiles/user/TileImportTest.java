@@ -106,6 +106,19 @@ public class TileImportTest extends ImportGeoPackageTestCase {
 
 	}
 
+	/**
+	 * Test streaming tile data
+	 *
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	@Test
+	public void testTileDataStream() throws SQLException, IOException {
+
+		TileUtils.testTileDataStream(geoPackage);
+
+	}
+
 	/**
 	 * Test testThreadedTileDao
 	 *
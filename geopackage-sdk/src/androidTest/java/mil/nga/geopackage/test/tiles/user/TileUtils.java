@@ -10,9 +10,11 @@ import com.j256.ormlite.stmt.QueryBuilder;
 
 import junit.framework.TestCase;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -48,6 +50,7 @@ import mil.nga.geopackage.tiles.user.TileDao;
 import mil.nga.geopackage.tiles.user.TileRow;
 import mil.nga.geopackage.tiles.user.TileTable;
 import mil.nga.geopackage.user.ColumnValue;
+import mil.nga.geopackage.user.UserBlobInputStream;
 import mil.nga.sf.proj.ProjectionConstants;
 import mil.nga.sf.proj.ProjectionFactory;
 
@@ -1264,6 +1267,80 @@ public class TileUtils {
 
     }
 
+    /**
+     * Test streaming tile data in chunks
+     *
+     * @param geoPackage GeoPackage
+     * @throws SQLException upon error
+     * @throws IOException  upon error
+     */
+    public static void testTileDataStream(GeoPackage geoPackage)
+            throws SQLException, IOException {
+
+        TileMatrixSetDao tileMatrixSetDao = geoPackage.getTileMatrixSetDao();
+
+        if (tileMatrixSetDao.isTableExists()) {
+
+            List<TileMatrixSet> results = tileMatrixSetDao.queryForAll();
+            for (TileMatrixSet tileMatrixSet : results) {
+
+                TileDao dao = geoPackage.getTileDao(tileMatrixSet);
+
+                int tested = 0;
+                TileCursor cursor = dao.queryForAll();
+                try {
+                    while (tested < 10 && cursor.moveToNext()) {
+
+                        TileRow tileRow = cursor.getRow();
+                        byte[] tileData = tileRow.getTileData();
+                        if (tileData == null || tileData.length == 0) {
+                            continue;
+                        }
+                        tested++;
+
+                        // Read across chunk boundaries with small chunks
+                        int chunkSize = Math.max(1, tileData.length / 3);
+                        UserBlobInputStream stream = dao.readBlob(
+                                tileRow.getTileDataColumn().getName(),
+                                tileRow.getId(), chunkSize);
+                        try {
+                            TestCase.assertEquals(chunkSize, stream.getChunkSize());
+                            TestCase.assertEquals(tileData.length, stream.length());
+                            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                            byte[] buffer = new byte[7];
+                            int read;
+                            while ((read = stream.read(buffer)) != -1) {
+                                bytes.write(buffer, 0, read);
+                            }
+                            TestCase.assertTrue(Arrays.equals(tileData,
+                                    bytes.toByteArray()));
+                            TestCase.assertEquals(-1, stream.read());
+                        } finally {
+                            stream.close();
+                        }
+
+                        // Skip without reading and read the remaining bytes
+                        stream = tileRow.getTileDataStream(dao);
+                        try {
+                            int skip = tileData.length / 2;
+                            TestCase.assertEquals(skip, stream.skip(skip));
+                            TestCase.assertEquals(skip, stream.position());
+                            byte[] remaining = stream.readAll();
+                            TestCase.assertTrue(Arrays.equals(Arrays.copyOfRange(
+                                    tileData, skip, tileData.length), remaining));
+                            TestCase.assertEquals(-1, stream.read());
+                        } finally {
+                            stream.close();
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+        }
+
+    }
+
     static boolean threadedTileDaoError = false;
 
     /**
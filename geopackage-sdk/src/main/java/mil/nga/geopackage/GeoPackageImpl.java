@@ -18,6 +18,7 @@ import mil.nga.geopackage.contents.ContentsDao;
 import mil.nga.geopackage.contents.ContentsDataType;
 import mil.nga.geopackage.db.CoreSQLUtils;
 import mil.nga.geopackage.db.GeoPackageConnection;
+import mil.nga.geopackage.extension.GeoPackageExtensionManager;
 import mil.nga.geopackage.extension.rtree.RTreeIndexExtension;
 import mil.nga.geopackage.db.GeoPackageCursorFactory;
 import mil.nga.geopackage.db.GeoPackageCursorWrapper;
@@ -151,10 +152,14 @@ public class GeoPackageImpl extends GeoPackageCoreImpl implements GeoPackage {
                 });
 
         // If the GeoPackage is writable and the feature table has a RTree Index
-        // extension, drop the RTree triggers.  User defined functions are currently not supported.
+        // extension, drop the RTree triggers and maintain the index from the feature dao
+        // on its connection. User defined functions are currently not supported.
         if (writable) {
             RTreeIndexExtension rtree = new RTreeIndexExtension(this);
             rtree.dropTriggers(featureTable);
+            if (rtree.has(featureTable)) {
+                dao.setRTreeIndexExtension(rtree);
+            }
         }
 
         return dao;
@@ -493,6 +498,14 @@ public class GeoPackageImpl extends GeoPackageCoreImpl implements GeoPackage {
         return database;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GeoPackageExtensionManager getExtensionManager() {
+        return new GeoPackageExtensionManager(this);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -19,6 +19,12 @@ public class AndroidBindingsSQLiteDatabase implements GeoPackageSQLiteDatabase {
      */
     private SQLiteDatabase db;
 
+    /**
+     * Statement cache
+     */
+    private final GeoPackageStatementCache statementCache = new GeoPackageStatementCache(
+            this);
+
     /**
      * Constructor
      */
@@ -42,6 +48,9 @@ public class AndroidBindingsSQLiteDatabase implements GeoPackageSQLiteDatabase {
      */
     public void setDb(SQLiteDatabase db) {
         this.db = db;
+        if (db != null) {
+            db.setMaxSqlCacheSize(statementCache.getMaxSize());
+        }
     }
 
     /**
@@ -131,11 +140,50 @@ public class AndroidBindingsSQLiteDatabase implements GeoPackageSQLiteDatabase {
         return db.rawQueryWithFactory(cursorFactory.getBindingsCursorFactory(), sql, selectionArgs, editTable);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GeoPackageSQLiteStatement compileStatement(String sql) throws SQLException {
+        return new AndroidBindingsSQLiteStatement(db.compileStatement(sql));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GeoPackageStatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GeoPackageSQLiteStatement getCachedStatement(String sql) throws SQLException {
+        return statementCache.getStatement(sql);
+    }
+
+    /**
+     * Set the max number of cached statements, for both the statement cache
+     * and the connection prepared statement cache
+     *
+     * @param maxSize max size, 0 to disable caching
+     * @since 4.0.1
+     */
+    public void setStatementCacheSize(int maxSize) {
+        statementCache.setMaxSize(maxSize);
+        if (db != null) {
+            db.setMaxSqlCacheSize(maxSize);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void close() {
+        statementCache.clear();
         if (db != null) {
             db.close();
         }
@@ -18,6 +18,12 @@ public class AndroidSQLiteDatabase implements GeoPackageSQLiteDatabase {
      */
     private final SQLiteDatabase db;
 
+    /**
+     * Statement cache
+     */
+    private final GeoPackageStatementCache statementCache = new GeoPackageStatementCache(
+            this);
+
     /**
      * Constructor
      *
@@ -114,11 +120,48 @@ public class AndroidSQLiteDatabase implements GeoPackageSQLiteDatabase {
         return db.rawQueryWithFactory(cursorFactory, sql, selectionArgs, editTable);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GeoPackageSQLiteStatement compileStatement(String sql) throws SQLException {
+        return new AndroidSQLiteStatement(db.compileStatement(sql));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GeoPackageStatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GeoPackageSQLiteStatement getCachedStatement(String sql) throws SQLException {
+        return statementCache.getStatement(sql);
+    }
+
+    /**
+     * Set the max number of cached statements, for both the statement cache
+     * and the connection prepared statement cache
+     *
+     * @param maxSize max size, 0 to disable caching
+     * @since 4.0.1
+     */
+    public void setStatementCacheSize(int maxSize) {
+        statementCache.setMaxSize(maxSize);
+        db.setMaxSqlCacheSize(maxSize);
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void close() {
+        statementCache.clear();
         db.close();
     }
 
@@ -4,6 +4,7 @@ import android.content.Context;
 import android.database.Cursor;
 import android.util.Log;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
 
@@ -16,12 +17,15 @@ import mil.nga.geopackage.db.metadata.GeometryMetadataDataSource;
 import mil.nga.geopackage.db.metadata.TableMetadata;
 import mil.nga.geopackage.db.metadata.TableMetadataDataSource;
 import mil.nga.geopackage.features.index.FeatureIndexMetadataResults;
+import mil.nga.geopackage.features.index.FeatureIndexNearestResults;
+import mil.nga.geopackage.features.index.RTreeNearestSearch;
 import mil.nga.geopackage.features.user.FeatureCursor;
 import mil.nga.geopackage.features.user.FeatureDao;
 import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.features.user.FeatureRowSync;
 import mil.nga.geopackage.geom.GeoPackageGeometryData;
 import mil.nga.geopackage.io.GeoPackageProgress;
+import mil.nga.geopackage.proj.ProjectionTransformCache;
 import mil.nga.sf.Geometry;
 import mil.nga.sf.GeometryEnvelope;
 import mil.nga.sf.proj.Projection;
@@ -68,6 +72,18 @@ public class FeatureIndexer {
      */
     protected int chunkLimit = 1000;
 
+    /**
+     * Bulk index flag, when enabled table indexing reuses a single compiled
+     * insert statement within chunked transactions
+     */
+    private boolean bulkIndex = true;
+
+    /**
+     * Bulk index transaction limit, minimum number of indexed rows committed
+     * per transaction
+     */
+    protected int transactionLimit = 10000;
+
     /**
      * Constructor
      *
@@ -82,6 +98,16 @@ public class FeatureIndexer {
         geometryMetadataDataSource = new GeometryMetadataDataSource(db);
     }
 
+    /**
+     * Get the feature DAO
+     *
+     * @return feature DAO
+     * @since 4.0.1
+     */
+    public FeatureDao getFeatureDao() {
+        return featureDao;
+    }
+
     /**
      * Close the database connection in the feature indexer
      *
@@ -120,6 +146,49 @@ public class FeatureIndexer {
         this.chunkLimit = chunkLimit;
     }
 
+    /**
+     * Is bulk indexing enabled
+     *
+     * @return true if bulk indexing
+     * @since 4.0.1
+     */
+    public boolean isBulkIndex() {
+        return bulkIndex;
+    }
+
+    /**
+     * Set the bulk index flag. When enabled (default is true), table indexing
+     * inserts through a single compiled statement and commits in transactions
+     * of at least the transaction limit rows.
+     *
+     * @param bulkIndex true to bulk index
+     * @since 4.0.1
+     */
+    public void setBulkIndex(boolean bulkIndex) {
+        this.bulkIndex = bulkIndex;
+    }
+
+    /**
+     * Get the bulk index transaction limit
+     *
+     * @return transaction limit
+     * @since 4.0.1
+     */
+    public int getTransactionLimit() {
+        return transactionLimit;
+    }
+
+    /**
+     * Set the bulk index transaction limit, the minimum number of indexed rows
+     * committed per transaction
+     *
+     * @param transactionLimit transaction limit
+     * @since 4.0.1
+     */
+    public void setTransactionLimit(int transactionLimit) {
+        this.transactionLimit = transactionLimit;
+    }
+
     /**
      * Index the feature table if needed
      *
@@ -153,7 +222,7 @@ public class FeatureIndexer {
     public boolean index(FeatureRow row) {
 
         long geoPackageId = geometryMetadataDataSource.getGeoPackageId(featureDao.getDatabase());
-        boolean indexed = index(geoPackageId, row, true);
+        boolean indexed = index(geoPackageId, row, true, null);
 
         // Update the last indexed time
         updateLastIndexed(db, geoPackageId);
@@ -162,102 +231,172 @@ public class FeatureIndexer {
     }
 
     /**
-     * Index the feature table
+     * Index feature changes without re-indexing the table. Changed rows are
+     * re-indexed, or have their index removed when without a geometry, and
+     * the deleted feature ids are removed from the index. This method assumes
+     * that indexing has been completed and maintained as the last indexed time
+     * is updated.
      *
-     * @return count
+     * @param rows       changed feature rows
+     * @param deletedIds deleted feature ids
+     * @return indexed count
+     * @since 4.0.1
      */
-    private int indexTable() {
+    public int indexChanges(Collection<FeatureRow> rows, Collection<Long> deletedIds) {
 
         int count = 0;
 
-        // Get or create the table metadata
-        TableMetadataDataSource tableDs = new TableMetadataDataSource(db);
-        TableMetadata metadata = tableDs.getOrCreate(featureDao.getDatabase(), featureDao.getTableName());
-
-        // Delete existing index rows
-        geometryMetadataDataSource.delete(featureDao.getDatabase(), featureDao.getTableName());
-
-        long offset = 0;
-        int chunkCount = 0;
-
-        // Index all features
-        while (chunkCount >= 0) {
-
-            FeatureCursor cursor = featureDao.queryForChunk(chunkLimit, offset);
-            chunkCount = indexRows(metadata.getGeoPackageId(), cursor);
+        long geoPackageId = geometryMetadataDataSource.getGeoPackageId(featureDao.getDatabase());
 
-            if (chunkCount > 0) {
-                count += chunkCount;
+        geometryMetadataDataSource.beginTransaction();
+        boolean successful = false;
+        try {
+            for (FeatureRow row : rows) {
+                if (index(geoPackageId, row, true, null)) {
+                    count++;
+                } else {
+                    geometryMetadataDataSource.delete(geoPackageId, featureDao.getTableName(), row.getId());
+                }
             }
-
-            offset += chunkLimit;
+            for (long geomId : deletedIds) {
+                geometryMetadataDataSource.delete(geoPackageId, featureDao.getTableName(), geomId);
+            }
+            successful = true;
+        } finally {
+            geometryMetadataDataSource.endTransaction(successful);
         }
 
         // Update the last indexed time
-        if (progress == null || progress.isActive()) {
-            updateLastIndexed(db, metadata.getGeoPackageId());
-        }
+        updateLastIndexed(db, geoPackageId);
 
         return count;
     }
 
     /**
-     * Index the feature rows in the cursor
+     * Index the feature table
      *
-     * @param geoPackageId GeoPackage id
-     * @param cursor       feature cursor
-     * @return count, -1 if no results or canceled
+     * @return count
      */
-    private int indexRows(long geoPackageId, FeatureCursor cursor) {
+    private int indexTable() {
+
+        int count = 0;
 
-        int count = -1;
+        long startTime = System.currentTimeMillis();
 
+        // Get or create the table metadata
+        TableMetadataDataSource tableDs = new TableMetadataDataSource(db);
+        TableMetadata metadata = tableDs.getOrCreate(featureDao.getDatabase(), featureDao.getTableName());
+
+        GeoPackageSQLiteStatement insertStatement = null;
+        if (bulkIndex) {
+            insertStatement = geometryMetadataDataSource.compileInsert();
+            geometryMetadataDataSource.beginTransaction();
+        }
+
+        boolean successful = false;
         try {
-            while ((progress == null || progress.isActive())
-                    && cursor.moveToNext()) {
-                if (count < 0) {
-                    count++;
-                }
+
+            // Delete existing index rows
+            geometryMetadataDataSource.delete(featureDao.getDatabase(), featureDao.getTableName());
+
+            String[] columns = featureDao.getIdAndGeometryColumnNames();
+            long lastId = Long.MIN_VALUE;
+            int chunkCount = 0;
+            int uncommitted = 0;
+
+            // Index all features, seeking each chunk by primary key
+            while (chunkCount >= 0) {
+
+                long chunkStartId = lastId;
+
+                FeatureCursor cursor = featureDao.queryForChunkAfterId(columns, lastId, chunkLimit);
+                chunkCount = -1;
                 try {
-                    FeatureRow row = cursor.getRow();
-                    if (row.isValid()) {
-                        boolean indexed = index(geoPackageId, row, false);
-                        if (indexed) {
-                            count++;
+                    while ((progress == null || progress.isActive())
+                            && cursor.moveToNext()) {
+                        if (chunkCount < 0) {
+                            chunkCount++;
                         }
-                        if (progress != null) {
-                            progress.addProgress(1);
+                        try {
+                            if (cursor.isInvalidRow()) {
+                                // Read from the invalid row requery
+                                continue;
+                            }
+                            // Read the envelope without building the geometry
+                            long id = cursor.getId();
+                            lastId = Math.max(lastId, id);
+                            GeometryEnvelope envelope = cursor.getGeometryEnvelope();
+                            boolean indexed = index(metadata.getGeoPackageId(), id, envelope, false, insertStatement);
+                            if (indexed) {
+                                chunkCount++;
+                            }
+                            if (progress != null) {
+                                progress.addProgress(1);
+                            }
+                        } catch (Exception e) {
+                            Log.e(FeatureIndexer.class.getSimpleName(), "Failed to index feature. Table: "
+                                    + featureDao.getTableName() + ", Position: " + cursor.getPosition(), e);
                         }
                     }
-                } catch (Exception e) {
-                    Log.e(FeatureIndexer.class.getSimpleName(), "Failed to index feature. Table: "
-                            + featureDao.getTableName() + ", Position: " + cursor.getPosition(), e);
+                } finally {
+                    cursor.close();
+                }
+
+                if (chunkCount > 0) {
+                    count += chunkCount;
+                    uncommitted += chunkCount;
+                    if (insertStatement != null && uncommitted >= transactionLimit) {
+                        geometryMetadataDataSource.commit();
+                        uncommitted = 0;
+                    }
+                } else if (chunkCount == 0 && lastId == chunkStartId) {
+                    // No readable rows in the chunk to advance the key
+                    Log.w(FeatureIndexer.class.getSimpleName(), "Stopped indexing at unreadable features. Table: "
+                            + featureDao.getTableName() + ", After Id: " + lastId);
+                    break;
                 }
             }
+
+            successful = true;
         } finally {
-            cursor.close();
+            if (insertStatement != null) {
+                geometryMetadataDataSource.endTransaction(successful);
+                insertStatement.close();
+            }
+        }
+
+        // Update the last indexed time
+        if (progress == null || progress.isActive()) {
+            updateLastIndexed(db, metadata.getGeoPackageId());
         }
 
+        long duration = System.currentTimeMillis() - startTime;
+        Log.i(FeatureIndexer.class.getSimpleName(), "Indexed features. Table: "
+                + featureDao.getTableName() + ", Count: " + count
+                + ", Milliseconds: " + duration + ", Features per second: "
+                + (duration > 0 ? count * 1000L / duration : count));
+
         return count;
     }
 
     /**
      * Index the feature row
      *
-     * @param geoPackageId   GeoPackage id
-     * @param row            feature row
-     * @param possibleUpdate possible update flag
+     * @param geoPackageId    GeoPackage id
+     * @param row             feature row
+     * @param possibleUpdate  possible update flag
+     * @param insertStatement bulk insert statement, null to insert individually
      * @return true if indexed
      */
-    private boolean index(long geoPackageId, FeatureRow row, boolean possibleUpdate) {
+    private boolean index(long geoPackageId, FeatureRow row, boolean possibleUpdate, GeoPackageSQLiteStatement insertStatement) {
 
-        boolean indexed = false;
+        GeometryEnvelope envelope = null;
 
         GeoPackageGeometryData geomData = row.getGeometry();
         if (geomData != null) {
 
             // Get the envelope
-            GeometryEnvelope envelope = geomData.getEnvelope();
+            envelope = geomData.getEnvelope();
 
             // If no envelope, build one from the geometry
             if (envelope == null) {
@@ -266,17 +405,37 @@ public class FeatureIndexer {
                     envelope = GeometryEnvelopeBuilder.buildEnvelope(geometry);
                 }
             }
+        }
 
-            // Create the new index row
-            if (envelope != null) {
-                GeometryMetadata metadata = geometryMetadataDataSource.populate(geoPackageId, featureDao.getTableName(), row.getId(), envelope);
-                if (possibleUpdate) {
-                    geometryMetadataDataSource.createOrUpdate(metadata);
-                } else {
-                    geometryMetadataDataSource.create(metadata);
-                }
-                indexed = true;
+        return index(geoPackageId, row.getId(), envelope, possibleUpdate, insertStatement);
+    }
+
+    /**
+     * Index the feature envelope
+     *
+     * @param geoPackageId    GeoPackage id
+     * @param id              feature id
+     * @param envelope        feature geometry envelope, not indexed when null
+     * @param possibleUpdate  possible update flag
+     * @param insertStatement bulk insert statement, null to insert individually
+     * @return true if indexed
+     */
+    private boolean index(long geoPackageId, long id, GeometryEnvelope envelope, boolean possibleUpdate, GeoPackageSQLiteStatement insertStatement) {
+
+        boolean indexed = false;
+
+        // Create the new index row
+        if (envelope != null && insertStatement != null) {
+            geometryMetadataDataSource.create(insertStatement, geoPackageId, featureDao.getTableName(), id, envelope);
+            indexed = true;
+        } else if (envelope != null) {
+            GeometryMetadata metadata = geometryMetadataDataSource.populate(geoPackageId, featureDao.getTableName(), id, envelope);
+            if (possibleUpdate) {
+                geometryMetadataDataSource.createOrUpdate(metadata);
+            } else {
+                geometryMetadataDataSource.create(metadata);
             }
+            indexed = true;
         }
 
         return indexed;
@@ -782,8 +941,8 @@ public class FeatureIndexer {
     public BoundingBox getBoundingBox(Projection projection) {
         BoundingBox boundingBox = getBoundingBox();
         if (boundingBox != null && projection != null) {
-            ProjectionTransform projectionTransform = featureDao.getProjection()
-                    .getTransformation(projection);
+            ProjectionTransform projectionTransform = ProjectionTransformCache
+                    .getTransformation(featureDao.getProjection(), projection);
             boundingBox = boundingBox.transform(projectionTransform);
         }
         return boundingBox;
@@ -2184,8 +2343,8 @@ public class FeatureIndexer {
      */
     private BoundingBox getFeatureBoundingBox(BoundingBox boundingBox,
                                               Projection projection) {
-        ProjectionTransform projectionTransform = projection
-                .getTransformation(featureDao.getProjection());
+        ProjectionTransform projectionTransform = ProjectionTransformCache
+                .getTransformation(projection, featureDao.getProjection());
         BoundingBox featureBoundingBox = boundingBox
                 .transform(projectionTransform);
         return featureBoundingBox;
@@ -2251,6 +2410,66 @@ public class FeatureIndexer {
         return row;
     }
 
+    /**
+     * Is the geometry metadata R-tree available for nearest queries
+     *
+     * @return true if R-tree indexed
+     * @since 4.0.1
+     */
+    public boolean isRTree() {
+        return geometryMetadataDataSource.isRTree();
+    }
+
+    /**
+     * Query for the k nearest features to the point with a best-first
+     * traversal of the geometry metadata R-tree. The R-tree is shared by all
+     * indexed tables, entries of other tables are skipped as they are reached.
+     *
+     * @param x           x coordinate, in the feature projection
+     * @param y           y coordinate, in the feature projection
+     * @param k           maximum number of features
+     * @param maxDistance maximum distance, in the feature projection units
+     * @return nearest feature results, nearest first
+     * @since 4.0.1
+     */
+    public FeatureIndexNearestResults nearest(double x, double y, int k, double maxDistance) {
+
+        if (!isRTree()) {
+            throw new GeoPackageException("Geometry metadata R-tree is not available. GeoPackage: "
+                    + featureDao.getDatabase() + ", Table: " + featureDao.getTableName());
+        }
+
+        final long geoPackageId = geometryMetadataDataSource.getGeoPackageId(featureDao.getDatabase());
+        final String tableName = featureDao.getTableName();
+
+        RTreeNearestSearch search = new RTreeNearestSearch(x, y) {
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            protected byte[] readNode(long nodeNo) {
+                return geometryMetadataDataSource.readRTreeNode(nodeNo);
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            protected FeatureRow readFeature(long id) {
+                FeatureRow row = null;
+                long geomId = geometryMetadataDataSource.getRTreeGeometryId(geoPackageId, tableName, id);
+                if (geomId >= 0) {
+                    row = featureDao.queryForIdRow(geomId);
+                }
+                return row;
+            }
+
+        };
+
+        return search.search(k, maxDistance);
+    }
+
     /**
      * Get the query range tolerance
      *
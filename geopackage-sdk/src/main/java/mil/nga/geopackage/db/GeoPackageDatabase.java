@@ -321,6 +321,42 @@ public class GeoPackageDatabase implements GeoPackageSQLiteDatabase {
         return getActive().rawQueryWithFactory(cursorFactory, sql, selectionArgs, editTable);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GeoPackageSQLiteStatement compileStatement(String sql) throws SQLException {
+        return getActive().compileStatement(sql);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GeoPackageStatementCache getStatementCache() {
+        return getActive().getStatementCache();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GeoPackageSQLiteStatement getCachedStatement(String sql) throws SQLException {
+        return getActive().getCachedStatement(sql);
+    }
+
+    /**
+     * Set the max number of cached statements for both the standard and
+     * bindings connections
+     *
+     * @param maxSize max size, 0 to disable caching
+     * @since 4.0.1
+     */
+    public void setStatementCacheSize(int maxSize) {
+        db.setStatementCacheSize(maxSize);
+        bindingsDb.setStatementCacheSize(maxSize);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -84,6 +84,37 @@ public interface GeoPackageSQLiteDatabase {
      */
     public Cursor rawQueryWithFactory(GeoPackageCursorFactory cursorFactory, String sql, String[] selectionArgs, String editTable);
 
+    /**
+     * Compile a reusable statement. The caller is responsible for closing the
+     * statement.
+     *
+     * @param sql sql statement
+     * @return compiled statement
+     * @see SQLiteDatabase#compileStatement(String)
+     * @since 4.0.1
+     */
+    public GeoPackageSQLiteStatement compileStatement(String sql) throws SQLException;
+
+    /**
+     * Get the least recently used cache of compiled statements for the
+     * connection
+     *
+     * @return statement cache
+     * @since 4.0.1
+     */
+    public GeoPackageStatementCache getStatementCache();
+
+    /**
+     * Get a cached compiled statement, compiling it on first use. The
+     * statement is owned by the cache and must not be closed.
+     *
+     * @param sql sql statement
+     * @return compiled statement
+     * @see GeoPackageStatementCache#getStatement(String)
+     * @since 4.0.1
+     */
+    public GeoPackageSQLiteStatement getCachedStatement(String sql) throws SQLException;
+
     /**
      * Close the connection
      *
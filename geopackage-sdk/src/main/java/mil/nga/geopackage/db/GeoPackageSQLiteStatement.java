@@ -0,0 +1,111 @@
+package mil.nga.geopackage.db;
+
+import android.database.SQLException;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * GeoPackage SQLiteStatement interface for a compiled and reusable statement
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public interface GeoPackageSQLiteStatement {
+
+    /**
+     * Bind a null value
+     *
+     * @param index 1-based bind index
+     * @see SQLiteStatement#bindNull(int)
+     */
+    public void bindNull(int index);
+
+    /**
+     * Bind a long value
+     *
+     * @param index 1-based bind index
+     * @param value value
+     * @see SQLiteStatement#bindLong(int, long)
+     */
+    public void bindLong(int index, long value);
+
+    /**
+     * Bind a double value
+     *
+     * @param index 1-based bind index
+     * @param value value
+     * @see SQLiteStatement#bindDouble(int, double)
+     */
+    public void bindDouble(int index, double value);
+
+    /**
+     * Bind a string value
+     *
+     * @param index 1-based bind index
+     * @param value value
+     * @see SQLiteStatement#bindString(int, String)
+     */
+    public void bindString(int index, String value);
+
+    /**
+     * Bind a blob value
+     *
+     * @param index 1-based bind index
+     * @param value value
+     * @see SQLiteStatement#bindBlob(int, byte[])
+     */
+    public void bindBlob(int index, byte[] value);
+
+    /**
+     * Clear all bindings
+     *
+     * @see SQLiteStatement#clearBindings()
+     */
+    public void clearBindings();
+
+    /**
+     * Execute the statement
+     *
+     * @see SQLiteStatement#execute()
+     */
+    public void execute() throws SQLException;
+
+    /**
+     * Execute the insert statement
+     *
+     * @return row id, -1 on error
+     * @see SQLiteStatement#executeInsert()
+     */
+    public long executeInsert() throws SQLException;
+
+    /**
+     * Execute the update or delete statement
+     *
+     * @return number of rows affected
+     * @see SQLiteStatement#executeUpdateDelete()
+     */
+    public int executeUpdateDelete() throws SQLException;
+
+    /**
+     * Execute the statement returning a 1 by 1 long result
+     *
+     * @return long result
+     * @see SQLiteStatement#simpleQueryForLong()
+     */
+    public long simpleQueryForLong() throws SQLException;
+
+    /**
+     * Execute the statement returning a 1 by 1 string result
+     *
+     * @return string result
+     * @see SQLiteStatement#simpleQueryForString()
+     */
+    public String simpleQueryForString() throws SQLException;
+
+    /**
+     * Close the statement
+     *
+     * @see SQLiteStatement#close()
+     */
+    public void close();
+
+}
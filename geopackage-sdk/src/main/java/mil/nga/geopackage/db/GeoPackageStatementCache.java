@@ -0,0 +1,241 @@
+package mil.nga.geopackage.db;
+
+import android.util.Log;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import mil.nga.geopackage.GeoPackageException;
+
+/**
+ * Least recently used cache of compiled SQL statements keyed by SQL text,
+ * for a single SQLite connection. Compiled statements are reused by repeated
+ * statement requests and closed when evicted. Hit and miss counts reflect
+ * statement compilations avoided and performed.
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public class GeoPackageStatementCache {
+
+    /**
+     * Default max number of cached statements
+     */
+    public static final int DEFAULT_MAX_SIZE = 25;
+
+    /**
+     * Largest supported max number of cached statements, matching the SQLite
+     * connection prepared statement cache limit
+     */
+    public static final int MAX_SIZE_LIMIT = 100;
+
+    /**
+     * Connection used to compile statements
+     */
+    private final GeoPackageSQLiteDatabase db;
+
+    /**
+     * Cached statements by SQL, in access order
+     */
+    private final LinkedHashMap<String, GeoPackageSQLiteStatement> statements = new LinkedHashMap<>(
+            16, 0.75f, true);
+
+    /**
+     * Most recent statement compiled while caching is disabled, closed on the
+     * next statement request or clear
+     */
+    private GeoPackageSQLiteStatement uncached = null;
+
+    /**
+     * Max number of cached statements
+     */
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    /**
+     * Cache hits
+     */
+    private long hits = 0;
+
+    /**
+     * Cache misses
+     */
+    private long misses = 0;
+
+    /**
+     * Cache evictions
+     */
+    private long evictions = 0;
+
+    /**
+     * Constructor
+     *
+     * @param db connection used to compile statements
+     */
+    public GeoPackageStatementCache(GeoPackageSQLiteDatabase db) {
+        this.db = db;
+    }
+
+    /**
+     * Get the max number of cached statements
+     *
+     * @return max size
+     */
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Set the max number of cached statements, evicting least recently used
+     * statements when reduced
+     *
+     * @param maxSize max size, 0 to disable caching
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0 || maxSize > MAX_SIZE_LIMIT) {
+            throw new GeoPackageException("Statement cache max size must be between 0 and "
+                    + MAX_SIZE_LIMIT + ": " + maxSize);
+        }
+        this.maxSize = maxSize;
+        trim();
+    }
+
+    /**
+     * Get the cached compiled statement for the SQL, compiling and caching it
+     * on a miss. The returned statement is owned by the cache and must not be
+     * closed. When caching is disabled, the statement remains valid until the
+     * next statement request, which closes it. Statements hold their
+     * bindings, so callers sharing a connection across threads must
+     * synchronize on the statement while binding and executing it.
+     *
+     * @param sql SQL statement
+     * @return compiled statement
+     */
+    public synchronized GeoPackageSQLiteStatement getStatement(String sql) {
+        close(uncached);
+        uncached = null;
+        GeoPackageSQLiteStatement statement = statements.get(sql);
+        if (statement != null) {
+            hits++;
+            statement.clearBindings();
+        } else {
+            misses++;
+            statement = db.compileStatement(sql);
+            if (maxSize > 0) {
+                statements.put(sql, statement);
+                trim();
+            } else {
+                uncached = statement;
+            }
+        }
+        return statement;
+    }
+
+    /**
+     * Determine if the SQL is cached
+     *
+     * @param sql SQL statement
+     * @return true if cached
+     */
+    public synchronized boolean contains(String sql) {
+        return statements.containsKey(sql);
+    }
+
+    /**
+     * Get the number of cached statements
+     *
+     * @return size
+     */
+    public synchronized int size() {
+        return statements.size();
+    }
+
+    /**
+     * Get the number of cache hits
+     *
+     * @return hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of cache misses
+     *
+     * @return misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of cache evictions
+     *
+     * @return evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Get the cache hit rate
+     *
+     * @return hit rate between 0.0 and 1.0, 0.0 when unused
+     */
+    public synchronized double getHitRate() {
+        long requests = hits + misses;
+        return requests > 0 ? hits / (double) requests : 0.0;
+    }
+
+    /**
+     * Reset the hit, miss, and eviction counters
+     */
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    /**
+     * Close and remove all cached statements
+     */
+    public synchronized void clear() {
+        close(uncached);
+        uncached = null;
+        for (GeoPackageSQLiteStatement statement : statements.values()) {
+            close(statement);
+        }
+        statements.clear();
+    }
+
+    /**
+     * Evict the least recently used statements over the max size
+     */
+    private void trim() {
+        Iterator<Map.Entry<String, GeoPackageSQLiteStatement>> iterator = statements
+                .entrySet().iterator();
+        while (statements.size() > maxSize && iterator.hasNext()) {
+            GeoPackageSQLiteStatement statement = iterator.next().getValue();
+            iterator.remove();
+            close(statement);
+            evictions++;
+        }
+    }
+
+    /**
+     * Close the statement
+     *
+     * @param statement statement, may be null
+     */
+    private void close(GeoPackageSQLiteStatement statement) {
+        if (statement != null) {
+            try {
+                statement.close();
+            } catch (Exception e) {
+                Log.w(GeoPackageStatementCache.class.getSimpleName(),
+                        "Failed to close cached statement", e);
+            }
+        }
+    }
+
+}
@@ -3,6 +3,7 @@ package mil.nga.geopackage.db.metadata;
 import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
 
 import mil.nga.geopackage.GeoPackageException;
 import mil.nga.geopackage.db.GeoPackageDatabase;
@@ -21,8 +22,11 @@ public class GeoPackageMetadataDb extends SQLiteOpenHelper {
 
     /**
      * Metadata database version
+     * <p>
+     * Version 2 adds the {@link GeometryMetadata#RTREE_TABLE_NAME} R-tree
+     * index companion to the geometry metadata table
      */
-    public static final int DATABASE_VERSION = 1;
+    public static final int DATABASE_VERSION = 2;
 
     /**
      * Open db
@@ -53,10 +57,14 @@ public class GeoPackageMetadataDb extends SQLiteOpenHelper {
      */
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + GeometryMetadata.TABLE_NAME);
-        db.execSQL("DROP TABLE IF EXISTS " + TableMetadata.TABLE_NAME);
-        db.execSQL("DROP TABLE IF EXISTS " + GeoPackageMetadata.TABLE_NAME);
-        onCreate(db);
+        if (oldVersion < 2) {
+            // Version 1 tables are retained. The geometry metadata R-tree is
+            // created and populated from the existing rows by the geometry
+            // metadata data source on the bindings connection.
+            Log.i(GeoPackageMetadataDb.class.getSimpleName(),
+                    "Upgraded metadata database from version " + oldVersion
+                            + " to " + newVersion);
+        }
     }
 
     /**
@@ -64,6 +72,7 @@ public class GeoPackageMetadataDb extends SQLiteOpenHelper {
      */
     public void open() {
         db = new GeoPackageDatabase(getWritableDatabase());
+        GeometryMetadataDataSource.clearRTreeAvailable(db.getDb().getPath());
     }
 
     /**
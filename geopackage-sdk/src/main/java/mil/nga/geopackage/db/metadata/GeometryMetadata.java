@@ -105,6 +105,89 @@ public class GeometryMetadata {
             + "CONSTRAINT fk_gm_tm FOREIGN KEY (" + COLUMN_TABLE_NAME + ") REFERENCES " + TableMetadata.TABLE_NAME + "(" + TableMetadata.COLUMN_TABLE_NAME + ")"
             + ");";
 
+    /**
+     * R-tree index table name
+     *
+     * @since 4.0.1
+     */
+    public static final String RTREE_TABLE_NAME = TABLE_NAME + "_rtree";
+
+    /**
+     * R-tree id column, the geometry metadata row id
+     *
+     * @since 4.0.1
+     */
+    public static final String RTREE_COLUMN_ID = "id";
+
+    /**
+     * Create R-tree index table SQL
+     *
+     * @since 4.0.1
+     */
+    public static final String CREATE_RTREE_SQL = "CREATE VIRTUAL TABLE "
+            + RTREE_TABLE_NAME + " USING rtree("
+            + RTREE_COLUMN_ID + ", "
+            + COLUMN_MIN_X + ", "
+            + COLUMN_MAX_X + ", "
+            + COLUMN_MIN_Y + ", "
+            + COLUMN_MAX_Y + ")";
+
+    /**
+     * Populate the R-tree index table from existing geometry metadata SQL
+     *
+     * @since 4.0.1
+     */
+    public static final String POPULATE_RTREE_SQL = "INSERT OR REPLACE INTO "
+            + RTREE_TABLE_NAME + " SELECT rowid, "
+            + COLUMN_MIN_X + ", " + COLUMN_MAX_X + ", "
+            + COLUMN_MIN_Y + ", " + COLUMN_MAX_Y + " FROM " + TABLE_NAME;
+
+    /**
+     * R-tree replace trigger SQL, removes the R-tree entry of an existing
+     * geometry metadata row before an insert replaces it. Rows deleted by a
+     * REPLACE conflict do not fire the delete trigger.
+     *
+     * @since 4.0.1
+     */
+    public static final String CREATE_RTREE_REPLACE_TRIGGER_SQL = "CREATE TRIGGER "
+            + RTREE_TABLE_NAME + "_replace BEFORE INSERT ON " + TABLE_NAME
+            + " BEGIN DELETE FROM " + RTREE_TABLE_NAME + " WHERE " + RTREE_COLUMN_ID
+            + " = (SELECT rowid FROM " + TABLE_NAME + " WHERE "
+            + COLUMN_GEOPACKAGE_ID + " = NEW." + COLUMN_GEOPACKAGE_ID + " AND "
+            + COLUMN_TABLE_NAME + " = NEW." + COLUMN_TABLE_NAME + " AND "
+            + COLUMN_ID + " = NEW." + COLUMN_ID + "); END;";
+
+    /**
+     * R-tree insert trigger SQL, maintains the R-tree as geometry metadata is created
+     *
+     * @since 4.0.1
+     */
+    public static final String CREATE_RTREE_INSERT_TRIGGER_SQL = "CREATE TRIGGER "
+            + RTREE_TABLE_NAME + "_insert AFTER INSERT ON " + TABLE_NAME
+            + " BEGIN INSERT OR REPLACE INTO " + RTREE_TABLE_NAME + " VALUES (NEW.rowid, NEW."
+            + COLUMN_MIN_X + ", NEW." + COLUMN_MAX_X + ", NEW."
+            + COLUMN_MIN_Y + ", NEW." + COLUMN_MAX_Y + "); END;";
+
+    /**
+     * R-tree update trigger SQL, maintains the R-tree as geometry metadata is updated
+     *
+     * @since 4.0.1
+     */
+    public static final String CREATE_RTREE_UPDATE_TRIGGER_SQL = "CREATE TRIGGER "
+            + RTREE_TABLE_NAME + "_update AFTER UPDATE ON " + TABLE_NAME
+            + " BEGIN INSERT OR REPLACE INTO " + RTREE_TABLE_NAME + " VALUES (NEW.rowid, NEW."
+            + COLUMN_MIN_X + ", NEW." + COLUMN_MAX_X + ", NEW."
+            + COLUMN_MIN_Y + ", NEW." + COLUMN_MAX_Y + "); END;";
+
+    /**
+     * R-tree delete trigger SQL, maintains the R-tree as geometry metadata is deleted
+     *
+     * @since 4.0.1
+     */
+    public static final String CREATE_RTREE_DELETE_TRIGGER_SQL = "CREATE TRIGGER "
+            + RTREE_TABLE_NAME + "_delete AFTER DELETE ON " + TABLE_NAME
+            + " BEGIN DELETE FROM " + RTREE_TABLE_NAME + " WHERE " + RTREE_COLUMN_ID + " = OLD.rowid; END;";
+
     /**
      * GeoPackage Id
      */
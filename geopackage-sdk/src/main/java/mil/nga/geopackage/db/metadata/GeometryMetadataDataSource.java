@@ -2,11 +2,15 @@ package mil.nga.geopackage.db.metadata;
 
 import android.content.ContentValues;
 import android.database.Cursor;
-import android.database.DatabaseUtils;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
 
 import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackageException;
 import mil.nga.geopackage.db.GeoPackageDatabase;
+import mil.nga.geopackage.db.GeoPackageSQLiteStatement;
 import mil.nga.sf.GeometryEnvelope;
 
 /**
@@ -26,13 +30,24 @@ public class GeometryMetadataDataSource {
      */
     protected double tolerance = .00000000000001;
 
+    /**
+     * R-tree index table available flag
+     */
+    private final boolean rTree;
+
+    /**
+     * R-tree availability by metadata database path, checked once per open
+     * metadata database
+     */
+    private static final Map<String, Boolean> rTreeAvailable = new HashMap<>();
+
     /**
      * Constructor
      *
      * @param db metadata db
      */
     public GeometryMetadataDataSource(GeoPackageMetadataDb db) {
-        this.db = db.getDb();
+        this(db.getDb());
     }
 
     /**
@@ -41,7 +56,176 @@ public class GeometryMetadataDataSource {
      * @param db GeoPackage database
      */
     GeometryMetadataDataSource(GeoPackageDatabase db) {
-        this.db = db;
+        String path = db.getDb().getPath();
+        synchronized (rTreeAvailable) {
+            Boolean available = rTreeAvailable.get(path);
+            if (available == null || available) {
+                // The R-tree and its triggers require the bindings rtree module
+                GeoPackageDatabase bindingsDb = db.copy();
+                bindingsDb.setUseBindings(true);
+                this.db = bindingsDb;
+            }
+            if (available == null) {
+                available = openRTree();
+                if (!available) {
+                    this.db = db;
+                    dropRTreeTriggers();
+                }
+                rTreeAvailable.put(path, available);
+            } else if (!available) {
+                this.db = db;
+            }
+            rTree = available;
+        }
+    }
+
+    /**
+     * Clear the cached R-tree availability of the metadata database, checked
+     * again by the next data source
+     *
+     * @param path metadata database path
+     */
+    static void clearRTreeAvailable(String path) {
+        synchronized (rTreeAvailable) {
+            rTreeAvailable.remove(path);
+        }
+    }
+
+    /**
+     * Is the R-tree index table available for envelope queries
+     *
+     * @return true if R-tree indexed
+     * @since 4.0.1
+     */
+    public boolean isRTree() {
+        return rTree;
+    }
+
+    /**
+     * Open the R-tree index table on the bindings connection, creating and
+     * populating it when needed. The R-tree and its triggers are maintained
+     * on the bindings connection used for all geometry metadata reads and
+     * writes. When the R-tree can not be opened, the triggers are dropped and
+     * the data source uses the standard connection, so metadata writes still
+     * succeed and envelope queries use range predicates.
+     *
+     * @return true if the R-tree is available
+     */
+    private boolean openRTree() {
+
+        boolean available = false;
+
+        try {
+            if (!rTreeExists()) {
+                db.beginTransaction();
+                boolean successful = false;
+                try {
+                    db.execSQL(GeometryMetadata.CREATE_RTREE_SQL);
+                    db.execSQL(GeometryMetadata.POPULATE_RTREE_SQL);
+                    createRTreeTriggers();
+                    successful = true;
+                } finally {
+                    db.endTransaction(successful);
+                }
+            } else {
+                // Fails when this connection does not include the rtree module
+                Cursor cursor = db.rawQuery("SELECT " + GeometryMetadata.RTREE_COLUMN_ID
+                        + " FROM " + GeometryMetadata.RTREE_TABLE_NAME + " LIMIT 1", null);
+                try {
+                    cursor.moveToFirst();
+                } finally {
+                    cursor.close();
+                }
+            }
+            if (!rTreeTriggersExist()) {
+                // Rebuild an R-tree left stale while its triggers were dropped
+                db.beginTransaction();
+                boolean successful = false;
+                try {
+                    dropRTreeTriggers();
+                    db.execSQL("DELETE FROM " + GeometryMetadata.RTREE_TABLE_NAME);
+                    db.execSQL(GeometryMetadata.POPULATE_RTREE_SQL);
+                    createRTreeTriggers();
+                    successful = true;
+                } finally {
+                    db.endTransaction(successful);
+                }
+            }
+            available = true;
+        } catch (Exception e) {
+            Log.w(GeometryMetadataDataSource.class.getSimpleName(),
+                    "Geometry metadata R-tree is not available, using range queries: "
+                            + e.getMessage());
+        }
+
+        return available;
+    }
+
+    /**
+     * Create the triggers maintaining the R-tree from geometry metadata writes
+     */
+    private void createRTreeTriggers() {
+        db.execSQL(GeometryMetadata.CREATE_RTREE_REPLACE_TRIGGER_SQL);
+        db.execSQL(GeometryMetadata.CREATE_RTREE_INSERT_TRIGGER_SQL);
+        db.execSQL(GeometryMetadata.CREATE_RTREE_UPDATE_TRIGGER_SQL);
+        db.execSQL(GeometryMetadata.CREATE_RTREE_DELETE_TRIGGER_SQL);
+    }
+
+    /**
+     * Drop the R-tree triggers, such as those created by a connection with
+     * the rtree module, so geometry metadata writes do not require the module
+     */
+    private void dropRTreeTriggers() {
+        try {
+            db.execSQL("DROP TRIGGER IF EXISTS " + GeometryMetadata.RTREE_TABLE_NAME + "_replace");
+            db.execSQL("DROP TRIGGER IF EXISTS " + GeometryMetadata.RTREE_TABLE_NAME + "_insert");
+            db.execSQL("DROP TRIGGER IF EXISTS " + GeometryMetadata.RTREE_TABLE_NAME + "_update");
+            db.execSQL("DROP TRIGGER IF EXISTS " + GeometryMetadata.RTREE_TABLE_NAME + "_delete");
+        } catch (Exception e) {
+            Log.w(GeometryMetadataDataSource.class.getSimpleName(),
+                    "Failed to drop geometry metadata R-tree triggers", e);
+        }
+    }
+
+    /**
+     * Determine if all R-tree triggers exist
+     *
+     * @return true if the triggers exist
+     */
+    private boolean rTreeTriggersExist() {
+        boolean exists = false;
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM sqlite_master WHERE type = 'trigger' AND name IN (?, ?, ?, ?)",
+                new String[]{GeometryMetadata.RTREE_TABLE_NAME + "_replace",
+                        GeometryMetadata.RTREE_TABLE_NAME + "_insert",
+                        GeometryMetadata.RTREE_TABLE_NAME + "_update",
+                        GeometryMetadata.RTREE_TABLE_NAME + "_delete"});
+        try {
+            if (cursor.moveToNext()) {
+                exists = cursor.getInt(0) == 4;
+            }
+        } finally {
+            cursor.close();
+        }
+        return exists;
+    }
+
+    /**
+     * Determine if the R-tree index table exists
+     *
+     * @return true if exists
+     */
+    private boolean rTreeExists() {
+        boolean exists = false;
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = ?",
+                new String[]{GeometryMetadata.RTREE_TABLE_NAME});
+        try {
+            if (cursor.moveToNext()) {
+                exists = cursor.getInt(0) > 0;
+            }
+        } finally {
+            cursor.close();
+        }
+        return exists;
     }
 
     /**
@@ -95,6 +279,101 @@ public class GeometryMetadataDataSource {
         return insertId;
     }
 
+    /**
+     * Compile a reusable insert statement for bulk geometry metadata creation.
+     * The caller is responsible for closing the statement.
+     *
+     * @return compiled insert statement
+     * @since 4.0.1
+     */
+    public GeoPackageSQLiteStatement compileInsert() {
+        StringBuilder sql = new StringBuilder();
+        sql.append("INSERT INTO ").append(GeometryMetadata.TABLE_NAME).append(" (");
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < GeometryMetadata.COLUMNS.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+                values.append(", ");
+            }
+            sql.append(GeometryMetadata.COLUMNS[i]);
+            values.append("?");
+        }
+        sql.append(") VALUES (").append(values).append(")");
+        return db.compileStatement(sql.toString());
+    }
+
+    /**
+     * Create a new geometry metadata from an envelope using a compiled insert
+     * statement
+     *
+     * @param statement    insert statement from {@link #compileInsert()}
+     * @param geoPackageId GeoPackage id
+     * @param tableName    table name
+     * @param geomId       geometry id
+     * @param envelope     geometry envelope
+     * @since 4.0.1
+     */
+    public void create(GeoPackageSQLiteStatement statement, long geoPackageId, String tableName, long geomId, GeometryEnvelope envelope) {
+        statement.bindLong(1, geoPackageId);
+        statement.bindString(2, tableName);
+        statement.bindLong(3, geomId);
+        statement.bindDouble(4, envelope.getMinX());
+        statement.bindDouble(5, envelope.getMaxX());
+        statement.bindDouble(6, envelope.getMinY());
+        statement.bindDouble(7, envelope.getMaxY());
+        if (envelope.hasZ()) {
+            statement.bindDouble(8, envelope.getMinZ());
+            statement.bindDouble(9, envelope.getMaxZ());
+        } else {
+            statement.bindNull(8);
+            statement.bindNull(9);
+        }
+        if (envelope.hasM()) {
+            statement.bindDouble(10, envelope.getMinM());
+            statement.bindDouble(11, envelope.getMaxM());
+        } else {
+            statement.bindNull(10);
+            statement.bindNull(11);
+        }
+        long insertId = statement.executeInsert();
+        if (insertId == -1) {
+            throw new GeoPackageException(
+                    "Failed to insert geometry metadata. GeoPackage Id: "
+                            + geoPackageId + ", Table Name: "
+                            + tableName + ", Geometry Id: "
+                            + geomId);
+        }
+    }
+
+    /**
+     * Begin a transaction on the metadata database
+     *
+     * @since 4.0.1
+     */
+    public void beginTransaction() {
+        db.beginTransaction();
+    }
+
+    /**
+     * End the transaction on the metadata database
+     *
+     * @param successful true to commit, false to rollback
+     * @since 4.0.1
+     */
+    public void endTransaction(boolean successful) {
+        db.endTransaction(successful);
+    }
+
+    /**
+     * Commit the current transaction on the metadata database and begin a new
+     * one
+     *
+     * @since 4.0.1
+     */
+    public void commit() {
+        db.endAndBeginTransaction();
+    }
+
     /**
      * Create a new geometry metadata from an envelope
      *
@@ -494,7 +773,7 @@ public class GeometryMetadataDataSource {
      * @since 3.4.0
      */
     public long count(long geoPackageId, String tableName) {
-        return DatabaseUtils.queryNumEntries(db.getAndroidSQLiteDatabase().getDb(), GeometryMetadata.TABLE_NAME, querySQL(), querySQLArgs(geoPackageId, tableName));
+        return count(querySQL(), querySQLArgs(geoPackageId, tableName));
     }
 
     /**
@@ -712,9 +991,18 @@ public class GeometryMetadataDataSource {
      * @since 3.4.0
      */
     public Cursor query(long geoPackageId, String tableName, String[] columns, GeometryEnvelope envelope) {
+        String where;
+        String[] whereArgs;
+        if (rTree) {
+            where = queryRTreeSQL(envelope);
+            whereArgs = queryRTreeSQLArgs(envelope, geoPackageId, tableName);
+        } else {
+            where = querySQL(envelope);
+            whereArgs = querySQLArgs(envelope, geoPackageId, tableName);
+        }
         return db.query(
                 GeometryMetadata.TABLE_NAME,
-                columns, querySQL(envelope), querySQLArgs(envelope, geoPackageId, tableName), null, null, null);
+                columns, where, whereArgs, null, null, null);
     }
 
     /**
@@ -727,7 +1015,16 @@ public class GeometryMetadataDataSource {
      * @since 3.4.0
      */
     public long count(long geoPackageId, String tableName, GeometryEnvelope envelope) {
-        return DatabaseUtils.queryNumEntries(db.getAndroidSQLiteDatabase().getDb(), GeometryMetadata.TABLE_NAME, querySQL(envelope), querySQLArgs(envelope, geoPackageId, tableName));
+        String where;
+        String[] whereArgs;
+        if (rTree) {
+            where = queryRTreeSQL(envelope);
+            whereArgs = queryRTreeSQLArgs(envelope, geoPackageId, tableName);
+        } else {
+            where = querySQL(envelope);
+            whereArgs = querySQLArgs(envelope, geoPackageId, tableName);
+        }
+        return count(where, whereArgs);
     }
 
     /**
@@ -809,6 +1106,121 @@ public class GeometryMetadataDataSource {
         return selectionArgs;
     }
 
+    /**
+     * Get the R-tree query SQL for an envelope, GeoPackage id, and table name.
+     * Candidate rows are found through the R-tree and then verified against
+     * the exact stored bounds, as R-tree coordinates are stored in reduced
+     * precision.
+     *
+     * @param envelope geometry envelope
+     * @return SQL
+     * @since 4.0.1
+     */
+    public String queryRTreeSQL(GeometryEnvelope envelope) {
+
+        StringBuilder selection = new StringBuilder(querySQL(envelope));
+
+        selection.append(" AND rowid IN (SELECT ").append(GeometryMetadata.RTREE_COLUMN_ID)
+                .append(" FROM ").append(GeometryMetadata.RTREE_TABLE_NAME).append(" WHERE ");
+        selection.append(GeometryMetadata.COLUMN_MIN_X).append(" <= ?");
+        selection.append(" AND ").append(GeometryMetadata.COLUMN_MAX_X).append(" >= ?");
+        selection.append(" AND ").append(GeometryMetadata.COLUMN_MIN_Y).append(" <= ?");
+        selection.append(" AND ").append(GeometryMetadata.COLUMN_MAX_Y).append(" >= ?)");
+
+        return selection.toString();
+    }
+
+    /**
+     * Get the R-tree query SQL args for an envelope, GeoPackage id, and table name
+     *
+     * @param envelope     geometry envelope
+     * @param geoPackageId GeoPackage id
+     * @param tableName    table name
+     * @return SQL args
+     * @since 4.0.1
+     */
+    public String[] queryRTreeSQLArgs(GeometryEnvelope envelope, long geoPackageId, String tableName) {
+
+        String[] args = querySQLArgs(envelope, geoPackageId, tableName);
+
+        String[] selectionArgs = new String[args.length + 4];
+        System.arraycopy(args, 0, selectionArgs, 0, args.length);
+        System.arraycopy(args, 2, selectionArgs, args.length, 4);
+
+        return selectionArgs;
+    }
+
+    /**
+     * Read an R-tree node blob from the R-tree node shadow table, for
+     * traversals of the R-tree structure
+     *
+     * @param nodeNo node number, 1 for the root
+     * @return node data, null if not found
+     * @since 4.0.1
+     */
+    public byte[] readRTreeNode(long nodeNo) {
+        byte[] data = null;
+        Cursor cursor = db.rawQuery("SELECT data FROM "
+                        + GeometryMetadata.RTREE_TABLE_NAME + "_node WHERE nodeno = ?",
+                new String[]{String.valueOf(nodeNo)});
+        try {
+            if (cursor.moveToNext()) {
+                data = cursor.getBlob(0);
+            }
+        } finally {
+            cursor.close();
+        }
+        return data;
+    }
+
+    /**
+     * Get the geometry id of an R-tree entry id when it belongs to the
+     * GeoPackage table
+     *
+     * @param geoPackageId GeoPackage id
+     * @param tableName    table name
+     * @param rTreeId      R-tree entry id, the geometry metadata rowid
+     * @return geometry id, -1 if not within the GeoPackage table
+     * @since 4.0.1
+     */
+    public long getRTreeGeometryId(long geoPackageId, String tableName, long rTreeId) {
+        long id = -1;
+        Cursor cursor = db.rawQuery("SELECT " + GeometryMetadata.COLUMN_ID
+                        + " FROM " + GeometryMetadata.TABLE_NAME + " WHERE rowid = ? AND "
+                        + GeometryMetadata.COLUMN_GEOPACKAGE_ID + " = ? AND "
+                        + GeometryMetadata.COLUMN_TABLE_NAME + " = ?",
+                new String[]{String.valueOf(rTreeId), String.valueOf(geoPackageId), tableName});
+        try {
+            if (cursor.moveToNext()) {
+                id = cursor.getLong(0);
+            }
+        } finally {
+            cursor.close();
+        }
+        return id;
+    }
+
+    /**
+     * Count the geometry metadata matching the where clause
+     *
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return count
+     */
+    private long count(String where, String[] whereArgs) {
+        long count = 0;
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM "
+                + GeometryMetadata.TABLE_NAME + " WHERE " + where, whereArgs);
+        try {
+            if (cursor.moveToNext()) {
+                count = cursor.getLong(0);
+            }
+        } finally {
+            cursor.close();
+        }
+        return count;
+    }
+
     /**
      * Get a GeoPackage id from the name
      *
@@ -0,0 +1,64 @@
+package mil.nga.geopackage.extension;
+
+import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.extension.nga.generalize.FeatureGeneralization;
+
+/**
+ * GeoPackage extension manager, extending the core extension management with
+ * the Android only extensions so they are deleted and copied along with the
+ * tables they extend
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public class GeoPackageExtensionManager extends ExtensionManager {
+
+    /**
+     * GeoPackage
+     */
+    private final GeoPackage geoPackage;
+
+    /**
+     * Constructor
+     *
+     * @param geoPackage GeoPackage
+     */
+    public GeoPackageExtensionManager(GeoPackage geoPackage) {
+        super(geoPackage);
+        this.geoPackage = geoPackage;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteTableExtensions(String table) {
+        if (geoPackage.isFeatureTable(table)) {
+            new FeatureGeneralization(geoPackage,
+                    geoPackage.getFeatureDao(table)).deleteAll();
+        }
+        super.deleteTableExtensions(table);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteExtensions() {
+        FeatureGeneralization.deleteExtension(geoPackage);
+        super.deleteExtensions();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void copyTableExtensions(String table, String newTable) {
+        super.copyTableExtensions(table, newTable);
+        if (geoPackage.isFeatureTable(table)) {
+            new FeatureGeneralization(geoPackage,
+                    geoPackage.getFeatureDao(table)).copy(newTable);
+        }
+    }
+
+}
@@ -11,6 +11,7 @@ import java.util.TreeMap;
 import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackage;
 import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.proj.ProjectionTransformCache;
 import mil.nga.geopackage.tiles.TileBoundingBoxAndroidUtils;
 import mil.nga.geopackage.tiles.TileBoundingBoxUtils;
 import mil.nga.geopackage.tiles.TileGrid;
@@ -254,8 +255,8 @@ public abstract class CoverageData<TImage extends CoverageDataImage> extends Cov
         ProjectionTransform transformRequestToCoverage = null;
         BoundingBox requestProjectedBoundingBox = request.getBoundingBox();
         if (!sameProjection) {
-            transformRequestToCoverage = requestProjection
-                    .getTransformation(coverageProjection);
+            transformRequestToCoverage = ProjectionTransformCache
+                    .getTransformation(requestProjection, coverageProjection);
             requestProjectedBoundingBox = requestProjectedBoundingBox
                     .transform(transformRequestToCoverage);
         }
@@ -351,8 +352,8 @@ public abstract class CoverageData<TImage extends CoverageDataImage> extends Cov
         ProjectionTransform transformRequestToCoverage = null;
         BoundingBox requestProjectedBoundingBox = request.getBoundingBox();
         if (!sameProjection) {
-            transformRequestToCoverage = requestProjection
-                    .getTransformation(coverageProjection);
+            transformRequestToCoverage = ProjectionTransformCache
+                    .getTransformation(requestProjection, coverageProjection);
             requestProjectedBoundingBox = requestProjectedBoundingBox
                     .transform(transformRequestToCoverage);
         }
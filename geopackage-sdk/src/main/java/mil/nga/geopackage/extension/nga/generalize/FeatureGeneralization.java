@@ -0,0 +1,1054 @@
+package mil.nga.geopackage.extension.nga.generalize;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import org.locationtech.proj4j.units.Units;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.db.FeatureIndexerIdQuery;
+import mil.nga.geopackage.db.GeoPackageDatabase;
+import mil.nga.geopackage.db.GeoPackageSQLiteStatement;
+import mil.nga.geopackage.extension.BaseExtension;
+import mil.nga.geopackage.extension.ExtensionScopeType;
+import mil.nga.geopackage.extension.Extensions;
+import mil.nga.geopackage.extension.ExtensionsDao;
+import mil.nga.geopackage.extension.nga.NGAExtensions;
+import mil.nga.geopackage.features.index.FeatureIndexChanges;
+import mil.nga.geopackage.features.user.FeatureCursor;
+import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.geopackage.proj.ProjectionTransformCache;
+import mil.nga.geopackage.tiles.TileBoundingBoxUtils;
+import mil.nga.geopackage.tiles.TileUtils;
+import mil.nga.sf.CompoundCurve;
+import mil.nga.sf.Geometry;
+import mil.nga.sf.GeometryCollection;
+import mil.nga.sf.LineString;
+import mil.nga.sf.Point;
+import mil.nga.sf.Polygon;
+import mil.nga.sf.PolyhedralSurface;
+import mil.nga.sf.proj.Projection;
+import mil.nga.sf.proj.ProjectionConstants;
+import mil.nga.sf.proj.ProjectionFactory;
+import mil.nga.sf.proj.ProjectionTransform;
+import mil.nga.sf.util.GeometryUtils;
+
+/**
+ * Feature Generalization NGA Extension implementation. Precomputes Douglas
+ * Peucker generalized geometries of a feature table for zoom bands, stored in
+ * a side table per band keyed by feature id. A band is identified by its max
+ * zoom level and serves the zoom levels above the next lower band, generalized
+ * with the simplify tolerance of its max zoom so drawn tiles within the band
+ * are no coarser than simplifying the full resolution geometry. Zoom levels
+ * above the highest band are drawn at full resolution.
+ *
+ * Generalized geometries are a snapshot of the feature table. When changes to
+ * the feature table are tracked by {@link FeatureIndexChanges}, each band is a
+ * change log consumer: generalized geometries of features changed after the
+ * band was created or updated are not returned, and {@link #update()}
+ * regenerates them. Recreate the bands after editing features of an untracked
+ * feature table. Features without a generalized geometry are drawn at full
+ * resolution.
+ *
+ * The extension is registered for the feature table geometry column and for
+ * each band side table. A band is registered only after all of its
+ * generalized geometries are committed, so bands of interrupted creations are
+ * not used.
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public class FeatureGeneralization extends BaseExtension {
+
+    /**
+     * Extension author
+     */
+    public static final String EXTENSION_AUTHOR = NGAExtensions.EXTENSION_AUTHOR;
+
+    /**
+     * Extension name without the author
+     */
+    public static final String EXTENSION_NAME_NO_AUTHOR = "feature_generalization";
+
+    /**
+     * Extension, with author and name
+     */
+    public static final String EXTENSION_NAME = Extensions.buildExtensionName(
+            EXTENSION_AUTHOR, EXTENSION_NAME_NO_AUTHOR);
+
+    /**
+     * Extension definition
+     */
+    public static final String EXTENSION_DEFINITION = "GeoPackage Android Feature Generalization, per zoom band generalized geometry tables";
+
+    /**
+     * Max feature ids per generalized geometry batch query
+     */
+    public static final int BATCH_SIZE = 500;
+
+    /**
+     * Side table name prefix, followed by the feature table name and band
+     * max zoom
+     */
+    public static final String TABLE_PREFIX = "nga_generalized_";
+
+    /**
+     * Feature id column
+     */
+    public static final String COLUMN_GEOM_ID = "geom_id";
+
+    /**
+     * Generalized geometry column
+     */
+    public static final String COLUMN_GEOM = "geom";
+
+    /**
+     * Band max zoom separator in side table names
+     */
+    private static final String ZOOM_SEPARATOR = "_z";
+
+    /**
+     * Web mercator projection
+     */
+    private static final Projection WEB_MERCATOR_PROJECTION = ProjectionFactory
+            .getProjection(ProjectionConstants.EPSG_WEB_MERCATOR);
+
+    /**
+     * GeoPackage
+     */
+    private final GeoPackage geoPackage;
+
+    /**
+     * Feature DAO
+     */
+    private final FeatureDao featureDao;
+
+    /**
+     * Drawn tile length in pixels used to calculate band simplify tolerances
+     */
+    private int tileLength = TileUtils.TILE_PIXELS_HIGH;
+
+    /**
+     * Rows read per chunk when creating a band
+     */
+    private int chunkLimit = 1000;
+
+    /**
+     * Sorted band max zooms, loaded when first needed
+     */
+    private volatile List<Integer> zooms;
+
+    /**
+     * Feature change log, bands are consumers named by their side table
+     */
+    private final FeatureIndexChanges featureIndexChanges;
+
+    /**
+     * Constructor
+     *
+     * @param geoPackage GeoPackage
+     * @param featureDao feature DAO
+     */
+    public FeatureGeneralization(GeoPackage geoPackage, FeatureDao featureDao) {
+        super(geoPackage);
+        this.geoPackage = geoPackage;
+        this.featureDao = featureDao;
+        featureIndexChanges = new FeatureIndexChanges(featureDao);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GeoPackage getGeoPackage() {
+        return geoPackage;
+    }
+
+    /**
+     * Get the feature DAO
+     *
+     * @return feature DAO
+     */
+    public FeatureDao getFeatureDao() {
+        return featureDao;
+    }
+
+    /**
+     * Get the drawn tile length in pixels used to calculate band simplify
+     * tolerances
+     *
+     * @return tile length
+     */
+    public int getTileLength() {
+        return tileLength;
+    }
+
+    /**
+     * Set the drawn tile length in pixels used to calculate band simplify
+     * tolerances, applied to bands created afterwards
+     *
+     * @param tileLength tile length
+     */
+    public void setTileLength(int tileLength) {
+        if (tileLength < 1) {
+            throw new GeoPackageException(
+                    "Tile length must be at least 1: " + tileLength);
+        }
+        this.tileLength = tileLength;
+    }
+
+    /**
+     * Get the rows read per chunk when creating a band
+     *
+     * @return chunk limit
+     */
+    public int getChunkLimit() {
+        return chunkLimit;
+    }
+
+    /**
+     * Set the rows read per chunk when creating a band
+     *
+     * @param chunkLimit chunk limit
+     */
+    public void setChunkLimit(int chunkLimit) {
+        this.chunkLimit = chunkLimit;
+    }
+
+    /**
+     * Determine if the feature table has generalized zoom bands
+     *
+     * @return true if has bands
+     */
+    public boolean has() {
+        return !getZooms().isEmpty();
+    }
+
+    /**
+     * Get the completed band max zooms, ordered from lowest to highest
+     *
+     * @return band max zooms
+     */
+    public List<Integer> getZooms() {
+        List<Integer> bandZooms = zooms;
+        if (bandZooms == null) {
+            bandZooms = queryZooms();
+            zooms = bandZooms;
+        }
+        return bandZooms;
+    }
+
+    /**
+     * Get the generalization level of the zoom, the max zoom of the lowest
+     * band at or above the zoom
+     *
+     * @param zoom zoom level
+     * @return band max zoom, -1 when drawn at full resolution
+     */
+    public int getLevel(int zoom) {
+        int level = -1;
+        for (int bandZoom : getZooms()) {
+            if (bandZoom >= zoom) {
+                level = bandZoom;
+                break;
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Create, or recreate, the generalized bands of the max zooms
+     *
+     * @param maxZooms band max zooms
+     * @return number of generalized geometries
+     */
+    public int create(int... maxZooms) {
+        int count = 0;
+        for (int maxZoom : maxZooms) {
+            count += create(maxZoom);
+        }
+        return count;
+    }
+
+    /**
+     * Create, or recreate, the generalized band of the max zoom. The band is
+     * unregistered while created and registered once all generalized
+     * geometries are committed.
+     *
+     * @param maxZoom band max zoom
+     * @return number of generalized geometries
+     */
+    public int create(int maxZoom) {
+
+        if (maxZoom < 0) {
+            throw new GeoPackageException(
+                    "Band max zoom can not be negative: " + maxZoom);
+        }
+
+        long startTime = System.currentTimeMillis();
+
+        double tolerance = TileBoundingBoxUtils.toleranceDistance(maxZoom,
+                tileLength, tileLength);
+
+        String bandTable = getTableName(maxZoom);
+        unregister(bandTable);
+
+        // Changes logged during creation are applied again by update
+        long sequence = featureIndexChanges.getLastSequence();
+
+        String tableName = CoreSQLUtils.quoteWrap(bandTable);
+        GeoPackageDatabase database = featureDao.getDatabaseConnection();
+
+        int count = 0;
+
+        String[] columns = featureDao.getIdAndGeometryColumnNames();
+
+        GeoPackageSQLiteStatement statement = null;
+        database.beginTransaction();
+
+        boolean successful = false;
+        try {
+
+            createTable(database, tableName);
+            statement = compileInsert(database, tableName);
+
+            long lastId = Long.MIN_VALUE;
+            boolean advanced = true;
+
+            // Generalize all features, seeking each chunk by primary key
+            while (advanced) {
+
+                advanced = false;
+
+                FeatureCursor cursor = featureDao.queryForChunkAfterId(columns, lastId, chunkLimit);
+                try {
+                    while (cursor.moveToNext()) {
+                        long id = cursor.getId();
+                        if (id > lastId) {
+                            lastId = id;
+                            advanced = true;
+                            GeoPackageGeometryData geometryData = cursor.getGeometry();
+                            if (geometryData != null && geometryData.getGeometry() != null) {
+                                Geometry generalized = generalize(
+                                        geometryData.getGeometry(), tolerance);
+                                insert(statement, id, generalized);
+                                count++;
+                            }
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+
+                if (advanced) {
+                    database.endAndBeginTransaction();
+                }
+            }
+
+            successful = true;
+        } finally {
+            database.endTransaction(successful);
+            if (statement != null) {
+                statement.close();
+            }
+        }
+
+        // Mark the band as complete
+        register(featureDao.getTableName(), bandTable);
+        featureIndexChanges.setSequence(bandTable, sequence);
+
+        long duration = System.currentTimeMillis() - startTime;
+        Log.i(FeatureGeneralization.class.getSimpleName(), "Generalized features. Table: "
+                + featureDao.getTableName() + ", Max Zoom: " + maxZoom
+                + ", Count: " + count + ", Milliseconds: " + duration);
+
+        return count;
+    }
+
+    /**
+     * Update the completed bands with the feature changes tracked by
+     * {@link FeatureIndexChanges} since each band was created or updated,
+     * regenerating the generalized geometries of inserted and updated
+     * features and removing those of deleted features. Bands missing changes
+     * already cleared from the change log are recreated.
+     *
+     * @return number of updated feature changes
+     */
+    public int update() {
+
+        int count = 0;
+
+        long lastSequence = featureIndexChanges.getLastSequence();
+        long prunedSequence = featureIndexChanges.getPrunedSequence();
+
+        for (int maxZoom : getZooms()) {
+            String bandTable = getTableName(maxZoom);
+            long sequence = featureIndexChanges.getSequence(bandTable);
+            if (sequence < prunedSequence) {
+                Log.i(FeatureGeneralization.class.getSimpleName(),
+                        "Recreating band missing cleared changes. Table: "
+                                + featureDao.getTableName() + ", Max Zoom: " + maxZoom);
+                create(maxZoom);
+                count = Math.max(count, count(maxZoom));
+            } else if (sequence < lastSequence) {
+                count = Math.max(count, update(maxZoom, sequence, lastSequence));
+                featureIndexChanges.setSequence(bandTable, lastSequence);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Update the band with the feature changes logged after a change sequence
+     * and up to a change sequence
+     *
+     * @param maxZoom       band max zoom
+     * @param afterSequence exclusive minimum change sequence
+     * @param sequence      inclusive maximum change sequence
+     * @return number of updated feature changes
+     */
+    private int update(int maxZoom, long afterSequence, long sequence) {
+
+        int count = 0;
+
+        double tolerance = TileBoundingBoxUtils.toleranceDistance(maxZoom,
+                tileLength, tileLength);
+        String tableName = CoreSQLUtils.quoteWrap(getTableName(maxZoom));
+        GeoPackageDatabase database = featureDao.getDatabaseConnection();
+
+        GeoPackageSQLiteStatement statement = compileInsert(database, tableName);
+        database.beginTransaction();
+
+        boolean successful = false;
+        try {
+
+            long lastId = Long.MIN_VALUE;
+            List<Long> ids = featureIndexChanges.queryIds(afterSequence,
+                    sequence, lastId, BATCH_SIZE);
+            while (!ids.isEmpty()) {
+
+                lastId = ids.get(ids.size() - 1);
+
+                FeatureIndexerIdQuery idQuery = new FeatureIndexerIdQuery();
+                for (long id : ids) {
+                    idQuery.addArgument(id);
+                }
+
+                // Remove the changed generalized geometries
+                database.delete(tableName, CoreSQLUtils.quoteWrap(COLUMN_GEOM_ID)
+                        + " IN (" + idQuery.getSql() + ")", idQuery.getArgs());
+
+                // Generalize the inserted and updated features
+                FeatureCursor cursor = featureDao.queryIn(false, idQuery.getSql(),
+                        idQuery.getArgs(), null, null);
+                try {
+                    while (cursor.moveToNext()) {
+                        GeoPackageGeometryData geometryData = cursor.getGeometry();
+                        if (geometryData != null && geometryData.getGeometry() != null) {
+                            Geometry generalized = generalize(
+                                    geometryData.getGeometry(), tolerance);
+                            insert(statement, cursor.getId(), generalized);
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+
+                count += ids.size();
+                ids = featureIndexChanges.queryIds(afterSequence, sequence,
+                        lastId, BATCH_SIZE);
+            }
+
+            successful = true;
+        } finally {
+            database.endTransaction(successful);
+            statement.close();
+        }
+
+        return count;
+    }
+
+    /**
+     * Delete the generalized band of the max zoom, removing the extension
+     * from the feature table when no bands remain
+     *
+     * @param maxZoom band max zoom
+     */
+    public void delete(int maxZoom) {
+        String bandTable = getTableName(maxZoom);
+        unregister(bandTable);
+        featureDao.getDatabaseConnection().execSQL("DROP TABLE IF EXISTS "
+                + CoreSQLUtils.quoteWrap(bandTable));
+        featureIndexChanges.removeConsumer(bandTable);
+        if (getZooms().isEmpty()) {
+            unregister(featureDao.getTableName());
+        }
+    }
+
+    /**
+     * Delete all generalized bands of the feature table, including bands of
+     * interrupted creations, and remove the extension from the feature table
+     */
+    public void deleteAll() {
+        for (int maxZoom : queryTableZooms()) {
+            String bandTable = getTableName(maxZoom);
+            unregister(bandTable);
+            featureDao.getDatabaseConnection().execSQL("DROP TABLE IF EXISTS "
+                    + CoreSQLUtils.quoteWrap(bandTable));
+            featureIndexChanges.removeConsumer(bandTable);
+        }
+        String prefix = getTablePrefix();
+        try {
+            if (extensionsDao.isTableExists()) {
+                for (Extensions extension : extensionsDao
+                        .queryByExtension(EXTENSION_NAME)) {
+                    String tableName = extension.getTableName();
+                    if (tableName != null && tableName.startsWith(prefix)) {
+                        unregister(tableName);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new GeoPackageException(
+                    "Failed to delete Feature Generalization bands. Table: "
+                            + featureDao.getTableName(), e);
+        }
+        unregister(featureDao.getTableName());
+    }
+
+    /**
+     * Copy the completed generalized bands to a copy of the feature table,
+     * such as one created by {@link GeoPackage#copyTable(String, String)}
+     *
+     * @param newTableName new feature table name
+     * @return number of copied bands
+     */
+    public int copy(String newTableName) {
+
+        List<Integer> bandZooms = getZooms();
+
+        if (!bandZooms.isEmpty()) {
+
+            GeoPackageDatabase database = featureDao.getDatabaseConnection();
+            String newPrefix = TABLE_PREFIX + newTableName + ZOOM_SEPARATOR;
+
+            for (int maxZoom : bandZooms) {
+
+                String newBandTable = newPrefix + maxZoom;
+                unregister(newBandTable);
+
+                String tableName = CoreSQLUtils.quoteWrap(newBandTable);
+                database.beginTransaction();
+                boolean successful = false;
+                try {
+                    createTable(database, tableName);
+                    database.execSQL("INSERT INTO " + tableName + " ("
+                            + CoreSQLUtils.quoteWrap(COLUMN_GEOM_ID) + ", "
+                            + CoreSQLUtils.quoteWrap(COLUMN_GEOM) + ") SELECT "
+                            + CoreSQLUtils.quoteWrap(COLUMN_GEOM_ID) + ", "
+                            + CoreSQLUtils.quoteWrap(COLUMN_GEOM) + " FROM "
+                            + CoreSQLUtils.quoteWrap(getTableName(maxZoom)));
+                    successful = true;
+                } finally {
+                    database.endTransaction(successful);
+                }
+
+                register(newTableName, newBandTable);
+            }
+        }
+
+        return bandZooms.size();
+    }
+
+    /**
+     * Delete the generalized bands of all feature tables and the extension
+     *
+     * @param geoPackage GeoPackage
+     */
+    public static void deleteExtension(GeoPackage geoPackage) {
+        ExtensionsDao extensionsDao = geoPackage.getExtensionsDao();
+        try {
+            if (extensionsDao.isTableExists()) {
+                Set<String> featureTables = new LinkedHashSet<>();
+                for (Extensions extension : extensionsDao
+                        .queryByExtension(EXTENSION_NAME)) {
+                    String tableName = extension.getTableName();
+                    if (tableName != null && !tableName.startsWith(TABLE_PREFIX)
+                            && geoPackage.isFeatureTable(tableName)) {
+                        featureTables.add(tableName);
+                    }
+                }
+                for (String featureTable : featureTables) {
+                    new FeatureGeneralization(geoPackage,
+                            geoPackage.getFeatureDao(featureTable)).deleteAll();
+                }
+                for (Extensions extension : extensionsDao
+                        .queryByExtension(EXTENSION_NAME)) {
+                    String tableName = extension.getTableName();
+                    if (tableName != null && tableName.startsWith(TABLE_PREFIX)) {
+                        geoPackage.execSQL("DROP TABLE IF EXISTS "
+                                + CoreSQLUtils.quoteWrap(tableName));
+                    }
+                }
+                extensionsDao.deleteByExtension(EXTENSION_NAME);
+            }
+        } catch (SQLException e) {
+            throw new GeoPackageException(
+                    "Failed to delete Feature Generalization extension. GeoPackage: "
+                            + geoPackage.getName(), e);
+        }
+    }
+
+    /**
+     * Query for the generalized geometry of the feature in the band
+     *
+     * @param maxZoom band max zoom
+     * @param id      feature id
+     * @return generalized geometry data, null if not generalized
+     */
+    public GeoPackageGeometryData queryGeometry(int maxZoom, long id) {
+        GeoPackageGeometryData geometryData = null;
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(id));
+        String changedWhere = getChangedWhere(maxZoom, args);
+        if (changedWhere != null) {
+            Cursor cursor = featureDao.getDatabaseConnection().rawQuery("SELECT "
+                            + CoreSQLUtils.quoteWrap(COLUMN_GEOM) + " FROM "
+                            + CoreSQLUtils.quoteWrap(getTableName(maxZoom)) + " WHERE "
+                            + CoreSQLUtils.quoteWrap(COLUMN_GEOM_ID) + " = ?" + changedWhere,
+                    args.toArray(new String[0]));
+            try {
+                if (cursor.moveToFirst()) {
+                    geometryData = new GeoPackageGeometryData(cursor.getBlob(0));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return geometryData;
+    }
+
+    /**
+     * Query for the generalized geometries of the features in the band, in
+     * batched id queries of up to {@link #BATCH_SIZE} ids
+     *
+     * @param maxZoom band max zoom
+     * @param ids     feature ids
+     * @return generalized geometry data by feature id, without features that
+     * are not generalized or changed since the band was updated
+     */
+    public Map<Long, GeoPackageGeometryData> queryGeometries(int maxZoom,
+                                                             Collection<Long> ids) {
+
+        Map<Long, GeoPackageGeometryData> geometries = new HashMap<>();
+
+        List<String> changedArgs = new ArrayList<>();
+        String changedWhere = getChangedWhere(maxZoom, changedArgs);
+        if (changedWhere == null) {
+            return geometries;
+        }
+
+        String select = "SELECT " + CoreSQLUtils.quoteWrap(COLUMN_GEOM_ID) + ", "
+                + CoreSQLUtils.quoteWrap(COLUMN_GEOM) + " FROM "
+                + CoreSQLUtils.quoteWrap(getTableName(maxZoom)) + " WHERE "
+                + CoreSQLUtils.quoteWrap(COLUMN_GEOM_ID) + " IN (";
+
+        GeoPackageDatabase database = featureDao.getDatabaseConnection();
+        Iterator<Long> idIterator = ids.iterator();
+        while (idIterator.hasNext()) {
+
+            List<String> args = new ArrayList<>(Math.min(ids.size(), BATCH_SIZE) + changedArgs.size());
+            StringBuilder sql = new StringBuilder(select);
+            while (idIterator.hasNext() && args.size() < BATCH_SIZE) {
+                if (!args.isEmpty()) {
+                    sql.append(", ");
+                }
+                sql.append("?");
+                args.add(String.valueOf(idIterator.next()));
+            }
+            sql.append(")");
+            sql.append(changedWhere);
+            args.addAll(changedArgs);
+
+            Cursor cursor = database.rawQuery(sql.toString(),
+                    args.toArray(new String[0]));
+            try {
+                while (cursor.moveToNext()) {
+                    geometries.put(cursor.getLong(0),
+                            new GeoPackageGeometryData(cursor.getBlob(1)));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        return geometries;
+    }
+
+    /**
+     * Count the generalized geometries in the band
+     *
+     * @param maxZoom band max zoom
+     * @return count
+     */
+    public int count(int maxZoom) {
+        int count = 0;
+        Cursor cursor = featureDao.getDatabaseConnection().rawQuery(
+                "SELECT COUNT(*) FROM " + CoreSQLUtils.quoteWrap(getTableName(maxZoom)),
+                null);
+        try {
+            if (cursor.moveToFirst()) {
+                count = cursor.getInt(0);
+            }
+        } finally {
+            cursor.close();
+        }
+        return count;
+    }
+
+    /**
+     * Get the where clause excluding features changed since the band was
+     * created or updated, from the tracked feature changes
+     *
+     * @param maxZoom band max zoom
+     * @param args    where arguments to add to
+     * @return where clause to append, empty when no changes, null when the
+     * band missed changes already cleared from the change log
+     */
+    private String getChangedWhere(int maxZoom, List<String> args) {
+        String where = "";
+        long lastSequence = featureIndexChanges.getLastSequence();
+        if (lastSequence > 0) {
+            long sequence = featureIndexChanges.getSequence(getTableName(maxZoom));
+            if (sequence < featureIndexChanges.getPrunedSequence()) {
+                where = null;
+            } else if (sequence < lastSequence) {
+                where = " AND " + CoreSQLUtils.quoteWrap(COLUMN_GEOM_ID)
+                        + " NOT IN (SELECT "
+                        + CoreSQLUtils.quoteWrap(FeatureIndexChanges.COLUMN_GEOM_ID)
+                        + " FROM " + CoreSQLUtils.quoteWrap(FeatureIndexChanges.TABLE_NAME)
+                        + " WHERE " + CoreSQLUtils.quoteWrap(FeatureIndexChanges.COLUMN_TABLE_NAME)
+                        + " = ? AND " + CoreSQLUtils.quoteWrap(FeatureIndexChanges.COLUMN_ID)
+                        + " > ?)";
+                args.add(featureDao.getTableName());
+                args.add(String.valueOf(sequence));
+            }
+        }
+        return where;
+    }
+
+    /**
+     * Get the side table name of the band
+     *
+     * @param maxZoom band max zoom
+     * @return table name
+     */
+    public String getTableName(int maxZoom) {
+        return getTablePrefix() + maxZoom;
+    }
+
+    /**
+     * Generalize the geometry, simplifying line strings and rings in web
+     * mercator meters
+     *
+     * @param geometry  geometry
+     * @param tolerance simplify tolerance in meters
+     * @return generalized geometry
+     */
+    public Geometry generalize(Geometry geometry, double tolerance) {
+
+        Geometry generalized;
+
+        switch (geometry.getGeometryType()) {
+
+            case LINESTRING:
+            case CIRCULARSTRING:
+                generalized = generalize((LineString) geometry, tolerance);
+                break;
+            case POLYGON:
+                generalized = generalize((Polygon) geometry, tolerance);
+                break;
+            case MULTILINESTRING:
+            case MULTIPOLYGON:
+            case GEOMETRYCOLLECTION:
+                @SuppressWarnings("unchecked")
+                GeometryCollection<Geometry> geometryCollection = (GeometryCollection<Geometry>) geometry.copy();
+                List<Geometry> geometries = new ArrayList<>();
+                for (Geometry collectionGeometry : geometryCollection.getGeometries()) {
+                    geometries.add(generalize(collectionGeometry, tolerance));
+                }
+                geometryCollection.setGeometries(geometries);
+                generalized = geometryCollection;
+                break;
+            case COMPOUNDCURVE:
+                CompoundCurve compoundCurve = (CompoundCurve) geometry.copy();
+                List<LineString> lineStrings = new ArrayList<>();
+                for (LineString lineString : compoundCurve.getLineStrings()) {
+                    lineStrings.add(generalize(lineString, tolerance));
+                }
+                compoundCurve.setLineStrings(lineStrings);
+                generalized = compoundCurve;
+                break;
+            case POLYHEDRALSURFACE:
+                PolyhedralSurface polyhedralSurface = (PolyhedralSurface) geometry.copy();
+                List<Polygon> polygons = new ArrayList<>();
+                for (Polygon polygon : polyhedralSurface.getPolygons()) {
+                    polygons.add(generalize(polygon, tolerance));
+                }
+                polyhedralSurface.setPolygons(polygons);
+                generalized = polyhedralSurface;
+                break;
+            default:
+                // Points, triangles, and TINs are not generalized
+                generalized = geometry;
+        }
+
+        return generalized;
+    }
+
+    /**
+     * Generalize the line string
+     *
+     * @param lineString line string
+     * @param tolerance  simplify tolerance in meters
+     * @return generalized line string
+     */
+    private LineString generalize(LineString lineString, double tolerance) {
+        LineString generalized = (LineString) lineString.copy();
+        generalized.setPoints(simplifyPoints(lineString.getPoints(), tolerance));
+        return generalized;
+    }
+
+    /**
+     * Generalize the polygon rings
+     *
+     * @param polygon   polygon
+     * @param tolerance simplify tolerance in meters
+     * @return generalized polygon
+     */
+    private Polygon generalize(Polygon polygon, double tolerance) {
+        Polygon generalized = (Polygon) polygon.copy();
+        List<LineString> rings = new ArrayList<>();
+        for (LineString ring : polygon.getRings()) {
+            rings.add(generalize(ring, tolerance));
+        }
+        generalized.setRings(rings);
+        return generalized;
+    }
+
+    /**
+     * Simplify the points in web mercator meters, projecting from and back to
+     * the feature projection when not in meters
+     *
+     * @param points    points
+     * @param tolerance simplify tolerance in meters
+     * @return simplified points
+     */
+    private List<Point> simplifyPoints(List<Point> points, double tolerance) {
+
+        List<Point> simplifiedPoints = points;
+
+        if (points.size() > 2) {
+
+            Projection projection = featureDao.getProjection();
+            boolean project = projection != null
+                    && !projection.isUnit(Units.METRES);
+
+            if (project) {
+                ProjectionTransform toWebMercator = ProjectionTransformCache
+                        .getTransformation(projection, WEB_MERCATOR_PROJECTION);
+                points = toWebMercator.transform(points);
+            }
+
+            simplifiedPoints = GeometryUtils.simplifyPoints(points, tolerance);
+
+            if (project) {
+                ProjectionTransform fromWebMercator = ProjectionTransformCache
+                        .getTransformation(WEB_MERCATOR_PROJECTION, projection);
+                simplifiedPoints = fromWebMercator.transform(simplifiedPoints);
+            }
+        }
+
+        return simplifiedPoints;
+    }
+
+    /**
+     * Compile the band insert statement
+     *
+     * @param database  database connection
+     * @param tableName quoted table name
+     * @return compiled insert statement
+     */
+    private GeoPackageSQLiteStatement compileInsert(GeoPackageDatabase database,
+                                                    String tableName) {
+        return database.compileStatement("INSERT INTO " + tableName + " ("
+                + CoreSQLUtils.quoteWrap(COLUMN_GEOM_ID) + ", "
+                + CoreSQLUtils.quoteWrap(COLUMN_GEOM) + ") VALUES (?, ?)");
+    }
+
+    /**
+     * Insert the generalized geometry
+     *
+     * @param statement compiled insert statement
+     * @param id        feature id
+     * @param geometry  generalized geometry
+     */
+    private void insert(GeoPackageSQLiteStatement statement, long id,
+                        Geometry geometry) {
+        byte[] bytes;
+        try {
+            bytes = GeoPackageGeometryData.create(featureDao.getSrsId(),
+                    geometry).toBytes();
+        } catch (IOException e) {
+            throw new GeoPackageException(
+                    "Failed to write generalized geometry. Table: "
+                            + featureDao.getTableName() + ", Id: " + id, e);
+        }
+        statement.clearBindings();
+        statement.bindLong(1, id);
+        statement.bindBlob(2, bytes);
+        if (statement.executeInsert() == -1) {
+            throw new GeoPackageException(
+                    "Failed to insert generalized geometry. Table: "
+                            + featureDao.getTableName() + ", Id: " + id);
+        }
+    }
+
+    /**
+     * Query for the completed band max zooms, registered band side tables
+     * that exist
+     *
+     * @return sorted band max zooms
+     */
+    private List<Integer> queryZooms() {
+        List<Integer> bandZooms = new ArrayList<>();
+        String prefix = getTablePrefix();
+        List<Integer> tableZooms = queryTableZooms();
+        if (!tableZooms.isEmpty()) {
+            try {
+                if (extensionsDao.isTableExists()) {
+                    for (Extensions extension : extensionsDao
+                            .queryByExtension(EXTENSION_NAME)) {
+                        String tableName = extension.getTableName();
+                        if (tableName != null && tableName.startsWith(prefix)) {
+                            try {
+                                int zoom = Integer.parseInt(
+                                        tableName.substring(prefix.length()));
+                                if (tableZooms.contains(zoom)) {
+                                    bandZooms.add(zoom);
+                                }
+                            } catch (NumberFormatException e) {
+                                // Not a band of this feature table
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                throw new GeoPackageException(
+                        "Failed to query Feature Generalization bands. Table: "
+                                + featureDao.getTableName(), e);
+            }
+        }
+        Collections.sort(bandZooms);
+        return Collections.unmodifiableList(bandZooms);
+    }
+
+    /**
+     * Query for the band max zooms from the existing side table names,
+     * including bands of interrupted creations
+     *
+     * @return band max zooms
+     */
+    private List<Integer> queryTableZooms() {
+        List<Integer> bandZooms = new ArrayList<>();
+        String prefix = getTablePrefix();
+        Cursor cursor = featureDao.getDatabaseConnection().rawQuery(
+                "SELECT name FROM sqlite_master WHERE type = 'table' AND substr(name, 1, ?) = ?",
+                new String[]{String.valueOf(prefix.length()), prefix});
+        try {
+            while (cursor.moveToNext()) {
+                String suffix = cursor.getString(0).substring(prefix.length());
+                try {
+                    bandZooms.add(Integer.parseInt(suffix));
+                } catch (NumberFormatException e) {
+                    // Not a band of this feature table
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return bandZooms;
+    }
+
+    /**
+     * Create, or recreate, a band side table
+     *
+     * @param database  database connection
+     * @param tableName quoted table name
+     */
+    private void createTable(GeoPackageDatabase database, String tableName) {
+        database.execSQL("DROP TABLE IF EXISTS " + tableName);
+        database.execSQL("CREATE TABLE " + tableName + " ("
+                + CoreSQLUtils.quoteWrap(COLUMN_GEOM_ID) + " INTEGER PRIMARY KEY, "
+                + CoreSQLUtils.quoteWrap(COLUMN_GEOM) + " BLOB NOT NULL)");
+    }
+
+    /**
+     * Register the extension for the feature table and the completed band
+     *
+     * @param featureTable feature table name
+     * @param bandTable    band side table name
+     */
+    private void register(String featureTable, String bandTable) {
+        getOrCreate(EXTENSION_NAME, featureTable,
+                featureDao.getGeometryColumnName(), EXTENSION_DEFINITION,
+                ExtensionScopeType.READ_WRITE);
+        getOrCreate(EXTENSION_NAME, bandTable, null, EXTENSION_DEFINITION,
+                ExtensionScopeType.READ_WRITE);
+        zooms = null;
+    }
+
+    /**
+     * Remove the extension registration of the table
+     *
+     * @param tableName feature table or band side table name
+     */
+    private void unregister(String tableName) {
+        try {
+            if (extensionsDao.isTableExists()) {
+                extensionsDao.deleteByExtension(EXTENSION_NAME, tableName);
+            }
+        } catch (SQLException e) {
+            throw new GeoPackageException(
+                    "Failed to delete Feature Generalization extension. Table: "
+                            + tableName, e);
+        }
+        zooms = null;
+    }
+
+    /**
+     * Get the side table name prefix of the feature table bands
+     *
+     * @return table name prefix
+     */
+    private String getTablePrefix() {
+        return TABLE_PREFIX + featureDao.getTableName() + ZOOM_SEPARATOR;
+    }
+
+}
@@ -1,21 +1,33 @@
 package mil.nga.geopackage.extension.nga.index;
 
+import android.database.Cursor;
 import android.util.Log;
 
 import com.j256.ormlite.misc.TransactionManager;
 import com.j256.ormlite.support.ConnectionSource;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackage;
 import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.db.GeoPackageDatabase;
 import mil.nga.geopackage.features.user.FeatureCursor;
 import mil.nga.geopackage.features.user.FeatureDao;
 import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.features.user.FeatureRowSync;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
 import mil.nga.sf.GeometryEnvelope;
 import mil.nga.sf.proj.Projection;
 
@@ -43,6 +55,17 @@ public class FeatureTableIndex extends FeatureTableCoreIndex {
      */
     private final FeatureRowSync featureRowSync = new FeatureRowSync();
 
+    /**
+     * Number of primary key ranges read per index thread, balancing uneven
+     * feature id distributions across the workers
+     */
+    private static final int RANGES_PER_THREAD = 4;
+
+    /**
+     * Number of threads reading and parsing features when indexing the table
+     */
+    private int indexThreads = 1;
+
     /**
      * Constructor
      *
@@ -55,6 +78,16 @@ public class FeatureTableIndex extends FeatureTableCoreIndex {
         this.featureDao = featureDao;
     }
 
+    /**
+     * Get the feature DAO
+     *
+     * @return feature DAO
+     * @since 4.0.1
+     */
+    public FeatureDao getFeatureDao() {
+        return featureDao;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -93,22 +126,133 @@ public class FeatureTableIndex extends FeatureTableCoreIndex {
         return indexed;
     }
 
+    /**
+     * Index feature changes without re-indexing the table. Changed rows are
+     * re-indexed, or have their index removed when without a geometry, and
+     * the deleted feature ids are removed from the index. This method assumes
+     * that indexing has been completed and maintained as the last indexed time
+     * is updated.
+     *
+     * @param rows       changed feature rows
+     * @param deletedIds deleted feature ids
+     * @return indexed count
+     * @since 4.0.1
+     */
+    public int indexChanges(final Collection<FeatureRow> rows,
+                            final Collection<Long> deletedIds) {
+
+        final TableIndex tableIndex = getTableIndex();
+        if (tableIndex == null) {
+            throw new GeoPackageException(
+                    "GeoPackage table is not indexed. GeoPackage: "
+                            + getGeoPackage().getName() + ", Table: "
+                            + getTableName());
+        }
+
+        int count;
+        try {
+            ConnectionSource connectionSource = getGeoPackage().getDatabase()
+                    .getConnectionSource();
+            count = TransactionManager.callInTransaction(connectionSource,
+                    new Callable<Integer>() {
+                        public Integer call() throws Exception {
+                            int count = 0;
+                            for (FeatureRow row : rows) {
+                                if (index(tableIndex, row.getId(), row.getGeometry())) {
+                                    count++;
+                                } else {
+                                    deleteIndex(row.getId());
+                                }
+                            }
+                            for (long geomId : deletedIds) {
+                                deleteIndex(geomId);
+                            }
+                            return count;
+                        }
+                    });
+        } catch (SQLException e) {
+            throw new GeoPackageException("Failed to Index Changes. GeoPackage: "
+                    + getGeoPackage().getName() + ", Table: " + getTableName(),
+                    e);
+        }
+
+        // Update the last indexed time
+        updateLastIndexed();
+
+        return count;
+    }
+
+    /**
+     * Get the number of threads used to read and parse features when
+     * indexing the table
+     *
+     * @return index threads, 1 when indexing on the calling thread
+     * @since 4.0.1
+     */
+    public int getIndexThreads() {
+        return indexThreads;
+    }
+
+    /**
+     * Set the number of threads used to read and parse features when
+     * indexing the table. When greater than 1 and the connection uses
+     * write-ahead logging, primary key ranges are read by worker threads on
+     * separate feature DAO connections while the calling thread writes the
+     * computed envelopes in batched transactions. Without write-ahead logging
+     * the table is indexed on the calling thread.
+     *
+     * @param indexThreads index threads, 1 to index on the calling thread
+     * @since 4.0.1
+     */
+    public void setIndexThreads(int indexThreads) {
+        if (indexThreads < 1) {
+            throw new GeoPackageException(
+                    "Index threads must be at least 1: " + indexThreads);
+        }
+        this.indexThreads = indexThreads;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     protected int indexTable(final TableIndex tableIndex) {
 
+        int count;
+        int threads = getReadThreads();
+        if (threads > 1) {
+            count = indexTableParallel(tableIndex, threads);
+        } else {
+            count = indexTableSequential(tableIndex);
+        }
+
+        // Update the last indexed time
+        if (progress == null || progress.isActive()) {
+            updateLastIndexed();
+        }
+
+        return count;
+    }
+
+    /**
+     * Index the table by reading, parsing and indexing chunks on the calling
+     * thread
+     *
+     * @param tableIndex table index
+     * @return indexed count
+     */
+    private int indexTableSequential(final TableIndex tableIndex) {
+
         int count = 0;
 
-        long offset = 0;
+        final long[] lastId = new long[]{Long.MIN_VALUE};
         int chunkCount = 0;
 
-        String[] columns = featureDao.getIdAndGeometryColumnNames();
+        final String[] columns = featureDao.getIdAndGeometryColumnNames();
 
         while (chunkCount >= 0) {
 
-            final long chunkOffset = offset;
+            final long chunkStartId = lastId[0];
 
             try {
                 // Iterate through each row and index as a single transaction
@@ -118,14 +262,19 @@ public class FeatureTableIndex extends FeatureTableCoreIndex {
                         new Callable<Integer>() {
                             public Integer call() throws Exception {
 
-                                FeatureCursor cursor = featureDao.queryForChunk(columns, chunkLimit, chunkOffset);
-                                int count = indexRows(tableIndex, cursor);
+                                FeatureCursor cursor = featureDao.queryForChunkAfterId(columns, chunkStartId, chunkLimit);
+                                int count = indexRows(tableIndex, cursor, lastId);
 
                                 return count;
                             }
                         });
                 if (chunkCount > 0) {
                     count += chunkCount;
+                } else if (chunkCount == 0 && lastId[0] == chunkStartId) {
+                    // No readable rows in the chunk to advance the key
+                    Log.w(FeatureTableIndex.class.getSimpleName(), "Stopped indexing at unreadable features. Table: "
+                            + getTableName() + ", After Id: " + chunkStartId);
+                    break;
                 }
             } catch (SQLException e) {
                 throw new GeoPackageException("Failed to Index Table. GeoPackage: "
@@ -133,25 +282,297 @@ public class FeatureTableIndex extends FeatureTableCoreIndex {
                         e);
             }
 
-            offset += chunkLimit;
         }
 
-        // Update the last indexed time
-        if (progress == null || progress.isActive()) {
-            updateLastIndexed();
+        return count;
+    }
+
+    /**
+     * Index the table by reading and parsing primary key ranges on worker
+     * threads and writing the envelopes in batches on the calling thread. The
+     * writer does not hold a transaction while waiting on the workers, so
+     * worker reads are never blocked behind an open write transaction.
+     *
+     * @param tableIndex table index
+     * @param threads    read threads
+     * @return indexed count
+     */
+    private int indexTableParallel(final TableIndex tableIndex, int threads) {
+
+        List<long[]> ranges = getIdRanges(threads * RANGES_PER_THREAD);
+
+        final BlockingQueue<IndexBatch> queue = new ArrayBlockingQueue<>(
+                threads * 2);
+        final AtomicBoolean active = new AtomicBoolean(true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (final long[] range : ranges) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    readRange(range, queue, active);
+                }
+            });
+        }
+        executor.shutdown();
+
+        int count = 0;
+        int completed = 0;
+
+        try {
+
+            final List<IndexBatch> batches = new ArrayList<>();
+            while (completed < ranges.size()
+                    && (progress == null || progress.isActive())) {
+
+                batches.add(queue.take());
+                queue.drainTo(batches);
+
+                for (IndexBatch batch : batches) {
+                    if (batch.error != null) {
+                        throw new GeoPackageException(
+                                "Failed to Index Table. GeoPackage: "
+                                        + getGeoPackage().getName() + ", Table: "
+                                        + getTableName(), batch.error);
+                    }
+                }
+
+                // Write all available batches as a single transaction
+                ConnectionSource connectionSource = getGeoPackage().getDatabase()
+                        .getConnectionSource();
+                count += TransactionManager.callInTransaction(connectionSource,
+                        new Callable<Integer>() {
+                            public Integer call() throws Exception {
+                                return indexBatches(tableIndex, batches);
+                            }
+                        });
+
+                for (IndexBatch batch : batches) {
+                    if (batch.complete) {
+                        completed++;
+                    }
+                    if (progress != null) {
+                        progress.addProgress(batch.read);
+                    }
+                }
+                batches.clear();
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeoPackageException("Interrupted while indexing table. GeoPackage: "
+                    + getGeoPackage().getName() + ", Table: " + getTableName(), e);
+        } catch (SQLException e) {
+            throw new GeoPackageException("Failed to Index Table. GeoPackage: "
+                    + getGeoPackage().getName() + ", Table: " + getTableName(),
+                    e);
+        } finally {
+            active.set(false);
+            executor.shutdownNow();
+        }
+
+        return count;
+    }
+
+    /**
+     * Get the number of threads to read on, falling back to the calling
+     * thread when the connection can not read on parallel threads while the
+     * writer commits
+     *
+     * @return read threads
+     */
+    private int getReadThreads() {
+        int threads = indexThreads;
+        if (threads > 1) {
+            GeoPackageDatabase db = featureDao.getDatabaseConnection();
+            boolean writeAheadLogging;
+            if (db.isUseBindings()) {
+                writeAheadLogging = db.getBindingsDb().isWriteAheadLoggingEnabled();
+            } else {
+                writeAheadLogging = db.getDb().isWriteAheadLoggingEnabled();
+            }
+            if (!writeAheadLogging) {
+                threads = 1;
+            }
+        }
+        return threads;
+    }
+
+    /**
+     * Split the feature primary key values into contiguous ranges
+     *
+     * @param maxRanges maximum number of ranges
+     * @return inclusive minimum and maximum id ranges
+     */
+    private List<long[]> getIdRanges(int maxRanges) {
+
+        List<long[]> ranges = new ArrayList<>();
+
+        String pkColumn = CoreSQLUtils.quoteWrap(featureDao.getIdColumnName());
+        String sql = "SELECT MIN(" + pkColumn + "), MAX(" + pkColumn
+                + ") FROM " + CoreSQLUtils.quoteWrap(featureDao.getTableName());
+        Cursor cursor = featureDao.getDb().rawQuery(sql, null);
+        try {
+            if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                long minId = cursor.getLong(0);
+                long maxId = cursor.getLong(1);
+                long rangeSize = Math.max(1, (maxId - minId) / maxRanges + 1);
+                for (long start = minId; start <= maxId; start += rangeSize) {
+                    long end = maxId - start < rangeSize ? maxId : start
+                            + rangeSize - 1;
+                    ranges.add(new long[]{start, end});
+                    if (end == maxId) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        return ranges;
+    }
+
+    /**
+     * Read the features in the inclusive primary key range on a worker thread,
+     * computing envelopes into batches added to the writer queue. The final
+     * batch of the range is flagged as complete, a failed read always ends
+     * with a complete batch holding the error so the writer never waits on
+     * a stopped worker.
+     *
+     * @param range  inclusive minimum and maximum id range
+     * @param queue  writer queue
+     * @param active active flag, false when the index has stopped
+     */
+    private void readRange(long[] range, BlockingQueue<IndexBatch> queue,
+                           AtomicBoolean active) {
+
+        // Read through a separate feature DAO connection state
+        FeatureDao readDao = featureDao.copy();
+        String[] columns = readDao.getIdAndGeometryColumnNames();
+        String where = CoreSQLUtils.quoteWrap(readDao.getIdColumnName())
+                + " <= ?";
+        String[] whereArgs = new String[]{String.valueOf(range[1])};
+
+        long lastId = range[0] - 1;
+
+        boolean posted = false;
+        Throwable error = null;
+        try {
+
+            boolean complete = false;
+            while (!complete && active.get()) {
+
+                IndexBatch batch = new IndexBatch(chunkLimit);
+                long chunkStartId = lastId;
+                int rows = 0;
+
+                FeatureCursor cursor = readDao.queryForChunkAfterId(false,
+                        columns, where, whereArgs, chunkStartId, chunkLimit);
+                try {
+                    while (cursor.moveToNext()) {
+                        if (!cursor.isInvalidRequery()) {
+                            rows++;
+                        }
+                        try {
+                            if (cursor.isInvalidRow()) {
+                                // Read from the invalid row requery
+                                continue;
+                            }
+                            long id = cursor.getId();
+                            lastId = Math.max(lastId, id);
+                            GeometryEnvelope envelope = cursor.getGeometryEnvelope();
+                            batch.read++;
+                            batch.add(id, envelope);
+                        } catch (Exception e) {
+                            Log.e(FeatureTableIndex.class.getSimpleName(),
+                                    "Failed to index feature. Table: "
+                                            + getTableName() + ", Position: "
+                                            + cursor.getPosition(), e);
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+
+                if (rows > 0 && lastId == chunkStartId) {
+                    // No readable rows in the chunk to advance the key
+                    Log.w(FeatureTableIndex.class.getSimpleName(),
+                            "Stopped indexing at unreadable features. Table: "
+                                    + getTableName() + ", After Id: "
+                                    + chunkStartId);
+                }
+
+                complete = rows < chunkLimit || lastId == chunkStartId
+                        || lastId >= range[1];
+                batch.complete = complete;
+                queue.put(batch);
+                posted = complete;
+            }
+
+        } catch (InterruptedException e) {
+            // Indexing stopped
+            posted = true;
+        } catch (Throwable e) {
+            error = e;
+        } finally {
+            if (!posted && active.get()) {
+                IndexBatch batch = new IndexBatch(0);
+                batch.error = error;
+                batch.complete = true;
+                try {
+                    queue.put(batch);
+                } catch (InterruptedException interrupted) {
+                    // Indexing stopped
+                }
+            }
         }
+    }
 
+    /**
+     * Index the batched feature envelopes
+     *
+     * @param tableIndex table index
+     * @param batches    index batches
+     * @return indexed count
+     */
+    private int indexBatches(TableIndex tableIndex, List<IndexBatch> batches) {
+        int count = 0;
+        for (IndexBatch batch : batches) {
+            for (int i = 0; i < batch.size; i++) {
+                if (index(tableIndex, batch.ids[i],
+                        createGeometryData(batch.envelopes[i]))) {
+                    count++;
+                }
+            }
+        }
         return count;
     }
 
+    /**
+     * Create geometry data containing only the envelope, indexed without a
+     * geometry
+     *
+     * @param envelope geometry envelope
+     * @return geometry data
+     */
+    private GeoPackageGeometryData createGeometryData(GeometryEnvelope envelope) {
+        GeoPackageGeometryData geomData = new GeoPackageGeometryData(
+                featureDao.getSrsId());
+        geomData.setEnvelope(envelope);
+        return geomData;
+    }
+
     /**
      * Index the feature rows in the cursor
      *
      * @param tableIndex table index
      * @param cursor     feature cursor
+     * @param lastId     single element array holding the largest read feature
+     *                   id, updated as rows are read
      * @return count, -1 if no results or canceled
      */
-    private int indexRows(TableIndex tableIndex, FeatureCursor cursor) {
+    private int indexRows(TableIndex tableIndex, FeatureCursor cursor, long[] lastId) {
 
         int count = -1;
 
@@ -162,16 +583,21 @@ public class FeatureTableIndex extends FeatureTableCoreIndex {
                     count++;
                 }
                 try {
-                    FeatureRow row = cursor.getRow();
-                    if (row.isValid()) {
-                        boolean indexed = index(tableIndex,
-                                row.getId(), row.getGeometry());
-                        if (indexed) {
-                            count++;
-                        }
-                        if (progress != null) {
-                            progress.addProgress(1);
-                        }
+                    if (cursor.isInvalidRow()) {
+                        // Read from the invalid row requery
+                        continue;
+                    }
+                    // Read the envelope without building the geometry
+                    long id = cursor.getId();
+                    lastId[0] = Math.max(lastId[0], id);
+                    GeometryEnvelope envelope = cursor.getGeometryEnvelope();
+                    boolean indexed = envelope != null && index(tableIndex,
+                            id, createGeometryData(envelope));
+                    if (indexed) {
+                        count++;
+                    }
+                    if (progress != null) {
+                        progress.addProgress(1);
                     }
                 } catch (Exception e) {
                     Log.e(FeatureTableIndex.class.getSimpleName(), "Failed to index feature. Table: "
@@ -1811,4 +2237,65 @@ public class FeatureTableIndex extends FeatureTableCoreIndex {
                 where, whereArgs);
     }
 
+    /**
+     * Batch of feature envelopes read by an index worker thread
+     */
+    private static class IndexBatch {
+
+        /**
+         * Feature ids
+         */
+        private final long[] ids;
+
+        /**
+         * Feature envelopes
+         */
+        private final GeometryEnvelope[] envelopes;
+
+        /**
+         * Number of batched envelopes
+         */
+        private int size = 0;
+
+        /**
+         * Number of feature rows read, including rows without envelopes
+         */
+        private int read = 0;
+
+        /**
+         * True when the final batch of a primary key range
+         */
+        private boolean complete = false;
+
+        /**
+         * Worker error
+         */
+        private Throwable error;
+
+        /**
+         * Constructor
+         *
+         * @param capacity batch capacity
+         */
+        private IndexBatch(int capacity) {
+            ids = new long[capacity];
+            envelopes = new GeometryEnvelope[capacity];
+        }
+
+        /**
+         * Add a feature envelope
+         *
+         * @param id       feature id
+         * @param envelope envelope, ignored when null
+         */
+        private void add(long id, GeometryEnvelope envelope) {
+            if (envelope != null) {
+                ids[size] = id;
+                envelopes[size] = envelope;
+                size++;
+            }
+        }
+
+    }
+
 }
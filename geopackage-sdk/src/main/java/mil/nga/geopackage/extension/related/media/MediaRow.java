@@ -6,6 +6,7 @@ import android.graphics.BitmapFactory;
 import java.io.IOException;
 
 import mil.nga.geopackage.io.BitmapConverter;
+import mil.nga.geopackage.user.UserBlobInputStream;
 import mil.nga.geopackage.user.custom.UserCustomColumn;
 import mil.nga.geopackage.user.custom.UserCustomRow;
 
@@ -116,6 +117,19 @@ public class MediaRow extends UserCustomRow {
         setValue(getDataColumnIndex(), data);
     }
 
+    /**
+     * Stream the data in chunks from the media table, without reading the
+     * full data into memory. The row must include the id column and may be
+     * queried without the data column.
+     *
+     * @param mediaDao media DAO
+     * @return data input stream, close when done
+     * @since 4.0.1
+     */
+    public UserBlobInputStream getDataStream(MediaDao mediaDao) {
+        return mediaDao.readBlob(getDataColumn().getName(), getId());
+    }
+
     /**
      * Read the data bounds without allocating pixel memory.
      * Access values using:
@@ -0,0 +1,112 @@
+package mil.nga.geopackage.extension.rtree;
+
+import mil.nga.geopackage.features.index.FeatureIndexFeatureResults;
+import mil.nga.geopackage.features.user.FeatureCursor;
+import mil.nga.sf.GeometryEnvelope;
+
+/**
+ * Iterable Feature Index Results to iterate on feature rows of a single
+ * statement RTree to feature table join. The count is read with a separate
+ * count query, leaving the cursor to step rows only as iterated. Rows too
+ * large for the cursor window are returned invalid instead of being
+ * requeried.
+ *
+ * @author osbornb
+ * @see RTreeIndexTableDao#queryJoinedFeatures(boolean, String[], GeometryEnvelope, String, String[])
+ * @since 4.0.1
+ */
+public class FeatureIndexRTreeJoinResults extends FeatureIndexFeatureResults {
+
+    /**
+     * RTree Index Table DAO
+     */
+    private final RTreeIndexTableDao dao;
+
+    /**
+     * Distinct rows
+     */
+    private final boolean distinct;
+
+    /**
+     * Query columns
+     */
+    private final String[] columns;
+
+    /**
+     * Geometry envelope
+     */
+    private final GeometryEnvelope envelope;
+
+    /**
+     * Where clause
+     */
+    private final String where;
+
+    /**
+     * Where arguments
+     */
+    private final String[] whereArgs;
+
+    /**
+     * Count, queried when first requested
+     */
+    private Long count;
+
+    /**
+     * Constructor, querying the joined features
+     *
+     * @param dao       RTree Index Table DAO
+     * @param distinct  distinct rows
+     * @param columns   columns, null for all
+     * @param envelope  geometry envelope
+     * @param where     where clause
+     * @param whereArgs where arguments
+     */
+    public FeatureIndexRTreeJoinResults(RTreeIndexTableDao dao, boolean distinct,
+                                        String[] columns, GeometryEnvelope envelope, String where,
+                                        String[] whereArgs) {
+        this(dao, dao.queryJoinedFeatures(distinct, columns, envelope, where,
+                whereArgs), distinct, columns, envelope, where, whereArgs);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param dao       RTree Index Table DAO
+     * @param cursor    joined feature cursor
+     * @param distinct  distinct rows
+     * @param columns   columns, null for all
+     * @param envelope  geometry envelope
+     * @param where     where clause
+     * @param whereArgs where arguments
+     */
+    public FeatureIndexRTreeJoinResults(RTreeIndexTableDao dao,
+                                        FeatureCursor cursor, boolean distinct, String[] columns,
+                                        GeometryEnvelope envelope, String where, String[] whereArgs) {
+        super(cursor);
+        this.dao = dao;
+        this.distinct = distinct;
+        this.columns = columns;
+        this.envelope = envelope;
+        this.where = where;
+        this.whereArgs = whereArgs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long count() {
+        if (count == null) {
+            if (distinct && columns != null) {
+                // Distinct subsets of columns are only counted by the cursor
+                count = super.count();
+            } else {
+                count = (long) dao.countFeatures(false, null, envelope, where,
+                        whereArgs);
+            }
+        }
+        return count;
+    }
+
+}
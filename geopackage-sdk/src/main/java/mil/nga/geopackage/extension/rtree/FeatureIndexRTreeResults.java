@@ -2,6 +2,7 @@ package mil.nga.geopackage.extension.rtree;
 
 import java.util.Iterator;
 
+import mil.nga.geopackage.features.index.FeatureIndexBatchIterator;
 import mil.nga.geopackage.features.index.FeatureIndexResults;
 import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.user.custom.UserCustomCursor;
@@ -25,6 +26,11 @@ public class FeatureIndexRTreeResults implements FeatureIndexResults {
      */
     private final UserCustomCursor cursor;
 
+    /**
+     * Batched feature row hydration
+     */
+    private boolean batch = true;
+
     /**
      * Constructor
      *
@@ -37,11 +43,35 @@ public class FeatureIndexRTreeResults implements FeatureIndexResults {
         this.cursor = cursor;
     }
 
+    /**
+     * Is batched feature row hydration enabled, querying feature rows in
+     * chunks of result ids instead of per result
+     *
+     * @return true if batched
+     * @since 4.0.1
+     */
+    public boolean isBatch() {
+        return batch;
+    }
+
+    /**
+     * Set batched feature row hydration, enabled by default
+     *
+     * @param batch true to query feature rows in chunks of result ids
+     * @since 4.0.1
+     */
+    public void setBatch(boolean batch) {
+        this.batch = batch;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Iterator<FeatureRow> iterator() {
+        if (batch) {
+            return new FeatureIndexBatchIterator(dao.getFeatureDao(), ids().iterator());
+        }
         return new Iterator<FeatureRow>() {
 
             /**
@@ -1,15 +1,32 @@
 package mil.nga.geopackage.extension.rtree;
 
+import android.database.Cursor;
+import android.util.Log;
+
+import java.util.Collection;
+
 import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.db.CoreSQLUtils;
 import mil.nga.geopackage.db.GeoPackageConnection;
 import mil.nga.geopackage.db.GeoPackageDatabase;
+import mil.nga.geopackage.db.GeoPackageSQLiteStatement;
+import mil.nga.geopackage.features.user.FeatureCursor;
 import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.features.user.FeatureRow;
+import mil.nga.geopackage.features.user.GeometryEnvelopeReader;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
 import mil.nga.geopackage.user.custom.UserCustomDao;
 import mil.nga.geopackage.user.custom.UserCustomTable;
+import mil.nga.sf.Geometry;
+import mil.nga.sf.GeometryEnvelope;
+import mil.nga.sf.util.GeometryEnvelopeBuilder;
 
 /**
  * RTree Index Extension
- * TODO User defined functions are not currently supported for Android
+ * User defined functions are not supported for Android. The RTree index is
+ * instead loaded with envelopes read in Java from the feature geometry data
+ * and kept current by feature DAO writes in place of the ST_* triggers.
  *
  * https://www.geopackage.org/spec/#extension_rtree
  *
@@ -28,6 +45,21 @@ public class RTreeIndexExtension extends RTreeIndexCoreExtension {
      */
     private final GeoPackageDatabase database;
 
+    /**
+     * Chunk limit of feature rows read per query when loading the index
+     */
+    private int chunkLimit = 1000;
+
+    /**
+     * Feature rows written per transaction when loading the index
+     */
+    private int transactionLimit = 10000;
+
+    /**
+     * RTree module support on the standard connection, null until checked
+     */
+    private Boolean standardRTree = null;
+
     /**
      * Constructor
      *
@@ -47,6 +79,46 @@ public class RTreeIndexExtension extends RTreeIndexCoreExtension {
         return (GeoPackage) super.getGeoPackage();
     }
 
+    /**
+     * Get the chunk limit of feature rows read per query when loading the index
+     *
+     * @return chunk limit
+     * @since 4.0.1
+     */
+    public int getChunkLimit() {
+        return chunkLimit;
+    }
+
+    /**
+     * Set the chunk limit of feature rows read per query when loading the index
+     *
+     * @param chunkLimit chunk limit
+     * @since 4.0.1
+     */
+    public void setChunkLimit(int chunkLimit) {
+        this.chunkLimit = chunkLimit;
+    }
+
+    /**
+     * Get the number of feature rows written per transaction when loading the index
+     *
+     * @return transaction limit
+     * @since 4.0.1
+     */
+    public int getTransactionLimit() {
+        return transactionLimit;
+    }
+
+    /**
+     * Set the number of feature rows written per transaction when loading the index
+     *
+     * @param transactionLimit transaction limit
+     * @since 4.0.1
+     */
+    public void setTransactionLimit(int transactionLimit) {
+        this.transactionLimit = transactionLimit;
+    }
+
     /**
      * Get a RTree Index Table DAO for the feature table
      *
@@ -73,6 +145,15 @@ public class RTreeIndexExtension extends RTreeIndexCoreExtension {
         return new RTreeIndexTableDao(this, userCustomDao, featureDao);
     }
 
+    /**
+     * {@inheritDoc}
+     * No functions are created, envelopes are computed in Java when loading
+     * the index and writing features.
+     */
+    @Override
+    public void createAllFunctions() {
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -122,6 +203,387 @@ public class RTreeIndexExtension extends RTreeIndexCoreExtension {
         throw new UnsupportedOperationException("User defined SQL functions are not supported. name: " + name);
     }
 
+    /**
+     * {@inheritDoc}
+     * Loads the index from the feature rows with envelopes computed in Java.
+     */
+    @Override
+    public void loadRTreeIndex(String tableName, String geometryColumnName,
+                               String idColumnName) {
+        loadRTreeIndex(getGeoPackage().getFeatureDao(tableName));
+    }
+
+    /**
+     * {@inheritDoc}
+     * No triggers are created as they require the ST_* functions. The index
+     * is maintained by the feature DAO insert, update, and delete methods.
+     */
+    @Override
+    public void createAllTriggers(String tableName, String geometryColumnName,
+                                  String idColumnName) {
+    }
+
+    /**
+     * Load the RTree index table from the feature rows, reading the envelope
+     * from each geometry header or building it from the geometry
+     *
+     * @param featureDao feature DAO
+     * @return number of indexed feature rows
+     * @since 4.0.1
+     */
+    public int loadRTreeIndex(FeatureDao featureDao) {
+
+        int count = 0;
+
+        long startTime = System.currentTimeMillis();
+
+        String[] columns = featureDao.getIdAndGeometryColumnNames();
+
+        // Read and write on a bindings copy, leaving the DAO connection as is
+        FeatureDao loadDao = featureDao.copy();
+        loadDao.setUseBindings(true);
+        GeoPackageDatabase db = loadDao.getDatabaseConnection();
+        GeoPackageSQLiteStatement statement = db.compileStatement(
+                insertSQL(featureDao));
+        db.beginTransaction();
+
+        boolean successful = false;
+        try {
+
+            GeometryEnvelopeReader envelopeReader = new GeometryEnvelopeReader();
+            long lastId = Long.MIN_VALUE;
+            int uncommitted = 0;
+            boolean advanced = true;
+
+            // Index all features, seeking each chunk by primary key
+            while (advanced) {
+
+                advanced = false;
+
+                FeatureCursor cursor = loadDao.queryForChunkAfterId(columns, lastId, chunkLimit);
+                try {
+                    while (cursor.moveToNext()) {
+                        try {
+                            if (cursor.isInvalidRow()) {
+                                // Read from the invalid row requery
+                                continue;
+                            }
+                            long id = cursor.getId();
+                            if (id > lastId || cursor.isInvalidRequery()) {
+                                lastId = Math.max(lastId, id);
+                                advanced = true;
+                                // Read the envelope without building the geometry
+                                if (cursor.readGeometryEnvelope(envelopeReader)) {
+                                    insert(statement, id, envelopeReader.getMinX(),
+                                            envelopeReader.getMaxX(), envelopeReader.getMinY(),
+                                            envelopeReader.getMaxY());
+                                    count++;
+                                    uncommitted++;
+                                }
+                            }
+                        } catch (Exception e) {
+                            Log.e(RTreeIndexExtension.class.getSimpleName(), "Failed to index feature. Table: "
+                                    + featureDao.getTableName() + ", Position: " + cursor.getPosition(), e);
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+
+                if (uncommitted >= transactionLimit) {
+                    db.endAndBeginTransaction();
+                    uncommitted = 0;
+                }
+            }
+
+            successful = true;
+        } finally {
+            db.endTransaction(successful);
+            statement.close();
+        }
+
+        long duration = System.currentTimeMillis() - startTime;
+        Log.i(RTreeIndexExtension.class.getSimpleName(), "Loaded RTree index. Table: "
+                + featureDao.getTableName() + ", Count: " + count
+                + ", Milliseconds: " + duration);
+
+        return count;
+    }
+
+    /**
+     * Index the feature row geometry, replacing any existing index row or
+     * removing it when the geometry is null or empty
+     *
+     * @param featureDao feature DAO
+     * @param row        feature row
+     * @return true if indexed
+     * @since 4.0.1
+     */
+    public boolean index(FeatureDao featureDao, FeatureRow row) {
+        return index(featureDao, row.getId(), row.getGeometry());
+    }
+
+    /**
+     * Index the feature geometry, replacing any existing index row or
+     * removing it when the geometry is null or empty. The index row is
+     * written on the feature DAO connection, within any transaction of the
+     * feature write, using a cached compiled statement.
+     *
+     * @param featureDao   feature DAO
+     * @param id           feature id
+     * @param geometryData geometry data
+     * @return true if indexed
+     * @since 4.0.1
+     */
+    public boolean index(FeatureDao featureDao, long id, GeoPackageGeometryData geometryData) {
+
+        boolean indexed;
+
+        GeoPackageSQLiteStatement statement = getIndexConnection(featureDao)
+                .getCachedStatement(insertSQL(featureDao));
+        synchronized (statement) {
+            indexed = insert(statement, id, geometryData);
+        }
+        if (!indexed) {
+            deleteIndex(featureDao, id);
+        }
+
+        return indexed;
+    }
+
+    /**
+     * Index feature changes without reloading the RTree index. Changed rows
+     * are re-indexed, or have their index removed when without a geometry,
+     * and the deleted feature ids are removed from the index.
+     *
+     * @param featureDao feature DAO
+     * @param rows       changed feature rows
+     * @param deletedIds deleted feature ids
+     * @return indexed count
+     * @since 4.0.1
+     */
+    public int indexChanges(FeatureDao featureDao, Collection<FeatureRow> rows,
+                            Collection<Long> deletedIds) {
+
+        int count = 0;
+
+        GeoPackageDatabase db = getIndexConnection(featureDao);
+        db.beginTransaction();
+
+        boolean successful = false;
+        try {
+            for (FeatureRow row : rows) {
+                if (index(featureDao, row.getId(), row.getGeometry())) {
+                    count++;
+                }
+            }
+            for (long id : deletedIds) {
+                deleteIndex(featureDao, id);
+            }
+            successful = true;
+        } finally {
+            db.endTransaction(successful);
+        }
+
+        return count;
+    }
+
+    /**
+     * Delete the index row of the feature
+     *
+     * @param featureDao feature DAO
+     * @param id         feature id
+     * @return deleted index rows
+     * @since 4.0.1
+     */
+    public int deleteIndex(FeatureDao featureDao, long id) {
+        GeoPackageSQLiteStatement statement = getIndexConnection(featureDao)
+                .getCachedStatement("DELETE FROM "
+                        + CoreSQLUtils.quoteWrap(getRTreeTableName(featureDao))
+                        + " WHERE " + CoreSQLUtils.quoteWrap(COLUMN_ID) + " = ?");
+        synchronized (statement) {
+            statement.bindLong(1, id);
+            return statement.executeUpdateDelete();
+        }
+    }
+
+    /**
+     * Delete the index rows of the features matching the where clause
+     *
+     * @param featureDao feature DAO
+     * @param where      feature where clause, null for all features
+     * @param whereArgs  where arguments
+     * @return deleted index rows
+     * @since 4.0.1
+     */
+    public int deleteIndex(FeatureDao featureDao, String where, String[] whereArgs) {
+
+        StringBuilder featureIds = new StringBuilder();
+        featureIds.append(CoreSQLUtils.quoteWrap(COLUMN_ID));
+        featureIds.append(" IN (SELECT ");
+        featureIds.append(CoreSQLUtils.quoteWrap(featureDao.getIdColumnName()));
+        featureIds.append(" FROM ");
+        featureIds.append(CoreSQLUtils.quoteWrap(featureDao.getTableName()));
+        if (where != null) {
+            featureIds.append(" WHERE ");
+            featureIds.append(where);
+        }
+        featureIds.append(")");
+
+        return getIndexConnection(featureDao).delete(
+                CoreSQLUtils.quoteWrap(getRTreeTableName(featureDao)),
+                featureIds.toString(), whereArgs);
+    }
+
+    /**
+     * Determine if the RTree index rows can be written on the active feature
+     * DAO connection, and within its transactions. The bindings connection
+     * includes the rtree module. Support on the standard connection is
+     * checked once.
+     *
+     * @param featureDao feature DAO
+     * @return true if the index is writable on the DAO connection
+     * @since 4.0.1
+     */
+    public boolean isIndexable(FeatureDao featureDao) {
+        GeoPackageDatabase db = featureDao.getDatabaseConnection();
+        if (db.isUseBindings()) {
+            return true;
+        }
+        if (standardRTree == null) {
+            boolean supported;
+            try {
+                Cursor cursor = db.rawQuery("SELECT 1 FROM "
+                        + CoreSQLUtils.quoteWrap(getRTreeTableName(featureDao))
+                        + " LIMIT 0", null);
+                cursor.close();
+                supported = true;
+            } catch (Exception e) {
+                Log.i(RTreeIndexExtension.class.getSimpleName(),
+                        "RTree module not available on the standard connection. Table: "
+                                + featureDao.getTableName());
+                supported = false;
+            }
+            standardRTree = supported;
+        }
+        return standardRTree;
+    }
+
+    /**
+     * Get the connection to write the RTree index rows on. The feature DAO
+     * connection is used when it has the rtree module, so index rows are
+     * written within the same transaction as the feature rows. Otherwise
+     * a bindings copy of the DAO connection is used, leaving the DAO
+     * connection state unchanged.
+     *
+     * @param featureDao feature DAO
+     * @return connection with the rtree module
+     */
+    private GeoPackageDatabase getIndexConnection(FeatureDao featureDao) {
+        GeoPackageDatabase db = featureDao.getDatabaseConnection();
+        if (!isIndexable(featureDao)) {
+            db = db.copy();
+            db.setUseBindings(true);
+        }
+        return db;
+    }
+
+    /**
+     * Get the RTree index table name for the feature DAO
+     *
+     * @param featureDao feature DAO
+     * @return RTree table name
+     */
+    private String getRTreeTableName(FeatureDao featureDao) {
+        return getRTreeTableName(featureDao.getTableName(),
+                featureDao.getGeometryColumnName());
+    }
+
+    /**
+     * Build the insert or replace SQL for the feature RTree index table
+     *
+     * @param featureDao feature DAO
+     * @return insert SQL
+     */
+    private String insertSQL(FeatureDao featureDao) {
+        return "INSERT OR REPLACE INTO "
+                + CoreSQLUtils.quoteWrap(getRTreeTableName(featureDao)) + " ("
+                + CoreSQLUtils.quoteWrap(COLUMN_ID) + ", "
+                + CoreSQLUtils.quoteWrap(COLUMN_MIN_X) + ", "
+                + CoreSQLUtils.quoteWrap(COLUMN_MAX_X) + ", "
+                + CoreSQLUtils.quoteWrap(COLUMN_MIN_Y) + ", "
+                + CoreSQLUtils.quoteWrap(COLUMN_MAX_Y) + ") VALUES (?, ?, ?, ?, ?)";
+    }
+
+    /**
+     * Insert the geometry envelope into the RTree index table
+     *
+     * @param statement    compiled insert statement
+     * @param id           feature id
+     * @param geometryData geometry data
+     * @return true if inserted, false if the geometry is null or empty
+     */
+    private boolean insert(GeoPackageSQLiteStatement statement, long id,
+                           GeoPackageGeometryData geometryData) {
+
+        GeometryEnvelope envelope = getEnvelope(geometryData);
+        if (envelope == null) {
+            return false;
+        }
+
+        insert(statement, id, envelope.getMinX(), envelope.getMaxX(),
+                envelope.getMinY(), envelope.getMaxY());
+
+        return true;
+    }
+
+    /**
+     * Insert the envelope bounds into the RTree index table
+     *
+     * @param statement compiled insert statement
+     * @param id        feature id
+     * @param minX      min x
+     * @param maxX      max x
+     * @param minY      min y
+     * @param maxY      max y
+     */
+    private void insert(GeoPackageSQLiteStatement statement, long id,
+                        double minX, double maxX, double minY, double maxY) {
+        statement.clearBindings();
+        statement.bindLong(1, id);
+        statement.bindDouble(2, minX);
+        statement.bindDouble(3, maxX);
+        statement.bindDouble(4, minY);
+        statement.bindDouble(5, maxY);
+        if (statement.executeInsert() == -1) {
+            throw new GeoPackageException(
+                    "Failed to insert RTree index row. Id: " + id);
+        }
+    }
+
+    /**
+     * Get the envelope from the geometry header or build it from the geometry
+     *
+     * @param geometryData geometry data
+     * @return envelope, null if the geometry is null or empty
+     */
+    private static GeometryEnvelope getEnvelope(GeoPackageGeometryData geometryData) {
+
+        GeometryEnvelope envelope = null;
+
+        if (geometryData != null && !geometryData.isEmpty()) {
+            envelope = geometryData.getEnvelope();
+            if (envelope == null) {
+                Geometry geometry = geometryData.getGeometry();
+                if (geometry != null && !geometry.isEmpty()) {
+                    envelope = GeometryEnvelopeBuilder.buildEnvelope(geometry);
+                }
+            }
+        }
+
+        return envelope;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1,5 +1,7 @@
 package mil.nga.geopackage.extension.rtree;
 
+import android.database.Cursor;
+
 import java.util.List;
 import java.util.Map;
 
@@ -7,10 +9,15 @@ import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackageException;
 import mil.nga.geopackage.db.CoreSQLUtils;
 import mil.nga.geopackage.extension.Extensions;
+import mil.nga.geopackage.features.index.FeatureIndexNearestResults;
+import mil.nga.geopackage.features.index.RTreeNearestSearch;
 import mil.nga.geopackage.features.user.FeatureCursor;
 import mil.nga.geopackage.features.user.FeatureDao;
 import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.io.GeoPackageProgress;
+import mil.nga.geopackage.proj.ProjectionTransformCache;
+import mil.nga.geopackage.user.UserQuery;
+import mil.nga.geopackage.user.UserQueryParamType;
 import mil.nga.geopackage.user.custom.UserCustomCursor;
 import mil.nga.geopackage.user.custom.UserCustomDao;
 import mil.nga.geopackage.user.custom.UserCustomRow;
@@ -26,6 +33,11 @@ import mil.nga.sf.proj.ProjectionTransform;
  */
 public class RTreeIndexTableDao extends UserCustomDao {
 
+    /**
+     * RTree id column alias within joined feature queries
+     */
+    private static final String JOIN_ID_ALIAS = "nga_rtree_id";
+
     /**
      * RTree index extension
      */
@@ -108,6 +120,7 @@ public class RTreeIndexTableDao extends UserCustomDao {
         Extensions extension = null;
         if (!has()) {
             extension = rTree.create(featureDao.getTable());
+            featureDao.setRTreeIndexExtension(rTree);
             if (progress != null) {
                 progress.addProgress(count());
             }
@@ -120,6 +133,7 @@ public class RTreeIndexTableDao extends UserCustomDao {
      */
     public void delete() {
         rTree.delete(featureDao.getTable());
+        featureDao.setRTreeIndexExtension(null);
     }
 
     /**
@@ -647,8 +661,8 @@ public class RTreeIndexTableDao extends UserCustomDao {
     public BoundingBox getBoundingBox(Projection projection) {
         BoundingBox boundingBox = getBoundingBox();
         if (boundingBox != null && projection != null) {
-            ProjectionTransform projectionTransform = featureDao
-                    .getProjection().getTransformation(projection);
+            ProjectionTransform projectionTransform = ProjectionTransformCache
+                    .getTransformation(featureDao.getProjection(), projection);
             boundingBox = boundingBox.transform(projectionTransform);
         }
         return boundingBox;
@@ -2824,6 +2838,160 @@ public class RTreeIndexTableDao extends UserCustomDao {
                 whereBoundsArgs, where, whereArgs);
     }
 
+    /**
+     * Query for features within the geometry envelope in a single statement
+     * joining the RTree table to the feature table. Unlike
+     * {@link #queryFeatures(boolean, String[], GeometryEnvelope, String, String[])},
+     * the RTree ids are not collected before the first feature row is
+     * returned. Count with
+     * {@link #countFeatures(boolean, String, GeometryEnvelope, String, String[])}
+     * instead of the cursor count to avoid stepping through all rows.
+     * <p>
+     * The joined query is raw SQL, which the feature DAO can not requery
+     * with blob columns selected as null. Rows too large for the cursor
+     * window are returned invalid instead of being requeried. Increase the
+     * {@link FeatureDao#setCursorWindowSize(long)} or query with
+     * {@link #queryFeatures(boolean, String[], GeometryEnvelope, String, String[])}
+     * for tables with very large geometries.
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns, null for all
+     * @param envelope  geometry envelope
+     * @param where     where clause on feature columns
+     * @param whereArgs where arguments
+     * @return feature cursor
+     * @since 4.0.1
+     */
+    public FeatureCursor queryJoinedFeatures(boolean distinct, String[] columns,
+                                             GeometryEnvelope envelope, String where, String[] whereArgs) {
+        return queryJoinedFeatures(distinct, columns, envelope.getMinX(),
+                envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY(),
+                where, whereArgs);
+    }
+
+    /**
+     * Query for features within the bounds in a single statement joining the
+     * RTree table to the feature table. Rows too large for the cursor window
+     * are returned invalid instead of being requeried.
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns, null for all
+     * @param minX      min x
+     * @param minY      min y
+     * @param maxX      max x
+     * @param maxY      max y
+     * @param where     where clause on feature columns
+     * @param whereArgs where arguments
+     * @return feature cursor
+     * @since 4.0.1
+     */
+    public FeatureCursor queryJoinedFeatures(boolean distinct, String[] columns,
+                                             double minX, double minY, double maxX, double maxY,
+                                             String where, String[] whereArgs) {
+        validateRTree();
+
+        String[] selectColumns = columns;
+        if (selectColumns == null) {
+            selectColumns = featureDao.getColumnNames();
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT ");
+        if (distinct) {
+            sql.append("DISTINCT ");
+        }
+        for (int i = 0; i < selectColumns.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("f.").append(CoreSQLUtils.quoteWrap(selectColumns[i]));
+        }
+
+        // The RTree is the outer loop of the cross join, feature rows are
+        // read by primary key as each RTree match is stepped
+        sql.append(" FROM (SELECT ");
+        sql.append(CoreSQLUtils.quoteWrap(RTreeIndexExtension.COLUMN_ID));
+        sql.append(" AS ").append(CoreSQLUtils.quoteWrap(JOIN_ID_ALIAS));
+        sql.append(" FROM ").append(CoreSQLUtils.quoteWrap(getTableName()));
+        sql.append(" WHERE ").append(buildWhere(minX, minY, maxX, maxY));
+        sql.append(") AS r CROSS JOIN ");
+        sql.append(CoreSQLUtils.quoteWrap(featureDao.getTableName()));
+        sql.append(" AS f ON f.");
+        sql.append(CoreSQLUtils.quoteWrap(featureDao.getIdColumnName()));
+        sql.append(" = r.").append(CoreSQLUtils.quoteWrap(JOIN_ID_ALIAS));
+        if (where != null) {
+            sql.append(" WHERE ").append(where);
+        }
+
+        String[] whereBoundsArgs = buildWhereArgs(minX, minY, maxX, maxY);
+        String[] args = whereBoundsArgs;
+        if (whereArgs != null && whereArgs.length > 0) {
+            args = new String[whereBoundsArgs.length + whereArgs.length];
+            System.arraycopy(whereBoundsArgs, 0, args, 0, whereBoundsArgs.length);
+            System.arraycopy(whereArgs, 0, args, whereBoundsArgs.length,
+                    whereArgs.length);
+        }
+
+        UserQuery query = new UserQuery(sql.toString(), args);
+        if (columns != null) {
+            query.set(UserQueryParamType.COLUMNS, columns);
+        }
+        // Invalid row requery is not enabled, requeries of raw SQL can not
+        // select the blob columns as null
+        return featureDao.getFeatureDb().query(query);
+    }
+
+    /**
+     * Query for the k nearest features to the point with a best-first
+     * traversal of the RTree nodes
+     *
+     * @param x           x coordinate, in the feature projection
+     * @param y           y coordinate, in the feature projection
+     * @param k           maximum number of features
+     * @param maxDistance maximum distance, in the feature projection units
+     * @return nearest feature results, nearest first
+     * @since 4.0.1
+     */
+    public FeatureIndexNearestResults nearest(double x, double y, int k,
+                                              double maxDistance) {
+        validateRTree();
+
+        final String nodeSql = "SELECT data FROM "
+                + CoreSQLUtils.quoteWrap(getTableName() + "_node")
+                + " WHERE nodeno = ?";
+
+        RTreeNearestSearch search = new RTreeNearestSearch(x, y) {
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            protected byte[] readNode(long nodeNo) {
+                byte[] data = null;
+                Cursor cursor = featureDao.getDb().rawQuery(nodeSql,
+                        new String[]{String.valueOf(nodeNo)});
+                try {
+                    if (cursor.moveToFirst()) {
+                        data = cursor.getBlob(0);
+                    }
+                } finally {
+                    cursor.close();
+                }
+                return data;
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            protected FeatureRow readFeature(long id) {
+                return featureDao.queryForIdRow(id);
+            }
+
+        };
+
+        return search.search(k, maxDistance);
+    }
+
     /**
      * Validate that the RTree extension exists for the table and column
      */
@@ -0,0 +1,836 @@
+package mil.nga.geopackage.features.index;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.util.Log;
+
+import org.locationtech.proj4j.units.Units;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mil.nga.geopackage.BoundingBox;
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.db.GeoPackageDatabase;
+import mil.nga.geopackage.db.GeoPackageSQLiteStatement;
+import mil.nga.geopackage.features.user.FeatureCursor;
+import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.features.user.GeometryEnvelopeReader;
+import mil.nga.geopackage.proj.ProjectionTransformCache;
+import mil.nga.geopackage.tiles.TileBoundingBoxUtils;
+import mil.nga.geopackage.tiles.TileGrid;
+import mil.nga.sf.proj.Projection;
+import mil.nga.sf.proj.ProjectionConstants;
+import mil.nga.sf.proj.ProjectionTransform;
+
+/**
+ * Feature density pyramid of per zoom level web mercator tile feature counts.
+ * A feature envelope that fully covers a tile is counted once at that tile,
+ * standing for all of its descendants, and the feature is only split further
+ * into the tiles it partially overlaps. A tile count is its overlap count
+ * plus the cover counts of the tile and its ancestors, so counts at or below
+ * the exact zoom are exact tile envelope counts and counts of deeper tiles
+ * are bounded by their ancestors. Counts are returned without querying
+ * features and the pyramid can be saved to tables within the GeoPackage.
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public class FeatureDensityPyramid {
+
+    /**
+     * Default max zoom level
+     */
+    public static final int DEFAULT_MAX_ZOOM = 8;
+
+    /**
+     * Largest supported max zoom level
+     */
+    public static final int MAX_ZOOM_LIMIT = 20;
+
+    /**
+     * Max partially overlapped tiles of a feature at a zoom level. Features
+     * overlapping more tiles stop splitting at that zoom level, which becomes
+     * the last exact zoom level of the pyramid.
+     */
+    public static final int MAX_FAN_OUT = 1024;
+
+    /**
+     * Density pyramid table name
+     */
+    public static final String TABLE_NAME = "nga_feature_density";
+
+    /**
+     * Density pyramid tile counts table name
+     */
+    public static final String TILES_TABLE_NAME = "nga_feature_density_tiles";
+
+    /**
+     * Table name column
+     */
+    public static final String COLUMN_TABLE_NAME = "table_name";
+
+    /**
+     * Max zoom column
+     */
+    public static final String COLUMN_MAX_ZOOM = "max_zoom";
+
+    /**
+     * Exact zoom column
+     */
+    public static final String COLUMN_EXACT_ZOOM = "exact_zoom";
+
+    /**
+     * Feature count column
+     */
+    public static final String COLUMN_FEATURE_COUNT = "feature_count";
+
+    /**
+     * Last indexed column, milliseconds since the epoch
+     */
+    public static final String COLUMN_LAST_INDEXED = "last_indexed";
+
+    /**
+     * Zoom level column
+     */
+    public static final String COLUMN_ZOOM_LEVEL = "zoom_level";
+
+    /**
+     * Tile column column
+     */
+    public static final String COLUMN_TILE_COLUMN = "tile_column";
+
+    /**
+     * Tile row column
+     */
+    public static final String COLUMN_TILE_ROW = "tile_row";
+
+    /**
+     * Partial overlap count column
+     */
+    public static final String COLUMN_OVERLAPS = "overlaps";
+
+    /**
+     * Full cover count column
+     */
+    public static final String COLUMN_COVERS = "covers";
+
+    /**
+     * GeoPackage database name
+     */
+    private final String database;
+
+    /**
+     * Feature table name
+     */
+    private final String tableName;
+
+    /**
+     * Max zoom level
+     */
+    private final int maxZoom;
+
+    /**
+     * Last indexed date
+     */
+    private final Date lastIndexed;
+
+    /**
+     * Partial overlap tile counts by zoom level, keyed by the tile x and y
+     */
+    private final List<Map<Long, Integer>> levels;
+
+    /**
+     * Full cover tile counts by zoom level, keyed by the tile x and y
+     */
+    private final List<Map<Long, Integer>> covers;
+
+    /**
+     * Last zoom level of exact counts
+     */
+    private int exactZoom;
+
+    /**
+     * Number of counted features
+     */
+    private long count = 0;
+
+    /**
+     * Constructor
+     *
+     * @param database    GeoPackage database name
+     * @param tableName   feature table name
+     * @param maxZoom     max zoom level
+     * @param lastIndexed last indexed date
+     */
+    public FeatureDensityPyramid(String database, String tableName,
+                                 int maxZoom, Date lastIndexed) {
+        if (maxZoom < 0 || maxZoom > MAX_ZOOM_LIMIT) {
+            throw new GeoPackageException("Density max zoom must be between 0 and "
+                    + MAX_ZOOM_LIMIT + ": " + maxZoom);
+        }
+        this.database = database;
+        this.tableName = tableName;
+        this.maxZoom = maxZoom;
+        this.lastIndexed = lastIndexed;
+        this.exactZoom = maxZoom;
+        levels = new ArrayList<>(maxZoom + 1);
+        covers = new ArrayList<>(maxZoom + 1);
+        for (int zoom = 0; zoom <= maxZoom; zoom++) {
+            levels.add(new HashMap<Long, Integer>());
+            covers.add(new HashMap<Long, Integer>());
+        }
+    }
+
+    /**
+     * Build the density pyramid of the feature table
+     *
+     * @param featureDao feature DAO
+     * @param maxZoom    max zoom level
+     * @return density pyramid
+     */
+    public static FeatureDensityPyramid build(FeatureDao featureDao, int maxZoom) {
+        return build(featureDao, maxZoom, 1000);
+    }
+
+    /**
+     * Build the density pyramid of the feature table, reading the feature
+     * geometry envelopes in primary key chunks
+     *
+     * @param featureDao feature DAO
+     * @param maxZoom    max zoom level
+     * @param chunkLimit chunk limit
+     * @return density pyramid
+     */
+    public static FeatureDensityPyramid build(FeatureDao featureDao,
+                                              int maxZoom, int chunkLimit) {
+
+        FeatureDensityPyramid pyramid = new FeatureDensityPyramid(
+                featureDao.getDatabase(), featureDao.getTableName(), maxZoom,
+                new Date());
+
+        Projection projection = featureDao.getProjection();
+        ProjectionTransform toWebMercator = ProjectionTransformCache
+                .getTransformation(projection, ProjectionConstants.EPSG_WEB_MERCATOR);
+        boolean sameProjection = toWebMercator.isSameProjection();
+        boolean degrees = projection.isUnit(Units.DEGREES);
+
+        String[] columns = featureDao.getIdAndGeometryColumnNames();
+        GeometryEnvelopeReader envelopeReader = new GeometryEnvelopeReader();
+
+        long lastId = Long.MIN_VALUE;
+        boolean hasResults = true;
+
+        while (hasResults) {
+
+            hasResults = false;
+
+            FeatureCursor featureCursor = featureDao.queryForChunkAfterId(columns,
+                    lastId, chunkLimit);
+            try {
+                while (featureCursor.moveToNext()) {
+
+                    if (featureCursor.isInvalidRow()) {
+                        // Read from the invalid row requery
+                        continue;
+                    }
+
+                    long id;
+                    BoundingBox webMercatorBoundingBox;
+                    try {
+                        id = featureCursor.getId();
+                        if (id > lastId) {
+                            lastId = id;
+                            hasResults = true;
+                        }
+                        if (!featureCursor.readGeometryEnvelope(envelopeReader)) {
+                            continue;
+                        }
+                        double minY = envelopeReader.getMinY();
+                        double maxY = envelopeReader.getMaxY();
+                        if (degrees) {
+                            minY = Math.max(minY, ProjectionConstants.WEB_MERCATOR_MIN_LAT_RANGE);
+                            maxY = Math.min(maxY, ProjectionConstants.WEB_MERCATOR_MAX_LAT_RANGE);
+                            if (minY > maxY) {
+                                continue;
+                            }
+                        }
+                        webMercatorBoundingBox = new BoundingBox(
+                                envelopeReader.getMinX(), minY,
+                                envelopeReader.getMaxX(), maxY);
+                        if (!sameProjection) {
+                            webMercatorBoundingBox = webMercatorBoundingBox
+                                    .transform(toWebMercator);
+                        }
+                    } catch (Exception e) {
+                        Log.w(FeatureDensityPyramid.class.getSimpleName(),
+                                "Failed to read feature envelope. Table: "
+                                        + featureDao.getTableName(), e);
+                        continue;
+                    }
+
+                    pyramid.add(webMercatorBoundingBox);
+                }
+            } finally {
+                featureCursor.close();
+            }
+        }
+
+        return pyramid;
+    }
+
+    /**
+     * Count a feature in the tiles its web mercator envelope overlaps. Fully
+     * covered tiles are counted without descending into their child tiles.
+     *
+     * @param webMercatorBoundingBox feature web mercator bounding box
+     */
+    public void add(BoundingBox webMercatorBoundingBox) {
+        BoundingBox boundingBox = TileBoundingBoxUtils
+                .boundWebMercatorBoundingBox(webMercatorBoundingBox);
+
+        List<Long> partial = new ArrayList<>();
+        partial.add(key(0, 0));
+
+        for (int zoom = 0; zoom <= maxZoom && !partial.isEmpty(); zoom++) {
+
+            TileGrid tileGrid = TileBoundingBoxUtils.getTileGrid(boundingBox,
+                    zoom);
+            // Envelopes on a tile edge are excluded from the lower tile and
+            // may produce an empty range, keep them in the upper tile
+            long minX = tileGrid.getMinX();
+            long minY = tileGrid.getMinY();
+            long maxX = Math.max(minX, tileGrid.getMaxX());
+            long maxY = Math.max(minY, tileGrid.getMaxY());
+
+            // Candidate tiles are the children of the previous zoom partially
+            // overlapped tiles within the tile grid
+            List<Long> overlapped = new ArrayList<>();
+            int childShift = zoom > 0 ? 1 : 0;
+            for (long parent : partial) {
+                long parentX = tileX(parent) << childShift;
+                long parentY = tileY(parent) << childShift;
+                long childMaxX = Math.min(maxX, parentX + childShift);
+                long childMaxY = Math.min(maxY, parentY + childShift);
+                for (long x = Math.max(minX, parentX); x <= childMaxX; x++) {
+                    for (long y = Math.max(minY, parentY); y <= childMaxY; y++) {
+                        if (covers(boundingBox, x, y, zoom)) {
+                            increment(covers.get(zoom), key(x, y));
+                        } else {
+                            overlapped.add(key(x, y));
+                        }
+                    }
+                }
+            }
+
+            if (zoom < maxZoom && overlapped.size() > MAX_FAN_OUT) {
+                // Stop splitting, the feature bounds all descendant tiles
+                Map<Long, Integer> level = covers.get(zoom);
+                for (long key : overlapped) {
+                    increment(level, key);
+                }
+                exactZoom = Math.min(exactZoom, zoom);
+                overlapped.clear();
+            } else {
+                Map<Long, Integer> level = levels.get(zoom);
+                for (long key : overlapped) {
+                    increment(level, key);
+                }
+            }
+
+            partial = overlapped;
+        }
+
+        count++;
+    }
+
+    /**
+     * Get the GeoPackage database name
+     *
+     * @return database name
+     */
+    public String getDatabase() {
+        return database;
+    }
+
+    /**
+     * Get the feature table name
+     *
+     * @return table name
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Get the max zoom level of stored counts
+     *
+     * @return max zoom level
+     */
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    /**
+     * Get the last indexed date
+     *
+     * @return last indexed date
+     */
+    public Date getLastIndexed() {
+        return lastIndexed;
+    }
+
+    /**
+     * Get the number of counted features, features with envelopes
+     *
+     * @return feature count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the last zoom level of exact counts, lower than the max zoom when
+     * features overlapping more than {@link #MAX_FAN_OUT} tiles stopped
+     * splitting
+     *
+     * @return exact zoom level
+     */
+    public int getExactZoom() {
+        return exactZoom;
+    }
+
+    /**
+     * Determine if tile counts at the zoom level are exact
+     *
+     * @param zoom zoom level
+     * @return true if exact, false if an upper bound
+     */
+    public boolean isExact(int zoom) {
+        return zoom <= exactZoom;
+    }
+
+    /**
+     * Get the number of features overlapping the tile. The count is exact
+     * when {@link #isExact(int)} and otherwise an upper bound from the
+     * ancestor tiles.
+     *
+     * @param x    x coordinate
+     * @param y    y coordinate
+     * @param zoom zoom level
+     * @return feature count
+     */
+    public long count(long x, long y, int zoom) {
+        if (zoom > maxZoom) {
+            int shift = zoom - maxZoom;
+            x >>= shift;
+            y >>= shift;
+            zoom = maxZoom;
+        }
+        long tileCount = get(levels.get(zoom), key(x, y));
+        for (int level = zoom; level >= 0; level--) {
+            int shift = zoom - level;
+            tileCount += get(covers.get(level), key(x >> shift, y >> shift));
+        }
+        return tileCount;
+    }
+
+    /**
+     * Estimate the number of features overlapping the tile. Tiles beyond the
+     * max zoom receive an even share of their ancestor tile count.
+     *
+     * @param x    x coordinate
+     * @param y    y coordinate
+     * @param zoom zoom level
+     * @return estimated feature count
+     */
+    public double estimateCount(long x, long y, int zoom) {
+        double estimate = count(x, y, zoom);
+        if (zoom > maxZoom) {
+            estimate /= Math.pow(4, zoom - maxZoom);
+        }
+        return estimate;
+    }
+
+    /**
+     * Save the density pyramid to the GeoPackage of the feature table,
+     * replacing a previously saved pyramid of the table
+     *
+     * @param featureDao feature DAO
+     */
+    public void save(FeatureDao featureDao) {
+
+        GeoPackageDatabase database = featureDao.getDatabaseConnection();
+        createTables(database);
+
+        database.beginTransaction();
+        boolean successful = false;
+        try {
+
+            deleteRows(database, tableName);
+
+            GeoPackageSQLiteStatement statement = database.compileStatement(
+                    "INSERT INTO " + CoreSQLUtils.quoteWrap(TABLE_NAME) + " ("
+                            + CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + ", "
+                            + CoreSQLUtils.quoteWrap(COLUMN_MAX_ZOOM) + ", "
+                            + CoreSQLUtils.quoteWrap(COLUMN_EXACT_ZOOM) + ", "
+                            + CoreSQLUtils.quoteWrap(COLUMN_FEATURE_COUNT) + ", "
+                            + CoreSQLUtils.quoteWrap(COLUMN_LAST_INDEXED)
+                            + ") VALUES (?, ?, ?, ?, ?)");
+            try {
+                statement.bindString(1, tableName);
+                statement.bindLong(2, maxZoom);
+                statement.bindLong(3, exactZoom);
+                statement.bindLong(4, count);
+                statement.bindLong(5, lastIndexed.getTime());
+                statement.executeInsert();
+            } finally {
+                statement.close();
+            }
+
+            statement = database.compileStatement(
+                    "INSERT INTO " + CoreSQLUtils.quoteWrap(TILES_TABLE_NAME) + " ("
+                            + CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + ", "
+                            + CoreSQLUtils.quoteWrap(COLUMN_ZOOM_LEVEL) + ", "
+                            + CoreSQLUtils.quoteWrap(COLUMN_TILE_COLUMN) + ", "
+                            + CoreSQLUtils.quoteWrap(COLUMN_TILE_ROW) + ", "
+                            + CoreSQLUtils.quoteWrap(COLUMN_OVERLAPS) + ", "
+                            + CoreSQLUtils.quoteWrap(COLUMN_COVERS)
+                            + ") VALUES (?, ?, ?, ?, ?, ?)");
+            try {
+                for (int zoom = 0; zoom <= maxZoom; zoom++) {
+                    Map<Long, Integer> level = levels.get(zoom);
+                    Map<Long, Integer> cover = covers.get(zoom);
+                    for (Map.Entry<Long, Integer> tileCount : level.entrySet()) {
+                        insertTile(statement, zoom, tileCount.getKey(),
+                                tileCount.getValue(),
+                                get(cover, tileCount.getKey()));
+                    }
+                    for (Map.Entry<Long, Integer> tileCount : cover.entrySet()) {
+                        if (!level.containsKey(tileCount.getKey())) {
+                            insertTile(statement, zoom, tileCount.getKey(), 0,
+                                    tileCount.getValue());
+                        }
+                    }
+                }
+            } finally {
+                statement.close();
+            }
+
+            successful = true;
+        } finally {
+            database.endTransaction(successful);
+        }
+    }
+
+    /**
+     * Load the density pyramid of the feature table saved to the GeoPackage.
+     * The pyramid is only loaded if it is not older than the last table
+     * change and has not been invalidated.
+     *
+     * @param featureDao feature DAO
+     * @return density pyramid, null if not loaded
+     */
+    public static FeatureDensityPyramid load(FeatureDao featureDao) {
+
+        FeatureDensityPyramid pyramid = null;
+
+        GeoPackageDatabase database = featureDao.getDatabaseConnection();
+        String tableName = featureDao.getTableName();
+
+        if (tablesExist(database)) {
+
+            Cursor cursor = database.rawQuery("SELECT "
+                            + CoreSQLUtils.quoteWrap(COLUMN_MAX_ZOOM) + ", "
+                            + CoreSQLUtils.quoteWrap(COLUMN_EXACT_ZOOM) + ", "
+                            + CoreSQLUtils.quoteWrap(COLUMN_FEATURE_COUNT) + ", "
+                            + CoreSQLUtils.quoteWrap(COLUMN_LAST_INDEXED) + " FROM "
+                            + CoreSQLUtils.quoteWrap(TABLE_NAME) + " WHERE "
+                            + CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + " = ?",
+                    new String[]{tableName});
+            try {
+                if (cursor.moveToFirst()) {
+                    Date indexed = new Date(cursor.getLong(3));
+                    Date lastChange = featureDao.getGeometryColumns().getContents().getLastChange();
+                    if (indexed.getTime() > 0
+                            && (lastChange == null || !indexed.before(lastChange))) {
+                        pyramid = new FeatureDensityPyramid(
+                                featureDao.getDatabase(), tableName,
+                                cursor.getInt(0), indexed);
+                        pyramid.exactZoom = cursor.getInt(1);
+                        pyramid.count = cursor.getLong(2);
+                    }
+                }
+            } catch (Exception e) {
+                Log.w(FeatureDensityPyramid.class.getSimpleName(),
+                        "Failed to load feature density. Table: " + tableName, e);
+                pyramid = null;
+            } finally {
+                cursor.close();
+            }
+
+            if (pyramid != null) {
+                cursor = database.rawQuery("SELECT "
+                                + CoreSQLUtils.quoteWrap(COLUMN_ZOOM_LEVEL) + ", "
+                                + CoreSQLUtils.quoteWrap(COLUMN_TILE_COLUMN) + ", "
+                                + CoreSQLUtils.quoteWrap(COLUMN_TILE_ROW) + ", "
+                                + CoreSQLUtils.quoteWrap(COLUMN_OVERLAPS) + ", "
+                                + CoreSQLUtils.quoteWrap(COLUMN_COVERS) + " FROM "
+                                + CoreSQLUtils.quoteWrap(TILES_TABLE_NAME) + " WHERE "
+                                + CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + " = ?",
+                        new String[]{tableName});
+                try {
+                    while (cursor.moveToNext()) {
+                        int zoom = cursor.getInt(0);
+                        if (zoom < 0 || zoom > pyramid.maxZoom) {
+                            throw new GeoPackageException("Feature density zoom level "
+                                    + zoom + " outside of max zoom " + pyramid.maxZoom);
+                        }
+                        long key = key(cursor.getLong(1), cursor.getLong(2));
+                        int overlaps = cursor.getInt(3);
+                        int covers = cursor.getInt(4);
+                        if (overlaps > 0) {
+                            pyramid.levels.get(zoom).put(key, overlaps);
+                        }
+                        if (covers > 0) {
+                            pyramid.covers.get(zoom).put(key, covers);
+                        }
+                    }
+                } catch (Exception e) {
+                    Log.w(FeatureDensityPyramid.class.getSimpleName(),
+                            "Failed to load feature density tiles. Table: " + tableName, e);
+                    pyramid = null;
+                } finally {
+                    cursor.close();
+                }
+            }
+        }
+
+        return pyramid;
+    }
+
+    /**
+     * Invalidate the density pyramid of the feature table saved to the
+     * GeoPackage by clearing the last indexed time, keeping the saved rows
+     * until the pyramid is rebuilt
+     *
+     * @param featureDao feature DAO
+     * @return max zoom of the invalidated pyramid, -1 if none saved
+     * @since 4.0.1
+     */
+    public static int invalidate(FeatureDao featureDao) {
+        int maxZoom = -1;
+        GeoPackageDatabase database = featureDao.getDatabaseConnection();
+        if (tablesExist(database)) {
+            String tableName = featureDao.getTableName();
+            Cursor cursor = database.rawQuery("SELECT "
+                            + CoreSQLUtils.quoteWrap(COLUMN_MAX_ZOOM) + " FROM "
+                            + CoreSQLUtils.quoteWrap(TABLE_NAME) + " WHERE "
+                            + CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + " = ?",
+                    new String[]{tableName});
+            try {
+                if (cursor.moveToFirst()) {
+                    maxZoom = cursor.getInt(0);
+                }
+            } finally {
+                cursor.close();
+            }
+            if (maxZoom >= 0) {
+                ContentValues values = new ContentValues();
+                values.put(COLUMN_LAST_INDEXED, 0L);
+                database.update(CoreSQLUtils.quoteWrap(TABLE_NAME), values,
+                        CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + " = ?",
+                        new String[]{tableName});
+            }
+        }
+        return maxZoom;
+    }
+
+    /**
+     * Delete the density pyramid of the feature table saved to the
+     * GeoPackage
+     *
+     * @param featureDao feature DAO
+     * @return true if a saved pyramid was deleted
+     */
+    public static boolean delete(FeatureDao featureDao) {
+        boolean deleted = false;
+        GeoPackageDatabase database = featureDao.getDatabaseConnection();
+        if (tablesExist(database)) {
+            database.beginTransaction();
+            boolean successful = false;
+            try {
+                deleted = deleteRows(database, featureDao.getTableName());
+                successful = true;
+            } finally {
+                database.endTransaction(successful);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Create the density pyramid tables if they do not exist
+     *
+     * @param database database connection
+     */
+    private static void createTables(GeoPackageDatabase database) {
+        database.execSQL("CREATE TABLE IF NOT EXISTS "
+                + CoreSQLUtils.quoteWrap(TABLE_NAME) + " ("
+                + CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + " TEXT PRIMARY KEY NOT NULL, "
+                + CoreSQLUtils.quoteWrap(COLUMN_MAX_ZOOM) + " INTEGER NOT NULL, "
+                + CoreSQLUtils.quoteWrap(COLUMN_EXACT_ZOOM) + " INTEGER NOT NULL, "
+                + CoreSQLUtils.quoteWrap(COLUMN_FEATURE_COUNT) + " INTEGER NOT NULL, "
+                + CoreSQLUtils.quoteWrap(COLUMN_LAST_INDEXED) + " INTEGER NOT NULL)");
+        database.execSQL("CREATE TABLE IF NOT EXISTS "
+                + CoreSQLUtils.quoteWrap(TILES_TABLE_NAME) + " ("
+                + CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + " TEXT NOT NULL, "
+                + CoreSQLUtils.quoteWrap(COLUMN_ZOOM_LEVEL) + " INTEGER NOT NULL, "
+                + CoreSQLUtils.quoteWrap(COLUMN_TILE_COLUMN) + " INTEGER NOT NULL, "
+                + CoreSQLUtils.quoteWrap(COLUMN_TILE_ROW) + " INTEGER NOT NULL, "
+                + CoreSQLUtils.quoteWrap(COLUMN_OVERLAPS) + " INTEGER NOT NULL, "
+                + CoreSQLUtils.quoteWrap(COLUMN_COVERS) + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + ", "
+                + CoreSQLUtils.quoteWrap(COLUMN_ZOOM_LEVEL) + ", "
+                + CoreSQLUtils.quoteWrap(COLUMN_TILE_COLUMN) + ", "
+                + CoreSQLUtils.quoteWrap(COLUMN_TILE_ROW) + "))");
+    }
+
+    /**
+     * Determine if the density pyramid tables exist
+     *
+     * @param database database connection
+     * @return true if exist
+     */
+    private static boolean tablesExist(GeoPackageDatabase database) {
+        boolean exist = false;
+        Cursor cursor = database.rawQuery(
+                "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name IN (?, ?)",
+                new String[]{TABLE_NAME, TILES_TABLE_NAME});
+        try {
+            if (cursor.moveToFirst()) {
+                exist = cursor.getInt(0) == 2;
+            }
+        } finally {
+            cursor.close();
+        }
+        return exist;
+    }
+
+    /**
+     * Delete the saved density pyramid rows of the feature table
+     *
+     * @param database  database connection
+     * @param tableName feature table name
+     * @return true if a saved pyramid was deleted
+     */
+    private static boolean deleteRows(GeoPackageDatabase database,
+                                      String tableName) {
+        String where = CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + " = ?";
+        String[] whereArgs = new String[]{tableName};
+        database.delete(CoreSQLUtils.quoteWrap(TILES_TABLE_NAME), where, whereArgs);
+        return database.delete(CoreSQLUtils.quoteWrap(TABLE_NAME), where,
+                whereArgs) > 0;
+    }
+
+    /**
+     * Insert a tile counts row
+     *
+     * @param statement insert statement
+     * @param zoom      zoom level
+     * @param key       tile key
+     * @param overlaps  partial overlap count
+     * @param covers    full cover count
+     */
+    private void insertTile(GeoPackageSQLiteStatement statement, int zoom,
+                            long key, int overlaps, int covers) {
+        statement.clearBindings();
+        statement.bindString(1, tableName);
+        statement.bindLong(2, zoom);
+        statement.bindLong(3, tileX(key));
+        statement.bindLong(4, tileY(key));
+        statement.bindLong(5, overlaps);
+        statement.bindLong(6, covers);
+        statement.executeInsert();
+    }
+
+    /**
+     * Determine if the web mercator bounding box fully covers the tile
+     *
+     * @param boundingBox web mercator bounding box
+     * @param x           x coordinate
+     * @param y           y coordinate
+     * @param zoom        zoom level
+     * @return true if covered
+     */
+    private static boolean covers(BoundingBox boundingBox, long x, long y,
+                                  int zoom) {
+        double tileSize = 2 * ProjectionConstants.WEB_MERCATOR_HALF_WORLD_WIDTH
+                / TileBoundingBoxUtils.tilesPerSide(zoom);
+        double minX = -ProjectionConstants.WEB_MERCATOR_HALF_WORLD_WIDTH + x * tileSize;
+        double maxY = ProjectionConstants.WEB_MERCATOR_HALF_WORLD_WIDTH - y * tileSize;
+        return boundingBox.getMinLongitude() <= minX
+                && boundingBox.getMaxLongitude() >= minX + tileSize
+                && boundingBox.getMinLatitude() <= maxY - tileSize
+                && boundingBox.getMaxLatitude() >= maxY;
+    }
+
+    /**
+     * Increment the tile count
+     *
+     * @param level tile counts
+     * @param key   tile key
+     */
+    private static void increment(Map<Long, Integer> level, long key) {
+        Integer tileCount = level.get(key);
+        level.put(key, tileCount == null ? 1 : tileCount + 1);
+    }
+
+    /**
+     * Get the tile count
+     *
+     * @param level tile counts
+     * @param key   tile key
+     * @return tile count, 0 if not counted
+     */
+    private static int get(Map<Long, Integer> level, long key) {
+        Integer tileCount = level.get(key);
+        return tileCount != null ? tileCount : 0;
+    }
+
+    /**
+     * Build the tile key
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return key
+     */
+    private static long key(long x, long y) {
+        return (x << 32) | y;
+    }
+
+    /**
+     * Get the x coordinate of the tile key
+     *
+     * @param key tile key
+     * @return x coordinate
+     */
+    private static long tileX(long key) {
+        return key >>> 32;
+    }
+
+    /**
+     * Get the y coordinate of the tile key
+     *
+     * @param key tile key
+     * @return y coordinate
+     */
+    private static long tileY(long key) {
+        return key & 0xFFFFFFFFL;
+    }
+
+}
@@ -0,0 +1,109 @@
+package mil.nga.geopackage.features.index;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import mil.nga.geopackage.db.FeatureIndexerIdQuery;
+import mil.nga.geopackage.features.user.FeatureCursor;
+import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.features.user.FeatureRow;
+
+/**
+ * Feature Index Batch Iterator, hydrates feature rows of index result ids in
+ * chunked id IN (...) queries instead of a feature query per result. Rows are
+ * returned in index result order. Indexed ids no longer found in the feature
+ * table are skipped.
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public class FeatureIndexBatchIterator implements Iterator<FeatureRow> {
+
+    /**
+     * Feature DAO
+     */
+    private final FeatureDao featureDao;
+
+    /**
+     * Index result ids
+     */
+    private final Iterator<Long> ids;
+
+    /**
+     * Hydrated feature rows of the current chunk
+     */
+    private final Deque<FeatureRow> rows = new ArrayDeque<>();
+
+    /**
+     * Constructor
+     *
+     * @param featureDao feature DAO
+     * @param ids        index result ids
+     */
+    public FeatureIndexBatchIterator(FeatureDao featureDao, Iterator<Long> ids) {
+        this.featureDao = featureDao;
+        this.ids = ids;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        while (rows.isEmpty() && ids.hasNext()) {
+            readChunk();
+        }
+        return !rows.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public FeatureRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return rows.removeFirst();
+    }
+
+    /**
+     * Read the next chunk of ids, up to the maximum query arguments, and
+     * query for the feature rows
+     */
+    private void readChunk() {
+
+        FeatureIndexerIdQuery idQuery = new FeatureIndexerIdQuery();
+        while (ids.hasNext() && !idQuery.aboveMaxArguments(1)) {
+            idQuery.addArgument(ids.next());
+        }
+
+        if (idQuery.getCount() > 0) {
+
+            Map<Long, FeatureRow> chunkRows = new HashMap<>();
+            FeatureCursor cursor = featureDao.queryIn(false, idQuery.getSql(),
+                    idQuery.getArgs(), null, null);
+            try {
+                while (cursor.moveToNext()) {
+                    FeatureRow row = cursor.getRow();
+                    chunkRows.put(row.getId(), row);
+                }
+            } finally {
+                cursor.close();
+            }
+
+            for (long id : idQuery.getIds()) {
+                FeatureRow row = chunkRows.get(id);
+                if (row != null) {
+                    rows.addLast(row);
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,489 @@
+package mil.nga.geopackage.features.index;
+
+import android.database.Cursor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.db.GeoPackageConnection;
+import mil.nga.geopackage.features.user.FeatureDao;
+
+/**
+ * Feature Index Changes, a trigger fed change log of feature ids inserted,
+ * deleted, or with updated geometries. Changes are logged by triggers within
+ * the GeoPackage, including changes made outside of this library, so feature
+ * indexes can be incrementally updated instead of rebuilt.
+ *
+ * Tracking should be enabled while the feature indexes are complete, changes
+ * made before tracking are not logged.
+ *
+ * Each change is logged with an increasing sequence. Persistent consumers,
+ * such as the feature index types, record the sequence they have applied
+ * and changes are pruned once applied by all of them. In memory consumers
+ * keep their own sequence and compare it to the {@link #getPrunedSequence()}
+ * to detect changes pruned before they were applied.
+ *
+ * @author osbornb
+ * @see FeatureIndexManager#indexChanges()
+ * @since 4.0.1
+ */
+public class FeatureIndexChanges {
+
+    /**
+     * Change log table name
+     */
+    public static final String TABLE_NAME = "nga_feature_changes";
+
+    /**
+     * Change sequence column
+     */
+    public static final String COLUMN_ID = "id";
+
+    /**
+     * Table name column
+     */
+    public static final String COLUMN_TABLE_NAME = "table_name";
+
+    /**
+     * Geometry id column
+     */
+    public static final String COLUMN_GEOM_ID = "geom_id";
+
+    /**
+     * Consumer applied sequences table name
+     */
+    public static final String CONSUMERS_TABLE_NAME = "nga_feature_changes_consumers";
+
+    /**
+     * Consumer column
+     */
+    public static final String COLUMN_CONSUMER = "consumer";
+
+    /**
+     * Applied sequence column
+     */
+    public static final String COLUMN_SEQUENCE = "sequence";
+
+    /**
+     * Reserved consumer recording the sequence changes were pruned through
+     */
+    private static final String PRUNED_CONSUMER = "";
+
+    /**
+     * Insert trigger name suffix
+     */
+    private static final String TRIGGER_INSERT = "insert";
+
+    /**
+     * Update trigger name suffix
+     */
+    private static final String TRIGGER_UPDATE = "update";
+
+    /**
+     * Delete trigger name suffix
+     */
+    private static final String TRIGGER_DELETE = "delete";
+
+    /**
+     * Feature DAO
+     */
+    private final FeatureDao featureDao;
+
+    /**
+     * Constructor
+     *
+     * @param featureDao feature DAO
+     */
+    public FeatureIndexChanges(FeatureDao featureDao) {
+        this.featureDao = featureDao;
+    }
+
+    /**
+     * Get the feature DAO
+     *
+     * @return feature DAO
+     */
+    public FeatureDao getFeatureDao() {
+        return featureDao;
+    }
+
+    /**
+     * Determine if changes to the feature table are being tracked
+     *
+     * @return true if tracking
+     */
+    public boolean isTracking() {
+        boolean tracking = false;
+        Cursor cursor = getConnection().rawQuery(
+                "SELECT COUNT(*) FROM sqlite_master WHERE type = 'trigger' AND name IN (?, ?, ?)",
+                new String[]{getTriggerName(TRIGGER_INSERT),
+                        getTriggerName(TRIGGER_UPDATE),
+                        getTriggerName(TRIGGER_DELETE)});
+        try {
+            if (cursor.moveToFirst()) {
+                tracking = cursor.getInt(0) == 3;
+            }
+        } finally {
+            cursor.close();
+        }
+        return tracking;
+    }
+
+    /**
+     * Track changes to the feature table by creating the change log table and
+     * feature table triggers
+     */
+    public void track() {
+
+        GeoPackageConnection connection = getConnection();
+
+        connection.execSQL("CREATE TABLE IF NOT EXISTS "
+                + CoreSQLUtils.quoteWrap(TABLE_NAME) + " ("
+                + CoreSQLUtils.quoteWrap(COLUMN_ID) + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + " TEXT NOT NULL, "
+                + CoreSQLUtils.quoteWrap(COLUMN_GEOM_ID) + " INTEGER NOT NULL, "
+                + "UNIQUE (" + CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + ", "
+                + CoreSQLUtils.quoteWrap(COLUMN_GEOM_ID)
+                + ") ON CONFLICT REPLACE)");
+
+        connection.execSQL("CREATE TABLE IF NOT EXISTS "
+                + CoreSQLUtils.quoteWrap(CONSUMERS_TABLE_NAME) + " ("
+                + CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + " TEXT NOT NULL, "
+                + CoreSQLUtils.quoteWrap(COLUMN_CONSUMER) + " TEXT NOT NULL, "
+                + CoreSQLUtils.quoteWrap(COLUMN_SEQUENCE) + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + ", "
+                + CoreSQLUtils.quoteWrap(COLUMN_CONSUMER) + "))");
+
+        String table = CoreSQLUtils.quoteWrap(featureDao.getTableName());
+        String pk = CoreSQLUtils.quoteWrap(featureDao.getIdColumnName());
+
+        connection.execSQL("CREATE TRIGGER IF NOT EXISTS "
+                + CoreSQLUtils.quoteWrap(getTriggerName(TRIGGER_INSERT))
+                + " AFTER INSERT ON " + table + " BEGIN "
+                + insertChangeSQL("NEW." + pk) + "; END");
+
+        connection.execSQL("CREATE TRIGGER IF NOT EXISTS "
+                + CoreSQLUtils.quoteWrap(getTriggerName(TRIGGER_UPDATE))
+                + " AFTER UPDATE OF "
+                + CoreSQLUtils.quoteWrap(featureDao.getGeometryColumnName())
+                + ", " + pk + " ON " + table + " BEGIN "
+                + insertChangeSQL("OLD." + pk) + "; "
+                + insertChangeSQL("NEW." + pk) + "; END");
+
+        connection.execSQL("CREATE TRIGGER IF NOT EXISTS "
+                + CoreSQLUtils.quoteWrap(getTriggerName(TRIGGER_DELETE))
+                + " AFTER DELETE ON " + table + " BEGIN "
+                + insertChangeSQL("OLD." + pk) + "; END");
+    }
+
+    /**
+     * Stop tracking changes to the feature table, dropping the triggers and
+     * deleting the logged changes and consumer sequences
+     */
+    public void untrack() {
+        GeoPackageConnection connection = getConnection();
+        connection.execSQL("DROP TRIGGER IF EXISTS "
+                + CoreSQLUtils.quoteWrap(getTriggerName(TRIGGER_INSERT)));
+        connection.execSQL("DROP TRIGGER IF EXISTS "
+                + CoreSQLUtils.quoteWrap(getTriggerName(TRIGGER_UPDATE)));
+        connection.execSQL("DROP TRIGGER IF EXISTS "
+                + CoreSQLUtils.quoteWrap(getTriggerName(TRIGGER_DELETE)));
+        if (tableExists(TABLE_NAME)) {
+            connection.delete(CoreSQLUtils.quoteWrap(TABLE_NAME),
+                    CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + " = ?",
+                    new String[]{featureDao.getTableName()});
+        }
+        if (tableExists(CONSUMERS_TABLE_NAME)) {
+            connection.delete(CoreSQLUtils.quoteWrap(CONSUMERS_TABLE_NAME),
+                    CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + " = ?",
+                    new String[]{featureDao.getTableName()});
+        }
+    }
+
+    /**
+     * Count the logged changes for the feature table
+     *
+     * @return change count
+     */
+    public int count() {
+        int count = 0;
+        if (tableExists(TABLE_NAME)) {
+            Cursor cursor = getConnection().rawQuery("SELECT COUNT(*) FROM "
+                            + CoreSQLUtils.quoteWrap(TABLE_NAME) + " WHERE "
+                            + CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + " = ?",
+                    new String[]{featureDao.getTableName()});
+            try {
+                if (cursor.moveToFirst()) {
+                    count = cursor.getInt(0);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the sequence of the most recently logged change for the feature
+     * table. Changes up to a sequence can be read and then applied without
+     * missing changes logged in the meantime. The sequence does not decrease
+     * when changes are pruned.
+     *
+     * @return sequence, 0 if no changes
+     */
+    public long getLastSequence() {
+        long sequence = 0;
+        if (tableExists(TABLE_NAME)) {
+            Cursor cursor = getConnection().rawQuery("SELECT MAX("
+                            + CoreSQLUtils.quoteWrap(COLUMN_ID) + ") FROM "
+                            + CoreSQLUtils.quoteWrap(TABLE_NAME) + " WHERE "
+                            + CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + " = ?",
+                    new String[]{featureDao.getTableName()});
+            try {
+                if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                    sequence = cursor.getLong(0);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return Math.max(sequence, getPrunedSequence());
+    }
+
+    /**
+     * Query for a chunk of changed feature ids logged up to the sequence,
+     * ordered by feature id
+     *
+     * @param sequence inclusive maximum change sequence
+     * @param id       exclusive lower feature id bound, {@link Long#MIN_VALUE}
+     *                 for the first chunk
+     * @param limit    chunk limit
+     * @return changed feature ids
+     */
+    public List<Long> queryIds(long sequence, long id, int limit) {
+        return queryIds(0, sequence, id, limit);
+    }
+
+    /**
+     * Query for a chunk of changed feature ids logged after a sequence and up
+     * to a sequence, ordered by feature id
+     *
+     * @param afterSequence exclusive minimum change sequence, such as a
+     *                      consumer applied sequence
+     * @param sequence      inclusive maximum change sequence
+     * @param id            exclusive lower feature id bound,
+     *                      {@link Long#MIN_VALUE} for the first chunk
+     * @param limit         chunk limit
+     * @return changed feature ids
+     */
+    public List<Long> queryIds(long afterSequence, long sequence, long id, int limit) {
+        List<Long> ids = new ArrayList<>();
+        if (sequence > afterSequence && tableExists(TABLE_NAME)) {
+            Cursor cursor = getConnection().rawQuery("SELECT "
+                            + CoreSQLUtils.quoteWrap(COLUMN_GEOM_ID) + " FROM "
+                            + CoreSQLUtils.quoteWrap(TABLE_NAME) + " WHERE "
+                            + CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + " = ? AND "
+                            + CoreSQLUtils.quoteWrap(COLUMN_ID) + " > ? AND "
+                            + CoreSQLUtils.quoteWrap(COLUMN_ID) + " <= ? AND "
+                            + CoreSQLUtils.quoteWrap(COLUMN_GEOM_ID) + " > ? ORDER BY "
+                            + CoreSQLUtils.quoteWrap(COLUMN_GEOM_ID) + " LIMIT " + limit,
+                    new String[]{featureDao.getTableName(), String.valueOf(afterSequence),
+                            String.valueOf(sequence), String.valueOf(id)});
+            try {
+                while (cursor.moveToNext()) {
+                    ids.add(cursor.getLong(0));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Clear the logged changes for the feature table up to the sequence,
+     * regardless of the consumer applied sequences
+     *
+     * @param sequence inclusive maximum change sequence
+     * @return cleared changes
+     */
+    public int clear(long sequence) {
+        int cleared = 0;
+        if (tableExists(TABLE_NAME)) {
+            cleared = getConnection().delete(CoreSQLUtils.quoteWrap(TABLE_NAME),
+                    CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + " = ? AND "
+                            + CoreSQLUtils.quoteWrap(COLUMN_ID) + " <= ?",
+                    new String[]{featureDao.getTableName(), String.valueOf(sequence)});
+            if (cleared > 0 && sequence > getPrunedSequence()) {
+                writeSequence(PRUNED_CONSUMER, sequence);
+            }
+        }
+        return cleared;
+    }
+
+    /**
+     * Get the sequence the logged changes of the feature table were pruned
+     * through. In memory consumers with an older applied sequence may have
+     * missed changes and must rebuild.
+     *
+     * @return pruned sequence, 0 if not pruned
+     */
+    public long getPrunedSequence() {
+        return getSequence(PRUNED_CONSUMER);
+    }
+
+    /**
+     * Get the sequence applied by a persistent consumer
+     *
+     * @param consumer consumer name
+     * @return applied sequence, 0 if none
+     */
+    public long getSequence(String consumer) {
+        long sequence = 0;
+        if (tableExists(CONSUMERS_TABLE_NAME)) {
+            Cursor cursor = getConnection().rawQuery("SELECT "
+                            + CoreSQLUtils.quoteWrap(COLUMN_SEQUENCE) + " FROM "
+                            + CoreSQLUtils.quoteWrap(CONSUMERS_TABLE_NAME) + " WHERE "
+                            + CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + " = ? AND "
+                            + CoreSQLUtils.quoteWrap(COLUMN_CONSUMER) + " = ?",
+                    new String[]{featureDao.getTableName(), consumer});
+            try {
+                if (cursor.moveToFirst()) {
+                    sequence = cursor.getLong(0);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Set the sequence applied by a persistent consumer, then prune the
+     * changes applied by all persistent consumers
+     *
+     * @param consumer consumer name
+     * @param sequence applied sequence
+     */
+    public void setSequence(String consumer, long sequence) {
+        if (tableExists(CONSUMERS_TABLE_NAME)) {
+            writeSequence(consumer, sequence);
+            prune();
+        }
+    }
+
+    /**
+     * Remove a persistent consumer, such as when its index is deleted, then
+     * prune the changes applied by the remaining persistent consumers
+     *
+     * @param consumer consumer name
+     */
+    public void removeConsumer(String consumer) {
+        if (tableExists(CONSUMERS_TABLE_NAME)) {
+            getConnection().delete(CoreSQLUtils.quoteWrap(CONSUMERS_TABLE_NAME),
+                    CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + " = ? AND "
+                            + CoreSQLUtils.quoteWrap(COLUMN_CONSUMER) + " = ?",
+                    new String[]{featureDao.getTableName(), consumer});
+            prune();
+        }
+    }
+
+    /**
+     * Clear the logged changes applied by all persistent consumers of the
+     * feature table
+     *
+     * @return cleared changes
+     */
+    private int prune() {
+        int cleared = 0;
+        Cursor cursor = getConnection().rawQuery("SELECT MIN("
+                        + CoreSQLUtils.quoteWrap(COLUMN_SEQUENCE) + ") FROM "
+                        + CoreSQLUtils.quoteWrap(CONSUMERS_TABLE_NAME) + " WHERE "
+                        + CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + " = ? AND "
+                        + CoreSQLUtils.quoteWrap(COLUMN_CONSUMER) + " != ?",
+                new String[]{featureDao.getTableName(), PRUNED_CONSUMER});
+        Long sequence = null;
+        try {
+            if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                sequence = cursor.getLong(0);
+            }
+        } finally {
+            cursor.close();
+        }
+        if (sequence != null) {
+            cleared = clear(sequence);
+        }
+        return cleared;
+    }
+
+    /**
+     * Write the consumer sequence
+     *
+     * @param consumer consumer name
+     * @param sequence sequence
+     */
+    private void writeSequence(String consumer, long sequence) {
+        getConnection().execSQL("INSERT OR REPLACE INTO "
+                + CoreSQLUtils.quoteWrap(CONSUMERS_TABLE_NAME) + " ("
+                + CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + ", "
+                + CoreSQLUtils.quoteWrap(COLUMN_CONSUMER) + ", "
+                + CoreSQLUtils.quoteWrap(COLUMN_SEQUENCE) + ") VALUES ('"
+                + featureDao.getTableName().replace("'", "''") + "', '"
+                + consumer.replace("'", "''") + "', " + sequence + ")");
+    }
+
+    /**
+     * Determine if the table exists
+     *
+     * @param table table name
+     * @return true if exists
+     */
+    private boolean tableExists(String table) {
+        boolean exists = false;
+        Cursor cursor = getConnection().rawQuery(
+                "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = ?",
+                new String[]{table});
+        try {
+            if (cursor.moveToFirst()) {
+                exists = cursor.getInt(0) > 0;
+            }
+        } finally {
+            cursor.close();
+        }
+        return exists;
+    }
+
+    /**
+     * Get the GeoPackage connection
+     *
+     * @return connection
+     */
+    private GeoPackageConnection getConnection() {
+        return featureDao.getDb();
+    }
+
+    /**
+     * Get the trigger name
+     *
+     * @param type trigger type
+     * @return trigger name
+     */
+    private String getTriggerName(String type) {
+        return TABLE_NAME + "_" + featureDao.getTableName() + "_" + type;
+    }
+
+    /**
+     * Build the change log insert statement of a trigger
+     *
+     * @param id feature id expression
+     * @return insert statement
+     */
+    private String insertChangeSQL(String id) {
+        return "INSERT INTO " + CoreSQLUtils.quoteWrap(TABLE_NAME) + " ("
+                + CoreSQLUtils.quoteWrap(COLUMN_TABLE_NAME) + ", "
+                + CoreSQLUtils.quoteWrap(COLUMN_GEOM_ID) + ") VALUES ('"
+                + featureDao.getTableName().replace("'", "''") + "', " + id + ")";
+    }
+
+}
@@ -32,6 +32,11 @@ public class FeatureIndexGeoPackageResults implements FeatureIndexResults {
      */
     private final CloseableIterator<GeometryIndex> geometryIndices;
 
+    /**
+     * Batched feature row hydration
+     */
+    private boolean batch = true;
+
     /**
      * Constructor
      *
@@ -45,11 +50,35 @@ public class FeatureIndexGeoPackageResults implements FeatureIndexResults {
         this.geometryIndices = geometryIndices;
     }
 
+    /**
+     * Is batched feature row hydration enabled, querying feature rows in
+     * chunks of result ids instead of per result
+     *
+     * @return true if batched
+     * @since 4.0.1
+     */
+    public boolean isBatch() {
+        return batch;
+    }
+
+    /**
+     * Set batched feature row hydration, enabled by default
+     *
+     * @param batch true to query feature rows in chunks of result ids
+     * @since 4.0.1
+     */
+    public void setBatch(boolean batch) {
+        this.batch = batch;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Iterator<FeatureRow> iterator() {
+        if (batch) {
+            return new FeatureIndexBatchIterator(featureTableIndex.getFeatureDao(), ids().iterator());
+        }
         return new Iterator<FeatureRow>() {
 
             /**
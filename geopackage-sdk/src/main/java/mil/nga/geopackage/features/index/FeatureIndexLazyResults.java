@@ -0,0 +1,98 @@
+package mil.nga.geopackage.features.index;
+
+import java.util.Iterator;
+
+import mil.nga.geopackage.features.user.FeatureRow;
+
+/**
+ * Feature Index Results with a known count, deferring the feature query
+ * until the results are iterated. Used when a count alone, such as a feature
+ * density count, is enough for most callers.
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public abstract class FeatureIndexLazyResults implements FeatureIndexResults {
+
+    /**
+     * Known result count
+     */
+    private final long count;
+
+    /**
+     * Queried results
+     */
+    private FeatureIndexResults results;
+
+    /**
+     * Constructor
+     *
+     * @param count known result count
+     */
+    public FeatureIndexLazyResults(long count) {
+        this.count = count;
+    }
+
+    /**
+     * Query for the feature index results
+     *
+     * @return feature index results
+     */
+    protected abstract FeatureIndexResults query();
+
+    /**
+     * Determine if the feature query has been run
+     *
+     * @return true if queried
+     */
+    public boolean isQueried() {
+        return results != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long count() {
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        if (results != null) {
+            results.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<FeatureRow> iterator() {
+        return getResults().iterator();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<Long> ids() {
+        return getResults().ids();
+    }
+
+    /**
+     * Get the queried results, querying on first access
+     *
+     * @return feature index results
+     */
+    private FeatureIndexResults getResults() {
+        if (results == null) {
+            results = query();
+        }
+        return results;
+    }
+
+}
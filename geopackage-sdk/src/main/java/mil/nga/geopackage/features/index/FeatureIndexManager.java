@@ -11,12 +11,21 @@ import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackage;
 import mil.nga.geopackage.GeoPackageException;
 import mil.nga.geopackage.db.FeatureIndexer;
+import mil.nga.geopackage.db.FeatureIndexerIdQuery;
+import mil.nga.geopackage.extension.rtree.FeatureIndexRTreeJoinResults;
 import mil.nga.geopackage.extension.rtree.RTreeIndexExtension;
 import mil.nga.geopackage.extension.rtree.RTreeIndexTableDao;
 import mil.nga.geopackage.extension.nga.index.FeatureTableIndex;
@@ -25,7 +34,9 @@ import mil.nga.geopackage.features.user.FeatureDao;
 import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.features.user.ManualFeatureQuery;
 import mil.nga.geopackage.io.GeoPackageProgress;
+import mil.nga.geopackage.proj.ProjectionTransformCache;
 import mil.nga.sf.GeometryEnvelope;
+import mil.nga.sf.Point;
 import mil.nga.sf.proj.Projection;
 
 /**
@@ -35,10 +46,22 @@ import mil.nga.sf.proj.Projection;
  * @author osbornb
  * @see mil.nga.geopackage.db.FeatureIndexer
  * @see mil.nga.geopackage.extension.nga.index.FeatureTableIndex
+ * @see FeatureMemoryIndex
  * @since 1.1.0
  */
 public class FeatureIndexManager {
 
+    /**
+     * Number of feature changes indexed per chunk, within the SQLite argument
+     * limit
+     */
+    private static final int CHANGES_CHUNK_LIMIT = 999;
+
+    /**
+     * Number of feature rows per spatial predicate refinement task
+     */
+    private static final int REFINEMENT_CHUNK_SIZE = 256;
+
     /**
      * Feature DAO
      */
@@ -59,11 +82,26 @@ public class FeatureIndexManager {
      */
     private final RTreeIndexTableDao rTreeIndexTableDao;
 
+    /**
+     * Feature Memory Index, for indexing within an in-memory packed R-tree
+     */
+    private final FeatureMemoryIndex featureMemoryIndex;
+
     /**
      * Manual Feature Queries
      */
     private final ManualFeatureQuery manualFeatureQuery;
 
+    /**
+     * Feature Index Changes, change log of features to incrementally index
+     */
+    private final FeatureIndexChanges featureIndexChanges;
+
+    /**
+     * Change log sequence applied to the memory index, negative when unknown
+     */
+    private long memoryChangeSequence = -1;
+
     /**
      * Ordered set of index locations to check in order when checking if features are indexed
      * and when querying for features
@@ -81,6 +119,39 @@ public class FeatureIndexManager {
      */
     private boolean continueOnError = true;
 
+    /**
+     * Density pyramid max zoom built when indexing, negative to not build
+     */
+    private int densityZoom = -1;
+
+    /**
+     * Feature density pyramid
+     */
+    private volatile FeatureDensityPyramid densityPyramid;
+
+    /**
+     * True when the density pyramid reflects the pyramid saved to the
+     * GeoPackage
+     */
+    private volatile boolean densityLoaded = false;
+
+    /**
+     * Max zoom of a density pyramid invalidated by feature changes and
+     * rebuilt on next use, negative when not stale
+     */
+    private volatile int densityStaleZoom = -1;
+
+    /**
+     * Number of threads refining spatial predicate query results
+     */
+    private int refinementThreads = 1;
+
+    /**
+     * Spatial predicate refinement executor, created when refining with
+     * multiple threads
+     */
+    private ExecutorService refinementExecutor;
+
     /**
      * Constructor
      *
@@ -106,9 +177,12 @@ public class FeatureIndexManager {
         featureIndexer = new FeatureIndexer(context, featureDao.copy());
         RTreeIndexExtension rTreeExtension = new RTreeIndexExtension(geoPackage);
         rTreeIndexTableDao = rTreeExtension.getTableDao(featureDao.copy());
+        featureMemoryIndex = new FeatureMemoryIndex(featureDao.copy());
         manualFeatureQuery = new ManualFeatureQuery(featureDao.copy());
+        featureIndexChanges = new FeatureIndexChanges(featureDao.copy());
 
         // Set the default indexed check and query order
+        indexLocationQueryOrder.add(FeatureIndexType.MEMORY);
         indexLocationQueryOrder.add(FeatureIndexType.RTREE);
         indexLocationQueryOrder.add(FeatureIndexType.GEOPACKAGE);
         indexLocationQueryOrder.add(FeatureIndexType.METADATA);
@@ -120,7 +194,12 @@ public class FeatureIndexManager {
     public void close() {
         featureTableIndex.close();
         featureIndexer.close();
+        featureMemoryIndex.close();
         // rTreeIndexTableDao.close();
+        if (refinementExecutor != null) {
+            refinementExecutor.shutdown();
+            refinementExecutor = null;
+        }
     }
 
     /**
@@ -161,6 +240,27 @@ public class FeatureIndexManager {
         return rTreeIndexTableDao;
     }
 
+    /**
+     * Get the feature memory index, used to index in an in-memory packed R-tree
+     *
+     * @return feature memory index
+     * @since 4.0.1
+     */
+    public FeatureMemoryIndex getFeatureMemoryIndex() {
+        return featureMemoryIndex;
+    }
+
+    /**
+     * Get the feature index changes, used to track feature changes for
+     * incremental indexing
+     *
+     * @return feature index changes
+     * @since 4.0.1
+     */
+    public FeatureIndexChanges getFeatureIndexChanges() {
+        return featureIndexChanges;
+    }
+
     /**
      * Get the ordered set of ordered index query locations
      *
@@ -200,6 +300,186 @@ public class FeatureIndexManager {
         this.continueOnError = continueOnError;
     }
 
+    /**
+     * Get the manual feature query used when no index is available
+     *
+     * @return manual feature query
+     * @since 4.0.1
+     */
+    public ManualFeatureQuery getManualFeatureQuery() {
+        return manualFeatureQuery;
+    }
+
+    /**
+     * Get the number of threads scanning features in manual queries when no
+     * index is available
+     *
+     * @return manual query threads
+     * @since 4.0.1
+     */
+    public int getManualQueryThreads() {
+        return manualFeatureQuery.getQueryThreads();
+    }
+
+    /**
+     * Set the number of threads scanning features in manual queries when no
+     * index is available, such as the number of available processors
+     *
+     * @param manualQueryThreads manual query threads, 1 to scan on the calling thread
+     * @since 4.0.1
+     */
+    public void setManualQueryThreads(int manualQueryThreads) {
+        manualFeatureQuery.setQueryThreads(manualQueryThreads);
+    }
+
+    /**
+     * Get the density pyramid max zoom built when indexing
+     *
+     * @return density max zoom, negative when not built
+     * @since 4.0.1
+     */
+    public int getDensityZoom() {
+        return densityZoom;
+    }
+
+    /**
+     * Set the density pyramid max zoom to build when indexing. When set, a
+     * feature density pyramid is built after indexing an index type that
+     * indexed features or when no pyramid exists.
+     *
+     * @param densityZoom density max zoom, negative to not build
+     * @since 4.0.1
+     */
+    public void setDensityZoom(int densityZoom) {
+        this.densityZoom = densityZoom;
+    }
+
+    /**
+     * Get the feature density pyramid, loaded from the GeoPackage when saved
+     * by a previous build. Index maintenance methods that change features
+     * mark the pyramid stale and it is rebuilt on the next call.
+     *
+     * @return density pyramid, null if not built
+     * @since 4.0.1
+     */
+    public FeatureDensityPyramid getDensityPyramid() {
+        if (!densityLoaded) {
+            synchronized (this) {
+                if (!densityLoaded) {
+                    densityPyramid = FeatureDensityPyramid.load(featureDao);
+                    densityLoaded = true;
+                }
+            }
+        }
+        if (densityStaleZoom >= 0) {
+            synchronized (this) {
+                if (densityStaleZoom >= 0) {
+                    indexDensity(densityStaleZoom);
+                }
+            }
+        }
+        return densityPyramid;
+    }
+
+    /**
+     * Set the feature density pyramid used by this manager, without saving
+     * it to the GeoPackage
+     *
+     * @param densityPyramid density pyramid, null to remove
+     * @since 4.0.1
+     */
+    public void setDensityPyramid(FeatureDensityPyramid densityPyramid) {
+        this.densityPyramid = densityPyramid;
+        densityLoaded = true;
+        densityStaleZoom = -1;
+    }
+
+    /**
+     * Mark the feature density pyramid stale after features change, to be
+     * rebuilt on next use instead of updating the pyramid per changed feature.
+     * The saved pyramid is invalidated once, not loaded by other managers and
+     * replaced when rebuilt.
+     */
+    private void invalidateDensity() {
+        if (densityStaleZoom < 0 && (densityPyramid != null || !densityLoaded)) {
+            synchronized (this) {
+                if (densityStaleZoom < 0 && (densityPyramid != null || !densityLoaded)) {
+                    int maxZoom = FeatureDensityPyramid.invalidate(featureDao);
+                    if (densityPyramid != null) {
+                        maxZoom = densityPyramid.getMaxZoom();
+                    }
+                    setDensityPyramid(null);
+                    densityStaleZoom = maxZoom;
+                }
+            }
+        }
+    }
+
+    /**
+     * Build the feature density pyramid of per tile feature counts and save
+     * it to the GeoPackage
+     *
+     * @param maxZoom max zoom level of stored counts
+     * @return density pyramid
+     * @since 4.0.1
+     */
+    public FeatureDensityPyramid indexDensity(int maxZoom) {
+        FeatureDensityPyramid pyramid = FeatureDensityPyramid.build(
+                featureDao, maxZoom, manualFeatureQuery.getChunkLimit());
+        pyramid.save(featureDao);
+        setDensityPyramid(pyramid);
+        return pyramid;
+    }
+
+    /**
+     * Delete the feature density pyramid, including the pyramid saved to the
+     * GeoPackage
+     *
+     * @return true if a saved pyramid was deleted
+     * @since 4.0.1
+     */
+    public boolean deleteDensity() {
+        boolean deleted = false;
+        if (densityPyramid != null || !densityLoaded || densityStaleZoom >= 0) {
+            deleted = FeatureDensityPyramid.delete(featureDao);
+        }
+        setDensityPyramid(null);
+        return deleted;
+    }
+
+    /**
+     * Get the number of threads refining spatial predicate query results
+     *
+     * @return refinement threads
+     * @since 4.0.1
+     */
+    public int getRefinementThreads() {
+        return refinementThreads;
+    }
+
+    /**
+     * Set the number of threads refining spatial predicate query results.
+     * When greater than 1, the exact geometry tests of result rows read on
+     * the calling thread are run in chunks across a thread pool, shut down on
+     * {@link #close()}.
+     *
+     * @param refinementThreads refinement threads, 1 to refine on the calling
+     *                          thread
+     * @since 4.0.1
+     */
+    public synchronized void setRefinementThreads(int refinementThreads) {
+        if (refinementThreads < 1) {
+            throw new GeoPackageException(
+                    "Refinement threads must be at least 1: " + refinementThreads);
+        }
+        if (refinementThreads != this.refinementThreads
+                && refinementExecutor != null) {
+            refinementExecutor.shutdown();
+            refinementExecutor = null;
+        }
+        this.refinementThreads = refinementThreads;
+    }
+
     /**
      * Prioritize the query location order.  All types are placed at the front of the query order
      * in the order they are given. Omitting a location leaves it at it's current priority location.
@@ -277,6 +557,7 @@ public class FeatureIndexManager {
         featureTableIndex.setProgress(progress);
         featureIndexer.setProgress(progress);
         rTreeIndexTableDao.setProgress(progress);
+        featureMemoryIndex.setProgress(progress);
     }
 
     /**
@@ -352,6 +633,8 @@ public class FeatureIndexManager {
         if (type == null) {
             throw new GeoPackageException("FeatureIndexType is required to index");
         }
+        boolean build = force || !isIndexed(type);
+        long sequence = featureIndexChanges.getLastSequence();
         int count = 0;
         switch (type) {
             case GEOPACKAGE:
@@ -370,10 +653,20 @@ public class FeatureIndexManager {
                     count = rTreeIndexTableDao.count();
                 }
                 break;
+            case MEMORY:
+                count = featureMemoryIndex.index(force);
+                break;
             default:
                 throw new GeoPackageException("Unsupported FeatureIndexType: "
                         + type);
         }
+        if (build) {
+            setChangeSequence(type, sequence);
+        }
+        if (densityZoom >= 0 && (count > 0 || densityStaleZoom >= 0
+                || getDensityPyramid() == null)) {
+            indexDensity(densityZoom);
+        }
         return count;
     }
 
@@ -433,12 +726,221 @@ public class FeatureIndexManager {
                 // Updated by triggers, ignore for RTree
                 indexed = true;
                 break;
+            case MEMORY:
+                indexed = featureMemoryIndex.index(row);
+                break;
             default:
                 throw new GeoPackageException("Unsupported FeatureIndexType: " + type);
         }
+        invalidateDensity();
         return indexed;
     }
 
+    /**
+     * Index the tracked feature changes in each index query location with an
+     * existing index, instead of rebuilding the indexes. Only the inserted,
+     * updated and deleted features logged since the changes last applied to
+     * each index are indexed, then the changes applied by every index are
+     * cleared.
+     *
+     * @return largest number of indexed feature changes
+     * @see FeatureIndexChanges
+     * @since 4.0.1
+     */
+    public int indexChanges() {
+        List<FeatureIndexType> types = new ArrayList<>();
+        for (FeatureIndexType type : indexLocationQueryOrder) {
+            if (getLastIndexed(type) != null) {
+                types.add(type);
+            }
+        }
+        return indexChanges(types);
+    }
+
+    /**
+     * Index the tracked feature changes for the index types, instead of
+     * rebuilding the indexes. Only the inserted, updated and deleted features
+     * logged since the changes last applied to each index are indexed. An
+     * index missing changes already cleared from the change log, such as a
+     * memory index of another manager, is rebuilt. Changes are cleared once
+     * applied by every index type that has applied changes.
+     *
+     * @param types feature index types
+     * @return largest number of indexed feature changes
+     * @see FeatureIndexChanges
+     * @since 4.0.1
+     */
+    public int indexChanges(List<FeatureIndexType> types) {
+
+        int count = 0;
+
+        long sequence = featureIndexChanges.getLastSequence();
+        if (sequence > 0) {
+
+            long prunedSequence = featureIndexChanges.getPrunedSequence();
+
+            // Group the index types by the change sequence they have applied
+            Map<Long, List<FeatureIndexType>> typesBySequence = new TreeMap<>();
+            for (FeatureIndexType type : types) {
+                long typeSequence = getChangeSequence(type);
+                if (typeSequence < prunedSequence) {
+                    Log.i(FeatureIndexManager.class.getSimpleName(),
+                            "Rebuilding index missing cleared changes. Table: "
+                                    + featureDao.getTableName() + ", Type: " + type);
+                    count = Math.max(count, index(type, true));
+                } else if (typeSequence < sequence) {
+                    List<FeatureIndexType> sequenceTypes = typesBySequence.get(typeSequence);
+                    if (sequenceTypes == null) {
+                        sequenceTypes = new ArrayList<>();
+                        typesBySequence.put(typeSequence, sequenceTypes);
+                    }
+                    sequenceTypes.add(type);
+                }
+            }
+
+            for (Map.Entry<Long, List<FeatureIndexType>> entry : typesBySequence.entrySet()) {
+                int typesCount = indexChanges(entry.getValue(), entry.getKey(), sequence);
+                count = Math.max(count, typesCount);
+                for (FeatureIndexType type : entry.getValue()) {
+                    setChangeSequence(type, sequence);
+                }
+            }
+
+            if (!typesBySequence.isEmpty()) {
+                invalidateDensity();
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Index the feature changes logged after a change sequence and up to a
+     * change sequence for the index types
+     *
+     * @param types         feature index types
+     * @param afterSequence exclusive minimum change sequence
+     * @param sequence      inclusive maximum change sequence
+     * @return number of indexed feature changes
+     */
+    private int indexChanges(List<FeatureIndexType> types, long afterSequence,
+                             long sequence) {
+
+        int count = 0;
+
+        long lastId = Long.MIN_VALUE;
+        List<Long> ids = featureIndexChanges.queryIds(afterSequence, sequence,
+                lastId, CHANGES_CHUNK_LIMIT);
+        while (!ids.isEmpty()) {
+
+            lastId = ids.get(ids.size() - 1);
+
+            // Query for the changed features, remaining ids were deleted or
+            // can no longer be read and are removed from the indexes
+            Set<Long> deletedIds = new HashSet<>(ids);
+            List<FeatureRow> rows = new ArrayList<>();
+            FeatureIndexerIdQuery idQuery = new FeatureIndexerIdQuery();
+            for (long id : ids) {
+                idQuery.addArgument(id);
+            }
+            FeatureCursor cursor = featureDao.queryIn(false, idQuery.getSql(),
+                    idQuery.getArgs(), null, null);
+            try {
+                while (cursor.moveToNext()) {
+                    long id = cursor.getId();
+                    FeatureRow row = cursor.getRow();
+                    if (row.isValid()) {
+                        deletedIds.remove(id);
+                        rows.add(row);
+                    } else {
+                        Log.w(FeatureIndexManager.class.getSimpleName(),
+                                "Removing unreadable changed feature from the indexes. Table: "
+                                        + featureDao.getTableName() + ", Id: " + id);
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+
+            for (FeatureIndexType type : types) {
+                indexChanges(type, rows, deletedIds);
+            }
+
+            count += ids.size();
+            ids = featureIndexChanges.queryIds(afterSequence, sequence, lastId,
+                    CHANGES_CHUNK_LIMIT);
+        }
+
+        return count;
+    }
+
+    /**
+     * Get the change log sequence applied to the index type
+     *
+     * @param type feature index type
+     * @return applied change sequence, negative when unknown
+     */
+    private long getChangeSequence(FeatureIndexType type) {
+        long sequence;
+        if (type == FeatureIndexType.MEMORY) {
+            sequence = memoryChangeSequence;
+        } else {
+            sequence = featureIndexChanges.getSequence(type.name());
+        }
+        return sequence;
+    }
+
+    /**
+     * Set the change log sequence applied to the index type. Memory index
+     * sequences are kept by this manager, other index types are persistent
+     * consumers of the change log.
+     *
+     * @param type     feature index type
+     * @param sequence applied change sequence
+     */
+    private void setChangeSequence(FeatureIndexType type, long sequence) {
+        if (type == FeatureIndexType.MEMORY) {
+            memoryChangeSequence = sequence;
+        } else {
+            featureIndexChanges.setSequence(type.name(), sequence);
+        }
+    }
+
+    /**
+     * Index the feature changes for the index type
+     *
+     * @param type       index location type
+     * @param rows       changed feature rows
+     * @param deletedIds deleted feature ids
+     * @return indexed count
+     */
+    private int indexChanges(FeatureIndexType type, List<FeatureRow> rows,
+                             Collection<Long> deletedIds) {
+        if (type == null) {
+            throw new GeoPackageException("FeatureIndexType is required to index");
+        }
+        int count = 0;
+        switch (type) {
+            case GEOPACKAGE:
+                count = featureTableIndex.indexChanges(rows, deletedIds);
+                break;
+            case METADATA:
+                count = featureIndexer.indexChanges(rows, deletedIds);
+                break;
+            case RTREE:
+                count = rTreeIndexTableDao.getRTreeIndexExtension().indexChanges(
+                        rTreeIndexTableDao.getFeatureDao(), rows, deletedIds);
+                break;
+            case MEMORY:
+                count = featureMemoryIndex.indexChanges(rows, deletedIds);
+                break;
+            default:
+                throw new GeoPackageException("Unsupported FeatureIndexType: "
+                        + type);
+        }
+        return count;
+    }
+
     /**
      * Delete the feature index
      *
@@ -497,9 +999,17 @@ public class FeatureIndexManager {
                 rTreeIndexTableDao.delete();
                 deleted = true;
                 break;
+            case MEMORY:
+                deleted = featureMemoryIndex.deleteIndex();
+                break;
             default:
                 throw new GeoPackageException("Unsupported FeatureIndexType: " + type);
         }
+        if (type == FeatureIndexType.MEMORY) {
+            memoryChangeSequence = -1;
+        } else {
+            featureIndexChanges.removeConsumer(type.name());
+        }
         return deleted;
     }
 
@@ -593,9 +1103,13 @@ public class FeatureIndexManager {
                 // Updated by triggers, ignore for RTree
                 deleted = true;
                 break;
+            case MEMORY:
+                deleted = featureMemoryIndex.deleteIndex(geomId);
+                break;
             default:
                 throw new GeoPackageException("Unsupported FeatureIndexType: " + type);
         }
+        invalidateDensity();
         return deleted;
     }
 
@@ -662,6 +1176,9 @@ public class FeatureIndexManager {
                 case RTREE:
                     indexed = rTreeIndexTableDao.has();
                     break;
+                case MEMORY:
+                    indexed = featureMemoryIndex.isIndexed();
+                    break;
                 default:
                     throw new GeoPackageException("Unsupported FeatureIndexType: " + type);
             }
@@ -725,6 +1242,9 @@ public class FeatureIndexManager {
                         lastIndexed = new Date();
                     }
                     break;
+                case MEMORY:
+                    lastIndexed = featureMemoryIndex.getLastIndexed();
+                    break;
                 default:
                     throw new GeoPackageException("Unsupported FeatureIndexType: " + type);
             }
@@ -791,6 +1311,11 @@ public class FeatureIndexManager {
                                 .queryFeatures(distinct, columns);
                         results = new FeatureIndexFeatureResults(rTreeCursor);
                         break;
+                    case MEMORY:
+                        FeatureCursor memoryCursor = featureMemoryIndex
+                                .queryFeatures(distinct, columns);
+                        results = new FeatureIndexFeatureResults(memoryCursor);
+                        break;
                     default:
                         throw new GeoPackageException("Unsupported feature index type: " + type);
                 }
@@ -846,6 +1371,10 @@ public class FeatureIndexManager {
                         count = (long) rTreeIndexTableDao.countFeatures(distinct,
                                 column);
                         break;
+                    case MEMORY:
+                        count = (long) featureMemoryIndex.countFeatures(distinct,
+                                column);
+                        break;
                     default:
                         throw new GeoPackageException(
                                 "Unsupported feature index type: " + type);
@@ -884,6 +1413,9 @@ public class FeatureIndexManager {
                     case RTREE:
                         count = (long) rTreeIndexTableDao.count();
                         break;
+                    case MEMORY:
+                        count = featureMemoryIndex.count();
+                        break;
                     default:
                         throw new GeoPackageException("Unsupported feature index type: " + type);
                 }
@@ -1152,6 +1684,11 @@ public class FeatureIndexManager {
                                 .queryFeatures(distinct, columns, where, whereArgs);
                         results = new FeatureIndexFeatureResults(rTreeCursor);
                         break;
+                    case MEMORY:
+                        FeatureCursor memoryCursor = featureMemoryIndex
+                                .queryFeatures(distinct, columns, where, whereArgs);
+                        results = new FeatureIndexFeatureResults(memoryCursor);
+                        break;
                     default:
                         throw new GeoPackageException(
                                 "Unsupported feature index type: " + type);
@@ -1226,6 +1763,10 @@ public class FeatureIndexManager {
                         count = (long) rTreeIndexTableDao.countFeatures(distinct, column, where,
                                 whereArgs);
                         break;
+                    case MEMORY:
+                        count = (long) featureMemoryIndex.countFeatures(distinct, column, where,
+                                whereArgs);
+                        break;
                     default:
                         throw new GeoPackageException(
                                 "Unsupported feature index type: " + type);
@@ -1265,6 +1806,9 @@ public class FeatureIndexManager {
                     case RTREE:
                         bounds = rTreeIndexTableDao.getBoundingBox();
                         break;
+                    case MEMORY:
+                        bounds = featureMemoryIndex.getBoundingBox();
+                        break;
                     default:
                         throw new GeoPackageException("Unsupported feature index type: " + type);
                 }
@@ -1305,6 +1849,9 @@ public class FeatureIndexManager {
                     case RTREE:
                         bounds = rTreeIndexTableDao.getBoundingBox(projection);
                         break;
+                    case MEMORY:
+                        bounds = featureMemoryIndex.getBoundingBox(projection);
+                        break;
                     default:
                         throw new GeoPackageException("Unsupported feature index type: " + type);
                 }
@@ -1851,6 +2398,14 @@ public class FeatureIndexManager {
                             count = (long) rTreeIndexTableDao.count(envelope);
                         }
                         break;
+                    case MEMORY:
+                        if (column != null) {
+                            count = (long) featureMemoryIndex.countFeatures(distinct,
+                                    column, envelope);
+                        } else {
+                            count = featureMemoryIndex.count(envelope);
+                        }
+                        break;
                     default:
                         throw new GeoPackageException("Unsupported feature index type: " + type);
                 }
@@ -2120,7 +2675,9 @@ public class FeatureIndexManager {
     }
 
     /**
-     * Query for feature index results within the Geometry Envelope
+     * Query for feature index results within the Geometry Envelope. RTree
+     * results are read with a single join statement, returning rows too
+     * large for the cursor window as invalid rows.
      *
      * @param distinct  distinct rows
      * @param columns   columns
@@ -2147,9 +2704,13 @@ public class FeatureIndexManager {
                         results = new FeatureIndexFeatureResults(geometryMetadataCursor);
                         break;
                     case RTREE:
-                        FeatureCursor rTreeCursor = rTreeIndexTableDao
+                        results = new FeatureIndexRTreeJoinResults(rTreeIndexTableDao,
+                                distinct, columns, envelope, where, whereArgs);
+                        break;
+                    case MEMORY:
+                        FeatureCursor memoryCursor = featureMemoryIndex
                                 .queryFeatures(distinct, columns, envelope, where, whereArgs);
-                        results = new FeatureIndexFeatureResults(rTreeCursor);
+                        results = new FeatureIndexFeatureResults(memoryCursor);
                         break;
                     default:
                         throw new GeoPackageException(
@@ -2170,6 +2731,197 @@ public class FeatureIndexManager {
         return results;
     }
 
+    /**
+     * Query for feature index results within the bounding box, refined by an
+     * exact spatial predicate test of the feature geometries
+     *
+     * @param boundingBox bounding box
+     * @param predicate   spatial predicate
+     * @return feature index results, close when done
+     * @since 4.0.1
+     */
+    public FeatureIndexResults query(BoundingBox boundingBox,
+                                     SpatialPredicate predicate) {
+        return query(boundingBox.buildEnvelope(), predicate);
+    }
+
+    /**
+     * Query for feature index results within the bounding box in the provided
+     * projection, refined by an exact spatial predicate test of the feature
+     * geometries
+     *
+     * @param boundingBox bounding box
+     * @param projection  projection
+     * @param predicate   spatial predicate
+     * @return feature index results, close when done
+     * @since 4.0.1
+     */
+    public FeatureIndexResults query(BoundingBox boundingBox,
+                                     Projection projection, SpatialPredicate predicate) {
+        BoundingBox featureBoundingBox = featureDao
+                .projectBoundingBox(boundingBox, projection);
+        return query(featureBoundingBox, predicate);
+    }
+
+    /**
+     * Query for feature index results within the bounding box, refined by an
+     * exact spatial predicate test of the feature geometries
+     *
+     * @param boundingBox bounding box
+     * @param where       where clause
+     * @param whereArgs   where arguments
+     * @param predicate   spatial predicate
+     * @return feature index results, close when done
+     * @since 4.0.1
+     */
+    public FeatureIndexResults query(BoundingBox boundingBox, String where,
+                                     String[] whereArgs, SpatialPredicate predicate) {
+        return query(false, boundingBox.buildEnvelope(), where, whereArgs,
+                predicate);
+    }
+
+    /**
+     * Query for feature index results within the Geometry Envelope, refined by
+     * an exact spatial predicate test of the feature geometries
+     *
+     * @param envelope  geometry envelope
+     * @param predicate spatial predicate
+     * @return feature index results, close when done
+     * @since 4.0.1
+     */
+    public FeatureIndexResults query(GeometryEnvelope envelope,
+                                     SpatialPredicate predicate) {
+        return query(false, envelope, null, null, predicate);
+    }
+
+    /**
+     * Query for feature index results within the Geometry Envelope, refined by
+     * an exact spatial predicate test of the feature geometries. The index
+     * matches feature envelopes, the refinement removes features whose
+     * geometries do not satisfy the predicate against the envelope area.
+     *
+     * @param distinct  distinct rows
+     * @param envelope  geometry envelope
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @param predicate spatial predicate
+     * @return feature index results, close when done
+     * @since 4.0.1
+     */
+    public FeatureIndexResults query(boolean distinct,
+                                     GeometryEnvelope envelope, String where, String[] whereArgs,
+                                     SpatialPredicate predicate) {
+        FeatureIndexResults results = query(distinct, envelope, where,
+                whereArgs);
+        return refine(results, new PreparedEnvelope(envelope), predicate);
+    }
+
+    /**
+     * Query for the k nearest features to the point in the feature projection
+     *
+     * @param point point
+     * @param k     maximum number of features
+     * @return nearest feature results, nearest first
+     * @since 4.0.1
+     */
+    public FeatureIndexNearestResults nearest(Point point, int k) {
+        return nearest(point, k, null);
+    }
+
+    /**
+     * Query for the k nearest features to the point in the provided
+     * projection
+     *
+     * @param point      point
+     * @param k          maximum number of features
+     * @param projection point projection, null for the feature projection
+     * @return nearest feature results, nearest first
+     * @since 4.0.1
+     */
+    public FeatureIndexNearestResults nearest(Point point, int k,
+                                              Projection projection) {
+        return nearest(point, k, projection, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Query for the k nearest features to the point in the provided
+     * projection, within a maximum distance. Distances are planar and in the
+     * feature projection units. The RTree and metadata indices are traversed
+     * best-first from their R-tree nodes. The GeoPackage index and metadata
+     * indices without an R-tree are pruned with index queries of a box around
+     * the point, doubled in size until it holds the k nearest features. When
+     * no index is queryable, the nearest features are found with a manual
+     * scan of every feature in the table.
+     *
+     * @param point       point
+     * @param k           maximum number of features
+     * @param projection  point projection, null for the feature projection
+     * @param maxDistance maximum distance, in the feature projection units
+     * @return nearest feature results, nearest first
+     * @since 4.0.1
+     */
+    public FeatureIndexNearestResults nearest(Point point, int k,
+                                              Projection projection, double maxDistance) {
+
+        Point featurePoint = point;
+        if (projection != null && !projection.equals(featureDao.getProjection())) {
+            featurePoint = ProjectionTransformCache.getTransformation(
+                    projection, featureDao.getProjection()).transform(point);
+        }
+        double x = featurePoint.getX();
+        double y = featurePoint.getY();
+
+        FeatureIndexNearestResults results = null;
+        for (FeatureIndexType type : getLocation()) {
+            try {
+                switch (type) {
+                    case GEOPACKAGE:
+                        // The table index has no node hierarchy to traverse,
+                        // expand box queries around the point
+                        if (featureTableIndex.isIndexed()) {
+                            results = nearestExpanding(type, x, y, k,
+                                    maxDistance);
+                        }
+                        break;
+                    case MEMORY:
+                        if (featureMemoryIndex.isIndexed()) {
+                            results = featureMemoryIndex.nearest(x, y, k,
+                                    maxDistance);
+                        }
+                        break;
+                    case METADATA:
+                        if (featureIndexer.isRTree()) {
+                            results = featureIndexer.nearest(x, y, k,
+                                    maxDistance);
+                        } else if (featureIndexer.isIndexed()) {
+                            results = nearestExpanding(type, x, y, k,
+                                    maxDistance);
+                        }
+                        break;
+                    case RTREE:
+                        results = rTreeIndexTableDao.nearest(x, y, k,
+                                maxDistance);
+                        break;
+                    default:
+                        throw new GeoPackageException("Unsupported feature index type: " + type);
+                }
+                if (results != null) {
+                    break;
+                }
+            } catch (Exception e) {
+                if (continueOnError) {
+                    Log.e(FeatureIndexManager.class.getSimpleName(), "Failed to query nearest from feature index: " + type, e);
+                } else {
+                    throw e;
+                }
+            }
+        }
+        if (results == null) {
+            results = manualFeatureQuery.nearest(x, y, k, maxDistance);
+        }
+        return results;
+    }
+
     /**
      * Query for feature index count within the Geometry Envelope
      *
@@ -2228,6 +2980,10 @@ public class FeatureIndexManager {
                         count = (long) rTreeIndexTableDao.countFeatures(distinct, column, envelope,
                                 where, whereArgs);
                         break;
+                    case MEMORY:
+                        count = (long) featureMemoryIndex.countFeatures(distinct, column, envelope,
+                                where, whereArgs);
+                        break;
                     default:
                         throw new GeoPackageException(
                                 "Unsupported feature index type: " + type);
@@ -2265,6 +3021,63 @@ public class FeatureIndexManager {
         return query(false, boundingBox, projection);
     }
 
+    /**
+     * Query for feature index results within multiple bounding boxes in the
+     * provided projection, such as the tiles of a map viewport. The union of
+     * the bounding boxes is queried once for feature ids and geometries and
+     * each distinct feature id is assigned to every bounding box its envelope
+     * overlaps. Only the ids are held, window rows are streamed by id when
+     * iterated. Best suited to adjacent windows, as the union may cover area
+     * outside of scattered windows.
+     *
+     * @param boundingBoxes bounding boxes
+     * @param projection    projection
+     * @return window results, ordered as the bounding boxes
+     * @since 4.0.1
+     */
+    public FeatureIndexWindowResults query(List<BoundingBox> boundingBoxes,
+                                           Projection projection) {
+
+        List<GeometryEnvelope> windows = new ArrayList<>(boundingBoxes.size());
+        GeometryEnvelope union = null;
+        for (BoundingBox boundingBox : boundingBoxes) {
+            BoundingBox featureBoundingBox = featureDao
+                    .projectBoundingBox(boundingBox, projection);
+            GeometryEnvelope window = featureBoundingBox.buildEnvelope();
+            windows.add(window);
+            if (union == null) {
+                union = new GeometryEnvelope(window.getMinX(),
+                        window.getMinY(), window.getMaxX(), window.getMaxY());
+            } else {
+                union.setMinX(Math.min(union.getMinX(), window.getMinX()));
+                union.setMinY(Math.min(union.getMinY(), window.getMinY()));
+                union.setMaxX(Math.max(union.getMaxX(), window.getMaxX()));
+                union.setMaxY(Math.max(union.getMaxY(), window.getMaxY()));
+            }
+        }
+
+        FeatureIndexWindowResults windowResults = new FeatureIndexWindowResults(
+                featureDao, windows);
+
+        if (union != null) {
+            Set<Long> ids = new HashSet<>();
+            FeatureIndexResults results = query(
+                    featureDao.getIdAndGeometryColumnNames(), union);
+            try {
+                for (FeatureRow row : results) {
+                    long id = row.getId();
+                    if (ids.add(id)) {
+                        windowResults.addFeature(id, row.getGeometryEnvelope());
+                    }
+                }
+            } finally {
+                results.close();
+            }
+        }
+
+        return windowResults;
+    }
+
     /**
      * Query for feature index results within the bounding box in the provided
      * projection
@@ -2760,4 +3573,280 @@ public class FeatureIndexManager {
         return indexLocation;
     }
 
+    /**
+     * Refine the index results by the spatial predicate, closing the index
+     * results
+     *
+     * @param results   index results
+     * @param envelope  prepared query envelope
+     * @param predicate spatial predicate
+     * @return refined results
+     */
+    private FeatureIndexResults refine(FeatureIndexResults results,
+                                       final PreparedEnvelope envelope, final SpatialPredicate predicate) {
+        FeatureIndexListResults refined = new FeatureIndexListResults();
+        try {
+            if (refinementThreads > 1) {
+                ExecutorService executor = getRefinementExecutor();
+                List<Future<List<FeatureRow>>> futures = new ArrayList<>();
+                List<FeatureRow> chunk = new ArrayList<>(REFINEMENT_CHUNK_SIZE);
+                for (FeatureRow row : results) {
+                    chunk.add(row);
+                    if (chunk.size() == REFINEMENT_CHUNK_SIZE) {
+                        futures.add(executor.submit(new RefinementTask(chunk,
+                                envelope, predicate)));
+                        chunk = new ArrayList<>(REFINEMENT_CHUNK_SIZE);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    futures.add(executor.submit(new RefinementTask(chunk,
+                            envelope, predicate)));
+                }
+                try {
+                    for (Future<List<FeatureRow>> future : futures) {
+                        refined.addRows(future.get());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new GeoPackageException(
+                            "Interrupted refining feature index results. Table: "
+                                    + featureDao.getTableName(), e);
+                } catch (ExecutionException e) {
+                    throw new GeoPackageException(
+                            "Failed to refine feature index results. Table: "
+                                    + featureDao.getTableName(), e.getCause());
+                } finally {
+                    for (Future<List<FeatureRow>> future : futures) {
+                        future.cancel(true);
+                    }
+                }
+            } else {
+                for (FeatureRow row : results) {
+                    if (envelope.matches(predicate, row)) {
+                        refined.addRow(row);
+                    }
+                }
+            }
+        } finally {
+            results.close();
+        }
+        return refined;
+    }
+
+    /**
+     * Query for the k nearest features to the point with index box queries,
+     * for index types without a node hierarchy. The box around the point
+     * starts at the size expected to hold k features and doubles until the k
+     * nearest features within the box half width are found, the box covers
+     * the index bounds, or the half width reaches the max distance. Every
+     * feature within the half width distance has an envelope intersecting
+     * the box, so features outside the box are never nearer.
+     *
+     * @param type        GeoPackage or metadata index type
+     * @param x           x coordinate in the feature projection
+     * @param y           y coordinate in the feature projection
+     * @param k           maximum number of features
+     * @param maxDistance maximum distance, in the feature projection units
+     * @return nearest feature results, nearest first
+     */
+    private FeatureIndexNearestResults nearestExpanding(FeatureIndexType type,
+                                                        double x, double y, int k, double maxDistance) {
+
+        FeatureIndexNearestResults results = new FeatureIndexNearestResults();
+
+        BoundingBox bounds;
+        long total;
+        switch (type) {
+            case GEOPACKAGE:
+                bounds = featureTableIndex.getBoundingBox();
+                total = featureTableIndex.count();
+                break;
+            case METADATA:
+                bounds = featureIndexer.getBoundingBox();
+                total = featureIndexer.count();
+                break;
+            default:
+                throw new GeoPackageException(
+                        "Unsupported nearest box query feature index type: " + type);
+        }
+
+        if (k <= 0 || bounds == null || total <= 0) {
+            return results;
+        }
+
+        double minX = bounds.getMinLongitude();
+        double minY = bounds.getMinLatitude();
+        double maxX = bounds.getMaxLongitude();
+        double maxY = bounds.getMaxLatitude();
+
+        // Half width of a box around the point covering the index bounds
+        double coverRadius = Math.max(Math.max(x - minX, maxX - x),
+                Math.max(y - minY, maxY - y));
+
+        // Start at the point's distance to the bounds plus the half width of
+        // a box expected to hold k uniformly distributed features
+        double radius = GeometryDistance.distance(x, y, minX, minY, maxX, maxY)
+                + Math.sqrt((maxX - minX) * (maxY - minY)
+                * Math.min(k, total) / total) / 2.0;
+        radius = Math.min(radius, coverRadius);
+
+        PriorityQueue<NearestRow> nearest = new PriorityQueue<>();
+
+        while (true) {
+
+            boolean covers = radius >= coverRadius;
+            boolean complete = covers || radius >= maxDistance;
+            double limit = covers ? maxDistance : Math.min(radius, maxDistance);
+
+            GeometryEnvelope envelope = new GeometryEnvelope(x - radius,
+                    y - radius, x + radius, y + radius);
+
+            // Expand without reading features until the box can hold k
+            long count = complete ? k : (type == FeatureIndexType.GEOPACKAGE
+                    ? featureTableIndex.count(envelope)
+                    : featureIndexer.count(envelope));
+
+            if (count >= k) {
+
+                nearest.clear();
+
+                FeatureCursor cursor = type == FeatureIndexType.GEOPACKAGE
+                        ? featureTableIndex.queryFeatures(envelope)
+                        : featureIndexer.queryFeatures(envelope);
+                try {
+                    while (cursor.moveToNext()) {
+                        FeatureRow row = cursor.getRow();
+                        double distance = GeometryDistance.distance(
+                                row.getGeometry(), x, y);
+                        if (distance <= limit) {
+                            nearest.add(new NearestRow(row, distance));
+                            if (nearest.size() > k) {
+                                nearest.poll();
+                            }
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+
+                if (complete || nearest.size() == k) {
+                    break;
+                }
+            }
+
+            radius = radius > 0 ? Math.min(radius * 2, coverRadius) : coverRadius;
+        }
+
+        List<NearestRow> rows = new ArrayList<>(nearest);
+        Collections.sort(rows, Collections.reverseOrder());
+        for (NearestRow nearestRow : rows) {
+            results.addRow(nearestRow.row, nearestRow.distance);
+        }
+
+        return results;
+    }
+
+    /**
+     * Get the spatial predicate refinement executor, creating it if needed
+     *
+     * @return executor
+     */
+    private synchronized ExecutorService getRefinementExecutor() {
+        if (refinementExecutor == null) {
+            refinementExecutor = Executors.newFixedThreadPool(refinementThreads);
+        }
+        return refinementExecutor;
+    }
+
+    /**
+     * Spatial predicate refinement task of a chunk of feature rows
+     */
+    private static class RefinementTask implements Callable<List<FeatureRow>> {
+
+        /**
+         * Feature rows
+         */
+        private final List<FeatureRow> rows;
+
+        /**
+         * Prepared query envelope
+         */
+        private final PreparedEnvelope envelope;
+
+        /**
+         * Spatial predicate
+         */
+        private final SpatialPredicate predicate;
+
+        /**
+         * Constructor
+         *
+         * @param rows      feature rows
+         * @param envelope  prepared query envelope
+         * @param predicate spatial predicate
+         */
+        RefinementTask(List<FeatureRow> rows, PreparedEnvelope envelope,
+                       SpatialPredicate predicate) {
+            this.rows = rows;
+            this.envelope = envelope;
+            this.predicate = predicate;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public List<FeatureRow> call() {
+            List<FeatureRow> matches = new ArrayList<>();
+            for (FeatureRow row : rows) {
+                if (envelope.matches(predicate, row)) {
+                    matches.add(row);
+                }
+            }
+            return matches;
+        }
+
+    }
+
+    /**
+     * Nearest feature row candidate, ordered farthest first for a max heap of
+     * the nearest rows
+     */
+    private static class NearestRow implements Comparable<NearestRow> {
+
+        /**
+         * Feature row
+         */
+        private final FeatureRow row;
+
+        /**
+         * Feature distance
+         */
+        private final double distance;
+
+        /**
+         * Constructor
+         *
+         * @param row      feature row
+         * @param distance feature distance
+         */
+        NearestRow(FeatureRow row, double distance) {
+            this.row = row;
+            this.distance = distance;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int compareTo(NearestRow other) {
+            int compare = Double.compare(other.distance, distance);
+            if (compare == 0) {
+                compare = Long.compare(other.row.getId(), row.getId());
+            }
+            return compare;
+        }
+
+    }
+
 }
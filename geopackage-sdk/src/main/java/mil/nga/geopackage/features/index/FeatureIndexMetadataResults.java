@@ -31,6 +31,11 @@ public class FeatureIndexMetadataResults implements FeatureIndexResults {
      */
     private boolean idOnly = false;
 
+    /**
+     * Batched feature row hydration
+     */
+    private boolean batch = true;
+
     /**
      * Constructor
      *
@@ -43,11 +48,35 @@ public class FeatureIndexMetadataResults implements FeatureIndexResults {
         this.idOnly = geometryMetadata.getColumnCount() == 1;
     }
 
+    /**
+     * Is batched feature row hydration enabled, querying feature rows in
+     * chunks of result ids instead of per result
+     *
+     * @return true if batched
+     * @since 4.0.1
+     */
+    public boolean isBatch() {
+        return batch;
+    }
+
+    /**
+     * Set batched feature row hydration, enabled by default
+     *
+     * @param batch true to query feature rows in chunks of result ids
+     * @since 4.0.1
+     */
+    public void setBatch(boolean batch) {
+        this.batch = batch;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Iterator<FeatureRow> iterator() {
+        if (batch) {
+            return new FeatureIndexBatchIterator(featureIndexer.getFeatureDao(), ids().iterator());
+        }
         return new Iterator<FeatureRow>() {
 
             @Override
@@ -0,0 +1,147 @@
+package mil.nga.geopackage.features.index;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import mil.nga.geopackage.features.user.FeatureRow;
+
+/**
+ * Feature Index Results of nearest features, ordered by increasing distance
+ * from the query point
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public class FeatureIndexNearestResults implements FeatureIndexResults {
+
+    /**
+     * Feature rows, nearest first
+     */
+    private final List<FeatureRow> rows = new ArrayList<>();
+
+    /**
+     * Feature distances, matching the row order
+     */
+    private final List<Double> distances = new ArrayList<>();
+
+    /**
+     * Constructor
+     */
+    public FeatureIndexNearestResults() {
+    }
+
+    /**
+     * Add a feature row, at a distance not less than the previous row
+     *
+     * @param row      feature row
+     * @param distance distance from the query point
+     */
+    public void addRow(FeatureRow row, double distance) {
+        rows.add(row);
+        distances.add(distance);
+    }
+
+    /**
+     * Get the feature row
+     *
+     * @param index result index
+     * @return feature row
+     */
+    public FeatureRow getRow(int index) {
+        return rows.get(index);
+    }
+
+    /**
+     * Get the distance of the feature row from the query point, in the
+     * feature projection units
+     *
+     * @param index result index
+     * @return distance
+     */
+    public double getDistance(int index) {
+        return distances.get(index);
+    }
+
+    /**
+     * Get the feature rows, nearest first
+     *
+     * @return feature rows
+     */
+    public List<FeatureRow> getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the distances, matching the row order
+     *
+     * @return distances
+     */
+    public List<Double> getDistances() {
+        return distances;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long count() {
+        return rows.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<FeatureRow> iterator() {
+        return rows.iterator();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<Long> ids() {
+        return new Iterable<Long>() {
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public Iterator<Long> iterator() {
+                return new Iterator<Long>() {
+
+                    /**
+                     * Row iterator
+                     */
+                    private final Iterator<FeatureRow> rowIterator = rows.iterator();
+
+                    /**
+                     * {@inheritDoc}
+                     */
+                    @Override
+                    public boolean hasNext() {
+                        return rowIterator.hasNext();
+                    }
+
+                    /**
+                     * {@inheritDoc}
+                     */
+                    @Override
+                    public Long next() {
+                        return rowIterator.next().getId();
+                    }
+
+                };
+            }
+        };
+    }
+
+}
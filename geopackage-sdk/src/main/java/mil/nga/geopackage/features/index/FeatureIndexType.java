@@ -25,6 +25,13 @@ public enum FeatureIndexType {
      */
     RTREE,
 
+    /**
+     * In-memory packed R-tree
+     *
+     * @since 4.0.1
+     */
+    MEMORY,
+
     /**
      * No index
      *
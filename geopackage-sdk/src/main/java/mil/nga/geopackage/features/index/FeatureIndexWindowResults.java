@@ -0,0 +1,176 @@
+package mil.nga.geopackage.features.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.features.user.FeatureRow;
+import mil.nga.sf.GeometryEnvelope;
+
+/**
+ * Feature Index Results of a multiple window query, such as the tiles of a
+ * map viewport. The union of the windows is queried once for feature ids and
+ * envelopes, and each distinct feature id is assigned to every window its
+ * envelope overlaps. Only the ids are held, window feature rows are streamed
+ * in batched id queries when iterated.
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public class FeatureIndexWindowResults {
+
+    /**
+     * Feature DAO
+     */
+    private final FeatureDao featureDao;
+
+    /**
+     * Window envelopes, in the feature projection
+     */
+    private final List<GeometryEnvelope> windows;
+
+    /**
+     * Feature ids of each window
+     */
+    private final List<List<Long>> windowIds;
+
+    /**
+     * Number of distinct features read
+     */
+    private int rowCount = 0;
+
+    /**
+     * Constructor
+     *
+     * @param featureDao feature DAO
+     * @param windows    window envelopes, in the feature projection
+     */
+    public FeatureIndexWindowResults(FeatureDao featureDao,
+                                     List<GeometryEnvelope> windows) {
+        this.featureDao = featureDao;
+        this.windows = windows;
+        windowIds = new ArrayList<>(windows.size());
+        for (int i = 0; i < windows.size(); i++) {
+            windowIds.add(new ArrayList<Long>());
+        }
+    }
+
+    /**
+     * Assign the distinct feature id to each window overlapping the envelope
+     *
+     * @param id       feature id, not previously added
+     * @param envelope feature envelope, in the feature projection
+     * @return number of windows assigned
+     */
+    public int addFeature(long id, GeometryEnvelope envelope) {
+        int assigned = 0;
+        if (envelope != null) {
+            for (int i = 0; i < windows.size(); i++) {
+                GeometryEnvelope window = windows.get(i);
+                if (envelope.getMinX() <= window.getMaxX()
+                        && envelope.getMaxX() >= window.getMinX()
+                        && envelope.getMinY() <= window.getMaxY()
+                        && envelope.getMaxY() >= window.getMinY()) {
+                    windowIds.get(i).add(id);
+                    assigned++;
+                }
+            }
+        }
+        rowCount++;
+        return assigned;
+    }
+
+    /**
+     * Get the feature DAO
+     *
+     * @return feature DAO
+     */
+    public FeatureDao getFeatureDao() {
+        return featureDao;
+    }
+
+    /**
+     * Get the number of windows
+     *
+     * @return window count
+     */
+    public int getWindowCount() {
+        return windows.size();
+    }
+
+    /**
+     * Get the window envelope
+     *
+     * @param window window index
+     * @return window envelope, in the feature projection
+     */
+    public GeometryEnvelope getWindow(int window) {
+        return windows.get(window);
+    }
+
+    /**
+     * Get the number of distinct features read for all windows
+     *
+     * @return row count
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Get the number of features in the window
+     *
+     * @param window window index
+     * @return window feature count
+     */
+    public int count(int window) {
+        return windowIds.get(window).size();
+    }
+
+    /**
+     * Get the feature ids of the window, in union query order
+     *
+     * @param window window index
+     * @return feature ids
+     */
+    public List<Long> getIds(int window) {
+        return Collections.unmodifiableList(windowIds.get(window));
+    }
+
+    /**
+     * Get the window features as feature index results, reading the feature
+     * rows in batched id queries as iterated
+     *
+     * @param window window index
+     * @return feature index results
+     */
+    public FeatureIndexResults getResults(int window) {
+        final List<Long> ids = getIds(window);
+        return new FeatureIndexResults() {
+
+            @Override
+            public long count() {
+                return ids.size();
+            }
+
+            @Override
+            public void close() {
+                // Rows are read and closed per batch
+            }
+
+            @Override
+            public Iterable<Long> ids() {
+                return ids;
+            }
+
+            @Override
+            public Iterator<FeatureRow> iterator() {
+                return new FeatureIndexBatchIterator(featureDao, ids.iterator());
+            }
+
+        };
+    }
+
+}
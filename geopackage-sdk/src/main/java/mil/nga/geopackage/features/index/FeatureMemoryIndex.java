@@ -0,0 +1,1052 @@
+package mil.nga.geopackage.features.index;
+
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import mil.nga.geopackage.BoundingBox;
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.contents.Contents;
+import mil.nga.geopackage.db.FeatureIndexerIdCursor;
+import mil.nga.geopackage.db.FeatureIndexerIdQuery;
+import mil.nga.geopackage.features.user.FeatureCursor;
+import mil.nga.geopackage.features.user.FeatureDao;
+import mil.nga.geopackage.features.user.FeatureRow;
+import mil.nga.geopackage.features.user.GeometryEnvelopeReader;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.geopackage.io.GeoPackageProgress;
+import mil.nga.geopackage.proj.ProjectionTransformCache;
+import mil.nga.sf.Geometry;
+import mil.nga.sf.GeometryEnvelope;
+import mil.nga.sf.proj.Projection;
+import mil.nga.sf.proj.ProjectionTransform;
+import mil.nga.sf.util.GeometryEnvelopeBuilder;
+
+/**
+ * Feature Memory Index, indexes feature geometry envelopes into an in-memory
+ * packed R-tree for bounding box queries without SQLite index lookups.
+ * Snapshots of the index can be saved to and loaded from a file.
+ *
+ * @author osbornb
+ * @see PackedRTree
+ * @since 4.0.1
+ */
+public class FeatureMemoryIndex {
+
+    /**
+     * Minimum number of feature row changes held outside of the packed tree
+     * before it is rebuilt
+     */
+    private static final int MIN_COMPACT_CHANGES = 1000;
+
+    /**
+     * Feature DAO
+     */
+    private final FeatureDao featureDao;
+
+    /**
+     * Progress
+     */
+    private GeoPackageProgress progress;
+
+    /**
+     * Query single chunk limit
+     */
+    protected int chunkLimit = 1000;
+
+    /**
+     * Packed R-tree node size
+     */
+    private int nodeSize = PackedRTree.DEFAULT_NODE_SIZE;
+
+    /**
+     * Query range tolerance
+     */
+    private double tolerance = .00000000000001;
+
+    /**
+     * Packed R-tree
+     */
+    private PackedRTree tree;
+
+    /**
+     * Last indexed date
+     */
+    private Date lastIndexed;
+
+    /**
+     * Feature envelopes indexed since the tree was built
+     */
+    private final Map<Long, GeometryEnvelope> changed = new HashMap<>();
+
+    /**
+     * Feature ids with tree entries that are no longer current
+     */
+    private final Set<Long> removed = new HashSet<>();
+
+    /**
+     * Constructor
+     *
+     * @param featureDao feature dao
+     */
+    public FeatureMemoryIndex(FeatureDao featureDao) {
+        this.featureDao = featureDao;
+    }
+
+    /**
+     * Close the memory index, releasing the packed tree
+     */
+    public synchronized void close() {
+        clear();
+    }
+
+    /**
+     * Get the feature DAO
+     *
+     * @return feature DAO
+     */
+    public FeatureDao getFeatureDao() {
+        return featureDao;
+    }
+
+    /**
+     * Set the progress tracker
+     *
+     * @param progress progress tracker
+     */
+    public void setProgress(GeoPackageProgress progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Get the SQL query chunk limit
+     *
+     * @return chunk limit
+     */
+    public int getChunkLimit() {
+        return chunkLimit;
+    }
+
+    /**
+     * Set the SQL query chunk limit
+     *
+     * @param chunkLimit chunk limit
+     */
+    public void setChunkLimit(int chunkLimit) {
+        this.chunkLimit = chunkLimit;
+    }
+
+    /**
+     * Get the packed R-tree node size
+     *
+     * @return node size
+     */
+    public int getNodeSize() {
+        return nodeSize;
+    }
+
+    /**
+     * Set the packed R-tree node size, applied on the next index build
+     *
+     * @param nodeSize node size
+     */
+    public void setNodeSize(int nodeSize) {
+        this.nodeSize = nodeSize;
+    }
+
+    /**
+     * Get the query range tolerance
+     *
+     * @return query range tolerance
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Set the query range tolerance
+     *
+     * @param tolerance query range tolerance
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Get the packed R-tree, rebuilt to include any indexed feature row changes
+     *
+     * @return packed R-tree or null if not indexed
+     */
+    public synchronized PackedRTree getTree() {
+        compact();
+        return tree;
+    }
+
+    /**
+     * Set a previously built packed R-tree for the feature table
+     *
+     * @param tree        packed R-tree
+     * @param lastIndexed date the tree was indexed
+     */
+    public synchronized void setTree(PackedRTree tree, Date lastIndexed) {
+        clear();
+        this.tree = tree;
+        this.lastIndexed = lastIndexed;
+    }
+
+    /**
+     * Index the feature table if needed
+     *
+     * @return count
+     */
+    public int index() {
+        return index(false);
+    }
+
+    /**
+     * Index the feature table
+     *
+     * @param force true to force re-indexing
+     * @return count
+     */
+    public int index(boolean force) {
+        int count = 0;
+        if (force || !isIndexed()) {
+            count = indexTable();
+        }
+        return count;
+    }
+
+    /**
+     * Index the feature row. This method assumes that indexing has been completed and
+     * maintained as the last indexed time is updated.
+     *
+     * @param row feature row
+     * @return true if indexed, false if the table is not indexed in memory
+     */
+    public synchronized boolean index(FeatureRow row) {
+
+        if (tree == null) {
+            return false;
+        }
+
+        long id = row.getId();
+        GeometryEnvelope envelope = getEnvelope(row.getGeometry());
+        removeEntry(id);
+        if (envelope != null) {
+            changed.put(id, envelope);
+        }
+        lastIndexed = new Date();
+
+        if (isCompactNeeded()) {
+            compact();
+        }
+
+        return envelope != null;
+    }
+
+    /**
+     * Index feature changes without re-indexing the table. Changed rows are
+     * re-indexed and the deleted feature ids are removed from the index.
+     *
+     * @param rows       changed feature rows
+     * @param deletedIds deleted feature ids
+     * @return indexed count
+     * @since 4.0.1
+     */
+    public synchronized int indexChanges(Collection<FeatureRow> rows,
+                                         Collection<Long> deletedIds) {
+        int count = 0;
+        if (tree != null) {
+            for (FeatureRow row : rows) {
+                if (index(row)) {
+                    count++;
+                }
+            }
+            for (long geomId : deletedIds) {
+                deleteIndex(geomId);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Index the feature table
+     *
+     * @return count
+     */
+    private int indexTable() {
+
+        long startTime = System.currentTimeMillis();
+
+        int count = 0;
+        long[] ids = new long[chunkLimit];
+        double[] minX = new double[chunkLimit];
+        double[] minY = new double[chunkLimit];
+        double[] maxX = new double[chunkLimit];
+        double[] maxY = new double[chunkLimit];
+
+        String[] columns = featureDao.getIdAndGeometryColumnNames();
+        GeometryEnvelopeReader envelopeReader = new GeometryEnvelopeReader();
+        long lastId = Long.MIN_VALUE;
+        boolean advanced = true;
+
+        // Read all feature envelopes, seeking each chunk by primary key
+        while (advanced && (progress == null || progress.isActive())) {
+
+            advanced = false;
+
+            FeatureCursor cursor = featureDao.queryForChunkAfterId(columns, lastId, chunkLimit);
+            try {
+                while ((progress == null || progress.isActive())
+                        && cursor.moveToNext()) {
+                    try {
+                        if (cursor.isInvalidRow()) {
+                            // Read from the invalid row requery
+                            continue;
+                        }
+                        long id = cursor.getId();
+                        if (id > lastId || cursor.isInvalidRequery()) {
+                            lastId = Math.max(lastId, id);
+                            advanced = true;
+                            // Read the envelope without building the geometry
+                            if (cursor.readGeometryEnvelope(envelopeReader)) {
+                                if (count == ids.length) {
+                                    int length = Math.max(16, count * 2);
+                                    ids = Arrays.copyOf(ids, length);
+                                    minX = Arrays.copyOf(minX, length);
+                                    minY = Arrays.copyOf(minY, length);
+                                    maxX = Arrays.copyOf(maxX, length);
+                                    maxY = Arrays.copyOf(maxY, length);
+                                }
+                                ids[count] = id;
+                                minX[count] = envelopeReader.getMinX();
+                                minY[count] = envelopeReader.getMinY();
+                                maxX[count] = envelopeReader.getMaxX();
+                                maxY[count] = envelopeReader.getMaxY();
+                                count++;
+                            }
+                            if (progress != null) {
+                                progress.addProgress(1);
+                            }
+                        }
+                    } catch (Exception e) {
+                        Log.e(FeatureMemoryIndex.class.getSimpleName(), "Failed to index feature. Table: "
+                                + featureDao.getTableName() + ", Position: " + cursor.getPosition(), e);
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        // Only replace the index when indexing was not cancelled
+        if (progress == null || progress.isActive()) {
+            PackedRTree packedTree = PackedRTree.build(count, ids, minX, minY, maxX, maxY, nodeSize);
+            setTree(packedTree, new Date());
+        }
+
+        long duration = System.currentTimeMillis() - startTime;
+        Log.i(FeatureMemoryIndex.class.getSimpleName(), "Indexed features in memory. Table: "
+                + featureDao.getTableName() + ", Count: " + count
+                + ", Milliseconds: " + duration);
+
+        return count;
+    }
+
+    /**
+     * Delete the feature table index
+     *
+     * @return true if index deleted
+     */
+    public synchronized boolean deleteIndex() {
+        boolean deleted = tree != null;
+        clear();
+        return deleted;
+    }
+
+    /**
+     * Delete the index for the feature row
+     *
+     * @param row feature row
+     * @return true if deleted
+     */
+    public boolean deleteIndex(FeatureRow row) {
+        return deleteIndex(row.getId());
+    }
+
+    /**
+     * Delete the index for the geometry id
+     *
+     * @param geomId geometry id
+     * @return true if deleted
+     */
+    public synchronized boolean deleteIndex(long geomId) {
+        boolean deleted = tree != null && removeEntry(geomId);
+        if (deleted && isCompactNeeded()) {
+            compact();
+        }
+        return deleted;
+    }
+
+    /**
+     * Determine if the feature table is indexed in memory after database modifications
+     *
+     * @return true if indexed
+     */
+    public synchronized boolean isIndexed() {
+
+        boolean indexed = false;
+
+        if (tree != null && lastIndexed != null) {
+            Contents contents = featureDao.getGeometryColumns().getContents();
+            Date lastChange = contents.getLastChange();
+            indexed = lastChange == null || !lastIndexed.before(lastChange);
+        }
+
+        return indexed;
+    }
+
+    /**
+     * Get the date last indexed
+     *
+     * @return last indexed date or null
+     */
+    public synchronized Date getLastIndexed() {
+        return tree != null ? lastIndexed : null;
+    }
+
+    /**
+     * Save a snapshot of the memory index to a file
+     *
+     * @param file snapshot file
+     */
+    public synchronized void saveSnapshot(File file) {
+
+        if (tree == null) {
+            throw new GeoPackageException("Feature table is not indexed in memory. Table: "
+                    + featureDao.getTableName());
+        }
+
+        compact();
+
+        FileOutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(file);
+            DataOutputStream out = new DataOutputStream(outputStream);
+            out.writeUTF(featureDao.getDatabase());
+            out.writeUTF(featureDao.getTableName());
+            out.writeLong(lastIndexed.getTime());
+            out.flush();
+            tree.write(outputStream);
+        } catch (IOException e) {
+            throw new GeoPackageException("Failed to save feature memory index snapshot. Table: "
+                    + featureDao.getTableName() + ", File: " + file, e);
+        } finally {
+            closeQuietly(outputStream);
+        }
+    }
+
+    /**
+     * Load a snapshot of the memory index from a file. The snapshot is only
+     * loaded if it is for this feature table and is not older than the last
+     * table change.
+     *
+     * @param file snapshot file
+     * @return true if loaded
+     */
+    public boolean loadSnapshot(File file) {
+
+        boolean loaded = false;
+
+        if (file.exists()) {
+            FileInputStream inputStream = null;
+            try {
+                inputStream = new FileInputStream(file);
+                DataInputStream in = new DataInputStream(inputStream);
+                String database = in.readUTF();
+                String tableName = in.readUTF();
+                Date snapshotIndexed = new Date(in.readLong());
+                if (database.equals(featureDao.getDatabase())
+                        && tableName.equals(featureDao.getTableName())) {
+                    Date lastChange = featureDao.getGeometryColumns().getContents().getLastChange();
+                    if (lastChange == null || !snapshotIndexed.before(lastChange)) {
+                        setTree(PackedRTree.read(inputStream), snapshotIndexed);
+                        loaded = true;
+                    }
+                }
+            } catch (IOException e) {
+                Log.w(FeatureMemoryIndex.class.getSimpleName(), "Failed to load feature memory index snapshot. Table: "
+                        + featureDao.getTableName() + ", File: " + file, e);
+            } finally {
+                closeQuietly(inputStream);
+            }
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Query for all indexed feature ids
+     *
+     * @return id query
+     */
+    public FeatureIndexerIdQuery queryIds() {
+        return queryIds(null);
+    }
+
+    /**
+     * Query for the indexed feature ids within the envelope
+     *
+     * @param envelope geometry envelope, null for all
+     * @return id query
+     */
+    public synchronized FeatureIndexerIdQuery queryIds(GeometryEnvelope envelope) {
+
+        PackedRTree indexTree = verifyTree();
+
+        double queryMinX = Double.NEGATIVE_INFINITY;
+        double queryMinY = Double.NEGATIVE_INFINITY;
+        double queryMaxX = Double.POSITIVE_INFINITY;
+        double queryMaxY = Double.POSITIVE_INFINITY;
+        if (envelope != null) {
+            queryMinX = envelope.getMinX() - tolerance;
+            queryMinY = envelope.getMinY() - tolerance;
+            queryMaxX = envelope.getMaxX() + tolerance;
+            queryMaxY = envelope.getMaxY() + tolerance;
+        }
+
+        FeatureIndexerIdQuery idQuery = new FeatureIndexerIdQuery();
+        for (long id : indexTree.query(queryMinX, queryMinY, queryMaxX, queryMaxY)) {
+            if (!removed.contains(id)) {
+                idQuery.addArgument(id);
+            }
+        }
+        for (Map.Entry<Long, GeometryEnvelope> entry : changed.entrySet()) {
+            GeometryEnvelope changedEnvelope = entry.getValue();
+            if (changedEnvelope.getMinX() <= queryMaxX
+                    && changedEnvelope.getMaxX() >= queryMinX
+                    && changedEnvelope.getMinY() <= queryMaxY
+                    && changedEnvelope.getMaxY() >= queryMinY) {
+                idQuery.addArgument(entry.getKey());
+            }
+        }
+
+        return idQuery;
+    }
+
+    /**
+     * Query for all indexed feature count
+     *
+     * @return count
+     */
+    public synchronized long count() {
+        PackedRTree indexTree = verifyTree();
+        return indexTree.size() - removed.size() + changed.size();
+    }
+
+    /**
+     * Query for the indexed feature count within the envelope
+     *
+     * @param envelope geometry envelope
+     * @return count
+     */
+    public long count(GeometryEnvelope envelope) {
+        return queryIds(envelope).getCount();
+    }
+
+    /**
+     * Query for the k nearest features to the point with a best-first
+     * traversal of the packed R-tree nodes. Nodes and entries are visited in
+     * order of their minimum envelope distance and features are ranked by
+     * their exact geometry distance, so only the features closer than the
+     * k-th nearest feature envelope are read.
+     *
+     * @param x           x coordinate, in the feature projection
+     * @param y           y coordinate, in the feature projection
+     * @param k           maximum number of features
+     * @param maxDistance maximum distance, in the feature projection units
+     * @return nearest feature results, nearest first
+     * @since 4.0.1
+     */
+    public synchronized FeatureIndexNearestResults nearest(double x, double y,
+                                                           int k, double maxDistance) {
+
+        PackedRTree indexTree = verifyTree();
+
+        FeatureIndexNearestResults results = new FeatureIndexNearestResults();
+
+        if (k > 0) {
+
+            PriorityQueue<NearestCandidate> queue = new PriorityQueue<>();
+
+            int root = indexTree.getRoot();
+            if (root >= 0) {
+                addNearestNode(queue, indexTree, root, x, y, maxDistance);
+            }
+            for (Map.Entry<Long, GeometryEnvelope> entry : changed.entrySet()) {
+                GeometryEnvelope envelope = entry.getValue();
+                double distance = GeometryDistance.distance(x, y,
+                        envelope.getMinX(), envelope.getMinY(),
+                        envelope.getMaxX(), envelope.getMaxY());
+                if (distance <= maxDistance) {
+                    queue.add(new NearestCandidate(distance, entry.getKey(),
+                            NearestCandidate.ENTRY));
+                }
+            }
+
+            while (!queue.isEmpty() && results.count() < k) {
+                NearestCandidate candidate = queue.poll();
+                if (candidate.type == NearestCandidate.FEATURE) {
+                    results.addRow(candidate.row, candidate.distance);
+                } else if (candidate.type == NearestCandidate.ENTRY) {
+                    FeatureRow row = featureDao.queryForIdRow(candidate.id);
+                    if (row != null) {
+                        double distance = GeometryDistance.distance(
+                                row.getGeometry(), x, y);
+                        if (distance <= maxDistance) {
+                            queue.add(new NearestCandidate(distance, row));
+                        }
+                    }
+                } else {
+                    int node = (int) candidate.id;
+                    int end = indexTree.getChildEnd(node);
+                    for (int child = indexTree.getChildStart(node); child < end; child++) {
+                        addNearestNode(queue, indexTree, child, x, y, maxDistance);
+                    }
+                }
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Add the tree node, or the item entry when not removed, to the nearest
+     * search queue when within the maximum distance
+     *
+     * @param queue       candidate queue
+     * @param indexTree   packed R-tree
+     * @param node        node index
+     * @param x           x coordinate
+     * @param y           y coordinate
+     * @param maxDistance maximum distance
+     */
+    private void addNearestNode(PriorityQueue<NearestCandidate> queue,
+                                PackedRTree indexTree, int node, double x, double y,
+                                double maxDistance) {
+        double distance = GeometryDistance.distance(x, y,
+                indexTree.getMinX(node), indexTree.getMinY(node),
+                indexTree.getMaxX(node), indexTree.getMaxY(node));
+        if (distance <= maxDistance) {
+            if (indexTree.isItem(node)) {
+                long id = indexTree.getId(node);
+                if (!removed.contains(id)) {
+                    queue.add(new NearestCandidate(distance, id,
+                            NearestCandidate.ENTRY));
+                }
+            } else {
+                queue.add(new NearestCandidate(distance, node,
+                        NearestCandidate.NODE));
+            }
+        }
+    }
+
+    /**
+     * Query for all features
+     *
+     * @param distinct distinct rows
+     * @param columns  columns
+     * @return feature cursor
+     */
+    public FeatureCursor queryFeatures(boolean distinct, String[] columns) {
+        return queryFeatures(distinct, columns, null, null);
+    }
+
+    /**
+     * Query for features
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return feature cursor
+     */
+    public FeatureCursor queryFeatures(boolean distinct, String[] columns, String where, String[] whereArgs) {
+        return query(distinct, columns, queryIds(), where, whereArgs);
+    }
+
+    /**
+     * Query for features within the envelope
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param envelope  geometry envelope
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return feature cursor
+     */
+    public FeatureCursor queryFeatures(boolean distinct, String[] columns, GeometryEnvelope envelope,
+                                       String where, String[] whereArgs) {
+        return query(distinct, columns, queryIds(envelope), where, whereArgs);
+    }
+
+    /**
+     * Count features
+     *
+     * @param distinct distinct column values
+     * @param column   count column name
+     * @return count
+     */
+    public int countFeatures(boolean distinct, String column) {
+        return countFeatures(distinct, column, null, null);
+    }
+
+    /**
+     * Count features
+     *
+     * @param distinct  distinct column values
+     * @param column    count column name
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return count
+     */
+    public int countFeatures(boolean distinct, String column, String where, String[] whereArgs) {
+        return count(distinct, column, queryIds(), where, whereArgs);
+    }
+
+    /**
+     * Count features within the envelope
+     *
+     * @param distinct distinct column values
+     * @param column   count column name
+     * @param envelope geometry envelope
+     * @return count
+     */
+    public int countFeatures(boolean distinct, String column, GeometryEnvelope envelope) {
+        return countFeatures(distinct, column, envelope, null, null);
+    }
+
+    /**
+     * Count features within the envelope
+     *
+     * @param distinct  distinct column values
+     * @param column    count column name
+     * @param envelope  geometry envelope
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return count
+     */
+    public int countFeatures(boolean distinct, String column, GeometryEnvelope envelope,
+                             String where, String[] whereArgs) {
+        return count(distinct, column, queryIds(envelope), where, whereArgs);
+    }
+
+    /**
+     * Query for the bounds of the feature table index
+     *
+     * @return bounding box
+     */
+    public synchronized BoundingBox getBoundingBox() {
+        compact();
+        GeometryEnvelope envelope = verifyTree().getEnvelope();
+        BoundingBox boundingBox = null;
+        if (envelope != null) {
+            boundingBox = new BoundingBox(envelope);
+        }
+        return boundingBox;
+    }
+
+    /**
+     * Query for the feature index bounds and return in the provided projection
+     *
+     * @param projection desired projection
+     * @return bounding box
+     */
+    public BoundingBox getBoundingBox(Projection projection) {
+        BoundingBox boundingBox = getBoundingBox();
+        if (boundingBox != null && projection != null) {
+            ProjectionTransform projectionTransform = ProjectionTransformCache
+                    .getTransformation(featureDao.getProjection(), projection);
+            boundingBox = boundingBox.transform(projectionTransform);
+        }
+        return boundingBox;
+    }
+
+    /**
+     * Get the envelope from the geometry header or build it from the geometry
+     *
+     * @param geomData geometry data
+     * @return envelope or null
+     */
+    private static GeometryEnvelope getEnvelope(GeoPackageGeometryData geomData) {
+        GeometryEnvelope envelope = null;
+        if (geomData != null) {
+            envelope = geomData.getEnvelope();
+            if (envelope == null) {
+                Geometry geometry = geomData.getGeometry();
+                if (geometry != null) {
+                    envelope = GeometryEnvelopeBuilder.buildEnvelope(geometry);
+                }
+            }
+        }
+        return envelope;
+    }
+
+    /**
+     * Verify the tree is built
+     *
+     * @return packed R-tree
+     */
+    private PackedRTree verifyTree() {
+        if (tree == null) {
+            throw new GeoPackageException("Feature table is not indexed in memory. Table: "
+                    + featureDao.getTableName());
+        }
+        return tree;
+    }
+
+    /**
+     * Remove the current index entry of the feature id
+     *
+     * @param id feature id
+     * @return true if an entry was removed
+     */
+    private boolean removeEntry(long id) {
+        boolean removedEntry = changed.remove(id) != null;
+        if (!removed.contains(id) && tree.contains(id)) {
+            removed.add(id);
+            removedEntry = true;
+        }
+        return removedEntry;
+    }
+
+    /**
+     * Determine if enough feature row changes are held outside of the tree to rebuild it
+     *
+     * @return true if should compact
+     */
+    private boolean isCompactNeeded() {
+        int changes = changed.size() + removed.size();
+        return changes >= Math.max(MIN_COMPACT_CHANGES, tree.size() / 10);
+    }
+
+    /**
+     * Rebuild the tree to include the feature row changes
+     */
+    private void compact() {
+
+        if (tree == null || (changed.isEmpty() && removed.isEmpty())) {
+            return;
+        }
+
+        int count = tree.size() - removed.size() + changed.size();
+        long[] ids = new long[count];
+        double[] minX = new double[count];
+        double[] minY = new double[count];
+        double[] maxX = new double[count];
+        double[] maxY = new double[count];
+
+        int index = 0;
+        for (int i = 0; i < tree.size(); i++) {
+            long id = tree.getId(i);
+            if (!removed.contains(id)) {
+                ids[index] = id;
+                minX[index] = tree.getMinX(i);
+                minY[index] = tree.getMinY(i);
+                maxX[index] = tree.getMaxX(i);
+                maxY[index] = tree.getMaxY(i);
+                index++;
+            }
+        }
+        for (Map.Entry<Long, GeometryEnvelope> entry : changed.entrySet()) {
+            GeometryEnvelope envelope = entry.getValue();
+            ids[index] = entry.getKey();
+            minX[index] = envelope.getMinX();
+            minY[index] = envelope.getMinY();
+            maxX[index] = envelope.getMaxX();
+            maxY[index] = envelope.getMaxY();
+            index++;
+        }
+
+        tree = PackedRTree.build(index, ids, minX, minY, maxX, maxY, nodeSize);
+        changed.clear();
+        removed.clear();
+    }
+
+    /**
+     * Clear the tree and feature row changes
+     */
+    private void clear() {
+        tree = null;
+        lastIndexed = null;
+        changed.clear();
+        removed.clear();
+    }
+
+    /**
+     * Close the stream, logging failures
+     *
+     * @param closeable closeable stream
+     */
+    private void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                Log.w(FeatureMemoryIndex.class.getSimpleName(), "Failed to close snapshot stream. Table: "
+                        + featureDao.getTableName(), e);
+            }
+        }
+    }
+
+    /**
+     * Query using the id query and criteria
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns
+     * @param idQuery   id query
+     * @param where     where statement
+     * @param whereArgs where args
+     * @return feature cursor
+     */
+    private FeatureCursor query(boolean distinct, String[] columns, FeatureIndexerIdQuery idQuery, String where, String[] whereArgs) {
+        FeatureCursor cursor = null;
+        if (idQuery.aboveMaxArguments(whereArgs)) {
+            cursor = new FeatureIndexerIdCursor(columns, featureDao.query(distinct, where, whereArgs), idQuery);
+        } else {
+            cursor = featureDao.queryIn(distinct, columns, idQuery.getSql(), idQuery.getArgs(), where, whereArgs);
+        }
+        return cursor;
+    }
+
+    /**
+     * Count using the id query and criteria
+     *
+     * @param distinct  distinct column values
+     * @param column    count column name
+     * @param idQuery   id query
+     * @param where     where statement
+     * @param whereArgs where args
+     * @return feature count
+     */
+    private int count(boolean distinct, String column, FeatureIndexerIdQuery idQuery, String where, String[] whereArgs) {
+        int count = 0;
+        if (column == null && where == null) {
+            count = idQuery.getCount();
+        } else if (idQuery.aboveMaxArguments(whereArgs)) {
+            if (column != null) {
+                throw new GeoPackageException("Unable to count column with too many query arguments. column: " + column);
+            }
+            FeatureCursor cursor = featureDao.query(where, whereArgs);
+            try {
+                while (cursor.moveToNext()) {
+                    if (idQuery.hasId(cursor.getId())) {
+                        count++;
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+        } else {
+            count = featureDao.countIn(distinct, column, idQuery.getSql(), idQuery.getArgs(), where, whereArgs);
+        }
+        return count;
+    }
+
+    /**
+     * Nearest search candidate of a tree node, item entry, or feature
+     */
+    private static class NearestCandidate implements Comparable<NearestCandidate> {
+
+        /**
+         * Feature with an exact distance, ordered first at equal distances
+         */
+        private static final int FEATURE = 0;
+
+        /**
+         * Item entry with an envelope distance
+         */
+        private static final int ENTRY = 1;
+
+        /**
+         * Tree node with an envelope distance
+         */
+        private static final int NODE = 2;
+
+        /**
+         * Minimum distance, exact for features
+         */
+        private final double distance;
+
+        /**
+         * Node index or feature id
+         */
+        private final long id;
+
+        /**
+         * Candidate type
+         */
+        private final int type;
+
+        /**
+         * Feature row
+         */
+        private final FeatureRow row;
+
+        /**
+         * Node or entry constructor
+         *
+         * @param distance minimum distance
+         * @param id       node index or feature id
+         * @param type     candidate type
+         */
+        NearestCandidate(double distance, long id, int type) {
+            this.distance = distance;
+            this.id = id;
+            this.type = type;
+            this.row = null;
+        }
+
+        /**
+         * Feature constructor
+         *
+         * @param distance exact distance
+         * @param row      feature row
+         */
+        NearestCandidate(double distance, FeatureRow row) {
+            this.distance = distance;
+            this.id = row.getId();
+            this.type = FEATURE;
+            this.row = row;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int compareTo(NearestCandidate other) {
+            int compare = Double.compare(distance, other.distance);
+            if (compare == 0) {
+                compare = Integer.compare(type, other.type);
+            }
+            return compare;
+        }
+
+    }
+
+}
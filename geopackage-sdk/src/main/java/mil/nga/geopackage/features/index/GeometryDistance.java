@@ -0,0 +1,172 @@
+package mil.nga.geopackage.features.index;
+
+import java.util.List;
+
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.sf.Curve;
+import mil.nga.sf.CurvePolygon;
+import mil.nga.sf.Geometry;
+import mil.nga.sf.GeometryCollection;
+import mil.nga.sf.Point;
+import mil.nga.sf.PolyhedralSurface;
+
+/**
+ * Planar distances from a point to geometries and envelopes, in the units of
+ * the geometry projection. Points inside polygons are at a distance of 0.
+ * Curves are measured by their control points. Z and M values are ignored.
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public class GeometryDistance {
+
+    /**
+     * Get the distance from the point to the geometry data
+     *
+     * @param geometryData geometry data
+     * @param x            x coordinate
+     * @param y            y coordinate
+     * @return distance, {@link Double#POSITIVE_INFINITY} for null or empty
+     * geometries
+     */
+    public static double distance(GeoPackageGeometryData geometryData,
+                                  double x, double y) {
+        double distance = Double.POSITIVE_INFINITY;
+        if (geometryData != null && !geometryData.isEmpty()
+                && geometryData.getGeometry() != null) {
+            distance = distance(geometryData.getGeometry(), x, y);
+        }
+        return distance;
+    }
+
+    /**
+     * Get the distance from the point to the geometry
+     *
+     * @param geometry geometry
+     * @param x        x coordinate
+     * @param y        y coordinate
+     * @return distance, {@link Double#POSITIVE_INFINITY} for empty geometries
+     */
+    public static double distance(Geometry geometry, double x, double y) {
+        double distance = Double.POSITIVE_INFINITY;
+        if (geometry instanceof Point) {
+            Point point = (Point) geometry;
+            distance = Math.hypot(point.getX() - x, point.getY() - y);
+        } else if (geometry instanceof Curve) {
+            distance = pathDistance(PreparedEnvelope.getPoints((Curve) geometry),
+                    false, x, y);
+        } else if (geometry instanceof CurvePolygon) {
+            distance = polygonDistance(
+                    PreparedEnvelope.getRings((CurvePolygon<?>) geometry), x, y);
+        } else if (geometry instanceof PolyhedralSurface) {
+            for (CurvePolygon<?> polygon : ((PolyhedralSurface) geometry)
+                    .getPolygons()) {
+                distance = Math.min(distance, polygonDistance(
+                        PreparedEnvelope.getRings(polygon), x, y));
+            }
+        } else if (geometry instanceof GeometryCollection) {
+            for (Geometry child : ((GeometryCollection<?>) geometry)
+                    .getGeometries()) {
+                distance = Math.min(distance, distance(child, x, y));
+            }
+        }
+        if (Double.isNaN(distance)) {
+            distance = Double.POSITIVE_INFINITY;
+        }
+        return distance;
+    }
+
+    /**
+     * Get the minimum distance from the point to the envelope bounds
+     *
+     * @param x    x coordinate
+     * @param y    y coordinate
+     * @param minX min x
+     * @param minY min y
+     * @param maxX max x
+     * @param maxY max y
+     * @return distance, 0 when within the bounds
+     */
+    public static double distance(double x, double y, double minX,
+                                  double minY, double maxX, double maxY) {
+        double dx = Math.max(0, Math.max(minX - x, x - maxX));
+        double dy = Math.max(0, Math.max(minY - y, y - maxY));
+        return Math.hypot(dx, dy);
+    }
+
+    /**
+     * Get the distance from the point to the polygon
+     *
+     * @param rings polygon rings, exterior ring first
+     * @param x     x coordinate
+     * @param y     y coordinate
+     * @return distance
+     */
+    private static double polygonDistance(List<List<Point>> rings, double x,
+                                          double y) {
+        double distance = Double.POSITIVE_INFINITY;
+        if (!rings.isEmpty()) {
+            if (PreparedEnvelope.locate(rings, x, y) >= 0) {
+                distance = 0;
+            } else {
+                for (List<Point> ring : rings) {
+                    distance = Math.min(distance,
+                            pathDistance(ring, true, x, y));
+                }
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Get the distance from the point to the path
+     *
+     * @param points path points
+     * @param closed true to include the closing segment
+     * @param x      x coordinate
+     * @param y      y coordinate
+     * @return distance
+     */
+    private static double pathDistance(List<Point> points, boolean closed,
+                                       double x, double y) {
+        double distance = Double.POSITIVE_INFINITY;
+        int count = points.size();
+        if (count == 1) {
+            Point point = points.get(0);
+            distance = Math.hypot(point.getX() - x, point.getY() - y);
+        } else {
+            for (int i = closed ? 0 : 1; i < count; i++) {
+                Point from = points.get(i == 0 ? count - 1 : i - 1);
+                Point to = points.get(i);
+                distance = Math.min(distance, segmentDistance(x, y,
+                        from.getX(), from.getY(), to.getX(), to.getY()));
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Get the distance from the point to the segment
+     *
+     * @param x  x coordinate
+     * @param y  y coordinate
+     * @param x1 segment start x
+     * @param y1 segment start y
+     * @param x2 segment end x
+     * @param y2 segment end y
+     * @return distance
+     */
+    private static double segmentDistance(double x, double y, double x1,
+                                          double y1, double x2, double y2) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = 0;
+        if (lengthSquared > 0) {
+            t = ((x - x1) * dx + (y - y1) * dy) / lengthSquared;
+            t = Math.max(0, Math.min(1, t));
+        }
+        return Math.hypot(x1 + t * dx - x, y1 + t * dy - y);
+    }
+
+}
@@ -0,0 +1,682 @@
+package mil.nga.geopackage.features.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import mil.nga.sf.GeometryEnvelope;
+
+/**
+ * Immutable Sort-Tile-Recursive packed R-tree of feature envelopes held in
+ * primitive arrays. Item envelopes occupy the first node positions followed
+ * by each parent level, ending with the root node.
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public class PackedRTree {
+
+    /**
+     * Default maximum number of children per node
+     */
+    public static final int DEFAULT_NODE_SIZE = 16;
+
+    /**
+     * Snapshot format identifier
+     */
+    private static final int SNAPSHOT_MAGIC = 0x47505254;
+
+    /**
+     * Snapshot format version
+     */
+    private static final int SNAPSHOT_VERSION = 1;
+
+    /**
+     * Maximum number of children per node
+     */
+    private final int nodeSize;
+
+    /**
+     * Number of indexed items
+     */
+    private final int size;
+
+    /**
+     * Item ids, in packed order
+     */
+    private final long[] ids;
+
+    /**
+     * Node min x values, items followed by parent levels
+     */
+    private final double[] minX;
+
+    /**
+     * Node min y values, items followed by parent levels
+     */
+    private final double[] minY;
+
+    /**
+     * Node max x values, items followed by parent levels
+     */
+    private final double[] maxX;
+
+    /**
+     * Node max y values, items followed by parent levels
+     */
+    private final double[] maxY;
+
+    /**
+     * First child node index of each parent node, offset by the item size
+     */
+    private final int[] childStart;
+
+    /**
+     * Exclusive last child node index of each parent node, offset by the item size
+     */
+    private final int[] childEnd;
+
+    /**
+     * Sorted item ids for id lookups, built on first use
+     */
+    private long[] sortedIds;
+
+    /**
+     * Constructor
+     *
+     * @param nodeSize   node size
+     * @param size       item size
+     * @param ids        item ids
+     * @param minX       node min x values
+     * @param minY       node min y values
+     * @param maxX       node max x values
+     * @param maxY       node max y values
+     * @param childStart parent node first child indices
+     * @param childEnd   parent node exclusive last child indices
+     */
+    private PackedRTree(int nodeSize, int size, long[] ids, double[] minX,
+                        double[] minY, double[] maxX, double[] maxY,
+                        int[] childStart, int[] childEnd) {
+        this.nodeSize = nodeSize;
+        this.size = size;
+        this.ids = ids;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.childStart = childStart;
+        this.childEnd = childEnd;
+    }
+
+    /**
+     * Bulk load a packed R-tree with the default node size
+     *
+     * @param count number of items
+     * @param ids   item ids
+     * @param minX  item min x values
+     * @param minY  item min y values
+     * @param maxX  item max x values
+     * @param maxY  item max y values
+     * @return packed R-tree
+     */
+    public static PackedRTree build(int count, long[] ids, double[] minX,
+                                    double[] minY, double[] maxX, double[] maxY) {
+        return build(count, ids, minX, minY, maxX, maxY, DEFAULT_NODE_SIZE);
+    }
+
+    /**
+     * Bulk load a packed R-tree. The item arrays are read and not modified.
+     *
+     * @param count    number of items
+     * @param ids      item ids
+     * @param minX     item min x values
+     * @param minY     item min y values
+     * @param maxX     item max x values
+     * @param maxY     item max y values
+     * @param nodeSize maximum number of children per node
+     * @return packed R-tree
+     */
+    public static PackedRTree build(int count, long[] ids, double[] minX,
+                                    double[] minY, double[] maxX, double[] maxY,
+                                    int nodeSize) {
+
+        if (nodeSize < 2) {
+            throw new IllegalArgumentException(
+                    "Node size must be at least 2. Node Size: " + nodeSize);
+        }
+
+        // Determine the total number of nodes across all levels
+        int numNodes = count;
+        int levelCount = count;
+        while (levelCount > 1) {
+            levelCount = (levelCount + nodeSize - 1) / nodeSize;
+            numNodes += levelCount;
+        }
+
+        long[] treeIds = new long[count];
+        double[] treeMinX = new double[numNodes];
+        double[] treeMinY = new double[numNodes];
+        double[] treeMaxX = new double[numNodes];
+        double[] treeMaxY = new double[numNodes];
+        int[] childStart = new int[numNodes - count];
+        int[] childEnd = new int[numNodes - count];
+
+        System.arraycopy(ids, 0, treeIds, 0, count);
+        System.arraycopy(minX, 0, treeMinX, 0, count);
+        System.arraycopy(minY, 0, treeMinY, 0, count);
+        System.arraycopy(maxX, 0, treeMaxX, 0, count);
+        System.arraycopy(maxY, 0, treeMaxY, 0, count);
+
+        PackedRTree tree = new PackedRTree(nodeSize, count, treeIds, treeMinX,
+                treeMinY, treeMaxX, treeMaxY, childStart, childEnd);
+
+        int levelStart = 0;
+        levelCount = count;
+        while (levelCount > 1) {
+
+            tree.sortTileRecursive(levelStart, levelCount);
+
+            // Pack runs of the sorted level into parent nodes
+            int parentStart = levelStart + levelCount;
+            int parentCount = (levelCount + nodeSize - 1) / nodeSize;
+            for (int parent = 0; parent < parentCount; parent++) {
+                int node = parentStart + parent;
+                int start = levelStart + parent * nodeSize;
+                int end = Math.min(start + nodeSize, parentStart);
+                double nodeMinX = Double.POSITIVE_INFINITY;
+                double nodeMinY = Double.POSITIVE_INFINITY;
+                double nodeMaxX = Double.NEGATIVE_INFINITY;
+                double nodeMaxY = Double.NEGATIVE_INFINITY;
+                for (int child = start; child < end; child++) {
+                    nodeMinX = Math.min(nodeMinX, treeMinX[child]);
+                    nodeMinY = Math.min(nodeMinY, treeMinY[child]);
+                    nodeMaxX = Math.max(nodeMaxX, treeMaxX[child]);
+                    nodeMaxY = Math.max(nodeMaxY, treeMaxY[child]);
+                }
+                treeMinX[node] = nodeMinX;
+                treeMinY[node] = nodeMinY;
+                treeMaxX[node] = nodeMaxX;
+                treeMaxY[node] = nodeMaxY;
+                childStart[node - count] = start;
+                childEnd[node - count] = end;
+            }
+
+            levelStart = parentStart;
+            levelCount = parentCount;
+        }
+
+        return tree;
+    }
+
+    /**
+     * Get the maximum number of children per node
+     *
+     * @return node size
+     */
+    public int getNodeSize() {
+        return nodeSize;
+    }
+
+    /**
+     * Get the number of indexed items
+     *
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the number of nodes, including the items
+     *
+     * @return node count
+     */
+    public int getNodeCount() {
+        return minX.length;
+    }
+
+    /**
+     * Get the item id
+     *
+     * @param index item index
+     * @return id
+     */
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Get the item or node min x
+     *
+     * @param index item or node index
+     * @return min x
+     */
+    public double getMinX(int index) {
+        return minX[index];
+    }
+
+    /**
+     * Get the item or node min y
+     *
+     * @param index item or node index
+     * @return min y
+     */
+    public double getMinY(int index) {
+        return minY[index];
+    }
+
+    /**
+     * Get the item or node max x
+     *
+     * @param index item or node index
+     * @return max x
+     */
+    public double getMaxX(int index) {
+        return maxX[index];
+    }
+
+    /**
+     * Get the item or node max y
+     *
+     * @param index item or node index
+     * @return max y
+     */
+    public double getMaxY(int index) {
+        return maxY[index];
+    }
+
+    /**
+     * Get the root node index, the item itself when a single item
+     *
+     * @return root node index, -1 if empty
+     */
+    public int getRoot() {
+        return size > 0 ? minX.length - 1 : -1;
+    }
+
+    /**
+     * Determine if the node index is an item, as opposed to a parent node
+     *
+     * @param node node index
+     * @return true if an item
+     */
+    public boolean isItem(int node) {
+        return node < size;
+    }
+
+    /**
+     * Get the first child node index of the parent node
+     *
+     * @param node parent node index
+     * @return first child node index
+     */
+    public int getChildStart(int node) {
+        return childStart[node - size];
+    }
+
+    /**
+     * Get the exclusive last child node index of the parent node
+     *
+     * @param node parent node index
+     * @return exclusive last child node index
+     */
+    public int getChildEnd(int node) {
+        return childEnd[node - size];
+    }
+
+    /**
+     * Get the envelope of all items
+     *
+     * @return envelope or null if empty
+     */
+    public GeometryEnvelope getEnvelope() {
+        GeometryEnvelope envelope = null;
+        if (size > 0) {
+            int root = minX.length - 1;
+            envelope = new GeometryEnvelope(minX[root], minY[root], maxX[root],
+                    maxY[root]);
+        }
+        return envelope;
+    }
+
+    /**
+     * Determine if the tree contains the item id
+     *
+     * @param id item id
+     * @return true if contained
+     */
+    public boolean contains(long id) {
+        long[] sorted = sortedIds;
+        if (sorted == null) {
+            sorted = Arrays.copyOf(ids, size);
+            Arrays.sort(sorted);
+            sortedIds = sorted;
+        }
+        return Arrays.binarySearch(sorted, id) >= 0;
+    }
+
+    /**
+     * Query for the ids of items intersecting the envelope
+     *
+     * @param envelope geometry envelope
+     * @return item ids
+     */
+    public long[] query(GeometryEnvelope envelope) {
+        return query(envelope.getMinX(), envelope.getMinY(),
+                envelope.getMaxX(), envelope.getMaxY());
+    }
+
+    /**
+     * Query for the ids of items intersecting the bounds
+     *
+     * @param queryMinX min x
+     * @param queryMinY min y
+     * @param queryMaxX max x
+     * @param queryMaxY max y
+     * @return item ids
+     */
+    public long[] query(double queryMinX, double queryMinY, double queryMaxX,
+                        double queryMaxY) {
+        long[] results = new long[16];
+        int count = 0;
+        if (size > 0) {
+            int[] stack = new int[16];
+            int stackSize = 0;
+            stack[stackSize++] = minX.length - 1;
+            while (stackSize > 0) {
+                int node = stack[--stackSize];
+                if (!intersects(node, queryMinX, queryMinY, queryMaxX, queryMaxY)) {
+                    continue;
+                }
+                if (node < size) {
+                    if (count == results.length) {
+                        results = Arrays.copyOf(results, count * 2);
+                    }
+                    results[count++] = ids[node];
+                } else {
+                    int start = childStart[node - size];
+                    int end = childEnd[node - size];
+                    if (stackSize + end - start > stack.length) {
+                        stack = Arrays.copyOf(stack,
+                                Math.max(stack.length * 2, stackSize + end - start));
+                    }
+                    for (int child = start; child < end; child++) {
+                        stack[stackSize++] = child;
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(results, count);
+    }
+
+    /**
+     * Count the items intersecting the envelope
+     *
+     * @param envelope geometry envelope
+     * @return count
+     */
+    public int count(GeometryEnvelope envelope) {
+        return count(envelope.getMinX(), envelope.getMinY(),
+                envelope.getMaxX(), envelope.getMaxY());
+    }
+
+    /**
+     * Count the items intersecting the bounds
+     *
+     * @param queryMinX min x
+     * @param queryMinY min y
+     * @param queryMaxX max x
+     * @param queryMaxY max y
+     * @return count
+     */
+    public int count(double queryMinX, double queryMinY, double queryMaxX,
+                     double queryMaxY) {
+        int count = 0;
+        if (size > 0) {
+            int[] stack = new int[16];
+            int stackSize = 0;
+            stack[stackSize++] = minX.length - 1;
+            while (stackSize > 0) {
+                int node = stack[--stackSize];
+                if (!intersects(node, queryMinX, queryMinY, queryMaxX, queryMaxY)) {
+                    continue;
+                }
+                if (node < size) {
+                    count++;
+                } else {
+                    int start = childStart[node - size];
+                    int end = childEnd[node - size];
+                    if (stackSize + end - start > stack.length) {
+                        stack = Arrays.copyOf(stack,
+                                Math.max(stack.length * 2, stackSize + end - start));
+                    }
+                    for (int child = start; child < end; child++) {
+                        stack[stackSize++] = child;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Write the tree snapshot to the output stream
+     *
+     * @param outputStream output stream
+     * @throws IOException upon failure to write
+     */
+    public void write(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(outputStream));
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeInt(nodeSize);
+        out.writeInt(size);
+        out.writeInt(minX.length);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(ids[i]);
+        }
+        for (int i = 0; i < minX.length; i++) {
+            out.writeDouble(minX[i]);
+            out.writeDouble(minY[i]);
+            out.writeDouble(maxX[i]);
+            out.writeDouble(maxY[i]);
+        }
+        for (int i = 0; i < childStart.length; i++) {
+            out.writeInt(childStart[i]);
+            out.writeInt(childEnd[i]);
+        }
+        out.flush();
+    }
+
+    /**
+     * Read a tree snapshot from the input stream
+     *
+     * @param inputStream input stream
+     * @return packed R-tree
+     * @throws IOException upon failure to read or an invalid snapshot
+     */
+    public static PackedRTree read(InputStream inputStream) throws IOException {
+
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(inputStream));
+
+        int magic = in.readInt();
+        int version = in.readInt();
+        if (magic != SNAPSHOT_MAGIC || version != SNAPSHOT_VERSION) {
+            throw new IOException("Unsupported packed R-tree snapshot. Version: "
+                    + version);
+        }
+
+        int nodeSize = in.readInt();
+        int size = in.readInt();
+        int numNodes = in.readInt();
+        if (nodeSize < 2 || size < 0 || numNodes < size) {
+            throw new IOException("Invalid packed R-tree snapshot. Node Size: "
+                    + nodeSize + ", Size: " + size + ", Nodes: " + numNodes);
+        }
+
+        long[] ids = new long[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = in.readLong();
+        }
+        double[] minX = new double[numNodes];
+        double[] minY = new double[numNodes];
+        double[] maxX = new double[numNodes];
+        double[] maxY = new double[numNodes];
+        for (int i = 0; i < numNodes; i++) {
+            minX[i] = in.readDouble();
+            minY[i] = in.readDouble();
+            maxX[i] = in.readDouble();
+            maxY[i] = in.readDouble();
+        }
+        int[] childStart = new int[numNodes - size];
+        int[] childEnd = new int[numNodes - size];
+        for (int i = 0; i < childStart.length; i++) {
+            childStart[i] = in.readInt();
+            childEnd[i] = in.readInt();
+        }
+
+        return new PackedRTree(nodeSize, size, ids, minX, minY, maxX, maxY,
+                childStart, childEnd);
+    }
+
+    /**
+     * Determine if the node intersects the bounds
+     *
+     * @param node      node index
+     * @param queryMinX min x
+     * @param queryMinY min y
+     * @param queryMaxX max x
+     * @param queryMaxY max y
+     * @return true if intersects
+     */
+    private boolean intersects(int node, double queryMinX, double queryMinY,
+                               double queryMaxX, double queryMaxY) {
+        return minX[node] <= queryMaxX && maxX[node] >= queryMinX
+                && minY[node] <= queryMaxY && maxY[node] >= queryMinY;
+    }
+
+    /**
+     * Sort the level nodes into Sort-Tile-Recursive order: vertical slices by
+     * center x, each slice ordered by center y
+     *
+     * @param levelStart first node index of the level
+     * @param levelCount number of nodes in the level
+     */
+    private void sortTileRecursive(int levelStart, int levelCount) {
+
+        int[] order = new int[levelCount];
+        double[] keys = new double[levelCount];
+        for (int i = 0; i < levelCount; i++) {
+            int node = levelStart + i;
+            order[i] = node;
+            keys[i] = (minX[node] + maxX[node]) / 2.0;
+        }
+        sort(keys, order, 0, levelCount - 1);
+
+        int leafCount = (levelCount + nodeSize - 1) / nodeSize;
+        int slices = (int) Math.ceil(Math.sqrt(leafCount));
+        int sliceCapacity = nodeSize * slices;
+        for (int sliceStart = 0; sliceStart < levelCount; sliceStart += sliceCapacity) {
+            int sliceEnd = Math.min(sliceStart + sliceCapacity, levelCount);
+            for (int i = sliceStart; i < sliceEnd; i++) {
+                int node = order[i];
+                keys[i] = (minY[node] + maxY[node]) / 2.0;
+            }
+            sort(keys, order, sliceStart, sliceEnd - 1);
+        }
+
+        reorder(levelStart, order);
+    }
+
+    /**
+     * Reorder the level nodes into the provided node order
+     *
+     * @param levelStart first node index of the level
+     * @param order      node indices in the new order
+     */
+    private void reorder(int levelStart, int[] order) {
+        int levelCount = order.length;
+        double[] levelMinX = new double[levelCount];
+        double[] levelMinY = new double[levelCount];
+        double[] levelMaxX = new double[levelCount];
+        double[] levelMaxY = new double[levelCount];
+        for (int i = 0; i < levelCount; i++) {
+            int node = order[i];
+            levelMinX[i] = minX[node];
+            levelMinY[i] = minY[node];
+            levelMaxX[i] = maxX[node];
+            levelMaxY[i] = maxY[node];
+        }
+        System.arraycopy(levelMinX, 0, minX, levelStart, levelCount);
+        System.arraycopy(levelMinY, 0, minY, levelStart, levelCount);
+        System.arraycopy(levelMaxX, 0, maxX, levelStart, levelCount);
+        System.arraycopy(levelMaxY, 0, maxY, levelStart, levelCount);
+
+        if (levelStart < size) {
+            long[] levelIds = new long[levelCount];
+            for (int i = 0; i < levelCount; i++) {
+                levelIds[i] = ids[order[i]];
+            }
+            System.arraycopy(levelIds, 0, ids, levelStart, levelCount);
+        } else {
+            int[] levelChildStart = new int[levelCount];
+            int[] levelChildEnd = new int[levelCount];
+            for (int i = 0; i < levelCount; i++) {
+                levelChildStart[i] = childStart[order[i] - size];
+                levelChildEnd[i] = childEnd[order[i] - size];
+            }
+            System.arraycopy(levelChildStart, 0, childStart, levelStart - size, levelCount);
+            System.arraycopy(levelChildEnd, 0, childEnd, levelStart - size, levelCount);
+        }
+    }
+
+    /**
+     * Quicksort the keys and their node indices in place
+     *
+     * @param keys  sort keys
+     * @param order node indices
+     * @param left  first index
+     * @param right last index, inclusive
+     */
+    private static void sort(double[] keys, int[] order, int left, int right) {
+        while (left < right) {
+            double pivot = keys[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    double key = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = key;
+                    int node = order[i];
+                    order[i] = order[j];
+                    order[j] = node;
+                    i++;
+                    j--;
+                }
+            }
+            // Recurse into the smaller side to bound the stack depth
+            if (j - left < right - i) {
+                sort(keys, order, left, j);
+                left = i;
+            } else {
+                sort(keys, order, i, right);
+                right = j;
+            }
+        }
+    }
+
+}
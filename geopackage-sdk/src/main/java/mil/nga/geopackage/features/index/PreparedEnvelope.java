@@ -0,0 +1,576 @@
+package mil.nga.geopackage.features.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mil.nga.geopackage.features.user.FeatureRow;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.sf.CompoundCurve;
+import mil.nga.sf.Curve;
+import mil.nga.sf.CurvePolygon;
+import mil.nga.sf.Geometry;
+import mil.nga.sf.GeometryCollection;
+import mil.nga.sf.GeometryEnvelope;
+import mil.nga.sf.LineString;
+import mil.nga.sf.Point;
+import mil.nga.sf.PolyhedralSurface;
+
+/**
+ * Prepared Envelope, a rectangular query area prepared for exact spatial
+ * predicate tests against feature geometries. Tests run directly on the
+ * geometry coordinates in the feature projection, using the geometry header
+ * envelope to short circuit when available. Curves are tested by their
+ * control points. Z and M values are ignored.
+ *
+ * Instances are immutable and may be shared across threads.
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public class PreparedEnvelope {
+
+    /**
+     * Min x
+     */
+    private final double minX;
+
+    /**
+     * Min y
+     */
+    private final double minY;
+
+    /**
+     * Max x
+     */
+    private final double maxX;
+
+    /**
+     * Max y
+     */
+    private final double maxY;
+
+    /**
+     * Constructor
+     *
+     * @param envelope query area envelope
+     */
+    public PreparedEnvelope(GeometryEnvelope envelope) {
+        this(envelope.getMinX(), envelope.getMinY(), envelope.getMaxX(),
+                envelope.getMaxY());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param minX min x
+     * @param minY min y
+     * @param maxX max x
+     * @param maxY max y
+     */
+    public PreparedEnvelope(double minX, double minY, double maxX, double maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Get the min x
+     *
+     * @return min x
+     */
+    public double getMinX() {
+        return minX;
+    }
+
+    /**
+     * Get the min y
+     *
+     * @return min y
+     */
+    public double getMinY() {
+        return minY;
+    }
+
+    /**
+     * Get the max x
+     *
+     * @return max x
+     */
+    public double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Get the max y
+     *
+     * @return max y
+     */
+    public double getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Test the feature row geometry against the query area
+     *
+     * @param predicate spatial predicate
+     * @param row       feature row
+     * @return true if the predicate is satisfied, false for null or empty
+     * geometries
+     */
+    public boolean matches(SpatialPredicate predicate, FeatureRow row) {
+        return matches(predicate, row.getGeometry());
+    }
+
+    /**
+     * Test the geometry data against the query area
+     *
+     * @param predicate    spatial predicate
+     * @param geometryData geometry data
+     * @return true if the predicate is satisfied, false for null or empty
+     * geometries
+     */
+    public boolean matches(SpatialPredicate predicate,
+                           GeoPackageGeometryData geometryData) {
+
+        if (geometryData == null || geometryData.isEmpty()
+                || geometryData.getGeometry() == null) {
+            return false;
+        }
+
+        GeometryEnvelope envelope = geometryData.getEnvelope();
+        if (envelope != null) {
+            if (envelope.getMinX() > maxX || envelope.getMaxX() < minX
+                    || envelope.getMinY() > maxY || envelope.getMaxY() < minY) {
+                return false;
+            }
+            boolean envelopeWithin = envelope.getMinX() >= minX
+                    && envelope.getMaxX() <= maxX
+                    && envelope.getMinY() >= minY
+                    && envelope.getMaxY() <= maxY;
+            switch (predicate) {
+                case WITHIN:
+                    return envelopeWithin;
+                case INTERSECTS:
+                    if (envelopeWithin) {
+                        return true;
+                    }
+                    break;
+                case CONTAINS:
+                    if (envelope.getMinX() > minX || envelope.getMaxX() < maxX
+                            || envelope.getMinY() > minY
+                            || envelope.getMaxY() < maxY) {
+                        return false;
+                    }
+                    break;
+                default:
+            }
+        }
+
+        return matches(predicate, geometryData.getGeometry());
+    }
+
+    /**
+     * Test the geometry against the query area
+     *
+     * @param predicate spatial predicate
+     * @param geometry  geometry
+     * @return true if the predicate is satisfied
+     */
+    public boolean matches(SpatialPredicate predicate, Geometry geometry) {
+        boolean matches;
+        switch (predicate) {
+            case INTERSECTS:
+                matches = intersects(geometry);
+                break;
+            case CONTAINS:
+                matches = containedBy(geometry);
+                break;
+            case WITHIN:
+                matches = contains(geometry);
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "Unsupported spatial predicate: " + predicate);
+        }
+        return matches;
+    }
+
+    /**
+     * Determine if the geometry intersects the query area
+     *
+     * @param geometry geometry
+     * @return true if intersects
+     */
+    public boolean intersects(Geometry geometry) {
+        boolean intersects = false;
+        if (geometry instanceof Point) {
+            Point point = (Point) geometry;
+            intersects = containsPoint(point.getX(), point.getY());
+        } else if (geometry instanceof Curve) {
+            intersects = intersectsPath(getPoints((Curve) geometry), false);
+        } else if (geometry instanceof CurvePolygon) {
+            intersects = intersectsPolygon(getRings((CurvePolygon<?>) geometry));
+        } else if (geometry instanceof PolyhedralSurface) {
+            for (CurvePolygon<?> polygon : ((PolyhedralSurface) geometry)
+                    .getPolygons()) {
+                if (intersectsPolygon(getRings(polygon))) {
+                    intersects = true;
+                    break;
+                }
+            }
+        } else if (geometry instanceof GeometryCollection) {
+            for (Geometry child : ((GeometryCollection<?>) geometry)
+                    .getGeometries()) {
+                if (intersects(child)) {
+                    intersects = true;
+                    break;
+                }
+            }
+        }
+        return intersects;
+    }
+
+    /**
+     * Determine if the query area contains the geometry, the geometry is
+     * within the query area
+     *
+     * @param geometry geometry
+     * @return true if the geometry is within
+     */
+    public boolean contains(Geometry geometry) {
+        List<Point> points = new ArrayList<>();
+        addPoints(geometry, points);
+        boolean contains = !points.isEmpty();
+        for (Point point : points) {
+            if (!containsPoint(point.getX(), point.getY())) {
+                contains = false;
+                break;
+            }
+        }
+        return contains;
+    }
+
+    /**
+     * Determine if the query area is contained by the geometry. Collections
+     * contain the query area when a single member contains it.
+     *
+     * @param geometry geometry
+     * @return true if the geometry contains the query area
+     */
+    public boolean containedBy(Geometry geometry) {
+        boolean containedBy = false;
+        if (geometry instanceof Point) {
+            Point point = (Point) geometry;
+            containedBy = minX == maxX && minY == maxY
+                    && point.getX() == minX && point.getY() == minY;
+        } else if (geometry instanceof Curve) {
+            containedBy = minX == maxX && minY == maxY
+                    && intersectsPath(getPoints((Curve) geometry), false);
+        } else if (geometry instanceof CurvePolygon) {
+            containedBy = containedByPolygon(getRings((CurvePolygon<?>) geometry));
+        } else if (geometry instanceof PolyhedralSurface) {
+            for (CurvePolygon<?> polygon : ((PolyhedralSurface) geometry)
+                    .getPolygons()) {
+                if (containedByPolygon(getRings(polygon))) {
+                    containedBy = true;
+                    break;
+                }
+            }
+        } else if (geometry instanceof GeometryCollection) {
+            for (Geometry child : ((GeometryCollection<?>) geometry)
+                    .getGeometries()) {
+                if (containedBy(child)) {
+                    containedBy = true;
+                    break;
+                }
+            }
+        }
+        return containedBy;
+    }
+
+    /**
+     * Determine if the path intersects the query area
+     *
+     * @param points path points
+     * @param closed true to include the closing segment
+     * @return true if intersects
+     */
+    private boolean intersectsPath(List<Point> points, boolean closed) {
+        int count = points.size();
+        if (count == 1) {
+            Point point = points.get(0);
+            return containsPoint(point.getX(), point.getY());
+        }
+        for (int i = closed ? 0 : 1; i < count; i++) {
+            Point from = points.get(i == 0 ? count - 1 : i - 1);
+            Point to = points.get(i);
+            if (clip(from.getX(), from.getY(), to.getX(), to.getY()) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determine if the polygon intersects the query area
+     *
+     * @param rings polygon rings, exterior ring first
+     * @return true if intersects
+     */
+    private boolean intersectsPolygon(List<List<Point>> rings) {
+        if (rings.isEmpty()) {
+            return false;
+        }
+        for (List<Point> ring : rings) {
+            if (intersectsPath(ring, true)) {
+                return true;
+            }
+        }
+        // Without crossing edges, the query area is entirely inside or
+        // outside of the polygon
+        return locate(rings, minX, minY) > 0;
+    }
+
+    /**
+     * Determine if the polygon contains the query area
+     *
+     * @param rings polygon rings, exterior ring first
+     * @return true if contains
+     */
+    private boolean containedByPolygon(List<List<Point>> rings) {
+        if (rings.isEmpty()) {
+            return false;
+        }
+        if (locate(rings, minX, minY) < 0 || locate(rings, minX, maxY) < 0
+                || locate(rings, maxX, minY) < 0
+                || locate(rings, maxX, maxY) < 0) {
+            return false;
+        }
+        for (List<Point> ring : rings) {
+            int count = ring.size();
+            for (int i = 0; i < count; i++) {
+                Point from = ring.get(i == 0 ? count - 1 : i - 1);
+                Point to = ring.get(i);
+                if (crossesInterior(from.getX(), from.getY(), to.getX(),
+                        to.getY())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Locate the point relative to the polygon
+     *
+     * @param rings polygon rings, exterior ring first
+     * @param x     x coordinate
+     * @param y     y coordinate
+     * @return 1 if inside, 0 if on the boundary, -1 if outside
+     */
+    static int locate(List<List<Point>> rings, double x, double y) {
+        int location = locateRing(rings.get(0), x, y);
+        if (location > 0) {
+            for (int i = 1; i < rings.size(); i++) {
+                int holeLocation = locateRing(rings.get(i), x, y);
+                if (holeLocation > 0) {
+                    location = -1;
+                    break;
+                } else if (holeLocation == 0) {
+                    location = 0;
+                    break;
+                }
+            }
+        }
+        return location;
+    }
+
+    /**
+     * Locate the point relative to the ring using the crossing number
+     *
+     * @param ring ring points
+     * @param x    x coordinate
+     * @param y    y coordinate
+     * @return 1 if inside, 0 if on the ring, -1 if outside
+     */
+    private static int locateRing(List<Point> ring, double x, double y) {
+        boolean inside = false;
+        int count = ring.size();
+        for (int i = 0, j = count - 1; i < count; j = i++) {
+            double xi = ring.get(i).getX();
+            double yi = ring.get(i).getY();
+            double xj = ring.get(j).getX();
+            double yj = ring.get(j).getY();
+            if (onSegment(x, y, xj, yj, xi, yi)) {
+                return 0;
+            }
+            if ((yi > y) != (yj > y)) {
+                double crossX = (xj - xi) * (y - yi) / (yj - yi) + xi;
+                if (x < crossX) {
+                    inside = !inside;
+                }
+            }
+        }
+        return inside ? 1 : -1;
+    }
+
+    /**
+     * Determine if the point is on the segment
+     *
+     * @param x  x coordinate
+     * @param y  y coordinate
+     * @param x1 segment start x
+     * @param y1 segment start y
+     * @param x2 segment end x
+     * @param y2 segment end y
+     * @return true if on the segment
+     */
+    private static boolean onSegment(double x, double y, double x1, double y1,
+                                     double x2, double y2) {
+        return (x2 - x1) * (y - y1) - (y2 - y1) * (x - x1) == 0
+                && x >= Math.min(x1, x2) && x <= Math.max(x1, x2)
+                && y >= Math.min(y1, y2) && y <= Math.max(y1, y2);
+    }
+
+    /**
+     * Determine if the point is within the query area, inclusive of the
+     * boundary
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return true if contains
+     */
+    private boolean containsPoint(double x, double y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    /**
+     * Determine if the segment passes through the interior of the query area
+     *
+     * @param x1 segment start x
+     * @param y1 segment start y
+     * @param x2 segment end x
+     * @param y2 segment end y
+     * @return true if crosses the interior
+     */
+    private boolean crossesInterior(double x1, double y1, double x2, double y2) {
+        double[] range = clip(x1, y1, x2, y2);
+        if (range == null) {
+            return false;
+        }
+        // A clipped segment of the convex query area is either on the
+        // boundary or has an interior midpoint
+        double t = (range[0] + range[1]) / 2.0;
+        double x = x1 + t * (x2 - x1);
+        double y = y1 + t * (y2 - y1);
+        return x > minX && x < maxX && y > minY && y < maxY;
+    }
+
+    /**
+     * Clip the segment to the query area using Liang-Barsky clipping
+     *
+     * @param x1 segment start x
+     * @param y1 segment start y
+     * @param x2 segment end x
+     * @param y2 segment end y
+     * @return clipped segment parameter range, null if outside
+     */
+    private double[] clip(double x1, double y1, double x2, double y2) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double[] p = new double[]{-dx, dx, -dy, dy};
+        double[] q = new double[]{x1 - minX, maxX - x1, y1 - minY, maxY - y1};
+        double t0 = 0.0;
+        double t1 = 1.0;
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) {
+                    return null;
+                }
+            } else {
+                double r = q[i] / p[i];
+                if (p[i] < 0) {
+                    if (r > t1) {
+                        return null;
+                    }
+                    t0 = Math.max(t0, r);
+                } else {
+                    if (r < t0) {
+                        return null;
+                    }
+                    t1 = Math.min(t1, r);
+                }
+            }
+        }
+        return new double[]{t0, t1};
+    }
+
+    /**
+     * Get the points of the curve
+     *
+     * @param curve curve
+     * @return points
+     */
+    static List<Point> getPoints(Curve curve) {
+        List<Point> points;
+        if (curve instanceof LineString) {
+            points = ((LineString) curve).getPoints();
+        } else if (curve instanceof CompoundCurve) {
+            points = new ArrayList<>();
+            for (LineString lineString : ((CompoundCurve) curve)
+                    .getLineStrings()) {
+                points.addAll(lineString.getPoints());
+            }
+        } else {
+            points = new ArrayList<>();
+        }
+        return points;
+    }
+
+    /**
+     * Get the ring points of the polygon
+     *
+     * @param polygon polygon
+     * @return rings, exterior ring first
+     */
+    static List<List<Point>> getRings(CurvePolygon<?> polygon) {
+        List<List<Point>> rings = new ArrayList<>();
+        for (Curve ring : polygon.getRings()) {
+            List<Point> points = getPoints(ring);
+            if (!points.isEmpty()) {
+                rings.add(points);
+            }
+        }
+        return rings;
+    }
+
+    /**
+     * Add all points of the geometry
+     *
+     * @param geometry geometry
+     * @param points   points to add to
+     */
+    private static void addPoints(Geometry geometry, List<Point> points) {
+        if (geometry instanceof Point) {
+            points.add((Point) geometry);
+        } else if (geometry instanceof Curve) {
+            points.addAll(getPoints((Curve) geometry));
+        } else if (geometry instanceof CurvePolygon) {
+            for (List<Point> ring : getRings((CurvePolygon<?>) geometry)) {
+                points.addAll(ring);
+            }
+        } else if (geometry instanceof PolyhedralSurface) {
+            for (CurvePolygon<?> polygon : ((PolyhedralSurface) geometry)
+                    .getPolygons()) {
+                addPoints(polygon, points);
+            }
+        } else if (geometry instanceof GeometryCollection) {
+            for (Geometry child : ((GeometryCollection<?>) geometry)
+                    .getGeometries()) {
+                addPoints(child, points);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,276 @@
+package mil.nga.geopackage.features.index;
+
+import java.util.PriorityQueue;
+
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.features.user.FeatureRow;
+
+/**
+ * Best-first k nearest neighbor search over a two dimensional SQLite R-tree,
+ * reading the R-tree node blobs from the "_node" shadow table. Nodes and
+ * entries are visited in order of their minimum bounds distance and entries
+ * are ranked by their exact geometry distance, so only the nodes and
+ * features closer than the k-th nearest feature are read.
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public abstract class RTreeNearestSearch {
+
+    /**
+     * R-tree root node number
+     */
+    public static final long ROOT_NODE = 1;
+
+    /**
+     * Node header bytes, depth and cell count
+     */
+    private static final int NODE_HEADER_SIZE = 4;
+
+    /**
+     * Two dimensional cell bytes, id and four 32 bit float bounds
+     */
+    private static final int CELL_SIZE = 24;
+
+    /**
+     * Candidate level of a leaf entry
+     */
+    private static final int LEVEL_ENTRY = -1;
+
+    /**
+     * Candidate level of a feature with an exact distance
+     */
+    private static final int LEVEL_FEATURE = -2;
+
+    /**
+     * Query x coordinate
+     */
+    private final double x;
+
+    /**
+     * Query y coordinate
+     */
+    private final double y;
+
+    /**
+     * Constructor
+     *
+     * @param x query x coordinate, in the indexed projection
+     * @param y query y coordinate, in the indexed projection
+     */
+    public RTreeNearestSearch(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Read the R-tree node blob
+     *
+     * @param nodeNo node number
+     * @return node data, null if not found
+     */
+    protected abstract byte[] readNode(long nodeNo);
+
+    /**
+     * Read the feature row of a leaf entry id
+     *
+     * @param id leaf entry id
+     * @return feature row, null if the entry is not a feature of the search
+     */
+    protected abstract FeatureRow readFeature(long id);
+
+    /**
+     * Search for the nearest features
+     *
+     * @param k           maximum number of features
+     * @param maxDistance maximum distance, inclusive
+     * @return nearest features, nearest first
+     */
+    public FeatureIndexNearestResults search(int k, double maxDistance) {
+
+        FeatureIndexNearestResults results = new FeatureIndexNearestResults();
+
+        if (k > 0) {
+
+            PriorityQueue<Candidate> queue = new PriorityQueue<>();
+
+            byte[] root = readNode(ROOT_NODE);
+            if (root != null && root.length >= NODE_HEADER_SIZE) {
+                addCells(queue, root, readUnsignedShort(root, 0), maxDistance);
+            }
+
+            while (!queue.isEmpty() && results.count() < k) {
+                Candidate candidate = queue.poll();
+                if (candidate.level == LEVEL_FEATURE) {
+                    results.addRow(candidate.row, candidate.distance);
+                } else if (candidate.level == LEVEL_ENTRY) {
+                    FeatureRow row = readFeature(candidate.id);
+                    if (row != null) {
+                        double distance = GeometryDistance.distance(
+                                row.getGeometry(), x, y);
+                        if (distance <= maxDistance) {
+                            queue.add(new Candidate(distance, row));
+                        }
+                    }
+                } else {
+                    byte[] node = readNode(candidate.id);
+                    if (node != null) {
+                        addCells(queue, node, candidate.level, maxDistance);
+                    }
+                }
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Add the node cells to the queue
+     *
+     * @param queue       candidate queue
+     * @param node        node data
+     * @param level       node level, 0 for leaf nodes
+     * @param maxDistance maximum distance
+     */
+    private void addCells(PriorityQueue<Candidate> queue, byte[] node,
+                          int level, double maxDistance) {
+        int count = readUnsignedShort(node, 2);
+        if (NODE_HEADER_SIZE + count * CELL_SIZE > node.length) {
+            throw new GeoPackageException(
+                    "Invalid R-tree node. Cells: " + count + ", Bytes: "
+                            + node.length);
+        }
+        int offset = NODE_HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            long id = readLong(node, offset);
+            float minX = readFloat(node, offset + 8);
+            float maxX = readFloat(node, offset + 12);
+            float minY = readFloat(node, offset + 16);
+            float maxY = readFloat(node, offset + 20);
+            offset += CELL_SIZE;
+            // Stored bounds are rounded outward, a lower bound distance
+            double distance = GeometryDistance.distance(x, y, minX, minY,
+                    maxX, maxY);
+            if (distance <= maxDistance) {
+                queue.add(new Candidate(distance, id,
+                        level == 0 ? LEVEL_ENTRY : level - 1));
+            }
+        }
+    }
+
+    /**
+     * Read a big endian unsigned short
+     *
+     * @param data   bytes
+     * @param offset byte offset
+     * @return value
+     */
+    private static int readUnsignedShort(byte[] data, int offset) {
+        return ((data[offset] & 0xff) << 8) | (data[offset + 1] & 0xff);
+    }
+
+    /**
+     * Read a big endian int
+     *
+     * @param data   bytes
+     * @param offset byte offset
+     * @return value
+     */
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xff) << 24)
+                | ((data[offset + 1] & 0xff) << 16)
+                | ((data[offset + 2] & 0xff) << 8)
+                | (data[offset + 3] & 0xff);
+    }
+
+    /**
+     * Read a big endian long
+     *
+     * @param data   bytes
+     * @param offset byte offset
+     * @return value
+     */
+    private static long readLong(byte[] data, int offset) {
+        return ((long) readInt(data, offset) << 32)
+                | (readInt(data, offset + 4) & 0xffffffffL);
+    }
+
+    /**
+     * Read a big endian float
+     *
+     * @param data   bytes
+     * @param offset byte offset
+     * @return value
+     */
+    private static float readFloat(byte[] data, int offset) {
+        return Float.intBitsToFloat(readInt(data, offset));
+    }
+
+    /**
+     * Search candidate of a node, leaf entry, or feature
+     */
+    private static class Candidate implements Comparable<Candidate> {
+
+        /**
+         * Minimum distance, exact for features
+         */
+        private final double distance;
+
+        /**
+         * Node number or entry id
+         */
+        private final long id;
+
+        /**
+         * Node level, or the entry or feature level
+         */
+        private final int level;
+
+        /**
+         * Feature row
+         */
+        private final FeatureRow row;
+
+        /**
+         * Node or entry constructor
+         *
+         * @param distance minimum distance
+         * @param id       node number or entry id
+         * @param level    node level or entry level
+         */
+        Candidate(double distance, long id, int level) {
+            this.distance = distance;
+            this.id = id;
+            this.level = level;
+            this.row = null;
+        }
+
+        /**
+         * Feature constructor
+         *
+         * @param distance exact distance
+         * @param row      feature row
+         */
+        Candidate(double distance, FeatureRow row) {
+            this.distance = distance;
+            this.id = row.getId();
+            this.level = LEVEL_FEATURE;
+            this.row = row;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int compareTo(Candidate other) {
+            int compare = Double.compare(distance, other.distance);
+            if (compare == 0) {
+                // Features before entries and nodes at equal distances
+                compare = Integer.compare(level, other.level);
+            }
+            return compare;
+        }
+
+    }
+
+}
@@ -0,0 +1,27 @@
+package mil.nga.geopackage.features.index;
+
+/**
+ * Spatial predicate enumeration of exact geometry tests between a feature
+ * geometry and a query area, refining envelope matched index results
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public enum SpatialPredicate {
+
+    /**
+     * Feature geometry intersects the query area
+     */
+    INTERSECTS,
+
+    /**
+     * Feature geometry contains the query area
+     */
+    CONTAINS,
+
+    /**
+     * Feature geometry is within the query area
+     */
+    WITHIN;
+
+}
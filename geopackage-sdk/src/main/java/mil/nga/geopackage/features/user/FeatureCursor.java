@@ -4,10 +4,12 @@ import android.database.Cursor;
 
 import java.util.List;
 
+import mil.nga.geopackage.GeoPackageException;
 import mil.nga.geopackage.geom.GeoPackageGeometryData;
 import mil.nga.geopackage.user.UserCursor;
 import mil.nga.geopackage.user.UserDao;
 import mil.nga.geopackage.user.UserInvalidCursor;
+import mil.nga.sf.GeometryEnvelope;
 
 /**
  * Feature Cursor to wrap a database cursor for feature queries
@@ -17,6 +19,11 @@ import mil.nga.geopackage.user.UserInvalidCursor;
 public class FeatureCursor extends
         UserCursor<FeatureColumn, FeatureTable, FeatureRow> {
 
+    /**
+     * Envelope reader for geometry envelope reads
+     */
+    private GeometryEnvelopeReader envelopeReader;
+
     /**
      * Constructor
      *
@@ -94,6 +101,73 @@ public class FeatureCursor extends
         return geometry;
     }
 
+    /**
+     * Get the geometry envelope from the geometry header, or scanned from the
+     * geometry coordinates, without building the geometry
+     *
+     * @return geometry envelope or null
+     * @since 4.0.1
+     */
+    public GeometryEnvelope getGeometryEnvelope() {
+        if (envelopeReader == null) {
+            envelopeReader = new GeometryEnvelopeReader();
+        }
+        readGeometryEnvelope(envelopeReader);
+        return envelopeReader.buildEnvelope();
+    }
+
+    /**
+     * Read the geometry envelope from the geometry header, or scanned from the
+     * geometry coordinates, into the envelope reader without building the
+     * geometry. Geometries the reader can not scan are fully read as a
+     * fallback. Rows too large for the cursor window have no envelope and are
+     * recorded as invalid, then read in chunks from the requeried row when
+     * the invalid requery is enabled.
+     *
+     * @param reader geometry envelope reader
+     * @return true if the geometry has an envelope
+     * @since 4.0.1
+     */
+    public boolean readGeometryEnvelope(GeometryEnvelopeReader reader) {
+
+        if (isInvalidRequery()) {
+            // Large geometry blobs are read in chunks into the requeried row
+            GeoPackageGeometryData geometryData = getRow().getGeometry();
+            reader.set(geometryData != null ? geometryData.getOrBuildEnvelope() : null);
+        } else if (!isInvalidRow()) {
+            byte[] geometryBytes = null;
+            int columnIndex = getColumns().getGeometryIndex();
+            if (getType(columnIndex) != FIELD_TYPE_NULL) {
+                geometryBytes = getBlob(columnIndex);
+            }
+            readGeometryEnvelope(reader, geometryBytes);
+        } else {
+            reader.set(null);
+        }
+
+        return reader.hasEnvelope();
+    }
+
+    /**
+     * Read the geometry envelope from the geometry bytes
+     *
+     * @param reader        geometry envelope reader
+     * @param geometryBytes geometry bytes, may be null
+     */
+    private void readGeometryEnvelope(GeometryEnvelopeReader reader, byte[] geometryBytes) {
+        if (geometryBytes == null) {
+            reader.set(null);
+        } else {
+            try {
+                reader.read(geometryBytes);
+            } catch (GeoPackageException e) {
+                GeoPackageGeometryData geometryData = GeoPackageGeometryData
+                        .create(geometryBytes);
+                reader.set(geometryData.getOrBuildEnvelope());
+            }
+        }
+    }
+
     /**
      * Enable requery attempt of invalid rows after iterating through original query rows.
      * Only supported for {@link #moveToNext()} and {@link #getRow()} usage.
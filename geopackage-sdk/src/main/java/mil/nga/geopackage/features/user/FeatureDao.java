@@ -1,10 +1,20 @@
 package mil.nga.geopackage.features.user;
 
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackageException;
 import mil.nga.geopackage.contents.Contents;
+import mil.nga.geopackage.db.CoreSQLUtils;
 import mil.nga.geopackage.db.GeoPackageConnection;
+import mil.nga.geopackage.db.GeoPackageDatabase;
+import mil.nga.geopackage.extension.rtree.RTreeIndexExtension;
 import mil.nga.geopackage.features.columns.GeometryColumns;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
 import mil.nga.geopackage.srs.SpatialReferenceSystem;
 import mil.nga.geopackage.user.UserDao;
 import mil.nga.sf.GeometryType;
@@ -28,6 +38,11 @@ public class FeatureDao extends
      */
     private final GeometryColumns geometryColumns;
 
+    /**
+     * RTree index extension maintained by feature writes, null when not indexed
+     */
+    private RTreeIndexExtension rTreeIndex;
+
     /**
      * Constructor
      *
@@ -64,6 +79,7 @@ public class FeatureDao extends
      */
     public FeatureDao(FeatureDao featureDao) {
         this(featureDao.getDatabase(), featureDao.getDb(), featureDao.getGeometryColumns(), featureDao.getTable());
+        setRTreeIndexExtension(featureDao.rTreeIndex);
     }
 
     /**
@@ -188,4 +204,274 @@ public class FeatureDao extends
         return getTable().getIdAndGeometryColumnNames();
     }
 
+    /**
+     * Get the RTree index extension maintained by feature writes
+     *
+     * @return RTree index extension, null when not maintained
+     * @since 4.0.1
+     */
+    public RTreeIndexExtension getRTreeIndexExtension() {
+        return rTreeIndex;
+    }
+
+    /**
+     * Set the RTree index extension to maintain on feature row inserts,
+     * updates, and deletes in place of the RTree ST_* triggers. The DAO
+     * connection is not changed. When the active connection has the rtree
+     * module (always true for the bindings connection), feature rows and
+     * their index rows are written within one transaction on it, including
+     * any transaction begun by the caller. Otherwise each write outside of a
+     * transaction is made in its own transaction on the bindings connection,
+     * and writes within a transaction on the standard connection fail as the
+     * index rows can not be written within it. Use {@link #setUseBindings(boolean)}
+     * before beginning transactions around maintained feature writes.
+     *
+     * @param rTreeIndex RTree index extension, null to stop maintaining
+     * @since 4.0.1
+     */
+    public void setRTreeIndexExtension(RTreeIndexExtension rTreeIndex) {
+        this.rTreeIndex = rTreeIndex;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long insert(FeatureRow row) {
+        if (rTreeIndex == null) {
+            return super.insert(row);
+        }
+        long id;
+        boolean successful = false;
+        boolean useBindings = beginIndexedWrite();
+        try {
+            id = super.insert(row);
+            rTreeIndex.index(this, id, row.getGeometry());
+            successful = true;
+        } finally {
+            endIndexedWrite(successful, useBindings);
+        }
+        return id;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long insert(ContentValues values) {
+        if (rTreeIndex == null) {
+            return super.insert(values);
+        }
+        long id;
+        boolean successful = false;
+        boolean useBindings = beginIndexedWrite();
+        try {
+            id = super.insert(values);
+            if (id != -1) {
+                rTreeIndex.index(this, id, getGeometryData(values));
+            }
+            successful = true;
+        } finally {
+            endIndexedWrite(successful, useBindings);
+        }
+        return id;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long insertOrThrow(ContentValues values) {
+        if (rTreeIndex == null) {
+            return super.insertOrThrow(values);
+        }
+        long id;
+        boolean successful = false;
+        boolean useBindings = beginIndexedWrite();
+        try {
+            id = super.insertOrThrow(values);
+            rTreeIndex.index(this, id, getGeometryData(values));
+            successful = true;
+        } finally {
+            endIndexedWrite(successful, useBindings);
+        }
+        return id;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int update(FeatureRow row) {
+        if (rTreeIndex == null) {
+            return super.update(row);
+        }
+        int updated;
+        boolean successful = false;
+        boolean useBindings = beginIndexedWrite();
+        try {
+            updated = super.update(row);
+            if (updated > 0) {
+                rTreeIndex.index(this, row.getId(), row.getGeometry());
+            }
+            successful = true;
+        } finally {
+            endIndexedWrite(successful, useBindings);
+        }
+        return updated;
+    }
+
+    /**
+     * {@inheritDoc}
+     * When maintaining an RTree index, updated rows are re-indexed when the
+     * values change the geometry or primary key.
+     */
+    @Override
+    public int update(ContentValues values, String whereClause,
+                      String[] whereArgs) {
+        String idColumn = getIdColumnName();
+        String geometryColumn = getGeometryColumnName();
+        if (rTreeIndex == null || (!values.containsKey(geometryColumn)
+                && !values.containsKey(idColumn))) {
+            return super.update(values, whereClause, whereArgs);
+        }
+        int updated;
+        boolean successful = false;
+        boolean useBindings = beginIndexedWrite();
+        try {
+            // Find the rows before the update may change the where matches
+            List<Long> ids = queryIdsForIndex(whereClause, whereArgs);
+            updated = super.update(values, whereClause, whereArgs);
+            if (updated > 0) {
+                if (values.containsKey(idColumn)) {
+                    for (long id : ids) {
+                        rTreeIndex.deleteIndex(this, id);
+                    }
+                    ids = new ArrayList<>();
+                    ids.add(values.getAsLong(idColumn));
+                }
+                if (values.containsKey(geometryColumn)) {
+                    GeoPackageGeometryData geometryData = getGeometryData(values);
+                    for (long id : ids) {
+                        rTreeIndex.index(this, id, geometryData);
+                    }
+                } else {
+                    for (long id : ids) {
+                        FeatureRow row = queryForIdRow(id);
+                        if (row != null) {
+                            rTreeIndex.index(this, id, row.getGeometry());
+                        }
+                    }
+                }
+            }
+            successful = true;
+        } finally {
+            endIndexedWrite(successful, useBindings);
+        }
+        return updated;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int delete(String whereClause, String[] whereArgs) {
+        if (rTreeIndex == null) {
+            return super.delete(whereClause, whereArgs);
+        }
+        int deleted;
+        boolean successful = false;
+        boolean useBindings = beginIndexedWrite();
+        try {
+            rTreeIndex.deleteIndex(this, whereClause, whereArgs);
+            deleted = super.delete(whereClause, whereArgs);
+            successful = true;
+        } finally {
+            endIndexedWrite(successful, useBindings);
+        }
+        return deleted;
+    }
+
+    /**
+     * Begin a feature write maintaining the RTree index. The write is made on
+     * the DAO connection when it has the rtree module. Otherwise the DAO is
+     * on the standard connection, and the write is made on the bindings
+     * connection when not within a caller transaction.
+     *
+     * @return previous bindings value, restored when the write ends
+     */
+    private boolean beginIndexedWrite() {
+        GeoPackageDatabase db = getDatabaseConnection();
+        boolean useBindings = db.isUseBindings();
+        if (!rTreeIndex.isIndexable(this)) {
+            if (db.inTransaction()) {
+                throw new GeoPackageException(
+                        "RTree index rows can not be written within a transaction on the standard connection. Use the bindings connection for transactions with RTree indexed feature writes. Table: "
+                                + getTableName());
+            }
+            setUseBindings(true);
+        }
+        beginTransaction();
+        return useBindings;
+    }
+
+    /**
+     * End a feature write maintaining the RTree index, restoring the active
+     * connection
+     *
+     * @param successful  true to commit, false to rollback
+     * @param useBindings bindings value to restore
+     */
+    private void endIndexedWrite(boolean successful, boolean useBindings) {
+        try {
+            endTransaction(successful);
+        } finally {
+            setUseBindings(useBindings);
+        }
+    }
+
+    /**
+     * Get the geometry data from the content values
+     *
+     * @param values content values
+     * @return geometry data, null when without a geometry
+     */
+    private GeoPackageGeometryData getGeometryData(ContentValues values) {
+        GeoPackageGeometryData geometryData = null;
+        byte[] geometryBytes = values.getAsByteArray(getGeometryColumnName());
+        if (geometryBytes != null) {
+            geometryData = new GeoPackageGeometryData(geometryBytes);
+        }
+        return geometryData;
+    }
+
+    /**
+     * Query the ids of the features matching the where clause for RTree
+     * index maintenance, on the DAO connection
+     *
+     * @param whereClause where clause, null for all features
+     * @param whereArgs   where arguments
+     * @return feature ids
+     */
+    private List<Long> queryIdsForIndex(String whereClause, String[] whereArgs) {
+        List<Long> ids = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT ");
+        sql.append(CoreSQLUtils.quoteWrap(getIdColumnName()));
+        sql.append(" FROM ");
+        sql.append(CoreSQLUtils.quoteWrap(getTableName()));
+        if (whereClause != null) {
+            sql.append(" WHERE ");
+            sql.append(whereClause);
+        }
+        Cursor cursor = getDatabaseConnection().rawQuery(sql.toString(), whereArgs);
+        try {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
 }
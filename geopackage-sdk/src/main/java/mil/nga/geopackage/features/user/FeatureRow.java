@@ -7,6 +7,7 @@ import java.util.Arrays;
 
 import mil.nga.geopackage.GeoPackageException;
 import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.geopackage.user.UserBlobInputStream;
 import mil.nga.geopackage.user.UserRow;
 import mil.nga.sf.Geometry;
 import mil.nga.sf.GeometryEnvelope;
@@ -193,6 +194,19 @@ public class FeatureRow extends UserRow<FeatureColumn, FeatureTable> {
         setValue(getGeometryColumnIndex(), geometryData);
     }
 
+    /**
+     * Stream the encoded geometry bytes in chunks from the feature table,
+     * without reading the full geometry into memory. The row must include the
+     * id column and may be queried without the geometry column.
+     *
+     * @param featureDao feature DAO
+     * @return geometry bytes input stream, close when done
+     * @since 4.0.1
+     */
+    public UserBlobInputStream getGeometryStream(FeatureDao featureDao) {
+        return featureDao.readBlob(getGeometryColumnName(), getId());
+    }
+
     /**
      * Get the simple features geometry value
      *
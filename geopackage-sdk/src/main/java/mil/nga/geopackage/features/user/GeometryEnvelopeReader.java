@@ -0,0 +1,571 @@
+package mil.nga.geopackage.features.user;
+
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.sf.GeometryEnvelope;
+
+/**
+ * Geometry Envelope Reader, reads the envelope of GeoPackage geometry bytes
+ * without building the geometry. The envelope is taken from the geometry
+ * header when present, otherwise the coordinates are scanned directly from
+ * the well-known binary. A reader instance is reusable across geometries and
+ * does not allocate while reading.
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public class GeometryEnvelopeReader {
+
+    /**
+     * Byte offset of the header envelope, after the magic number, version,
+     * flags and srs id
+     */
+    private static final int HEADER_ENVELOPE_OFFSET = 8;
+
+    /**
+     * Extended well-known binary Z flag
+     */
+    private static final long EWKB_Z_FLAG = 0x80000000L;
+
+    /**
+     * Extended well-known binary M flag
+     */
+    private static final long EWKB_M_FLAG = 0x40000000L;
+
+    /**
+     * Extended well-known binary SRID flag
+     */
+    private static final long EWKB_SRID_FLAG = 0x20000000L;
+
+    /**
+     * Extended well-known binary flags mask
+     */
+    private static final long EWKB_FLAGS = EWKB_Z_FLAG | EWKB_M_FLAG
+            | EWKB_SRID_FLAG;
+
+    /**
+     * Geometry type codes
+     */
+    private static final int POINT = 1;
+    private static final int LINESTRING = 2;
+    private static final int POLYGON = 3;
+    private static final int MULTIPOINT = 4;
+    private static final int MULTILINESTRING = 5;
+    private static final int MULTIPOLYGON = 6;
+    private static final int GEOMETRYCOLLECTION = 7;
+    private static final int CIRCULARSTRING = 8;
+    private static final int COMPOUNDCURVE = 9;
+    private static final int CURVEPOLYGON = 10;
+    private static final int MULTICURVE = 11;
+    private static final int MULTISURFACE = 12;
+    private static final int POLYHEDRALSURFACE = 15;
+    private static final int TIN = 16;
+    private static final int TRIANGLE = 17;
+
+    /**
+     * True when an envelope was read
+     */
+    private boolean hasEnvelope;
+
+    /**
+     * True when the envelope has z values
+     */
+    private boolean hasZ;
+
+    /**
+     * True when the envelope has m values
+     */
+    private boolean hasM;
+
+    /**
+     * Envelope bounds
+     */
+    private double minX;
+    private double maxX;
+    private double minY;
+    private double maxY;
+    private double minZ;
+    private double maxZ;
+    private double minM;
+    private double maxM;
+
+    /**
+     * Constructor
+     */
+    public GeometryEnvelopeReader() {
+        reset();
+    }
+
+    /**
+     * Read the envelope from GeoPackage geometry bytes
+     *
+     * @param bytes GeoPackage geometry bytes
+     * @return true if the geometry has an envelope, false if empty
+     */
+    public boolean read(byte[] bytes) {
+
+        reset();
+
+        if (bytes.length < HEADER_ENVELOPE_OFFSET || bytes[0] != 'G'
+                || bytes[1] != 'P') {
+            throw new GeoPackageException(
+                    "Unexpected GeoPackage Geometry magic number");
+        }
+
+        int flags = bytes[3];
+        boolean littleEndian = (flags & 0x01) == 1;
+        int envelopeIndicator = (flags >> 1) & 0x07;
+        boolean empty = ((flags >> 4) & 0x01) == 1;
+
+        // Empty geometries have no envelope
+        if (empty) {
+            return false;
+        }
+
+        try {
+            int offset = HEADER_ENVELOPE_OFFSET;
+            switch (envelopeIndicator) {
+                case 0:
+                    readGeometry(bytes, offset);
+                    break;
+                case 1:
+                case 2:
+                case 3:
+                case 4:
+                    minX = readDouble(bytes, offset, littleEndian);
+                    maxX = readDouble(bytes, offset + 8, littleEndian);
+                    minY = readDouble(bytes, offset + 16, littleEndian);
+                    maxY = readDouble(bytes, offset + 24, littleEndian);
+                    offset += 32;
+                    if (envelopeIndicator == 2 || envelopeIndicator == 4) {
+                        hasZ = true;
+                        minZ = readDouble(bytes, offset, littleEndian);
+                        maxZ = readDouble(bytes, offset + 8, littleEndian);
+                        offset += 16;
+                    }
+                    if (envelopeIndicator == 3 || envelopeIndicator == 4) {
+                        hasM = true;
+                        minM = readDouble(bytes, offset, littleEndian);
+                        maxM = readDouble(bytes, offset + 8, littleEndian);
+                    }
+                    hasEnvelope = true;
+                    break;
+                default:
+                    throw new GeoPackageException(
+                            "Unexpected GeoPackage Geometry envelope contents indicator: "
+                                    + envelopeIndicator);
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            reset();
+            throw new GeoPackageException(
+                    "Unexpected end of GeoPackage Geometry bytes", e);
+        }
+
+        return hasEnvelope;
+    }
+
+    /**
+     * Set the envelope values, used when an envelope was determined by other
+     * means
+     *
+     * @param envelope envelope, null for no envelope
+     */
+    public void set(GeometryEnvelope envelope) {
+        reset();
+        if (envelope != null) {
+            hasEnvelope = true;
+            minX = envelope.getMinX();
+            maxX = envelope.getMaxX();
+            minY = envelope.getMinY();
+            maxY = envelope.getMaxY();
+            if (envelope.hasZ()) {
+                hasZ = true;
+                minZ = envelope.getMinZ();
+                maxZ = envelope.getMaxZ();
+            }
+            if (envelope.hasM()) {
+                hasM = true;
+                minM = envelope.getMinM();
+                maxM = envelope.getMaxM();
+            }
+        }
+    }
+
+    /**
+     * Build a geometry envelope from the last read values
+     *
+     * @return envelope or null
+     */
+    public GeometryEnvelope buildEnvelope() {
+        GeometryEnvelope envelope = null;
+        if (hasEnvelope) {
+            envelope = new GeometryEnvelope(hasZ, hasM);
+            envelope.setMinX(minX);
+            envelope.setMaxX(maxX);
+            envelope.setMinY(minY);
+            envelope.setMaxY(maxY);
+            if (hasZ) {
+                envelope.setMinZ(minZ);
+                envelope.setMaxZ(maxZ);
+            }
+            if (hasM) {
+                envelope.setMinM(minM);
+                envelope.setMaxM(maxM);
+            }
+        }
+        return envelope;
+    }
+
+    /**
+     * Read the envelope from GeoPackage geometry bytes
+     *
+     * @param bytes GeoPackage geometry bytes
+     * @return envelope or null
+     */
+    public static GeometryEnvelope readEnvelope(byte[] bytes) {
+        GeometryEnvelopeReader reader = new GeometryEnvelopeReader();
+        reader.read(bytes);
+        return reader.buildEnvelope();
+    }
+
+    /**
+     * Determine if the last read found an envelope
+     *
+     * @return true if an envelope
+     */
+    public boolean hasEnvelope() {
+        return hasEnvelope;
+    }
+
+    /**
+     * Determine if the last read envelope has z values
+     *
+     * @return true if z values
+     */
+    public boolean hasZ() {
+        return hasZ;
+    }
+
+    /**
+     * Determine if the last read envelope has m values
+     *
+     * @return true if m values
+     */
+    public boolean hasM() {
+        return hasM;
+    }
+
+    /**
+     * Get the min x
+     *
+     * @return min x
+     */
+    public double getMinX() {
+        return minX;
+    }
+
+    /**
+     * Get the max x
+     *
+     * @return max x
+     */
+    public double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Get the min y
+     *
+     * @return min y
+     */
+    public double getMinY() {
+        return minY;
+    }
+
+    /**
+     * Get the max y
+     *
+     * @return max y
+     */
+    public double getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Get the min z
+     *
+     * @return min z
+     */
+    public double getMinZ() {
+        return minZ;
+    }
+
+    /**
+     * Get the max z
+     *
+     * @return max z
+     */
+    public double getMaxZ() {
+        return maxZ;
+    }
+
+    /**
+     * Get the min m
+     *
+     * @return min m
+     */
+    public double getMinM() {
+        return minM;
+    }
+
+    /**
+     * Get the max m
+     *
+     * @return max m
+     */
+    public double getMaxM() {
+        return maxM;
+    }
+
+    /**
+     * Determine if the last read envelope intersects the bounds
+     *
+     * @param minX min x
+     * @param minY min y
+     * @param maxX max x
+     * @param maxY max y
+     * @return true if intersects
+     */
+    public boolean intersects(double minX, double minY, double maxX,
+                              double maxY) {
+        return hasEnvelope && Math.max(minX, this.minX) <= Math.min(maxX, this.maxX)
+                && Math.max(minY, this.minY) <= Math.min(maxY, this.maxY);
+    }
+
+    /**
+     * Reset the read values
+     */
+    private void reset() {
+        hasEnvelope = false;
+        hasZ = false;
+        hasM = false;
+        minX = Double.POSITIVE_INFINITY;
+        maxX = Double.NEGATIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+        maxY = Double.NEGATIVE_INFINITY;
+        minZ = Double.POSITIVE_INFINITY;
+        maxZ = Double.NEGATIVE_INFINITY;
+        minM = Double.POSITIVE_INFINITY;
+        maxM = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Scan a well-known binary geometry, expanding the envelope by its
+     * coordinates
+     *
+     * @param bytes  bytes
+     * @param offset geometry offset
+     * @return offset after the geometry
+     */
+    private int readGeometry(byte[] bytes, int offset) {
+
+        boolean littleEndian = bytes[offset] == 1;
+        offset++;
+
+        long typeCode = readInt(bytes, offset, littleEndian) & 0xFFFFFFFFL;
+        offset += 4;
+
+        boolean z = (typeCode & EWKB_Z_FLAG) != 0;
+        boolean m = (typeCode & EWKB_M_FLAG) != 0;
+        if ((typeCode & EWKB_SRID_FLAG) != 0) {
+            offset += 4;
+        }
+        typeCode &= ~EWKB_FLAGS;
+
+        switch ((int) (typeCode / 1000)) {
+            case 0:
+                break;
+            case 1:
+                z = true;
+                break;
+            case 2:
+                m = true;
+                break;
+            case 3:
+                z = true;
+                m = true;
+                break;
+            default:
+                throw new GeoPackageException(
+                        "Unsupported geometry type code: " + typeCode);
+        }
+
+        int geometryType = (int) (typeCode % 1000);
+        switch (geometryType) {
+            case POINT:
+                offset = readCoordinates(bytes, offset, littleEndian, 1, z, m);
+                break;
+            case LINESTRING:
+            case CIRCULARSTRING:
+                offset = readCoordinates(bytes, offset + 4, littleEndian,
+                        readCount(bytes, offset, littleEndian), z, m);
+                break;
+            case POLYGON:
+            case TRIANGLE:
+                int rings = readCount(bytes, offset, littleEndian);
+                offset += 4;
+                for (int i = 0; i < rings; i++) {
+                    offset = readCoordinates(bytes, offset + 4, littleEndian,
+                            readCount(bytes, offset, littleEndian), z, m);
+                }
+                break;
+            case MULTIPOINT:
+            case MULTILINESTRING:
+            case MULTIPOLYGON:
+            case GEOMETRYCOLLECTION:
+            case COMPOUNDCURVE:
+            case CURVEPOLYGON:
+            case MULTICURVE:
+            case MULTISURFACE:
+            case POLYHEDRALSURFACE:
+            case TIN:
+                int geometries = readCount(bytes, offset, littleEndian);
+                offset += 4;
+                for (int i = 0; i < geometries; i++) {
+                    offset = readGeometry(bytes, offset);
+                }
+                break;
+            default:
+                throw new GeoPackageException(
+                        "Unsupported geometry type code: " + typeCode);
+        }
+
+        return offset;
+    }
+
+    /**
+     * Read coordinates, expanding the envelope
+     *
+     * @param bytes        bytes
+     * @param offset       coordinates offset
+     * @param littleEndian little endian byte order
+     * @param count        number of coordinates
+     * @param z            coordinates have z values
+     * @param m            coordinates have m values
+     * @return offset after the coordinates
+     */
+    private int readCoordinates(byte[] bytes, int offset, boolean littleEndian,
+                                int count, boolean z, boolean m) {
+
+        int dimensions = 2 + (z ? 1 : 0) + (m ? 1 : 0);
+        if ((long) count * dimensions * 8 > bytes.length - offset) {
+            throw new GeoPackageException(
+                    "Unexpected end of GeoPackage Geometry bytes. Coordinates: "
+                            + count);
+        }
+
+        for (int i = 0; i < count; i++) {
+
+            double x = readDouble(bytes, offset, littleEndian);
+            double y = readDouble(bytes, offset + 8, littleEndian);
+            offset += 16;
+
+            // Empty points are encoded with NaN coordinates
+            if (Double.isNaN(x) || Double.isNaN(y)) {
+                offset += (dimensions - 2) * 8;
+                continue;
+            }
+
+            hasEnvelope = true;
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+
+            if (z) {
+                hasZ = true;
+                double zValue = readDouble(bytes, offset, littleEndian);
+                offset += 8;
+                if (!Double.isNaN(zValue)) {
+                    minZ = Math.min(minZ, zValue);
+                    maxZ = Math.max(maxZ, zValue);
+                }
+            }
+
+            if (m) {
+                hasM = true;
+                double mValue = readDouble(bytes, offset, littleEndian);
+                offset += 8;
+                if (!Double.isNaN(mValue)) {
+                    minM = Math.min(minM, mValue);
+                    maxM = Math.max(maxM, mValue);
+                }
+            }
+        }
+
+        return offset;
+    }
+
+    /**
+     * Read a non negative count
+     *
+     * @param bytes        bytes
+     * @param offset       offset
+     * @param littleEndian little endian byte order
+     * @return count
+     */
+    private static int readCount(byte[] bytes, int offset, boolean littleEndian) {
+        int count = readInt(bytes, offset, littleEndian);
+        if (count < 0) {
+            throw new GeoPackageException(
+                    "Invalid GeoPackage Geometry count: " + (count & 0xFFFFFFFFL));
+        }
+        return count;
+    }
+
+    /**
+     * Read a 4 byte integer
+     *
+     * @param bytes        bytes
+     * @param offset       offset
+     * @param littleEndian little endian byte order
+     * @return integer
+     */
+    private static int readInt(byte[] bytes, int offset, boolean littleEndian) {
+        int value;
+        if (littleEndian) {
+            value = (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8
+                    | (bytes[offset + 2] & 0xFF) << 16
+                    | (bytes[offset + 3] & 0xFF) << 24;
+        } else {
+            value = (bytes[offset] & 0xFF) << 24
+                    | (bytes[offset + 1] & 0xFF) << 16
+                    | (bytes[offset + 2] & 0xFF) << 8
+                    | (bytes[offset + 3] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Read an 8 byte double
+     *
+     * @param bytes        bytes
+     * @param offset       offset
+     * @param littleEndian little endian byte order
+     * @return double
+     */
+    private static double readDouble(byte[] bytes, int offset,
+                                     boolean littleEndian) {
+        long value = 0;
+        if (littleEndian) {
+            for (int i = 7; i >= 0; i--) {
+                value = (value << 8) | (bytes[offset + i] & 0xFF);
+            }
+        } else {
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (bytes[offset + i] & 0xFF);
+            }
+        }
+        return Double.longBitsToDouble(value);
+    }
+
+}
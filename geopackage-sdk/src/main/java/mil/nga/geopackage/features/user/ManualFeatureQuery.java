@@ -1,12 +1,30 @@
 package mil.nga.geopackage.features.user;
 
+import android.database.Cursor;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import mil.nga.geopackage.BoundingBox;
+import mil.nga.geopackage.GeoPackageException;
 import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.db.GeoPackageDatabase;
 import mil.nga.geopackage.features.index.FeatureIndexManager;
+import mil.nga.geopackage.features.index.FeatureIndexNearestResults;
+import mil.nga.geopackage.features.index.GeometryDistance;
+import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.geopackage.proj.ProjectionTransformCache;
 import mil.nga.sf.GeometryEnvelope;
 import mil.nga.sf.proj.Projection;
 import mil.nga.sf.proj.ProjectionTransform;
@@ -20,6 +38,19 @@ import mil.nga.sf.proj.ProjectionTransform;
  */
 public class ManualFeatureQuery {
 
+    /**
+     * Number of primary key ranges scanned per query thread, balancing uneven
+     * feature id distributions across the workers
+     */
+    private static final int RANGES_PER_THREAD = 4;
+
+    /**
+     * Scan thread pool shared by all queries, created on first parallel scan.
+     * Idle daemon threads are reused across queries and released after
+     * their keep alive time.
+     */
+    private static ExecutorService scanExecutor;
+
     /**
      * Feature DAO
      */
@@ -35,6 +66,11 @@ public class ManualFeatureQuery {
      */
     protected double tolerance = .00000000000001;
 
+    /**
+     * Number of threads scanning primary key ranges
+     */
+    private int queryThreads = 1;
+
     /**
      * Constructor
      *
@@ -89,6 +125,38 @@ public class ManualFeatureQuery {
         this.tolerance = tolerance;
     }
 
+    /**
+     * Get the number of threads used to scan features in bounding box queries
+     * and bounding box builds
+     *
+     * @return query threads, 1 when scanning on the calling thread
+     * @since 4.0.1
+     */
+    public int getQueryThreads() {
+        return queryThreads;
+    }
+
+    /**
+     * Set the number of threads used to scan features in bounding box queries
+     * and bounding box builds, such as one thread per available processor.
+     * When greater than 1, the table is partitioned into primary key ranges
+     * scanned by up to this many workers on a thread pool shared by all
+     * queries. Worker threads share the GeoPackage
+     * connection, which pools separate read connections only when write-ahead
+     * logging is enabled. Otherwise reads on the shared connection are
+     * serialized and the scan runs on the calling thread.
+     *
+     * @param queryThreads query threads, 1 to scan on the calling thread
+     * @since 4.0.1
+     */
+    public void setQueryThreads(int queryThreads) {
+        if (queryThreads < 1) {
+            throw new GeoPackageException(
+                    "Query threads must be at least 1: " + queryThreads);
+        }
+        this.queryThreads = queryThreads;
+    }
+
     /**
      * Query for features
      *
@@ -457,41 +525,31 @@ public class ManualFeatureQuery {
      */
     public BoundingBox getBoundingBox() {
 
-        GeometryEnvelope envelope = null;
-
-        long offset = 0;
-        boolean hasResults = true;
-
-        String[] columns = new String[]{featureDao.getGeometryColumnName()};
-
-        while (hasResults) {
-
-            hasResults = false;
-
-            FeatureCursor featureCursor = featureDao.queryForChunk(columns,
-                    chunkLimit, offset);
-            try {
-                while (featureCursor.moveToNext()) {
-                    hasResults = true;
-
-                    FeatureRow featureRow = featureCursor.getRow();
-                    GeometryEnvelope featureEnvelope = featureRow
-                            .getGeometryEnvelope();
-                    if (featureEnvelope != null) {
-
-                        if (envelope == null) {
-                            envelope = featureEnvelope;
-                        } else {
-                            envelope = envelope.union(featureEnvelope);
-                        }
+        List<EnvelopeScan> scans = new ArrayList<>();
+        int threads = getScanThreads();
+        if (threads > 1) {
+            for (long[] range : getIdRanges(threads)) {
+                scans.add(new EnvelopeScan(range));
+            }
+            scanParallel(threads, false, null, null, scans);
+        } else {
+            EnvelopeScan scan = new EnvelopeScan(null);
+            scan.scan(featureDao, chunkLimit, false, null, null);
+            scans.add(scan);
+        }
 
-                    }
+        GeometryEnvelope envelope = null;
+        for (EnvelopeScan scan : scans) {
+            if (scan.envelope != null) {
+                if (envelope == null) {
+                    envelope = scan.envelope;
+                } else {
+                    envelope.setMinX(Math.min(envelope.getMinX(), scan.envelope.getMinX()));
+                    envelope.setMinY(Math.min(envelope.getMinY(), scan.envelope.getMinY()));
+                    envelope.setMaxX(Math.max(envelope.getMaxX(), scan.envelope.getMaxX()));
+                    envelope.setMaxY(Math.max(envelope.getMaxY(), scan.envelope.getMaxY()));
                 }
-            } finally {
-                featureCursor.close();
             }
-
-            offset += chunkLimit;
         }
 
         BoundingBox boundingBox = null;
@@ -511,8 +569,8 @@ public class ManualFeatureQuery {
     public BoundingBox getBoundingBox(Projection projection) {
         BoundingBox boundingBox = getBoundingBox();
         if (boundingBox != null && projection != null) {
-            ProjectionTransform projectionTransform = featureDao
-                    .getProjection().getTransformation(projection);
+            ProjectionTransform projectionTransform = ProjectionTransformCache
+                    .getTransformation(featureDao.getProjection(), projection);
             boundingBox = boundingBox.transform(projectionTransform);
         }
         return boundingBox;
@@ -1736,49 +1794,28 @@ public class ManualFeatureQuery {
                                            double minX, double minY, double maxX, double maxY, String where,
                                            String[] whereArgs) {
 
-        List<Long> featureIds = new ArrayList<>();
-
-        long offset = 0;
-        boolean hasResults = true;
-
         minX -= tolerance;
         maxX += tolerance;
         minY -= tolerance;
         maxY += tolerance;
 
-        String[] queryColumns = featureDao.getIdAndGeometryColumnNames();
-
-        while (hasResults) {
-
-            hasResults = false;
-
-            FeatureCursor featureCursor = featureDao.queryForChunk(distinct, queryColumns,
-                    where, whereArgs, chunkLimit, offset);
-            try {
-                while (featureCursor.moveToNext()) {
-                    hasResults = true;
-
-                    FeatureRow featureRow = featureCursor.getRow();
-                    GeometryEnvelope envelope = featureRow
-                            .getGeometryEnvelope();
-                    if (envelope != null) {
-
-                        double minXMax = Math.max(minX, envelope.getMinX());
-                        double maxXMin = Math.min(maxX, envelope.getMaxX());
-                        double minYMax = Math.max(minY, envelope.getMinY());
-                        double maxYMin = Math.min(maxY, envelope.getMaxY());
-
-                        if (minXMax <= maxXMin && minYMax <= maxYMin) {
-                            featureIds.add(featureRow.getId());
-                        }
-
-                    }
-                }
-            } finally {
-                featureCursor.close();
+        List<IdScan> scans = new ArrayList<>();
+        int threads = getScanThreads();
+        if (threads > 1) {
+            for (long[] range : getIdRanges(threads)) {
+                scans.add(new IdScan(range, minX, minY, maxX, maxY));
             }
+            scanParallel(threads, distinct, where, whereArgs, scans);
+        } else {
+            IdScan scan = new IdScan(null, minX, minY, maxX, maxY);
+            scan.scan(featureDao, chunkLimit, distinct, where, whereArgs);
+            scans.add(scan);
+        }
 
-            offset += chunkLimit;
+        // Ranges are ascending, merging keeps the sequential id order
+        List<Long> featureIds = new ArrayList<>();
+        for (IdScan scan : scans) {
+            featureIds.addAll(scan.featureIds);
         }
 
         ManualFeatureQueryResults results = new ManualFeatureQueryResults(
@@ -1804,4 +1841,505 @@ public class ManualFeatureQuery {
         return query(minX, minY, maxX, maxY, where, whereArgs).count();
     }
 
+    /**
+     * Manually query for the k nearest features to the point with a chunked
+     * scan of the feature table. Geometry envelopes are read first so only
+     * features with an envelope closer than the current k-th nearest feature
+     * are parsed for an exact distance.
+     *
+     * @param x           x coordinate, in the feature projection
+     * @param y           y coordinate, in the feature projection
+     * @param k           maximum number of features
+     * @param maxDistance maximum distance, in the feature projection units
+     * @return nearest feature results, nearest first
+     * @since 4.0.1
+     */
+    public FeatureIndexNearestResults nearest(double x, double y, int k,
+                                              double maxDistance) {
+
+        // Max heap of the nearest features found so far
+        PriorityQueue<NearestCandidate> nearest = new PriorityQueue<>();
+
+        if (k > 0) {
+
+            long lastId = Long.MIN_VALUE;
+            boolean hasResults = true;
+
+            String[] queryColumns = featureDao.getIdAndGeometryColumnNames();
+            GeometryEnvelopeReader envelopeReader = new GeometryEnvelopeReader();
+
+            while (hasResults) {
+
+                hasResults = false;
+
+                FeatureCursor featureCursor = featureDao.queryForChunkAfterId(
+                        queryColumns, lastId, chunkLimit);
+                try {
+                    while (featureCursor.moveToNext()) {
+
+                        if (featureCursor.isInvalidRow()) {
+                            // Read from the invalid row requery
+                            continue;
+                        }
+
+                        long id;
+                        boolean hasEnvelope;
+                        try {
+                            id = featureCursor.getId();
+                            hasEnvelope = featureCursor
+                                    .readGeometryEnvelope(envelopeReader);
+                        } catch (Exception e) {
+                            continue;
+                        }
+                        if (id > lastId) {
+                            lastId = id;
+                            hasResults = true;
+                        }
+
+                        if (!hasEnvelope) {
+                            continue;
+                        }
+
+                        double limit = maxDistance;
+                        if (nearest.size() == k) {
+                            limit = Math.min(limit, nearest.peek().distance);
+                        }
+
+                        double envelopeDistance = GeometryDistance.distance(x,
+                                y, envelopeReader.getMinX(),
+                                envelopeReader.getMinY(),
+                                envelopeReader.getMaxX(),
+                                envelopeReader.getMaxY());
+                        if (envelopeDistance > limit) {
+                            continue;
+                        }
+
+                        GeoPackageGeometryData geometryData;
+                        try {
+                            geometryData = featureCursor.getGeometry();
+                        } catch (Exception e) {
+                            continue;
+                        }
+                        double distance = GeometryDistance.distance(
+                                geometryData, x, y);
+                        if (distance <= maxDistance
+                                && (nearest.size() < k || distance < limit)) {
+                            nearest.add(new NearestCandidate(id, distance));
+                            if (nearest.size() > k) {
+                                nearest.poll();
+                            }
+                        }
+                    }
+                } finally {
+                    featureCursor.close();
+                }
+            }
+        }
+
+        List<NearestCandidate> candidates = new ArrayList<>(nearest);
+        Collections.sort(candidates, Collections.reverseOrder());
+
+        FeatureIndexNearestResults results = new FeatureIndexNearestResults();
+        for (NearestCandidate candidate : candidates) {
+            FeatureRow row = featureDao.queryForIdRow(candidate.id);
+            if (row != null) {
+                results.addRow(row, candidate.distance);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Get the number of threads to scan on, falling back to the calling
+     * thread when the connection can not read on parallel threads
+     *
+     * @return scan threads
+     */
+    private int getScanThreads() {
+        int threads = queryThreads;
+        if (threads > 1) {
+            GeoPackageDatabase db = featureDao.getDatabaseConnection();
+            boolean writeAheadLogging;
+            if (db.isUseBindings()) {
+                writeAheadLogging = db.getBindingsDb().isWriteAheadLoggingEnabled();
+            } else {
+                writeAheadLogging = db.getDb().isWriteAheadLoggingEnabled();
+            }
+            if (!writeAheadLogging) {
+                threads = 1;
+            }
+        }
+        return threads;
+    }
+
+    /**
+     * Split the feature primary key values into contiguous ranges for the
+     * scan threads
+     *
+     * @param threads scan threads
+     * @return inclusive minimum and maximum id ranges
+     */
+    private List<long[]> getIdRanges(int threads) {
+
+        List<long[]> ranges = new ArrayList<>();
+
+        int maxRanges = threads * RANGES_PER_THREAD;
+
+        String pkColumn = CoreSQLUtils.quoteWrap(featureDao.getIdColumnName());
+        String sql = "SELECT MIN(" + pkColumn + "), MAX(" + pkColumn
+                + ") FROM " + CoreSQLUtils.quoteWrap(featureDao.getTableName());
+        Cursor cursor = featureDao.getDb().rawQuery(sql, null);
+        try {
+            if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                long minId = cursor.getLong(0);
+                long maxId = cursor.getLong(1);
+                long rangeSize = Math.max(1, (maxId - minId) / maxRanges + 1);
+                for (long start = minId; start <= maxId; start += rangeSize) {
+                    long end = maxId - start < rangeSize ? maxId : start
+                            + rangeSize - 1;
+                    ranges.add(new long[]{start, end});
+                    if (end == maxId) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        return ranges;
+    }
+
+    /**
+     * Get the scan thread pool shared by all queries
+     *
+     * @return scan executor
+     */
+    private static synchronized ExecutorService getScanExecutor() {
+        if (scanExecutor == null) {
+            scanExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable,
+                            ManualFeatureQuery.class.getSimpleName() + " Scan");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return scanExecutor;
+    }
+
+    /**
+     * Scan the primary key ranges on the shared scan thread pool, with up to
+     * the scan threads number of workers each taking ranges until none
+     * remain. Each worker uses a feature DAO copy. The copies share the
+     * GeoPackage connection, which provides each thread a pooled read
+     * connection in write-ahead logging mode.
+     *
+     * @param threads   scan threads
+     * @param distinct  distinct rows
+     * @param where     where clause
+     * @param whereArgs where args
+     * @param scans     range scans
+     */
+    private void scanParallel(int threads, final boolean distinct, final String where,
+                              final String[] whereArgs, List<? extends RangeScan> scans) {
+
+        final Queue<RangeScan> pending = new ConcurrentLinkedQueue<>(scans);
+        final AtomicBoolean active = new AtomicBoolean(true);
+
+        ExecutorService executor = getScanExecutor();
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+
+            int workers = Math.min(threads, scans.size());
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        FeatureDao dao = featureDao.copy();
+                        RangeScan scan;
+                        while (active.get() && (scan = pending.poll()) != null) {
+                            try {
+                                scan.scan(dao, chunkLimit, distinct, where,
+                                        whereArgs);
+                            } catch (RuntimeException e) {
+                                active.set(false);
+                                throw e;
+                            }
+                        }
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeoPackageException(
+                    "Interrupted while scanning features. Table: "
+                            + featureDao.getTableName(), e);
+        } catch (ExecutionException e) {
+            throw new GeoPackageException(
+                    "Failed to scan features. Table: "
+                            + featureDao.getTableName(), e.getCause());
+        } finally {
+            // Stop remaining workers without shutting down the shared pool
+            active.set(false);
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Chunked scan of feature geometry envelopes, over the full table or an
+     * inclusive primary key range
+     */
+    private static abstract class RangeScan {
+
+        /**
+         * Inclusive minimum and maximum id range, null for all rows
+         */
+        private final long[] range;
+
+        /**
+         * Constructor
+         *
+         * @param range inclusive id range, null for all rows
+         */
+        RangeScan(long[] range) {
+            this.range = range;
+        }
+
+        /**
+         * Scan the features
+         *
+         * @param dao        feature DAO
+         * @param chunkLimit chunk limit
+         * @param distinct   distinct rows
+         * @param where      where clause
+         * @param whereArgs  where args
+         */
+        void scan(FeatureDao dao, int chunkLimit, boolean distinct,
+                  String where, String[] whereArgs) {
+
+            long lastId = Long.MIN_VALUE;
+            String scanWhere = where;
+            String[] scanWhereArgs = whereArgs;
+            if (range != null) {
+                lastId = range[0] - 1;
+                StringBuilder rangeWhere = new StringBuilder();
+                if (where != null) {
+                    rangeWhere.append("(").append(where).append(") AND ");
+                }
+                rangeWhere.append(CoreSQLUtils.quoteWrap(dao.getIdColumnName()))
+                        .append(" <= ?");
+                scanWhere = rangeWhere.toString();
+                int argsLength = whereArgs != null ? whereArgs.length : 0;
+                scanWhereArgs = new String[argsLength + 1];
+                if (argsLength > 0) {
+                    System.arraycopy(whereArgs, 0, scanWhereArgs, 0, argsLength);
+                }
+                scanWhereArgs[argsLength] = String.valueOf(range[1]);
+            }
+
+            String[] queryColumns = dao.getIdAndGeometryColumnNames();
+            GeometryEnvelopeReader envelopeReader = new GeometryEnvelopeReader();
+
+            boolean hasResults = true;
+            while (hasResults) {
+
+                hasResults = false;
+
+                FeatureCursor featureCursor = dao.queryForChunkAfterId(distinct,
+                        queryColumns, scanWhere, scanWhereArgs, lastId, chunkLimit);
+                try {
+                    while (featureCursor.moveToNext()) {
+
+                        if (featureCursor.isInvalidRow()) {
+                            // Read from the invalid row requery
+                            continue;
+                        }
+
+                        long id;
+                        boolean hasEnvelope;
+                        try {
+                            id = featureCursor.getId();
+                            hasEnvelope = featureCursor.readGeometryEnvelope(envelopeReader);
+                        } catch (Exception e) {
+                            continue;
+                        }
+                        if (id > lastId) {
+                            lastId = id;
+                            hasResults = true;
+                        }
+
+                        read(id, envelopeReader, hasEnvelope);
+                    }
+                } finally {
+                    featureCursor.close();
+                }
+            }
+        }
+
+        /**
+         * Read the feature geometry envelope
+         *
+         * @param id             feature id
+         * @param envelopeReader envelope reader
+         * @param hasEnvelope    true if the geometry has an envelope
+         */
+        protected abstract void read(long id,
+                                     GeometryEnvelopeReader envelopeReader, boolean hasEnvelope);
+
+    }
+
+    /**
+     * Range scan collecting the ids of features intersecting the bounds
+     */
+    private static class IdScan extends RangeScan {
+
+        /**
+         * Min x
+         */
+        private final double minX;
+
+        /**
+         * Min y
+         */
+        private final double minY;
+
+        /**
+         * Max x
+         */
+        private final double maxX;
+
+        /**
+         * Max y
+         */
+        private final double maxY;
+
+        /**
+         * Intersecting feature ids
+         */
+        private final List<Long> featureIds = new ArrayList<>();
+
+        /**
+         * Constructor
+         *
+         * @param range inclusive id range, null for all rows
+         * @param minX  min x
+         * @param minY  min y
+         * @param maxX  max x
+         * @param maxY  max y
+         */
+        IdScan(long[] range, double minX, double minY, double maxX,
+               double maxY) {
+            super(range);
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void read(long id, GeometryEnvelopeReader envelopeReader,
+                            boolean hasEnvelope) {
+            if (envelopeReader.intersects(minX, minY, maxX, maxY)) {
+                featureIds.add(id);
+            }
+        }
+
+    }
+
+    /**
+     * Range scan building the envelope of the features
+     */
+    private static class EnvelopeScan extends RangeScan {
+
+        /**
+         * Features envelope
+         */
+        private GeometryEnvelope envelope;
+
+        /**
+         * Constructor
+         *
+         * @param range inclusive id range, null for all rows
+         */
+        EnvelopeScan(long[] range) {
+            super(range);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void read(long id, GeometryEnvelopeReader envelopeReader,
+                            boolean hasEnvelope) {
+            if (hasEnvelope) {
+                if (envelope == null) {
+                    envelope = new GeometryEnvelope(
+                            envelopeReader.getMinX(), envelopeReader.getMinY(),
+                            envelopeReader.getMaxX(), envelopeReader.getMaxY());
+                } else {
+                    envelope.setMinX(Math.min(envelope.getMinX(), envelopeReader.getMinX()));
+                    envelope.setMinY(Math.min(envelope.getMinY(), envelopeReader.getMinY()));
+                    envelope.setMaxX(Math.max(envelope.getMaxX(), envelopeReader.getMaxX()));
+                    envelope.setMaxY(Math.max(envelope.getMaxY(), envelopeReader.getMaxY()));
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Nearest feature candidate, ordered by decreasing distance
+     */
+    private static class NearestCandidate implements
+            Comparable<NearestCandidate> {
+
+        /**
+         * Feature id
+         */
+        private final long id;
+
+        /**
+         * Feature distance
+         */
+        private final double distance;
+
+        /**
+         * Constructor
+         *
+         * @param id       feature id
+         * @param distance feature distance
+         */
+        NearestCandidate(long id, double distance) {
+            this.id = id;
+            this.distance = distance;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int compareTo(NearestCandidate other) {
+            int compare = Double.compare(other.distance, distance);
+            if (compare == 0) {
+                compare = Long.compare(other.id, id);
+            }
+            return compare;
+        }
+
+    }
+
 }
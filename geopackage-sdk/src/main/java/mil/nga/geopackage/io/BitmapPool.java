@@ -0,0 +1,210 @@
+package mil.nga.geopackage.io;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import mil.nga.geopackage.GeoPackageException;
+
+/**
+ * Pool of reusable ARGB_8888 bitmaps keyed by size. Acquired bitmaps are
+ * cleared to transparent, so short lived draw bitmaps such as tile layers can
+ * be reused instead of allocated and collected for each tile. Thread safe.
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public class BitmapPool {
+
+    /**
+     * Default max number of pooled bitmaps
+     */
+    public static final int DEFAULT_MAX_SIZE = 16;
+
+    /**
+     * Pooled bitmaps by size key
+     */
+    private final Map<Long, Deque<Bitmap>> pool = new HashMap<>();
+
+    /**
+     * Max number of pooled bitmaps
+     */
+    private int maxSize;
+
+    /**
+     * Number of pooled bitmaps
+     */
+    private int size = 0;
+
+    /**
+     * Acquired bitmaps reused from the pool
+     */
+    private long hits = 0;
+
+    /**
+     * Acquired bitmaps created
+     */
+    private long misses = 0;
+
+    /**
+     * Constructor
+     */
+    public BitmapPool() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxSize max number of pooled bitmaps
+     */
+    public BitmapPool(int maxSize) {
+        setMaxSize(maxSize);
+    }
+
+    /**
+     * Get the max number of pooled bitmaps
+     *
+     * @return max size
+     */
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Set the max number of pooled bitmaps, recycling pooled bitmaps over the
+     * max
+     *
+     * @param maxSize max size, 0 to disable pooling
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new GeoPackageException(
+                    "Bitmap pool max size can not be negative: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        for (Deque<Bitmap> bitmaps : pool.values()) {
+            while (size > maxSize && !bitmaps.isEmpty()) {
+                bitmaps.pop().recycle();
+                size--;
+            }
+        }
+    }
+
+    /**
+     * Get the number of pooled bitmaps
+     *
+     * @return size
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Get the number of acquired bitmaps reused from the pool
+     *
+     * @return hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of acquired bitmaps created
+     *
+     * @return misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Acquire a transparent bitmap of the size, reused from the pool when
+     * available
+     *
+     * @param width  width
+     * @param height height
+     * @return bitmap
+     */
+    public Bitmap acquire(int width, int height) {
+        Bitmap bitmap = null;
+        synchronized (this) {
+            Deque<Bitmap> bitmaps = pool.get(key(width, height));
+            if (bitmaps != null && !bitmaps.isEmpty()) {
+                bitmap = bitmaps.pop();
+                size--;
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+        if (bitmap != null) {
+            bitmap.eraseColor(Color.TRANSPARENT);
+        } else {
+            bitmap = Bitmap.createBitmap(width, height,
+                    Bitmap.Config.ARGB_8888);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Release a bitmap no longer in use to the pool, recycling it when the
+     * pool is full or the bitmap can not be reused
+     *
+     * @param bitmap bitmap
+     */
+    public void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        boolean pooled = false;
+        if (bitmap.isMutable()
+                && bitmap.getConfig() == Bitmap.Config.ARGB_8888) {
+            synchronized (this) {
+                if (size < maxSize) {
+                    long key = key(bitmap.getWidth(), bitmap.getHeight());
+                    Deque<Bitmap> bitmaps = pool.get(key);
+                    if (bitmaps == null) {
+                        bitmaps = new ArrayDeque<>();
+                        pool.put(key, bitmaps);
+                    }
+                    bitmaps.push(bitmap);
+                    size++;
+                    pooled = true;
+                }
+            }
+        }
+        if (!pooled) {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Recycle and remove all pooled bitmaps
+     */
+    public synchronized void clear() {
+        for (Deque<Bitmap> bitmaps : pool.values()) {
+            for (Bitmap bitmap : bitmaps) {
+                bitmap.recycle();
+            }
+        }
+        pool.clear();
+        size = 0;
+    }
+
+    /**
+     * Build the size key
+     *
+     * @param width  width
+     * @param height height
+     * @return key
+     */
+    private static long key(int width, int height) {
+        return ((long) width << 32) | (height & 0xffffffffL);
+    }
+
+}
@@ -0,0 +1,149 @@
+package mil.nga.geopackage.proj;
+
+import org.locationtech.proj4j.ProjCoordinate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mil.nga.sf.Point;
+import mil.nga.sf.proj.Projection;
+import mil.nga.sf.proj.ProjectionFactory;
+import mil.nga.sf.proj.ProjectionTransform;
+
+/**
+ * Process wide cache of projection transformations keyed by the source and
+ * target projections, with batch transformation of packed coordinate arrays.
+ * Coordinate transformations keep intermediate state and are not thread
+ * safe, so each thread caches its own transformation of a projection pair.
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public class ProjectionTransformCache {
+
+    /**
+     * Thread cached transformations by projection pair key
+     */
+    private static final ThreadLocal<Map<String, ProjectionTransform>> transforms = new ThreadLocal<Map<String, ProjectionTransform>>() {
+        @Override
+        protected Map<String, ProjectionTransform> initialValue() {
+            return new HashMap<>();
+        }
+    };
+
+    /**
+     * Get the cached transformation between the projections, creating it on
+     * first use by the thread
+     *
+     * @param from source projection
+     * @param to   target projection
+     * @return projection transform
+     */
+    public static ProjectionTransform getTransformation(Projection from,
+                                                        Projection to) {
+        Map<String, ProjectionTransform> threadTransforms = transforms.get();
+        String key = key(from, to);
+        ProjectionTransform transform = threadTransforms.get(key);
+        if (transform == null) {
+            transform = from.getTransformation(to);
+            threadTransforms.put(key, transform);
+        }
+        return transform;
+    }
+
+    /**
+     * Get the cached transformation from the projection to the EPSG code
+     *
+     * @param from source projection
+     * @param epsg target EPSG code
+     * @return projection transform
+     */
+    public static ProjectionTransform getTransformation(Projection from,
+                                                        long epsg) {
+        return getTransformation(from, ProjectionFactory.getProjection(epsg));
+    }
+
+    /**
+     * Get the cached inverse of the transformation
+     *
+     * @param transform projection transform
+     * @return inverse projection transform
+     */
+    public static ProjectionTransform getInverseTransformation(
+            ProjectionTransform transform) {
+        return getTransformation(transform.getToProjection(),
+                transform.getFromProjection());
+    }
+
+    /**
+     * Clear the cached transformations of the current thread
+     */
+    public static void clear() {
+        transforms.get().clear();
+    }
+
+    /**
+     * Transform packed x and y coordinate pairs in place
+     *
+     * @param transform   projection transform
+     * @param coordinates packed coordinates as x0, y0, x1, y1, ...
+     */
+    public static void transform(ProjectionTransform transform,
+                                 double[] coordinates) {
+        transform(transform, coordinates, 0, coordinates.length / 2);
+    }
+
+    /**
+     * Transform packed x and y coordinate pairs in place
+     *
+     * @param transform   projection transform
+     * @param coordinates packed coordinates as x0, y0, x1, y1, ...
+     * @param offset      array offset of the first x coordinate
+     * @param count       number of coordinate pairs
+     */
+    public static void transform(ProjectionTransform transform,
+                                 double[] coordinates, int offset, int count) {
+        if (transform.isSameProjection()) {
+            return;
+        }
+        ProjCoordinate from = new ProjCoordinate();
+        int end = offset + count * 2;
+        for (int i = offset; i < end; i += 2) {
+            from.x = coordinates[i];
+            from.y = coordinates[i + 1];
+            ProjCoordinate to = transform.transform(from);
+            coordinates[i] = to.x;
+            coordinates[i + 1] = to.y;
+        }
+    }
+
+    /**
+     * Pack the x and y coordinates of the points
+     *
+     * @param points points
+     * @return packed coordinates as x0, y0, x1, y1, ...
+     */
+    public static double[] toCoordinates(List<Point> points) {
+        double[] coordinates = new double[points.size() * 2];
+        int index = 0;
+        for (Point point : points) {
+            coordinates[index++] = point.getX();
+            coordinates[index++] = point.getY();
+        }
+        return coordinates;
+    }
+
+    /**
+     * Build the projection pair key
+     *
+     * @param from source projection
+     * @param to   target projection
+     * @return key
+     */
+    private static String key(Projection from, Projection to) {
+        return from.getAuthority() + ":" + from.getCode() + ">"
+                + to.getAuthority() + ":" + to.getCode();
+    }
+
+}
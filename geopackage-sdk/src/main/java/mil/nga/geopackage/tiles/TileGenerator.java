@@ -783,6 +783,31 @@ public abstract class TileGenerator {
         }
     }
 
+    /**
+     * Get the tile grid of the zoom level, available once the tile count is
+     * determined
+     *
+     * @param zoom zoom level
+     * @return tile grid, null if not determined
+     * @since 4.0.1
+     */
+    protected TileGrid getTileGrid(int zoom) {
+        return tileGrids.get(zoom);
+    }
+
+    /**
+     * Get the size in tiles per side of the blocks tiles are generated in.
+     * Tiles are generated block by block, aligned to the min tile of the zoom
+     * level tile grid and by column within each block, so implementations
+     * drawing blocks of tiles together only retain the current block.
+     *
+     * @return block size in tiles per side, 1 to generate column by column
+     * @since 4.0.1
+     */
+    protected int getTileBlockSize() {
+        return 1;
+    }
+
     /**
      * Generate the tiles for the zoom level
      *
@@ -835,101 +860,120 @@ public abstract class TileGenerator {
             }
         }
 
-        // Download and create the tile and each coordinate
-        for (long x = tileGrid.getMinX(); x <= tileGrid.getMaxX(); x++) {
-
-            // Check if the progress has been cancelled
-            if (progress != null && !progress.isActive()) {
-                break;
-            }
+        int blockSize = Math.max(1, getTileBlockSize());
 
-            long tileColumn = x;
-            // Update the column to the local tile grid location
-            if (localTileGrid != null) {
-                tileColumn = (x - tileGrid.getMinX()) + localTileGrid.getMinX();
-            }
+        // Download and create the tile and each coordinate, block by block
+        for (long blockX = tileGrid.getMinX(); blockX <= tileGrid.getMaxX(); blockX += blockSize) {
 
-            Set<Long> existingColumnRows = null;
-            if (existingTiles != null) {
-                existingColumnRows = existingTiles.get(tileColumn);
-            }
+            long blockMaxX = Math.min(blockX + blockSize - 1, tileGrid.getMaxX());
 
-            for (long y = tileGrid.getMinY(); y <= tileGrid.getMaxY(); y++) {
+            for (long blockY = tileGrid.getMinY(); blockY <= tileGrid.getMaxY(); blockY += blockSize) {
 
                 // Check if the progress has been cancelled
                 if (progress != null && !progress.isActive()) {
                     break;
                 }
 
-                long tileRow = y;
-                // Update the row to the local tile grid location
-                if (localTileGrid != null) {
-                    tileRow = (y - tileGrid.getMinY())
-                            + localTileGrid.getMinY();
-                }
-
-                boolean createTile = true;
-                if (existingColumnRows != null) {
-                    createTile = !existingColumnRows.contains(tileRow);
-                }
-
-                if (createTile) {
-                    try {
+                long blockMaxY = Math.min(blockY + blockSize - 1, tileGrid.getMaxY());
 
-                        // Create the tile
-                        byte[] tileBytes = createTile(zoomLevel, x, y);
+                for (long x = blockX; x <= blockMaxX; x++) {
 
-                        if (tileBytes != null) {
+                    // Check if the progress has been cancelled
+                    if (progress != null && !progress.isActive()) {
+                        break;
+                    }
 
-                            Bitmap bitmap = null;
+                    long tileColumn = x;
+                    // Update the column to the local tile grid location
+                    if (localTileGrid != null) {
+                        tileColumn = (x - tileGrid.getMinX()) + localTileGrid.getMinX();
+                    }
 
-                            // Compress the image
-                            if (compressFormat != null) {
-                                bitmap = BitmapConverter.toBitmap(tileBytes, options);
-                                if (bitmap != null) {
-                                    tileBytes = BitmapConverter.toBytes(bitmap,
-                                            compressFormat, compressQuality);
-                                }
-                            }
+                    Set<Long> existingColumnRows = null;
+                    if (existingTiles != null) {
+                        existingColumnRows = existingTiles.get(tileColumn);
+                    }
 
-                            // Create a new tile row
-                            TileRow newRow = tileDao.newRow();
-                            newRow.setZoomLevel(zoomLevel);
+                    for (long y = blockY; y <= blockMaxY; y++) {
 
-                            // If an update, delete an existing row
-                            if (update) {
-                                tileDao.deleteTile(tileColumn, tileRow, zoomLevel);
-                            }
+                        // Check if the progress has been cancelled
+                        if (progress != null && !progress.isActive()) {
+                            break;
+                        }
 
-                            newRow.setTileColumn(tileColumn);
-                            newRow.setTileRow(tileRow);
-                            newRow.setTileData(tileBytes);
-                            tileDao.create(newRow);
+                        long tileRow = y;
+                        // Update the row to the local tile grid location
+                        if (localTileGrid != null) {
+                            tileRow = (y - tileGrid.getMinY())
+                                    + localTileGrid.getMinY();
+                        }
 
-                            count++;
+                        boolean createTile = true;
+                        if (existingColumnRows != null) {
+                            createTile = !existingColumnRows.contains(tileRow);
+                        }
 
-                            // Determine the tile width and height
-                            if (tileWidth == null) {
-                                if (bitmap == null) {
-                                    bitmap = BitmapConverter.toBitmap(tileBytes,
-                                            options);
-                                }
-                                if (bitmap != null) {
-                                    tileWidth = bitmap.getWidth();
-                                    tileHeight = bitmap.getHeight();
+                        if (createTile) {
+                            try {
+
+                                // Create the tile
+                                byte[] tileBytes = createTile(zoomLevel, x, y);
+
+                                if (tileBytes != null) {
+
+                                    Bitmap bitmap = null;
+
+                                    // Compress the image
+                                    if (compressFormat != null) {
+                                        bitmap = BitmapConverter.toBitmap(tileBytes, options);
+                                        if (bitmap != null) {
+                                            tileBytes = BitmapConverter.toBytes(bitmap,
+                                                    compressFormat, compressQuality);
+                                        }
+                                    }
+
+                                    // Create a new tile row
+                                    TileRow newRow = tileDao.newRow();
+                                    newRow.setZoomLevel(zoomLevel);
+
+                                    // If an update, delete an existing row
+                                    if (update) {
+                                        tileDao.deleteTile(tileColumn, tileRow, zoomLevel);
+                                    }
+
+                                    newRow.setTileColumn(tileColumn);
+                                    newRow.setTileRow(tileRow);
+                                    newRow.setTileData(tileBytes);
+                                    tileDao.create(newRow);
+
+                                    count++;
+
+                                    // Determine the tile width and height
+                                    if (tileWidth == null) {
+                                        if (bitmap == null) {
+                                            bitmap = BitmapConverter.toBitmap(tileBytes,
+                                                    options);
+                                        }
+                                        if (bitmap != null) {
+                                            tileWidth = bitmap.getWidth();
+                                            tileHeight = bitmap.getHeight();
+                                        }
+                                    }
                                 }
+                            } catch (Exception e) {
+                                Log.w(TileGenerator.class.getSimpleName(), "Failed to create tile. Zoom: "
+                                        + zoomLevel + ", x: " + x + ", y: " + y, e);
+                                // Skip this tile, don't increase count
                             }
                         }
-                    } catch (Exception e) {
-                        Log.w(TileGenerator.class.getSimpleName(), "Failed to create tile. Zoom: "
-                                + zoomLevel + ", x: " + x + ", y: " + y, e);
-                        // Skip this tile, don't increase count
+
+                        // Update the progress count, even on failures
+                        if (progress != null) {
+                            progress.addProgress(1);
+                        }
+
                     }
-                }
 
-                // Update the progress count, even on failures
-                if (progress != null) {
-                    progress.addProgress(1);
                 }
 
             }
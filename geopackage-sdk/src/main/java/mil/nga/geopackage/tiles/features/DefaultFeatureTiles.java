@@ -10,19 +10,28 @@ import android.graphics.RectF;
 import android.util.Log;
 import android.util.LruCache;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackage;
 import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.extension.nga.generalize.FeatureGeneralization;
 import mil.nga.geopackage.extension.nga.style.FeatureStyle;
 import mil.nga.geopackage.extension.nga.style.IconRow;
 import mil.nga.geopackage.extension.nga.style.StyleRow;
+import mil.nga.geopackage.features.index.FeatureIndexBatchIterator;
+import mil.nga.geopackage.features.index.FeatureIndexChanges;
 import mil.nga.geopackage.features.index.FeatureIndexResults;
 import mil.nga.geopackage.features.user.FeatureCursor;
 import mil.nga.geopackage.features.user.FeatureDao;
 import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.geom.GeoPackageGeometryData;
+import mil.nga.geopackage.proj.ProjectionTransformCache;
 import mil.nga.geopackage.tiles.TileBoundingBoxUtils;
 import mil.nga.sf.CompoundCurve;
 import mil.nga.sf.Geometry;
@@ -64,6 +73,38 @@ public class DefaultFeatureTiles extends FeatureTiles {
      */
     protected boolean cacheGeometries = true;
 
+    /**
+     * Web mercator projected geometry cache, bounded by bytes
+     *
+     * @since 4.0.1
+     */
+    protected final ProjectedGeometryCache projectedGeometryCache = new ProjectedGeometryCache();
+
+    /**
+     * When true, web mercator projected geometries are cached and drawn
+     * without parsing or transforming the feature geometry. Default is true
+     *
+     * @since 4.0.1
+     */
+    protected boolean cacheProjectedGeometries = true;
+
+    /**
+     * Feature change log, read to invalidate cached geometries of changed
+     * features
+     */
+    private FeatureIndexChanges featureIndexChanges;
+
+    /**
+     * Change log sequence reflected by the cached geometries, negative until
+     * first read
+     */
+    private long changeSequence = -1;
+
+    /**
+     * Change log read lock
+     */
+    private final Object changeLock = new Object();
+
     /**
      * Constructor
      *
@@ -189,6 +230,7 @@ public class DefaultFeatureTiles extends FeatureTiles {
     public void clearCache() {
         super.clearCache();
         clearGeometryCache();
+        clearProjectedGeometryCache();
     }
 
     /**
@@ -211,29 +253,119 @@ public class DefaultFeatureTiles extends FeatureTiles {
         geometryCache.resize(size);
     }
 
+    /**
+     * Is caching web mercator projected geometries enabled?
+     *
+     * @return true if caching projected geometries
+     * @since 4.0.1
+     */
+    public boolean isCacheProjectedGeometries() {
+        return cacheProjectedGeometries;
+    }
+
+    /**
+     * Set the cache projected geometries flag. When disabled, geometries are
+     * parsed and transformed for each drawn tile.
+     *
+     * @param cacheProjectedGeometries true to cache projected geometries
+     * @since 4.0.1
+     */
+    public void setCacheProjectedGeometries(boolean cacheProjectedGeometries) {
+        this.cacheProjectedGeometries = cacheProjectedGeometries;
+    }
+
+    /**
+     * Get the projected geometry cache
+     *
+     * @return projected geometry cache
+     * @since 4.0.1
+     */
+    public ProjectedGeometryCache getProjectedGeometryCache() {
+        return projectedGeometryCache;
+    }
+
+    /**
+     * Clear the projected geometry cache
+     *
+     * @since 4.0.1
+     */
+    public void clearProjectedGeometryCache() {
+        projectedGeometryCache.clear();
+    }
+
+    /**
+     * Set the max bytes of the projected geometry cache, evicting least
+     * recently used geometries over the budget
+     *
+     * @param maxBytes max bytes
+     * @since 4.0.1
+     */
+    public void setProjectedGeometryCacheBytes(long maxBytes) {
+        projectedGeometryCache.setMaxBytes(maxBytes);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isMetatileSupported() {
+        // Subclasses may customize single tile drawing not applied to metatiles
+        return getClass() == DefaultFeatureTiles.class;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Bitmap drawTile(int zoom, BoundingBox boundingBox, FeatureIndexResults results) {
+        return drawTile(zoom, boundingBox, results, tileWidth, tileHeight);
+    }
 
-        FeatureTileCanvas canvas = new FeatureTileCanvas(tileWidth, tileHeight);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Bitmap drawTile(int zoom, BoundingBox boundingBox, FeatureIndexResults results, int width, int height) {
+
+        invalidateChangedFeatures();
+
+        FeatureTileCanvas canvas = new FeatureTileCanvas(width, height, bitmapPool);
 
         ProjectionTransform transform = getProjectionToWebMercatorTransform(featureDao.getProjection());
-        BoundingBox expandedBoundingBox = expandBoundingBox(boundingBox);
+        BoundingBox expandedBoundingBox = expandBoundingBox(boundingBox, width, height);
 
         boolean drawn = false;
-        for (FeatureRow featureRow : results) {
-            if (drawFeature(zoom, boundingBox, expandedBoundingBox, transform, canvas, featureRow)) {
-                drawn = true;
+        int level = getGeneralizationLevel(zoom);
+        if (cacheProjectedGeometries) {
+            // Draw from the result ids, reading feature rows only for cache misses
+            List<Long> featureIds = new ArrayList<>();
+            for (long featureId : results.ids()) {
+                featureIds.add(featureId);
+                if (featureIds.size() >= FeatureGeneralization.BATCH_SIZE) {
+                    drawn = drawProjectedFeatures(level, zoom, boundingBox, expandedBoundingBox, transform, canvas, featureIds, new HashMap<Long, FeatureRow>()) || drawn;
+                    featureIds.clear();
+                }
+            }
+            drawn = drawProjectedFeatures(level, zoom, boundingBox, expandedBoundingBox, transform, canvas, featureIds, new HashMap<Long, FeatureRow>()) || drawn;
+        } else {
+            List<FeatureRow> rows = new ArrayList<>();
+            for (FeatureRow featureRow : results) {
+                rows.add(featureRow);
+                if (rows.size() >= FeatureGeneralization.BATCH_SIZE) {
+                    drawn = drawFeatures(level, zoom, boundingBox, expandedBoundingBox, transform, canvas, rows) || drawn;
+                    rows.clear();
+                }
             }
+            drawn = drawFeatures(level, zoom, boundingBox, expandedBoundingBox, transform, canvas, rows) || drawn;
         }
         results.close();
 
         Bitmap bitmap = null;
         if (drawn) {
             bitmap = canvas.createBitmap();
-            bitmap = checkIfDrawn(bitmap);
+            if (width == tileWidth && height == tileHeight) {
+                bitmap = checkIfDrawn(bitmap);
+            }
         } else {
             canvas.recycle();
         }
@@ -246,25 +378,62 @@ public class DefaultFeatureTiles extends FeatureTiles {
      */
     @Override
     public Bitmap drawTile(int zoom, BoundingBox boundingBox, FeatureCursor cursor) {
+        return drawTile(zoom, boundingBox, cursor, tileWidth, tileHeight);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Bitmap drawTile(int zoom, BoundingBox boundingBox, FeatureCursor cursor, int width, int height) {
+
+        invalidateChangedFeatures();
 
-        FeatureTileCanvas canvas = new FeatureTileCanvas(tileWidth, tileHeight);
+        FeatureTileCanvas canvas = new FeatureTileCanvas(width, height, bitmapPool);
 
         ProjectionTransform transform = getProjectionToWebMercatorTransform(featureDao.getProjection());
-        BoundingBox expandedBoundingBox = expandBoundingBox(boundingBox);
+        BoundingBox expandedBoundingBox = expandBoundingBox(boundingBox, width, height);
 
         boolean drawn = false;
-        while (cursor.moveToNext()) {
-            FeatureRow row = cursor.getRow();
-            if (drawFeature(zoom, boundingBox, expandedBoundingBox, transform, canvas, row)) {
-                drawn = true;
+        int level = getGeneralizationLevel(zoom);
+        if (cacheProjectedGeometries) {
+            int cacheLevel = level >= 0 ? level : ProjectedGeometryCache.FULL_RESOLUTION;
+            List<Long> featureIds = new ArrayList<>();
+            Map<Long, FeatureRow> rows = new HashMap<>();
+            while (cursor.moveToNext()) {
+                long featureId = cursor.getId();
+                featureIds.add(featureId);
+                // Only read the rows of features without cached projected geometries
+                if (!projectedGeometryCache.contains(cacheLevel, featureId)
+                        && !projectedGeometryCache.contains(ProjectedGeometryCache.FULL_RESOLUTION, featureId)) {
+                    rows.put(featureId, cursor.getRow());
+                }
+                if (featureIds.size() >= FeatureGeneralization.BATCH_SIZE) {
+                    drawn = drawProjectedFeatures(level, zoom, boundingBox, expandedBoundingBox, transform, canvas, featureIds, rows) || drawn;
+                    featureIds.clear();
+                    rows.clear();
+                }
             }
+            drawn = drawProjectedFeatures(level, zoom, boundingBox, expandedBoundingBox, transform, canvas, featureIds, rows) || drawn;
+        } else {
+            List<FeatureRow> rows = new ArrayList<>();
+            while (cursor.moveToNext()) {
+                rows.add(cursor.getRow());
+                if (rows.size() >= FeatureGeneralization.BATCH_SIZE) {
+                    drawn = drawFeatures(level, zoom, boundingBox, expandedBoundingBox, transform, canvas, rows) || drawn;
+                    rows.clear();
+                }
+            }
+            drawn = drawFeatures(level, zoom, boundingBox, expandedBoundingBox, transform, canvas, rows) || drawn;
         }
         cursor.close();
 
         Bitmap bitmap = null;
         if (drawn) {
             bitmap = canvas.createBitmap();
-            bitmap = checkIfDrawn(bitmap);
+            if (width == tileWidth && height == tileHeight) {
+                bitmap = checkIfDrawn(bitmap);
+            }
         } else {
             canvas.recycle();
         }
@@ -277,23 +446,46 @@ public class DefaultFeatureTiles extends FeatureTiles {
      */
     @Override
     public Bitmap drawTile(int zoom, BoundingBox boundingBox, List<FeatureRow> featureRow) {
+        return drawTile(zoom, boundingBox, featureRow, tileWidth, tileHeight);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Bitmap drawTile(int zoom, BoundingBox boundingBox, List<FeatureRow> featureRow, int width, int height) {
 
-        FeatureTileCanvas canvas = new FeatureTileCanvas(tileWidth, tileHeight);
+        invalidateChangedFeatures();
+
+        FeatureTileCanvas canvas = new FeatureTileCanvas(width, height, bitmapPool);
 
         ProjectionTransform transform = getProjectionToWebMercatorTransform(featureDao.getProjection());
-        BoundingBox expandedBoundingBox = expandBoundingBox(boundingBox);
+        BoundingBox expandedBoundingBox = expandBoundingBox(boundingBox, width, height);
 
         boolean drawn = false;
-        for (FeatureRow row : featureRow) {
-            if (drawFeature(zoom, boundingBox, expandedBoundingBox, transform, canvas, row)) {
-                drawn = true;
+        int level = getGeneralizationLevel(zoom);
+        for (int start = 0; start < featureRow.size(); start += FeatureGeneralization.BATCH_SIZE) {
+            List<FeatureRow> rows = featureRow.subList(start,
+                    Math.min(start + FeatureGeneralization.BATCH_SIZE, featureRow.size()));
+            if (cacheProjectedGeometries) {
+                List<Long> featureIds = new ArrayList<>(rows.size());
+                Map<Long, FeatureRow> rowsById = new HashMap<>();
+                for (FeatureRow row : rows) {
+                    featureIds.add(row.getId());
+                    rowsById.put(row.getId(), row);
+                }
+                drawn = drawProjectedFeatures(level, zoom, boundingBox, expandedBoundingBox, transform, canvas, featureIds, rowsById) || drawn;
+            } else {
+                drawn = drawFeatures(level, zoom, boundingBox, expandedBoundingBox, transform, canvas, rows) || drawn;
             }
         }
 
         Bitmap bitmap = null;
         if (drawn) {
             bitmap = canvas.createBitmap();
-            bitmap = checkIfDrawn(bitmap);
+            if (width == tileWidth && height == tileHeight) {
+                bitmap = checkIfDrawn(bitmap);
+            }
         } else {
             canvas.recycle();
         }
@@ -302,17 +494,95 @@ public class DefaultFeatureTiles extends FeatureTiles {
     }
 
     /**
-     * Draw the feature on the canvas
+     * Invalidate the cached geometries of the features inserted, updated or
+     * deleted since the last check, when changes to the feature table are
+     * tracked by {@link FeatureIndexChanges}. Called before drawing each
+     * tile. When the changes were cleared before being read, all cached
+     * geometries are cleared. Clear the caches after editing features of an
+     * untracked feature table.
+     *
+     * @since 4.0.1
+     */
+    public void invalidateChangedFeatures() {
+        if (featureDao == null) {
+            return;
+        }
+        synchronized (changeLock) {
+            if (featureIndexChanges == null) {
+                featureIndexChanges = new FeatureIndexChanges(featureDao);
+            }
+            long sequence = featureIndexChanges.getLastSequence();
+            if (changeSequence >= 0 && sequence != changeSequence) {
+                if (sequence < changeSequence
+                        || featureIndexChanges.getPrunedSequence() > changeSequence) {
+                    clearGeometryCache();
+                    clearProjectedGeometryCache();
+                } else {
+                    long lastId = Long.MIN_VALUE;
+                    List<Long> ids = featureIndexChanges.queryIds(changeSequence,
+                            sequence, lastId, FeatureGeneralization.BATCH_SIZE);
+                    while (!ids.isEmpty()) {
+                        for (long id : ids) {
+                            geometryCache.remove(id);
+                        }
+                        projectedGeometryCache.remove(ids);
+                        lastId = ids.get(ids.size() - 1);
+                        ids = featureIndexChanges.queryIds(changeSequence,
+                                sequence, lastId, FeatureGeneralization.BATCH_SIZE);
+                    }
+                }
+            }
+            changeSequence = sequence;
+        }
+    }
+
+    /**
+     * Draw a batch of features on the canvas, reading the generalized
+     * geometries of the batch in a single band query
      *
+     * @param level               generalization level, -1 for full resolution
      * @param zoom                zoom level
      * @param boundingBox         bounding box
      * @param expandedBoundingBox expanded bounding box
      * @param transform           projection transform
      * @param canvas              feature tile canvas
-     * @param row                 feature row
+     * @param rows                feature rows
      * @return true if at least one feature was drawn
      */
-    private boolean drawFeature(int zoom, BoundingBox boundingBox, BoundingBox expandedBoundingBox, ProjectionTransform transform, FeatureTileCanvas canvas, FeatureRow row) {
+    private boolean drawFeatures(int level, int zoom, BoundingBox boundingBox, BoundingBox expandedBoundingBox, ProjectionTransform transform, FeatureTileCanvas canvas, List<FeatureRow> rows) {
+
+        Map<Long, GeoPackageGeometryData> generalized = Collections.emptyMap();
+        if (level >= 0 && !rows.isEmpty()) {
+            List<Long> featureIds = new ArrayList<>(rows.size());
+            for (FeatureRow row : rows) {
+                featureIds.add(row.getId());
+            }
+            generalized = generalization.queryGeometries(level, featureIds);
+        }
+
+        boolean drawn = false;
+        for (FeatureRow row : rows) {
+            drawn = drawFeature(level, generalized, zoom, boundingBox, expandedBoundingBox, transform, canvas, row) || drawn;
+        }
+        return drawn;
+    }
+
+    /**
+     * Draw the feature on the canvas
+     *
+     * @param level                 generalization level, -1 for full
+     *                              resolution
+     * @param generalizedGeometries generalized geometries of the level by
+     *                              feature id
+     * @param zoom                  zoom level
+     * @param boundingBox           bounding box
+     * @param expandedBoundingBox   expanded bounding box
+     * @param transform             projection transform
+     * @param canvas                feature tile canvas
+     * @param row                   feature row
+     * @return true if at least one feature was drawn
+     */
+    private boolean drawFeature(int level, Map<Long, GeoPackageGeometryData> generalizedGeometries, int zoom, BoundingBox boundingBox, BoundingBox expandedBoundingBox, ProjectionTransform transform, FeatureTileCanvas canvas, FeatureRow row) {
 
         boolean drawn = false;
 
@@ -322,8 +592,15 @@ public class DefaultFeatureTiles extends FeatureTiles {
             BoundingBox transformedBoundingBox = null;
             long rowId = -1;
 
+            // Read the generalized geometry of the zoom level
+            boolean generalized = false;
+            if (level >= 0) {
+                geomData = generalizedGeometries.get(row.getId());
+                generalized = geomData != null;
+            }
+
             // Check the cache for the geometry data
-            if (cacheGeometries) {
+            if (!generalized && cacheGeometries) {
                 rowId = row.getId();
                 geomData = geometryCache.get(rowId);
                 if (geomData != null) {
@@ -345,13 +622,13 @@ public class DefaultFeatureTiles extends FeatureTiles {
                         BoundingBox geometryBoundingBox = new BoundingBox(envelope);
                         transformedBoundingBox = geometryBoundingBox.transform(transform);
 
-                        if (cacheGeometries) {
+                        if (!generalized && cacheGeometries) {
                             // Set the geometry envelope to the transformed bounding box
                             geomData.setEnvelope(transformedBoundingBox.buildEnvelope());
                         }
                     }
 
-                    if (cacheGeometries) {
+                    if (!generalized && cacheGeometries) {
                         // Cache the geometry
                         geometryCache.put(rowId, geomData);
                     }
@@ -372,6 +649,264 @@ public class DefaultFeatureTiles extends FeatureTiles {
         return drawn;
     }
 
+    /**
+     * Draw a batch of features on the canvas from their cached web mercator
+     * projected geometries. Cache misses are projected and cached from the
+     * generalized geometries of the level, read in a single band query, or
+     * at full resolution from the geometry cache, the provided feature rows,
+     * or feature rows batch queried by id.
+     *
+     * @param level               generalization level, -1 for full resolution
+     * @param zoom                zoom level
+     * @param boundingBox         bounding box
+     * @param expandedBoundingBox expanded bounding box
+     * @param transform           projection transform
+     * @param canvas              feature tile canvas
+     * @param featureIds          feature ids
+     * @param rows                feature rows by id, read for cache misses
+     *                            and used to style the features
+     * @return true if at least one feature was drawn
+     */
+    private boolean drawProjectedFeatures(int level, int zoom, BoundingBox boundingBox, BoundingBox expandedBoundingBox, ProjectionTransform transform, FeatureTileCanvas canvas, List<Long> featureIds, Map<Long, FeatureRow> rows) {
+
+        if (level < 0) {
+            level = ProjectedGeometryCache.FULL_RESOLUTION;
+        }
+
+        Map<Long, ByteBuffer> projected = new HashMap<>();
+
+        List<Long> missingIds = new ArrayList<>();
+        for (long featureId : featureIds) {
+            ByteBuffer buffer = projectedGeometryCache.get(level, featureId);
+            if (buffer != null) {
+                projected.put(featureId, buffer);
+            } else {
+                missingIds.add(featureId);
+            }
+        }
+
+        if (level != ProjectedGeometryCache.FULL_RESOLUTION && !missingIds.isEmpty()) {
+            Map<Long, GeoPackageGeometryData> generalized = generalization.queryGeometries(level, missingIds);
+            List<Long> fullResolutionIds = new ArrayList<>();
+            for (long featureId : missingIds) {
+                GeoPackageGeometryData geomData = generalized.get(featureId);
+                if (geomData != null) {
+                    project(level, featureId, geomData, transform, projected);
+                } else {
+                    // Not generalized, draw at full resolution
+                    ByteBuffer buffer = projectedGeometryCache.get(ProjectedGeometryCache.FULL_RESOLUTION, featureId);
+                    if (buffer != null) {
+                        projected.put(featureId, buffer);
+                    } else {
+                        fullResolutionIds.add(featureId);
+                    }
+                }
+            }
+            missingIds = fullResolutionIds;
+        }
+
+        List<Long> queryIds = new ArrayList<>();
+        for (long featureId : missingIds) {
+            GeoPackageGeometryData geomData = null;
+            if (cacheGeometries) {
+                geomData = geometryCache.get(featureId);
+            }
+            if (geomData == null) {
+                FeatureRow row = rows.get(featureId);
+                if (row != null) {
+                    geomData = row.getGeometry();
+                } else {
+                    queryIds.add(featureId);
+                }
+            }
+            if (geomData != null) {
+                project(ProjectedGeometryCache.FULL_RESOLUTION, featureId, geomData, transform, projected);
+            }
+        }
+
+        if (!queryIds.isEmpty()) {
+            FeatureIndexBatchIterator iterator = new FeatureIndexBatchIterator(featureDao, queryIds.iterator());
+            while (iterator.hasNext()) {
+                FeatureRow row = iterator.next();
+                rows.put(row.getId(), row);
+                GeoPackageGeometryData geomData = row.getGeometry();
+                if (geomData != null) {
+                    project(ProjectedGeometryCache.FULL_RESOLUTION, row.getId(), geomData, transform, projected);
+                }
+            }
+        }
+
+        boolean drawn = false;
+        for (long featureId : featureIds) {
+            ByteBuffer buffer = projected.get(featureId);
+            if (buffer != null) {
+                try {
+                    drawn = drawProjectedFeature(zoom, boundingBox, expandedBoundingBox, canvas, featureId, rows.get(featureId), buffer) || drawn;
+                } catch (Exception e) {
+                    Log.e(DefaultFeatureTiles.class.getSimpleName(), "Failed to draw feature in tile. Table: "
+                            + featureDao.getTableName() + ", Id: " + featureId, e);
+                }
+            }
+        }
+
+        return drawn;
+    }
+
+    /**
+     * Project and cache the geometry of the feature at the generalization
+     * level
+     *
+     * @param level     generalization level, -1 for full resolution
+     * @param featureId feature id
+     * @param geomData  geometry data
+     * @param transform projection transform
+     * @param projected projected geometries by feature id
+     */
+    private void project(int level, long featureId, GeoPackageGeometryData geomData, ProjectionTransform transform, Map<Long, ByteBuffer> projected) {
+        try {
+            Geometry geometry = geomData.getGeometry();
+            if (geometry != null) {
+                ByteBuffer buffer = ProjectedGeometryCache.encode(geometry, transform);
+                projectedGeometryCache.put(level, featureId, buffer);
+                projected.put(featureId, buffer);
+            }
+        } catch (Exception e) {
+            Log.e(DefaultFeatureTiles.class.getSimpleName(), "Failed to project feature geometry. Table: "
+                    + featureDao.getTableName() + ", Id: " + featureId, e);
+        }
+    }
+
+    /**
+     * Draw the feature on the canvas from its web mercator projected geometry
+     *
+     * @param zoom                zoom level
+     * @param boundingBox         bounding box
+     * @param expandedBoundingBox expanded bounding box
+     * @param canvas              feature tile canvas
+     * @param featureId           feature id
+     * @param row                 feature row, null to style by feature id
+     * @param projected           projected geometry buffer
+     * @return true if at least one feature was drawn
+     */
+    private boolean drawProjectedFeature(int zoom, BoundingBox boundingBox, BoundingBox expandedBoundingBox, FeatureTileCanvas canvas, long featureId, FeatureRow row, ByteBuffer projected) {
+
+        boolean drawn = false;
+
+        BoundingBox projectedBoundingBox = ProjectedGeometryCache.getBoundingBox(projected);
+        if (projectedBoundingBox != null && expandedBoundingBox.intersects(projectedBoundingBox, true)) {
+
+            double simplifyTolerance = TileBoundingBoxUtils.toleranceDistance(zoom, tileWidth, tileHeight);
+
+            int offset = ProjectedGeometryCache.getFirstShapeOffset();
+            int shapeCount = ProjectedGeometryCache.getShapeCount(projected);
+            for (int shape = 0; shape < shapeCount; shape++) {
+                drawn = drawProjectedShape(simplifyTolerance, boundingBox, canvas, featureId, row, projected, offset) || drawn;
+                int partOffset = ProjectedGeometryCache.getFirstPartOffset(offset);
+                int partCount = ProjectedGeometryCache.getPartCount(projected, offset);
+                for (int part = 0; part < partCount; part++) {
+                    partOffset = ProjectedGeometryCache.getNextOffset(projected, partOffset);
+                }
+                offset = partOffset;
+            }
+        }
+
+        return drawn;
+    }
+
+    /**
+     * Draw the projected shape on the canvas
+     *
+     * @param simplifyTolerance simplify tolerance in meters
+     * @param boundingBox       bounding box
+     * @param canvas            feature tile canvas
+     * @param featureId         feature id
+     * @param featureRow        feature row, null to style by feature id
+     * @param projected         projected geometry buffer
+     * @param shapeOffset       shape offset
+     * @return true if drawn
+     */
+    private boolean drawProjectedShape(double simplifyTolerance, BoundingBox boundingBox, FeatureTileCanvas canvas, long featureId, FeatureRow featureRow, ByteBuffer projected, int shapeOffset) {
+
+        boolean drawn = false;
+
+        GeometryType geometryType = ProjectedGeometryCache.getGeometryType(projected, shapeOffset);
+        FeatureStyle featureStyle;
+        if (featureRow != null) {
+            featureStyle = getFeatureStyle(featureRow, geometryType);
+        } else {
+            featureStyle = getFeatureStyle(featureId, geometryType);
+        }
+
+        int kind = ProjectedGeometryCache.getShapeKind(projected, shapeOffset);
+        int partCount = ProjectedGeometryCache.getPartCount(projected, shapeOffset);
+        int partOffset = ProjectedGeometryCache.getFirstPartOffset(shapeOffset);
+
+        if (kind == ProjectedGeometryCache.SHAPE_POINTS) {
+            for (int part = 0; part < partCount; part++) {
+                int pointCount = ProjectedGeometryCache.getPointCount(projected, partOffset);
+                for (int i = 0; i < pointCount; i++) {
+                    drawn = drawPoint(boundingBox, canvas,
+                            ProjectedGeometryCache.getX(projected, partOffset, i),
+                            ProjectedGeometryCache.getY(projected, partOffset, i),
+                            featureStyle) || drawn;
+                }
+                partOffset = ProjectedGeometryCache.getNextOffset(projected, partOffset);
+            }
+        } else {
+            boolean polygon = kind == ProjectedGeometryCache.SHAPE_POLYGONS;
+            Path path = new Path();
+            for (int part = 0; part < partCount; part++) {
+                addProjectedPoints(simplifyTolerance, boundingBox, canvas, path, projected, partOffset);
+                if (polygon) {
+                    path.close();
+                }
+                partOffset = ProjectedGeometryCache.getNextOffset(projected, partOffset);
+            }
+            if (polygon) {
+                drawn = drawPolygonPath(canvas, path, featureStyle);
+            } else {
+                drawn = drawLinePath(canvas, path, featureStyle);
+            }
+        }
+
+        return drawn;
+    }
+
+    /**
+     * Add the projected part points to the path, simplifying them when
+     * simplifying geometries
+     *
+     * @param simplifyTolerance simplify tolerance in meters
+     * @param boundingBox       bounding box
+     * @param canvas            feature tile canvas
+     * @param path              path
+     * @param projected         projected geometry buffer
+     * @param partOffset        part offset
+     */
+    private void addProjectedPoints(double simplifyTolerance, BoundingBox boundingBox, FeatureTileCanvas canvas, Path path, ByteBuffer projected, int partOffset) {
+
+        int[] indices = null;
+        int pointCount = ProjectedGeometryCache.getPointCount(projected, partOffset);
+        if (simplifyGeometries) {
+            // Projected coordinates are already in meters
+            indices = ProjectedGeometryCache.simplify(projected, partOffset, simplifyTolerance);
+            pointCount = indices.length;
+        }
+
+        for (int i = 0; i < pointCount; i++) {
+            int index = indices != null ? indices[i] : i;
+            float x = TileBoundingBoxUtils.getXPixel(canvas.getWidth(), boundingBox,
+                    ProjectedGeometryCache.getX(projected, partOffset, index));
+            float y = TileBoundingBoxUtils.getYPixel(canvas.getHeight(), boundingBox,
+                    ProjectedGeometryCache.getY(projected, partOffset, index));
+            if (i == 0) {
+                path.moveTo(x, y);
+            } else {
+                path.lineTo(x, y);
+            }
+        }
+    }
+
     /**
      * Draw the geometry on the canvas
      *
@@ -400,14 +935,14 @@ public class DefaultFeatureTiles extends FeatureTiles {
             case CIRCULARSTRING:
                 LineString lineString = (LineString) geometry;
                 Path linePath = new Path();
-                addLineString(simplifyTolerance, boundingBox, transform, linePath, lineString);
+                addLineString(simplifyTolerance, boundingBox, transform, canvas, linePath, lineString);
                 drawn = drawLinePath(canvas, linePath, featureStyle);
                 break;
             case POLYGON:
             case TRIANGLE:
                 Polygon polygon = (Polygon) geometry;
                 Path polygonPath = new Path();
-                addPolygon(simplifyTolerance, boundingBox, transform, polygonPath, polygon);
+                addPolygon(simplifyTolerance, boundingBox, transform, canvas, polygonPath, polygon);
                 drawn = drawPolygonPath(canvas, polygonPath, featureStyle);
                 break;
             case MULTIPOINT:
@@ -420,7 +955,7 @@ public class DefaultFeatureTiles extends FeatureTiles {
                 MultiLineString multiLineString = (MultiLineString) geometry;
                 Path multiLinePath = new Path();
                 for (LineString lineStringFromMulti : multiLineString.getLineStrings()) {
-                    addLineString(simplifyTolerance, boundingBox, transform, multiLinePath, lineStringFromMulti);
+                    addLineString(simplifyTolerance, boundingBox, transform, canvas, multiLinePath, lineStringFromMulti);
                 }
                 drawn = drawLinePath(canvas, multiLinePath, featureStyle);
                 break;
@@ -428,7 +963,7 @@ public class DefaultFeatureTiles extends FeatureTiles {
                 MultiPolygon multiPolygon = (MultiPolygon) geometry;
                 Path multiPolygonPath = new Path();
                 for (Polygon polygonFromMulti : multiPolygon.getPolygons()) {
-                    addPolygon(simplifyTolerance, boundingBox, transform, multiPolygonPath, polygonFromMulti);
+                    addPolygon(simplifyTolerance, boundingBox, transform, canvas, multiPolygonPath, polygonFromMulti);
                 }
                 drawn = drawPolygonPath(canvas, multiPolygonPath, featureStyle);
                 break;
@@ -436,7 +971,7 @@ public class DefaultFeatureTiles extends FeatureTiles {
                 CompoundCurve compoundCurve = (CompoundCurve) geometry;
                 Path compoundCurvePath = new Path();
                 for (LineString lineStringFromCompoundCurve : compoundCurve.getLineStrings()) {
-                    addLineString(simplifyTolerance, boundingBox, transform, compoundCurvePath, lineStringFromCompoundCurve);
+                    addLineString(simplifyTolerance, boundingBox, transform, canvas, compoundCurvePath, lineStringFromCompoundCurve);
                 }
                 drawn = drawLinePath(canvas, compoundCurvePath, featureStyle);
                 break;
@@ -445,7 +980,7 @@ public class DefaultFeatureTiles extends FeatureTiles {
                 PolyhedralSurface polyhedralSurface = (PolyhedralSurface) geometry;
                 Path polyhedralSurfacePath = new Path();
                 for (Polygon polygonFromPolyhedralSurface : polyhedralSurface.getPolygons()) {
-                    addPolygon(simplifyTolerance, boundingBox, transform, polyhedralSurfacePath, polygonFromPolyhedralSurface);
+                    addPolygon(simplifyTolerance, boundingBox, transform, canvas, polyhedralSurfacePath, polygonFromPolyhedralSurface);
                 }
                 drawn = drawPolygonPath(canvas, polyhedralSurfacePath, featureStyle);
                 break;
@@ -512,10 +1047,11 @@ public class DefaultFeatureTiles extends FeatureTiles {
      * @param simplifyTolerance simplify tolerance in meters
      * @param boundingBox       bounding box
      * @param transform         projection transform
+     * @param canvas            feature tile canvas
      * @param path              path
      * @param lineString        line string
      */
-    private void addLineString(double simplifyTolerance, BoundingBox boundingBox, ProjectionTransform transform, Path path, LineString lineString) {
+    private void addLineString(double simplifyTolerance, BoundingBox boundingBox, ProjectionTransform transform, FeatureTileCanvas canvas, Path path, LineString lineString) {
 
         List<Point> points = lineString.getPoints();
 
@@ -524,19 +1060,7 @@ public class DefaultFeatureTiles extends FeatureTiles {
             // Try to simplify the number of points in the LineString
             points = simplifyPoints(simplifyTolerance, points);
 
-            for (int i = 0; i < points.size(); i++) {
-                Point point = points.get(i);
-                Point webMercatorPoint = transform.transform(point);
-                float x = TileBoundingBoxUtils.getXPixel(tileWidth, boundingBox,
-                        webMercatorPoint.getX());
-                float y = TileBoundingBoxUtils.getYPixel(tileHeight, boundingBox,
-                        webMercatorPoint.getY());
-                if (i == 0) {
-                    path.moveTo(x, y);
-                } else {
-                    path.lineTo(x, y);
-                }
-            }
+            addPoints(boundingBox, transform, canvas, path, points);
         }
     }
 
@@ -546,10 +1070,11 @@ public class DefaultFeatureTiles extends FeatureTiles {
      * @param simplifyTolerance simplify tolerance in meters
      * @param boundingBox       bounding box
      * @param transform         projection transform
+     * @param canvas            feature tile canvas
      * @param path              path
      * @param polygon           polygon
      */
-    private void addPolygon(double simplifyTolerance, BoundingBox boundingBox, ProjectionTransform transform, Path path, Polygon polygon) {
+    private void addPolygon(double simplifyTolerance, BoundingBox boundingBox, ProjectionTransform transform, FeatureTileCanvas canvas, Path path, Polygon polygon) {
         List<LineString> rings = polygon.getRings();
         if (!rings.isEmpty()) {
 
@@ -557,14 +1082,14 @@ public class DefaultFeatureTiles extends FeatureTiles {
             LineString polygonLineString = rings.get(0);
             List<Point> polygonPoints = polygonLineString.getPoints();
             if (polygonPoints.size() >= 2) {
-                addRing(simplifyTolerance, boundingBox, transform, path, polygonPoints);
+                addRing(simplifyTolerance, boundingBox, transform, canvas, path, polygonPoints);
 
                 // Add the holes
                 for (int i = 1; i < rings.size(); i++) {
                     LineString holeLineString = rings.get(i);
                     List<Point> holePoints = holeLineString.getPoints();
                     if (holePoints.size() >= 2) {
-                        addRing(simplifyTolerance, boundingBox, transform, path, holePoints);
+                        addRing(simplifyTolerance, boundingBox, transform, canvas, path, holePoints);
                     }
                 }
             }
@@ -577,28 +1102,45 @@ public class DefaultFeatureTiles extends FeatureTiles {
      * @param simplifyTolerance simplify tolerance in meters
      * @param boundingBox       bounding box
      * @param transform         projection transform
+     * @param canvas            feature tile canvas
      * @param path              path
      * @param points            points
      */
-    private void addRing(double simplifyTolerance, BoundingBox boundingBox, ProjectionTransform transform, Path path, List<Point> points) {
+    private void addRing(double simplifyTolerance, BoundingBox boundingBox, ProjectionTransform transform, FeatureTileCanvas canvas, Path path, List<Point> points) {
 
         // Try to simplify the number of points in the LineString
         points = simplifyPoints(simplifyTolerance, points);
 
-        for (int i = 0; i < points.size(); i++) {
-            Point point = points.get(i);
-            Point webMercatorPoint = transform.transform(point);
-            float x = TileBoundingBoxUtils.getXPixel(tileWidth, boundingBox,
-                    webMercatorPoint.getX());
-            float y = TileBoundingBoxUtils.getYPixel(tileHeight, boundingBox,
-                    webMercatorPoint.getY());
+        addPoints(boundingBox, transform, canvas, path, points);
+        path.close();
+    }
+
+    /**
+     * Add the points to the path, transforming them to web mercator as a
+     * single batch
+     *
+     * @param boundingBox bounding box
+     * @param transform   projection transform
+     * @param canvas      feature tile canvas
+     * @param path        path
+     * @param points      points
+     */
+    private void addPoints(BoundingBox boundingBox, ProjectionTransform transform, FeatureTileCanvas canvas, Path path, List<Point> points) {
+
+        double[] coordinates = ProjectionTransformCache.toCoordinates(points);
+        ProjectionTransformCache.transform(transform, coordinates);
+
+        for (int i = 0; i < coordinates.length; i += 2) {
+            float x = TileBoundingBoxUtils.getXPixel(canvas.getWidth(), boundingBox,
+                    coordinates[i]);
+            float y = TileBoundingBoxUtils.getYPixel(canvas.getHeight(), boundingBox,
+                    coordinates[i + 1]);
             if (i == 0) {
                 path.moveTo(x, y);
             } else {
                 path.lineTo(x, y);
             }
         }
-        path.close();
     }
 
     /**
@@ -612,14 +1154,31 @@ public class DefaultFeatureTiles extends FeatureTiles {
      * @return true if drawn
      */
     private boolean drawPoint(BoundingBox boundingBox, ProjectionTransform transform, FeatureTileCanvas canvas, Point point, FeatureStyle featureStyle) {
+        Point webMercatorPoint = transform.transform(point);
+        return drawPoint(boundingBox, canvas, webMercatorPoint.getX(), webMercatorPoint.getY(), featureStyle);
+    }
+
+    /**
+     * Draw the web mercator point on the canvas
+     *
+     * @param boundingBox  bounding box
+     * @param canvas       draw canvas
+     * @param webMercatorX web mercator x
+     * @param webMercatorY web mercator y
+     * @param featureStyle feature style
+     * @return true if drawn
+     */
+    private boolean drawPoint(BoundingBox boundingBox, FeatureTileCanvas canvas, double webMercatorX, double webMercatorY, FeatureStyle featureStyle) {
 
         boolean drawn = false;
 
-        Point webMercatorPoint = transform.transform(point);
-        float x = TileBoundingBoxUtils.getXPixel(tileWidth, boundingBox,
-                webMercatorPoint.getX());
-        float y = TileBoundingBoxUtils.getYPixel(tileHeight, boundingBox,
-                webMercatorPoint.getY());
+        int canvasWidth = canvas.getWidth();
+        int canvasHeight = canvas.getHeight();
+
+        float x = TileBoundingBoxUtils.getXPixel(canvasWidth, boundingBox,
+                webMercatorX);
+        float y = TileBoundingBoxUtils.getYPixel(canvasHeight, boundingBox,
+                webMercatorY);
 
         if (featureStyle != null && featureStyle.useIcon()) {
 
@@ -629,7 +1188,7 @@ public class DefaultFeatureTiles extends FeatureTiles {
             int width = icon.getWidth();
             int height = icon.getHeight();
 
-            if (x >= 0 - width && x <= tileWidth + width && y >= 0 - height && y <= tileHeight + height) {
+            if (x >= 0 - width && x <= canvasWidth + width && y >= 0 - height && y <= canvasHeight + height) {
 
                 float anchorU = (float) iconRow.getAnchorUOrDefault();
                 float anchorV = (float) iconRow.getAnchorVOrDefault();
@@ -642,7 +1201,7 @@ public class DefaultFeatureTiles extends FeatureTiles {
                 RectF destination = new RectF(left, top, right, bottom);
 
                 Canvas iconCanvas = canvas.getIconCanvas();
-                iconCanvas.drawBitmap(icon, null, destination, pointPaint);
+                iconCanvas.drawBitmap(icon, null, destination, getThreadPaint(pointPaint));
                 drawn = true;
 
             }
@@ -651,12 +1210,12 @@ public class DefaultFeatureTiles extends FeatureTiles {
 
             float width = this.density * pointIcon.getWidth();
             float height = this.density * pointIcon.getHeight();
-            if (x >= 0 - width && x <= tileWidth + width && y >= 0 - height && y <= tileHeight + height) {
+            if (x >= 0 - width && x <= canvasWidth + width && y >= 0 - height && y <= canvasHeight + height) {
                 Canvas iconCanvas = canvas.getIconCanvas();
                 float left = x - this.density * pointIcon.getXOffset();
                 float top = y - this.density * pointIcon.getYOffset();
                 RectF rect = new RectF(left, top, left + width, top + height);
-                iconCanvas.drawBitmap(pointIcon.getIcon(), null, rect, pointPaint);
+                iconCanvas.drawBitmap(pointIcon.getIcon(), null, rect, getThreadPaint(pointPaint));
                 drawn = true;
             }
 
@@ -672,7 +1231,7 @@ public class DefaultFeatureTiles extends FeatureTiles {
             if (radius == null) {
                 radius = this.density * pointRadius;
             }
-            if (x >= 0 - radius && x <= tileWidth + radius && y >= 0 - radius && y <= tileHeight + radius) {
+            if (x >= 0 - radius && x <= canvasWidth + radius && y >= 0 - radius && y <= canvasHeight + radius) {
                 Paint pointPaint = getPointPaint(featureStyle);
                 Canvas pointCanvas = canvas.getPointCanvas();
                 pointCanvas.drawCircle(x, y, radius, pointPaint);
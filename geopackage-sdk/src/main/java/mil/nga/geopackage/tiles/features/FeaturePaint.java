@@ -2,8 +2,8 @@ package mil.nga.geopackage.tiles.features;
 
 import android.graphics.Paint;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Paint objects for drawing the different types for a single feature
@@ -14,9 +14,10 @@ import java.util.Map;
 public class FeaturePaint {
 
     /**
-     * Map between draw types and paint objects
+     * Map between draw types and paint objects, concurrent for tiles drawn
+     * on multiple threads
      */
-    private Map<FeatureDrawType, Paint> featurePaints = new HashMap<>();
+    private Map<FeatureDrawType, Paint> featurePaints = new ConcurrentHashMap<>();
 
     /**
      * Constructor
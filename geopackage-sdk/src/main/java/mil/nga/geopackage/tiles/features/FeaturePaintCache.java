@@ -122,7 +122,7 @@ public class FeaturePaintCache {
      * @param type    feature draw type
      * @param paint   paint
      */
-    public void setPaint(long styleId, FeatureDrawType type, Paint paint) {
+    public synchronized void setPaint(long styleId, FeatureDrawType type, Paint paint) {
         FeaturePaint featurePaint = getFeaturePaint(styleId);
         if (featurePaint == null) {
             featurePaint = new FeaturePaint();
@@ -4,9 +4,13 @@ import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Matrix;
 
+import mil.nga.geopackage.io.BitmapPool;
+
 /**
  * Feature Tile Canvas for creating layered tiles to draw ordered features.
- * Draw Order: polygons, lines, points, icons
+ * Draw Order: polygons, lines, points, icons. Layer bitmaps are only created
+ * when first drawn to, and when a bitmap pool is provided are acquired from
+ * and released back to the pool.
  *
  * @author osbornb
  * @since 3.2.0
@@ -53,6 +57,11 @@ public class FeatureTileCanvas {
      */
     private final Canvas[] layeredCanvas = new Canvas[4];
 
+    /**
+     * Optional layer bitmap pool
+     */
+    private final BitmapPool bitmapPool;
+
     /**
      * Constructor
      *
@@ -60,8 +69,41 @@ public class FeatureTileCanvas {
      * @param tileHeight tile height
      */
     public FeatureTileCanvas(int tileWidth, int tileHeight) {
+        this(tileWidth, tileHeight, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param tileWidth  tile width
+     * @param tileHeight tile height
+     * @param bitmapPool layer bitmap pool, null to create and recycle layers
+     * @since 4.0.1
+     */
+    public FeatureTileCanvas(int tileWidth, int tileHeight, BitmapPool bitmapPool) {
         this.tileWidth = tileWidth;
         this.tileHeight = tileHeight;
+        this.bitmapPool = bitmapPool;
+    }
+
+    /**
+     * Get the canvas width
+     *
+     * @return width
+     * @since 4.0.1
+     */
+    public int getWidth() {
+        return tileWidth;
+    }
+
+    /**
+     * Get the canvas height
+     *
+     * @return height
+     * @since 4.0.1
+     */
+    public int getHeight() {
+        return tileHeight;
     }
 
     /**
@@ -157,7 +199,7 @@ public class FeatureTileCanvas {
                     canvas = layeredCanvas[layer];
                 } else {
                     canvas.drawBitmap(layerBitmap, new Matrix(), null);
-                    layerBitmap.recycle();
+                    releaseBitmap(layerBitmap);
                 }
 
                 layeredBitmap[layer] = null;
@@ -175,7 +217,7 @@ public class FeatureTileCanvas {
         for (int layer = 0; layer < 4; layer++) {
             Bitmap bitmap = layeredBitmap[layer];
             if (bitmap != null) {
-                bitmap.recycle();
+                releaseBitmap(bitmap);
                 layeredBitmap[layer] = null;
                 layeredCanvas[layer] = null;
             }
@@ -218,9 +260,26 @@ public class FeatureTileCanvas {
      * @param layer layer index
      */
     private void createBitmapAndCanvas(int layer) {
-        layeredBitmap[layer] = Bitmap.createBitmap(tileWidth,
-                tileHeight, Bitmap.Config.ARGB_8888);
+        if (bitmapPool != null) {
+            layeredBitmap[layer] = bitmapPool.acquire(tileWidth, tileHeight);
+        } else {
+            layeredBitmap[layer] = Bitmap.createBitmap(tileWidth,
+                    tileHeight, Bitmap.Config.ARGB_8888);
+        }
         layeredCanvas[layer] = new Canvas(layeredBitmap[layer]);
     }
 
+    /**
+     * Release the layer bitmap to the pool, or recycle it
+     *
+     * @param bitmap bitmap
+     */
+    private void releaseBitmap(Bitmap bitmap) {
+        if (bitmapPool != null) {
+            bitmapPool.release(bitmap);
+        } else {
+            bitmap.recycle();
+        }
+    }
+
 }
@@ -4,7 +4,9 @@ import android.content.Context;
 
 import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackage;
+import mil.nga.geopackage.GeoPackageException;
 import mil.nga.geopackage.extension.nga.link.FeatureTileTableLinker;
+import mil.nga.geopackage.proj.ProjectionTransformCache;
 import mil.nga.geopackage.tiles.TileBoundingBoxUtils;
 import mil.nga.geopackage.tiles.TileGenerator;
 import mil.nga.geopackage.tiles.TileGrid;
@@ -29,6 +31,31 @@ public class FeatureTileGenerator extends TileGenerator {
      */
     private boolean linkTables = true;
 
+    /**
+     * Metatile size in tiles per side, 1 to draw each tile individually
+     */
+    private int metatileSize = 1;
+
+    /**
+     * Zoom level of the cached metatile
+     */
+    private int metatileZoom = -1;
+
+    /**
+     * Min x coordinate of the cached metatile
+     */
+    private long metatileX = -1;
+
+    /**
+     * Min y coordinate of the cached metatile
+     */
+    private long metatileY = -1;
+
+    /**
+     * Cached tile bytes of the current metatile
+     */
+    private byte[][] metatile;
+
     /**
      * Constructor
      *
@@ -151,8 +178,8 @@ public class FeatureTileGenerator extends TileGenerator {
     @Override
     public BoundingBox getBoundingBox(int zoom) {
 
-        ProjectionTransform projectionToWebMercator = projection
-                .getTransformation(ProjectionConstants.EPSG_WEB_MERCATOR);
+        ProjectionTransform projectionToWebMercator = ProjectionTransformCache
+                .getTransformation(projection, ProjectionConstants.EPSG_WEB_MERCATOR);
         BoundingBox webMercatorBoundingBox = boundingBox
                 .transform(projectionToWebMercator);
 
@@ -172,6 +199,7 @@ public class FeatureTileGenerator extends TileGenerator {
      */
     @Override
     public void close() {
+        metatile = null;
         featureTiles.close();
         super.close();
     }
@@ -197,6 +225,36 @@ public class FeatureTileGenerator extends TileGenerator {
         this.linkTables = linkTables;
     }
 
+    /**
+     * Get the metatile size
+     *
+     * @return metatile size in tiles per side
+     * @since 4.0.1
+     */
+    public int getMetatileSize() {
+        return metatileSize;
+    }
+
+    /**
+     * Set the metatile size. When greater than 1, blocks of size by size tiles
+     * are drawn with a single feature query onto one canvas and sliced into
+     * tiles, such as 4 or 8 for high zoom levels with geometries crossing
+     * many tiles.
+     *
+     * @param metatileSize metatile size in tiles per side, 1 to draw each tile
+     *                     individually
+     * @see FeatureTiles#drawMetatileBytes(int, int, int, int)
+     * @since 4.0.1
+     */
+    public void setMetatileSize(int metatileSize) {
+        if (metatileSize < 1) {
+            throw new GeoPackageException(
+                    "Metatile size must be at least 1: " + metatileSize);
+        }
+        this.metatileSize = metatileSize;
+        metatile = null;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -216,13 +274,69 @@ public class FeatureTileGenerator extends TileGenerator {
 
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getTileBlockSize() {
+        return metatileSize;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     protected byte[] createTile(int z, long x, long y) {
 
-        byte[] tileData = featureTiles.drawTileBytes((int) x, (int) y, z);
+        byte[] tileData;
+
+        if (metatileSize > 1) {
+            tileData = createMetatileTile(z, x, y);
+        } else {
+            tileData = featureTiles.drawTileBytes((int) x, (int) y, z);
+        }
+
+        return tileData;
+    }
+
+    /**
+     * Create the tile from the cached metatile, drawing the metatile when not
+     * cached. Metatiles are aligned to the min tile of the zoom level tile
+     * grid and tiles are generated metatile by metatile, so only the current
+     * metatile is cached.
+     *
+     * @param z zoom level
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return tile bytes
+     */
+    private byte[] createMetatileTile(int z, long x, long y) {
+
+        long gridMinX = 0;
+        long gridMinY = 0;
+        TileGrid tileGrid = getTileGrid(z);
+        if (tileGrid != null) {
+            gridMinX = tileGrid.getMinX();
+            gridMinY = tileGrid.getMinY();
+        }
+        long minX = x - ((x - gridMinX) % metatileSize);
+        long minY = y - ((y - gridMinY) % metatileSize);
+
+        if (metatile == null || z != metatileZoom || minX != metatileX
+                || minY != metatileY) {
+            // Release the previous metatile before drawing the next
+            metatile = null;
+            metatile = featureTiles.drawMetatileBytes((int) minX, (int) minY, z,
+                    metatileSize);
+            metatileZoom = z;
+            metatileX = minX;
+            metatileY = minY;
+        }
+
+        // Release the tile bytes once retrieved
+        int index = (int) ((y - minY) * metatileSize + (x - minX));
+        byte[] tileData = metatile[index];
+        metatile[index] = null;
 
         return tileData;
     }
@@ -0,0 +1,219 @@
+package mil.nga.geopackage.tiles.features;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.tiles.TileGrid;
+
+/**
+ * Concurrent renderer of feature tiles for a single feature table, drawing
+ * tiles on a pool of worker threads. Each tile draws to its own layered
+ * canvas with per thread copies of the default paints, while the style paint,
+ * icon, and geometry caches are shared across workers.
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public class FeatureTileRenderer {
+
+    /**
+     * Feature tiles
+     */
+    private final FeatureTiles featureTiles;
+
+    /**
+     * Worker threads
+     */
+    private final int threads;
+
+    /**
+     * Worker executor
+     */
+    private ExecutorService executor;
+
+    /**
+     * Constructor, using a worker per available processor
+     *
+     * @param featureTiles feature tiles
+     */
+    public FeatureTileRenderer(FeatureTiles featureTiles) {
+        this(featureTiles, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param featureTiles feature tiles
+     * @param threads      worker threads
+     */
+    public FeatureTileRenderer(FeatureTiles featureTiles, int threads) {
+        if (threads < 1) {
+            throw new GeoPackageException(
+                    "Worker threads must be at least 1: " + threads);
+        }
+        this.featureTiles = featureTiles;
+        this.threads = threads;
+        featureTiles.setThreadPaints(true);
+    }
+
+    /**
+     * Get the feature tiles
+     *
+     * @return feature tiles
+     */
+    public FeatureTiles getFeatureTiles() {
+        return featureTiles;
+    }
+
+    /**
+     * Get the worker threads
+     *
+     * @return threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Draw a tile bitmap on a worker thread
+     *
+     * @param x    x coordinate
+     * @param y    y coordinate
+     * @param zoom zoom level
+     * @return future tile bitmap, or null
+     */
+    public Future<Bitmap> drawTile(final int x, final int y, final int zoom) {
+        return getExecutor().submit(new Callable<Bitmap>() {
+            @Override
+            public Bitmap call() {
+                return featureTiles.drawTile(x, y, zoom);
+            }
+        });
+    }
+
+    /**
+     * Draw tile bytes on a worker thread
+     *
+     * @param x    x coordinate
+     * @param y    y coordinate
+     * @param zoom zoom level
+     * @return future tile bytes, or null
+     */
+    public Future<byte[]> drawTileBytes(final int x, final int y,
+                                        final int zoom) {
+        return getExecutor().submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+                return featureTiles.drawTileBytes(x, y, zoom);
+            }
+        });
+    }
+
+    /**
+     * Draw the tile bytes of the tile grid concurrently, waiting for all tiles
+     * to complete
+     *
+     * @param tileGrid tile grid
+     * @param zoom     zoom level
+     * @param listener tile listener, called from the worker threads
+     * @return number of drawn tiles
+     */
+    public int drawTiles(TileGrid tileGrid, final int zoom,
+                         final TileListener listener) {
+
+        ExecutorService executor = getExecutor();
+
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (long x = tileGrid.getMinX(); x <= tileGrid.getMaxX(); x++) {
+            for (long y = tileGrid.getMinY(); y <= tileGrid.getMaxY(); y++) {
+                final int tileX = (int) x;
+                final int tileY = (int) y;
+                futures.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        byte[] tileData = featureTiles.drawTileBytes(tileX,
+                                tileY, zoom);
+                        boolean drawn = tileData != null;
+                        if (drawn) {
+                            listener.onTile(tileX, tileY, zoom, tileData);
+                        }
+                        return drawn;
+                    }
+                }));
+            }
+        }
+
+        int drawn = 0;
+        try {
+            for (Future<Boolean> future : futures) {
+                if (future.get()) {
+                    drawn++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeoPackageException(
+                    "Interrupted drawing feature tiles. Table: "
+                            + featureTiles.getFeatureDao().getTableName(), e);
+        } catch (ExecutionException e) {
+            throw new GeoPackageException(
+                    "Failed to draw feature tiles. Table: "
+                            + featureTiles.getFeatureDao().getTableName(),
+                    e.getCause());
+        } finally {
+            for (Future<Boolean> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        return drawn;
+    }
+
+    /**
+     * Shutdown the worker threads. The feature tiles are not closed.
+     */
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Get the worker executor, creating it if needed
+     *
+     * @return executor
+     */
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(threads);
+        }
+        return executor;
+    }
+
+    /**
+     * Listener of drawn tiles
+     */
+    public interface TileListener {
+
+        /**
+         * Called from a worker thread when a tile is drawn
+         *
+         * @param x        x coordinate
+         * @param y        y coordinate
+         * @param zoom     zoom level
+         * @param tileData tile bytes
+         */
+        void onTile(int x, int y, int zoom, byte[] tileData);
+
+    }
+
+}
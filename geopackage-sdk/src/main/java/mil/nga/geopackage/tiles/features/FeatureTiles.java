@@ -5,21 +5,27 @@ import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.Bitmap.CompressFormat;
+import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Paint.Style;
+import android.graphics.Rect;
 import android.util.Log;
 
 import org.locationtech.proj4j.units.Units;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackage;
 import mil.nga.geopackage.GeoPackageException;
 import mil.nga.geopackage.R;
+import mil.nga.geopackage.extension.nga.generalize.FeatureGeneralization;
 import mil.nga.geopackage.extension.nga.style.FeatureStyle;
 import mil.nga.geopackage.extension.nga.style.FeatureTableStyles;
 import mil.nga.geopackage.extension.nga.style.IconCache;
@@ -27,14 +33,20 @@ import mil.nga.geopackage.extension.nga.style.IconDao;
 import mil.nga.geopackage.extension.nga.style.IconRow;
 import mil.nga.geopackage.extension.nga.style.StyleDao;
 import mil.nga.geopackage.extension.nga.style.StyleRow;
+import mil.nga.geopackage.features.index.FeatureDensityPyramid;
+import mil.nga.geopackage.features.index.FeatureIndexLazyResults;
 import mil.nga.geopackage.features.index.FeatureIndexManager;
 import mil.nga.geopackage.features.index.FeatureIndexResults;
+import mil.nga.geopackage.features.index.FeatureIndexWindowResults;
 import mil.nga.geopackage.features.user.FeatureCursor;
 import mil.nga.geopackage.features.user.FeatureDao;
 import mil.nga.geopackage.features.user.FeatureRow;
 import mil.nga.geopackage.io.BitmapConverter;
+import mil.nga.geopackage.io.BitmapPool;
+import mil.nga.geopackage.proj.ProjectionTransformCache;
 import mil.nga.geopackage.style.Color;
 import mil.nga.geopackage.tiles.TileBoundingBoxUtils;
+import mil.nga.geopackage.tiles.TileGrid;
 import mil.nga.geopackage.tiles.TileUtils;
 import mil.nga.sf.GeometryType;
 import mil.nga.sf.Point;
@@ -89,6 +101,13 @@ public abstract class FeatureTiles {
      */
     protected FeatureTableStyles featureTableStyles;
 
+    /**
+     * When not null, low zoom levels are drawn from generalized geometries
+     *
+     * @since 4.0.1
+     */
+    protected FeatureGeneralization generalization;
+
     /**
      * Tile width
      */
@@ -164,6 +183,31 @@ public abstract class FeatureTiles {
      */
     private IconCache iconCache = new IconCache();
 
+    /**
+     * Bitmap pool of tile and layer bitmaps
+     */
+    protected BitmapPool bitmapPool = new BitmapPool();
+
+    /**
+     * When true, drawing uses per thread copies of the default paints
+     */
+    private volatile boolean threadPaints = false;
+
+    /**
+     * Default paint version, incremented when the default paints change
+     */
+    private volatile int paintVersion = 0;
+
+    /**
+     * Per thread copies of the default paints
+     */
+    private final ThreadLocal<ThreadPaints> threadPaintCopies = new ThreadLocal<ThreadPaints>() {
+        @Override
+        protected ThreadPaints initialValue() {
+            return new ThreadPaints();
+        }
+    };
+
     /**
      * Height overlapping pixels between tile images
      */
@@ -333,6 +377,11 @@ public abstract class FeatureTiles {
                 featureTableStyles = null;
             }
 
+            generalization = new FeatureGeneralization(geoPackage, featureDao);
+            if (!generalization.has()) {
+                generalization = null;
+            }
+
         }
 
         calculateDrawOverlap();
@@ -348,6 +397,7 @@ public abstract class FeatureTiles {
             indexManager.close();
         }
         emptyImage.recycle();
+        bitmapPool.clear();
     }
 
     /**
@@ -356,6 +406,8 @@ public abstract class FeatureTiles {
      */
     public void calculateDrawOverlap() {
 
+        paintsChanged();
+
         if (pointIcon != null) {
             heightOverlap = this.density * pointIcon.getHeight();
             widthOverlap = this.density * pointIcon.getWidth();
@@ -429,6 +481,7 @@ public abstract class FeatureTiles {
         linePaint.setStrokeWidth(this.density * lineStrokeWidth);
         polygonPaint.setStrokeWidth(this.density * polygonStrokeWidth);
         featurePaintCache.clear();
+        paintsChanged();
     }
 
     /**
@@ -545,6 +598,43 @@ public abstract class FeatureTiles {
         this.featureTableStyles = featureTableStyles;
     }
 
+    /**
+     * Get the feature generalization
+     *
+     * @return feature generalization, null when drawn at full resolution
+     * @since 4.0.1
+     */
+    public FeatureGeneralization getGeneralization() {
+        return generalization;
+    }
+
+    /**
+     * Set the feature generalization used to draw low zoom levels from
+     * generalized geometries
+     *
+     * @param generalization feature generalization, null to draw at full
+     *                       resolution
+     * @since 4.0.1
+     */
+    public void setGeneralization(FeatureGeneralization generalization) {
+        this.generalization = generalization;
+    }
+
+    /**
+     * Get the generalization level of the zoom level
+     *
+     * @param zoom zoom level
+     * @return generalization band max zoom, -1 when drawn at full resolution
+     * @since 4.0.1
+     */
+    protected int getGeneralizationLevel(int zoom) {
+        int level = -1;
+        if (generalization != null) {
+            level = generalization.getLevel(zoom);
+        }
+        return level;
+    }
+
     /**
      * Ignore the feature table styles within the GeoPackage
      *
@@ -698,6 +788,7 @@ public abstract class FeatureTiles {
             throw new AssertionError("Point Paint can not be null");
         }
         this.pointPaint = pointPaint;
+        paintsChanged();
     }
 
     /**
@@ -760,6 +851,7 @@ public abstract class FeatureTiles {
     public void setLineStrokeWidth(float lineStrokeWidth) {
         this.lineStrokeWidth = lineStrokeWidth;
         linePaint.setStrokeWidth(this.density * lineStrokeWidth);
+        paintsChanged();
     }
 
     /**
@@ -780,6 +872,7 @@ public abstract class FeatureTiles {
      */
     public void setLineColor(int lineColor) {
         linePaint.setColor(lineColor);
+        paintsChanged();
     }
 
     /**
@@ -800,6 +893,7 @@ public abstract class FeatureTiles {
      */
     public void setLineAlpha(int lineAlpha) {
         linePaint.setAlpha(lineAlpha);
+        paintsChanged();
     }
 
     /**
@@ -844,6 +938,7 @@ public abstract class FeatureTiles {
     public void setPolygonStrokeWidth(float polygonStrokeWidth) {
         this.polygonStrokeWidth = polygonStrokeWidth;
         polygonPaint.setStrokeWidth(this.density * polygonStrokeWidth);
+        paintsChanged();
     }
 
     /**
@@ -864,6 +959,7 @@ public abstract class FeatureTiles {
      */
     public void setPolygonColor(int polygonColor) {
         polygonPaint.setColor(polygonColor);
+        paintsChanged();
     }
 
     /**
@@ -884,6 +980,7 @@ public abstract class FeatureTiles {
      */
     public void setPolygonAlpha(int polygonAlpha) {
         polygonPaint.setAlpha(polygonAlpha);
+        paintsChanged();
     }
 
     /**
@@ -924,6 +1021,7 @@ public abstract class FeatureTiles {
             throw new AssertionError("Polygon Fill Paint can not be null");
         }
         this.polygonFillPaint = polygonFillPaint;
+        paintsChanged();
     }
 
     /**
@@ -944,6 +1042,7 @@ public abstract class FeatureTiles {
      */
     public void setPolygonFillColor(int polygonFillColor) {
         polygonFillPaint.setColor(polygonFillColor);
+        paintsChanged();
     }
 
     /**
@@ -964,6 +1063,7 @@ public abstract class FeatureTiles {
      */
     public void setPolygonFillAlpha(int polygonFillAlpha) {
         polygonFillPaint.setAlpha(polygonFillAlpha);
+        paintsChanged();
     }
 
     /**
@@ -1033,6 +1133,62 @@ public abstract class FeatureTiles {
         this.simplifyGeometries = simplifyGeometries;
     }
 
+    /**
+     * Is drawing with per thread copies of the default paints enabled
+     *
+     * @return true if thread paints
+     * @since 4.0.1
+     */
+    public boolean isThreadPaints() {
+        return threadPaints;
+    }
+
+    /**
+     * Set drawing with per thread copies of the default paints, so tiles can
+     * be drawn concurrently while paints are changed. Copies are refreshed
+     * after paint setters and {@link #calculateDrawOverlap()}.
+     *
+     * @param threadPaints true to draw with thread paints
+     * @since 4.0.1
+     */
+    public void setThreadPaints(boolean threadPaints) {
+        this.threadPaints = threadPaints;
+        paintsChanged();
+    }
+
+    /**
+     * Get the paint to draw with for the default paint, a copy owned by the
+     * current thread when thread paints are enabled
+     *
+     * @param paint default paint
+     * @return draw paint
+     * @since 4.0.1
+     */
+    protected Paint getThreadPaint(Paint paint) {
+        Paint drawPaint = paint;
+        if (threadPaints) {
+            ThreadPaints copies = threadPaintCopies.get();
+            int version = paintVersion;
+            if (copies.version != version) {
+                copies.paints.clear();
+                copies.version = version;
+            }
+            drawPaint = copies.paints.get(paint);
+            if (drawPaint == null) {
+                drawPaint = new Paint(paint);
+                copies.paints.put(paint, drawPaint);
+            }
+        }
+        return drawPaint;
+    }
+
+    /**
+     * Mark the default paints as changed, refreshing thread paint copies
+     */
+    private void paintsChanged() {
+        paintVersion++;
+    }
+
     /**
      * Draw the tile and get the bytes from the x, y, and zoom level
      *
@@ -1056,13 +1212,156 @@ public abstract class FeatureTiles {
                 Log.e(FeatureTiles.class.getSimpleName(), "Failed to create tile. x: " + x + ", y: "
                         + y + ", zoom: " + zoom, e);
             } finally {
-                bitmap.recycle();
+                releaseBitmap(bitmap);
             }
         }
 
         return tileData;
     }
 
+    /**
+     * Determine if the implementation draws metatiles, bitmaps spanning
+     * multiple tiles in a single draw
+     *
+     * @return true if metatiles are supported
+     * @since 4.0.1
+     */
+    public boolean isMetatileSupported() {
+        return false;
+    }
+
+    /**
+     * Draw the tile bytes of a metatile, a block of up to size by size tiles
+     * drawn with a single feature query onto one canvas and sliced into the
+     * individual tiles. Geometries shared by the tiles are read and
+     * transformed once. Blocks exceeding the max features per tile, or
+     * implementations not supporting metatiles, draw each tile individually.
+     * Metatile bitmaps are pooled, so large sizes retain more memory.
+     *
+     * @param minX min x coordinate of the metatile
+     * @param minY min y coordinate of the metatile
+     * @param zoom zoom level
+     * @param size metatile size in tiles per side
+     * @return tile bytes indexed by (y - minY) * size + (x - minX), with null
+     * tile bytes for tiles not drawn or outside of the tile matrix
+     * @since 4.0.1
+     */
+    public byte[][] drawMetatileBytes(int minX, int minY, int zoom, int size) {
+
+        byte[][] tiles = new byte[size * size][];
+
+        int tilesPerSide = TileBoundingBoxUtils.tilesPerSide(zoom);
+        int columns = Math.max(0, Math.min(size, tilesPerSide - minX));
+        int rows = Math.max(0, Math.min(size, tilesPerSide - minY));
+
+        if (columns > 0 && rows > 0) {
+
+            boolean drawn = false;
+
+            if (isMetatileSupported() && (columns > 1 || rows > 1)) {
+
+                BoundingBox metatileBoundingBox = TileBoundingBoxUtils
+                        .getWebMercatorBoundingBox(new TileGrid(minX, minY,
+                                minX + columns - 1, minY + rows - 1), zoom);
+
+                int width = columns * tileWidth;
+                int height = rows * tileHeight;
+
+                Bitmap metatile = null;
+                if (isIndexQuery()) {
+                    // Expand the query by the overlap pixels at the metatile pixel scale
+                    FeatureIndexResults results = indexManager.query(
+                            expandBoundingBox(metatileBoundingBox, width, height),
+                            WEB_MERCATOR_PROJECTION);
+                    try {
+                        long count = results.count();
+                        drawn = maxFeaturesPerTile == null || count <= maxFeaturesPerTile.longValue();
+                        if (drawn && count > 0) {
+                            metatile = drawTile(zoom, metatileBoundingBox, results,
+                                    width, height);
+                        }
+                    } finally {
+                        results.close();
+                    }
+                } else {
+                    FeatureCursor cursor = featureDao.queryForAll();
+                    try {
+                        int count = cursor.getCount();
+                        drawn = maxFeaturesPerTile == null || count <= maxFeaturesPerTile;
+                        if (drawn && count > 0) {
+                            metatile = drawTile(zoom, metatileBoundingBox, cursor,
+                                    width, height);
+                        }
+                    } finally {
+                        cursor.close();
+                    }
+                }
+
+                if (metatile != null) {
+                    try {
+                        sliceMetatile(metatile, minX, minY, zoom, size, columns, rows, tiles);
+                    } finally {
+                        releaseBitmap(metatile);
+                    }
+                }
+            }
+
+            if (!drawn) {
+                for (int row = 0; row < rows; row++) {
+                    for (int column = 0; column < columns; column++) {
+                        tiles[row * size + column] = drawTileBytes(minX + column,
+                                minY + row, zoom);
+                    }
+                }
+            }
+        }
+
+        return tiles;
+    }
+
+    /**
+     * Slice the metatile bitmap into tile bytes
+     *
+     * @param metatile metatile bitmap
+     * @param minX     min x coordinate of the metatile
+     * @param minY     min y coordinate of the metatile
+     * @param zoom     zoom level
+     * @param size     metatile size in tiles per side
+     * @param columns  metatile columns within the tile matrix
+     * @param rows     metatile rows within the tile matrix
+     * @param tiles    tile bytes to populate
+     */
+    private void sliceMetatile(Bitmap metatile, int minX, int minY, int zoom,
+                               int size, int columns, int rows, byte[][] tiles) {
+
+        Rect source = new Rect();
+        Rect destination = new Rect(0, 0, tileWidth, tileHeight);
+
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+
+                source.set(column * tileWidth, row * tileHeight,
+                        (column + 1) * tileWidth, (row + 1) * tileHeight);
+
+                Bitmap tile = createNewBitmap();
+                new Canvas(tile).drawBitmap(metatile, source, destination, null);
+                tile = checkIfDrawn(tile);
+
+                if (tile != null) {
+                    try {
+                        tiles[row * size + column] = BitmapConverter.toBytes(
+                                tile, compressFormat);
+                    } catch (IOException e) {
+                        Log.e(FeatureTiles.class.getSimpleName(), "Failed to create tile. x: "
+                                + (minX + column) + ", y: " + (minY + row) + ", zoom: " + zoom, e);
+                    } finally {
+                        releaseBitmap(tile);
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Draw a tile bitmap from the x, y, and zoom level
      *
@@ -1092,14 +1391,73 @@ public abstract class FeatureTiles {
     public Bitmap drawTileQueryIndex(int x, int y, int zoom) {
 
         // Get the web mercator bounding box
-        BoundingBox webMercatorBoundingBox = TileBoundingBoxUtils
+        final BoundingBox webMercatorBoundingBox = TileBoundingBoxUtils
                 .getWebMercatorBoundingBox(x, y, zoom);
 
-        Bitmap bitmap = null;
+        // Reject over dense tiles from exact density counts before querying
+        FeatureDensityPyramid density = indexManager.getDensityPyramid();
+        if (maxFeaturesPerTile != null && density != null && density.isExact(zoom)) {
+            long densityCount = density.count(x, y, zoom);
+            if (densityCount > maxFeaturesPerTile.longValue()) {
+                Bitmap bitmap = null;
+                if (maxFeaturesTileDraw != null) {
+                    FeatureIndexResults results = new FeatureIndexLazyResults(densityCount) {
+                        @Override
+                        protected FeatureIndexResults query() {
+                            return queryIndexedFeatures(webMercatorBoundingBox);
+                        }
+                    };
+                    try {
+                        bitmap = maxFeaturesTileDraw.drawTile(tileWidth, tileHeight, densityCount, results);
+                    } finally {
+                        results.close();
+                    }
+                }
+                return bitmap;
+            }
+        }
 
         // Query for geometries matching the bounds in the index
         FeatureIndexResults results = queryIndexedFeatures(webMercatorBoundingBox);
 
+        return drawTileQueryIndex(zoom, webMercatorBoundingBox, results);
+    }
+
+    /**
+     * Query for the feature density count of the tile, without querying
+     * features
+     *
+     * @param x    x coordinate
+     * @param y    y coordinate
+     * @param zoom zoom level
+     * @return density count, exact at or below the density exact zoom and an
+     * upper bound above it, or null when no density pyramid is available
+     * @since 4.0.1
+     */
+    public Long queryDensityCount(int x, int y, int zoom) {
+        Long count = null;
+        FeatureDensityPyramid density = indexManager != null ? indexManager.getDensityPyramid() : null;
+        if (density != null) {
+            count = density.count(x, y, zoom);
+        }
+        return count;
+    }
+
+    /**
+     * Draw a tile bitmap from the queried index results of the tile location,
+     * such as a window of {@link #queryIndexedFeatures(TileGrid, int)}
+     *
+     * @param zoom                   zoom level
+     * @param webMercatorBoundingBox tile web mercator bounding box
+     * @param results                feature index results, closed when drawn
+     * @return drawn bitmap, or null
+     * @since 4.0.1
+     */
+    public Bitmap drawTileQueryIndex(int zoom, BoundingBox webMercatorBoundingBox,
+                                     FeatureIndexResults results) {
+
+        Bitmap bitmap = null;
+
         try {
 
             long tileCount = results.count();
@@ -1208,6 +1566,52 @@ public abstract class FeatureTiles {
         return results;
     }
 
+    /**
+     * Query for feature results of each tile in the tile grid with a single
+     * index query of the tile grid bounds. Each feature id is assigned to
+     * every tile its envelope overlaps and rows are streamed by id per tile,
+     * for full viewport refreshes of many tiles.
+     *
+     * @param tileGrid tile grid
+     * @param zoom     zoom level
+     * @return window results of each tile, ordered by row (y) and then column (x)
+     * @since 4.0.1
+     */
+    public FeatureIndexWindowResults queryIndexedFeatures(TileGrid tileGrid, int zoom) {
+
+        List<BoundingBox> webMercatorBoundingBoxes = new ArrayList<>();
+        for (long y = tileGrid.getMinY(); y <= tileGrid.getMaxY(); y++) {
+            for (long x = tileGrid.getMinX(); x <= tileGrid.getMaxX(); x++) {
+                webMercatorBoundingBoxes.add(TileBoundingBoxUtils
+                        .getWebMercatorBoundingBox(x, y, zoom));
+            }
+        }
+
+        return queryIndexedFeatures(webMercatorBoundingBoxes);
+    }
+
+    /**
+     * Query for feature results in each of the bounding boxes with a single
+     * index query of their union. Each feature id is assigned to every
+     * expanded bounding box its envelope overlaps.
+     *
+     * @param webMercatorBoundingBoxes web mercator bounding boxes
+     * @return window results, ordered as the bounding boxes
+     * @since 4.0.1
+     */
+    public FeatureIndexWindowResults queryIndexedFeatures(List<BoundingBox> webMercatorBoundingBoxes) {
+
+        // Expand each bounding box to handle features outside the tile that
+        // overlap
+        List<BoundingBox> expandedQueryBoundingBoxes = new ArrayList<>(
+                webMercatorBoundingBoxes.size());
+        for (BoundingBox webMercatorBoundingBox : webMercatorBoundingBoxes) {
+            expandedQueryBoundingBoxes.add(expandBoundingBox(webMercatorBoundingBox));
+        }
+
+        return indexManager.query(expandedQueryBoundingBoxes, WEB_MERCATOR_PROJECTION);
+    }
+
     /**
      * Create an expanded bounding box to handle features outside the tile that
      * overlap
@@ -1222,8 +1626,8 @@ public abstract class FeatureTiles {
 
         BoundingBox expandedBoundingBox = boundingBox;
 
-        ProjectionTransform toWebMercator = projection
-                .getTransformation(ProjectionConstants.EPSG_WEB_MERCATOR);
+        ProjectionTransform toWebMercator = ProjectionTransformCache
+                .getTransformation(projection, ProjectionConstants.EPSG_WEB_MERCATOR);
         if (!toWebMercator.isSameProjection()) {
             expandedBoundingBox = expandedBoundingBox.transform(toWebMercator);
         }
@@ -1231,8 +1635,8 @@ public abstract class FeatureTiles {
         expandedBoundingBox = expandBoundingBox(expandedBoundingBox);
 
         if (!toWebMercator.isSameProjection()) {
-            ProjectionTransform fromWebMercator = toWebMercator
-                    .getInverseTransformation();
+            ProjectionTransform fromWebMercator = ProjectionTransformCache
+                    .getInverseTransformation(toWebMercator);
             expandedBoundingBox = expandedBoundingBox
                     .transform(fromWebMercator);
         }
@@ -1262,17 +1666,47 @@ public abstract class FeatureTiles {
      * @since 3.2.0
      */
     public BoundingBox expandBoundingBox(BoundingBox webMercatorBoundingBox, BoundingBox tileWebMercatorBoundingBox) {
+        return expandBoundingBox(webMercatorBoundingBox, tileWebMercatorBoundingBox, tileWidth, tileHeight);
+    }
+
+    /**
+     * Create an expanded bounding box to handle features outside the drawn
+     * area that overlap, for an area drawn with the pixel width and height,
+     * such as a metatile spanning multiple tiles
+     *
+     * @param webMercatorBoundingBox web mercator bounding box
+     * @param width                  drawn width in pixels
+     * @param height                 drawn height in pixels
+     * @return bounding box
+     * @since 4.0.1
+     */
+    public BoundingBox expandBoundingBox(BoundingBox webMercatorBoundingBox, int width, int height) {
+        return expandBoundingBox(webMercatorBoundingBox, webMercatorBoundingBox, width, height);
+    }
+
+    /**
+     * Create an expanded bounding box to handle features outside the tile that
+     * overlap
+     *
+     * @param webMercatorBoundingBox     web mercator bounding box
+     * @param tileWebMercatorBoundingBox tile web mercator bounding box
+     * @param width                      tile width in pixels
+     * @param height                     tile height in pixels
+     * @return bounding box
+     */
+    private BoundingBox expandBoundingBox(BoundingBox webMercatorBoundingBox,
+                                          BoundingBox tileWebMercatorBoundingBox, int width, int height) {
 
         // Create an expanded bounding box to handle features outside the tile
         // that overlap
         double minLongitude = TileBoundingBoxUtils.getLongitudeFromPixel(
-                tileWidth, webMercatorBoundingBox, tileWebMercatorBoundingBox, 0 - widthOverlap);
+                width, webMercatorBoundingBox, tileWebMercatorBoundingBox, 0 - widthOverlap);
         double maxLongitude = TileBoundingBoxUtils.getLongitudeFromPixel(
-                tileWidth, webMercatorBoundingBox, tileWebMercatorBoundingBox, tileWidth + widthOverlap);
+                width, webMercatorBoundingBox, tileWebMercatorBoundingBox, width + widthOverlap);
         double maxLatitude = TileBoundingBoxUtils.getLatitudeFromPixel(
-                tileHeight, webMercatorBoundingBox, tileWebMercatorBoundingBox, 0 - heightOverlap);
+                height, webMercatorBoundingBox, tileWebMercatorBoundingBox, 0 - heightOverlap);
         double minLatitude = TileBoundingBoxUtils.getLatitudeFromPixel(
-                tileHeight, webMercatorBoundingBox, tileWebMercatorBoundingBox, tileHeight + heightOverlap);
+                height, webMercatorBoundingBox, tileWebMercatorBoundingBox, height + heightOverlap);
 
         // Choose the most expanded longitudes and latitudes
         minLongitude = Math.min(minLongitude, webMercatorBoundingBox.getMinLongitude());
@@ -1341,8 +1775,41 @@ public abstract class FeatureTiles {
      * @return bitmap
      */
     protected Bitmap createNewBitmap() {
-        return Bitmap.createBitmap(tileWidth,
-                tileHeight, Bitmap.Config.ARGB_8888);
+        return bitmapPool.acquire(tileWidth, tileHeight);
+    }
+
+    /**
+     * Release a drawn bitmap no longer in use to the bitmap pool
+     *
+     * @param bitmap bitmap
+     * @since 4.0.1
+     */
+    public void releaseBitmap(Bitmap bitmap) {
+        bitmapPool.release(bitmap);
+    }
+
+    /**
+     * Get the bitmap pool of tile and layer bitmaps
+     *
+     * @return bitmap pool
+     * @since 4.0.1
+     */
+    public BitmapPool getBitmapPool() {
+        return bitmapPool;
+    }
+
+    /**
+     * Set the bitmap pool of tile and layer bitmaps, such as a pool shared
+     * between feature tiles of the same tile size
+     *
+     * @param bitmapPool bitmap pool
+     * @since 4.0.1
+     */
+    public void setBitmapPool(BitmapPool bitmapPool) {
+        if (bitmapPool == null) {
+            throw new AssertionError("Bitmap Pool can not be null");
+        }
+        this.bitmapPool = bitmapPool;
     }
 
     /**
@@ -1351,7 +1818,7 @@ public abstract class FeatureTiles {
      * @return transform
      */
     protected ProjectionTransform getWgs84ToWebMercatorTransform() {
-        return WGS_84_PROJECTION.getTransformation(ProjectionConstants.EPSG_WEB_MERCATOR);
+        return ProjectionTransformCache.getTransformation(WGS_84_PROJECTION, WEB_MERCATOR_PROJECTION);
     }
 
     /**
@@ -1361,7 +1828,7 @@ public abstract class FeatureTiles {
      * @return transform
      */
     protected ProjectionTransform getProjectionToWebMercatorTransform(Projection projection) {
-        return projection.getTransformation(ProjectionConstants.EPSG_WEB_MERCATOR);
+        return ProjectionTransformCache.getTransformation(projection, WEB_MERCATOR_PROJECTION);
     }
 
     /**
@@ -1381,8 +1848,8 @@ public abstract class FeatureTiles {
 
             // Reproject to web mercator if not in meters
             if (projection != null && !projection.isUnit(Units.METRES)) {
-                ProjectionTransform toWebMercator = projection
-                        .getTransformation(WEB_MERCATOR_PROJECTION);
+                ProjectionTransform toWebMercator = ProjectionTransformCache
+                        .getTransformation(projection, WEB_MERCATOR_PROJECTION);
                 points = toWebMercator.transform(points);
             }
 
@@ -1392,8 +1859,8 @@ public abstract class FeatureTiles {
 
             // Reproject back to the original projection
             if (projection != null && !projection.isUnit(Units.METRES)) {
-                ProjectionTransform fromWebMercator = WEB_MERCATOR_PROJECTION
-                        .getTransformation(projection);
+                ProjectionTransform fromWebMercator = ProjectionTransformCache
+                        .getTransformation(WEB_MERCATOR_PROJECTION, projection);
                 simplifiedPoints = fromWebMercator.transform(simplifiedPoints);
             }
         } else {
@@ -1432,6 +1899,22 @@ public abstract class FeatureTiles {
         return featureStyle;
     }
 
+    /**
+     * Get the feature style for the feature id and geometry type
+     *
+     * @param featureId    feature id
+     * @param geometryType geometry type
+     * @return feature style
+     * @since 4.0.1
+     */
+    protected FeatureStyle getFeatureStyle(long featureId, GeometryType geometryType) {
+        FeatureStyle featureStyle = null;
+        if (featureTableStyles != null) {
+            featureStyle = featureTableStyles.getFeatureStyle(featureId, geometryType);
+        }
+        return featureStyle;
+    }
+
     /**
      * Get the icon bitmap from the icon row
      *
@@ -1453,7 +1936,7 @@ public abstract class FeatureTiles {
         Paint paint = getFeatureStylePaint(featureStyle, FeatureDrawType.CIRCLE);
 
         if (paint == null) {
-            paint = pointPaint;
+            paint = getThreadPaint(pointPaint);
         }
 
         return paint;
@@ -1470,7 +1953,7 @@ public abstract class FeatureTiles {
         Paint paint = getFeatureStylePaint(featureStyle, FeatureDrawType.STROKE);
 
         if (paint == null) {
-            paint = linePaint;
+            paint = getThreadPaint(linePaint);
         }
 
         return paint;
@@ -1487,7 +1970,7 @@ public abstract class FeatureTiles {
         Paint paint = getFeatureStylePaint(featureStyle, FeatureDrawType.STROKE);
 
         if (paint == null) {
-            paint = polygonPaint;
+            paint = getThreadPaint(polygonPaint);
         }
 
         return paint;
@@ -1522,7 +2005,7 @@ public abstract class FeatureTiles {
         }
 
         if (paint == null && !hasStyleColor && fillPolygon) {
-            paint = polygonFillPaint;
+            paint = getThreadPaint(polygonFillPaint);
         }
 
         return paint;
@@ -1630,7 +2113,7 @@ public abstract class FeatureTiles {
      */
     protected Bitmap checkIfDrawn(Bitmap bitmap) {
         if (isTransparent(bitmap)) {
-            bitmap.recycle();
+            releaseBitmap(bitmap);
             bitmap = null;
         }
         return bitmap;
@@ -1679,4 +2162,84 @@ public abstract class FeatureTiles {
      */
     public abstract Bitmap drawTile(int zoom, BoundingBox webMercatorBoundingBox, List<FeatureRow> featureRow);
 
+    /**
+     * Draw a bitmap of the width and height from feature index results, such
+     * as a metatile spanning multiple tiles
+     *
+     * @param zoom                   zoom level
+     * @param webMercatorBoundingBox web mercator bounding box
+     * @param results                feature index results
+     * @param width                  bitmap width
+     * @param height                 bitmap height
+     * @return bitmap
+     * @see #isMetatileSupported()
+     * @since 4.0.1
+     */
+    protected Bitmap drawTile(int zoom, BoundingBox webMercatorBoundingBox, FeatureIndexResults results, int width, int height) {
+        if (width != tileWidth || height != tileHeight) {
+            throw new GeoPackageException("Metatile drawing is not supported by "
+                    + getClass().getSimpleName());
+        }
+        return drawTile(zoom, webMercatorBoundingBox, results);
+    }
+
+    /**
+     * Draw a bitmap of the width and height from feature geometries in the
+     * provided cursor, such as a metatile spanning multiple tiles
+     *
+     * @param zoom                   zoom level
+     * @param webMercatorBoundingBox web mercator bounding box
+     * @param cursor                 feature cursor
+     * @param width                  bitmap width
+     * @param height                 bitmap height
+     * @return bitmap
+     * @see #isMetatileSupported()
+     * @since 4.0.1
+     */
+    protected Bitmap drawTile(int zoom, BoundingBox webMercatorBoundingBox, FeatureCursor cursor, int width, int height) {
+        if (width != tileWidth || height != tileHeight) {
+            throw new GeoPackageException("Metatile drawing is not supported by "
+                    + getClass().getSimpleName());
+        }
+        return drawTile(zoom, webMercatorBoundingBox, cursor);
+    }
+
+    /**
+     * Draw a bitmap of the width and height from the feature rows, such as a
+     * metatile spanning multiple tiles
+     *
+     * @param zoom                   zoom level
+     * @param webMercatorBoundingBox web mercator bounding box
+     * @param featureRow             feature row
+     * @param width                  bitmap width
+     * @param height                 bitmap height
+     * @return bitmap
+     * @see #isMetatileSupported()
+     * @since 4.0.1
+     */
+    protected Bitmap drawTile(int zoom, BoundingBox webMercatorBoundingBox, List<FeatureRow> featureRow, int width, int height) {
+        if (width != tileWidth || height != tileHeight) {
+            throw new GeoPackageException("Metatile drawing is not supported by "
+                    + getClass().getSimpleName());
+        }
+        return drawTile(zoom, webMercatorBoundingBox, featureRow);
+    }
+
+    /**
+     * Default paint copies of a single thread
+     */
+    private static class ThreadPaints {
+
+        /**
+         * Paint version of the copies
+         */
+        private int version = -1;
+
+        /**
+         * Copies by default paint instance
+         */
+        private final Map<Paint, Paint> paints = new IdentityHashMap<>();
+
+    }
+
 }
@@ -0,0 +1,821 @@
+package mil.nga.geopackage.tiles.features;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import mil.nga.geopackage.BoundingBox;
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.proj.ProjectionTransformCache;
+import mil.nga.sf.CompoundCurve;
+import mil.nga.sf.Geometry;
+import mil.nga.sf.GeometryCollection;
+import mil.nga.sf.GeometryType;
+import mil.nga.sf.LineString;
+import mil.nga.sf.MultiLineString;
+import mil.nga.sf.MultiPoint;
+import mil.nga.sf.MultiPolygon;
+import mil.nga.sf.Point;
+import mil.nga.sf.Polygon;
+import mil.nga.sf.PolyhedralSurface;
+import mil.nga.sf.proj.ProjectionTransform;
+
+/**
+ * Least recently used cache of feature geometries already projected to web
+ * mercator, keyed by generalization level and feature id and bounded by a
+ * byte budget. Each geometry is packed into a direct byte buffer of drawable
+ * shapes, so cached features are drawn without parsing the geometry or
+ * transforming coordinates. Buffers are only read with absolute gets, so they
+ * can be drawn by concurrent threads.
+ * <p>
+ * Buffer layout: envelope min x, min y, max x, max y doubles, shape count
+ * int, then for each shape the geometry type ordinal int, shape kind int,
+ * part count int, and for each part the point count int followed by the x
+ * and y doubles of each point.
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public class ProjectedGeometryCache {
+
+    /**
+     * Default max bytes of cached projected geometries
+     */
+    public static final long DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+
+    /**
+     * Full resolution generalization level
+     */
+    public static final int FULL_RESOLUTION = -1;
+
+    /**
+     * Points shape kind, a single part of points
+     */
+    public static final int SHAPE_POINTS = 0;
+
+    /**
+     * Lines shape kind, line string parts drawn as one path
+     */
+    public static final int SHAPE_LINES = 1;
+
+    /**
+     * Polygons shape kind, closed ring parts drawn as one path
+     */
+    public static final int SHAPE_POLYGONS = 2;
+
+    /**
+     * Shape count offset
+     */
+    private static final int SHAPE_COUNT_OFFSET = 32;
+
+    /**
+     * First shape offset
+     */
+    private static final int SHAPES_OFFSET = 36;
+
+    /**
+     * Cached buffers by level and feature id in access order
+     */
+    private final LinkedHashMap<Key, ByteBuffer> cache = new LinkedHashMap<>(
+            16, 0.75f, true);
+
+    /**
+     * Max bytes
+     */
+    private long maxBytes;
+
+    /**
+     * Cached bytes
+     */
+    private long bytes = 0;
+
+    /**
+     * Cache hits
+     */
+    private long hits = 0;
+
+    /**
+     * Cache misses
+     */
+    private long misses = 0;
+
+    /**
+     * Constructor
+     */
+    public ProjectedGeometryCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxBytes max bytes of cached projected geometries
+     */
+    public ProjectedGeometryCache(long maxBytes) {
+        setMaxBytes(maxBytes);
+    }
+
+    /**
+     * Get the max bytes
+     *
+     * @return max bytes
+     */
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Set the max bytes, evicting least recently used geometries over the
+     * budget
+     *
+     * @param maxBytes max bytes, 0 to disable caching
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new GeoPackageException(
+                    "Max bytes can not be negative: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    /**
+     * Get the cached bytes
+     *
+     * @return bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Get the number of cached geometries
+     *
+     * @return size
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * Get the cache hits
+     *
+     * @return hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the cache misses
+     *
+     * @return misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the full resolution projected geometry of the feature
+     *
+     * @param id feature id
+     * @return projected geometry buffer, null if not cached
+     */
+    public ByteBuffer get(long id) {
+        return get(FULL_RESOLUTION, id);
+    }
+
+    /**
+     * Get the projected geometry of the feature at the generalization level
+     *
+     * @param level generalization level, {@link #FULL_RESOLUTION} for the
+     *              full resolution geometry
+     * @param id    feature id
+     * @return projected geometry buffer, null if not cached
+     */
+    public synchronized ByteBuffer get(int level, long id) {
+        ByteBuffer buffer = cache.get(new Key(level, id));
+        if (buffer != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return buffer;
+    }
+
+    /**
+     * Determine if the projected geometry of the feature at the
+     * generalization level is cached, without counting a hit or miss or
+     * updating the access order
+     *
+     * @param level generalization level, {@link #FULL_RESOLUTION} for the
+     *              full resolution geometry
+     * @param id    feature id
+     * @return true if cached
+     */
+    public synchronized boolean contains(int level, long id) {
+        return cache.containsKey(new Key(level, id));
+    }
+
+    /**
+     * Cache the full resolution projected geometry of the feature
+     *
+     * @param id     feature id
+     * @param buffer projected geometry buffer
+     */
+    public void put(long id, ByteBuffer buffer) {
+        put(FULL_RESOLUTION, id, buffer);
+    }
+
+    /**
+     * Cache the projected geometry of the feature at the generalization level
+     *
+     * @param level  generalization level, {@link #FULL_RESOLUTION} for the
+     *               full resolution geometry
+     * @param id     feature id
+     * @param buffer projected geometry buffer
+     */
+    public synchronized void put(int level, long id, ByteBuffer buffer) {
+        if (buffer.capacity() <= maxBytes) {
+            ByteBuffer previous = cache.put(new Key(level, id), buffer);
+            if (previous != null) {
+                bytes -= previous.capacity();
+            }
+            bytes += buffer.capacity();
+            evict();
+        }
+    }
+
+    /**
+     * Remove the full resolution projected geometry of the feature
+     *
+     * @param id feature id
+     * @return removed buffer, null if not cached
+     */
+    public ByteBuffer remove(long id) {
+        return remove(FULL_RESOLUTION, id);
+    }
+
+    /**
+     * Remove the projected geometry of the feature at the generalization
+     * level
+     *
+     * @param level generalization level, {@link #FULL_RESOLUTION} for the
+     *              full resolution geometry
+     * @param id    feature id
+     * @return removed buffer, null if not cached
+     */
+    public synchronized ByteBuffer remove(int level, long id) {
+        ByteBuffer buffer = cache.remove(new Key(level, id));
+        if (buffer != null) {
+            bytes -= buffer.capacity();
+        }
+        return buffer;
+    }
+
+    /**
+     * Remove the projected geometries of the features at all generalization
+     * levels, such as after the features are edited
+     *
+     * @param ids feature ids
+     * @return number of removed buffers
+     */
+    public synchronized int remove(Collection<Long> ids) {
+        int removed = 0;
+        if (!ids.isEmpty()) {
+            Set<Long> idSet = ids instanceof Set ? (Set<Long>) ids : new HashSet<>(ids);
+            Iterator<Map.Entry<Key, ByteBuffer>> iterator = cache.entrySet()
+                    .iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Key, ByteBuffer> entry = iterator.next();
+                if (idSet.contains(entry.getKey().id)) {
+                    bytes -= entry.getValue().capacity();
+                    iterator.remove();
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Clear the cache
+     */
+    public synchronized void clear() {
+        cache.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Evict least recently used geometries until within the byte budget
+     */
+    private void evict() {
+        Iterator<Map.Entry<Key, ByteBuffer>> iterator = cache.entrySet()
+                .iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            bytes -= iterator.next().getValue().capacity();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Project the geometry and pack it into a direct buffer of drawable
+     * shapes
+     *
+     * @param geometry  geometry
+     * @param transform projection transform to web mercator
+     * @return projected geometry buffer
+     */
+    public static ByteBuffer encode(Geometry geometry,
+                                    ProjectionTransform transform) {
+
+        List<Shape> shapes = new ArrayList<>();
+        addShapes(geometry, shapes);
+
+        int size = SHAPES_OFFSET;
+        for (Shape shape : shapes) {
+            size += 12;
+            for (double[] part : shape.parts) {
+                size += 4 + part.length * 8;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size).order(
+                ByteOrder.nativeOrder());
+
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        buffer.position(SHAPE_COUNT_OFFSET);
+        buffer.putInt(shapes.size());
+        for (Shape shape : shapes) {
+            buffer.putInt(shape.geometryType.ordinal());
+            buffer.putInt(shape.kind);
+            buffer.putInt(shape.parts.size());
+            for (double[] part : shape.parts) {
+                ProjectionTransformCache.transform(transform, part);
+                buffer.putInt(part.length / 2);
+                for (int i = 0; i < part.length; i += 2) {
+                    double x = part[i];
+                    double y = part[i + 1];
+                    minX = Math.min(minX, x);
+                    minY = Math.min(minY, y);
+                    maxX = Math.max(maxX, x);
+                    maxY = Math.max(maxY, y);
+                    buffer.putDouble(x);
+                    buffer.putDouble(y);
+                }
+            }
+        }
+
+        buffer.putDouble(0, minX);
+        buffer.putDouble(8, minY);
+        buffer.putDouble(16, maxX);
+        buffer.putDouble(24, maxY);
+        buffer.position(0);
+
+        return buffer;
+    }
+
+    /**
+     * Get the web mercator bounding box of the projected geometry
+     *
+     * @param buffer projected geometry buffer
+     * @return bounding box, null if the geometry has no points
+     */
+    public static BoundingBox getBoundingBox(ByteBuffer buffer) {
+        BoundingBox boundingBox = null;
+        double minX = buffer.getDouble(0);
+        if (!Double.isInfinite(minX)) {
+            boundingBox = new BoundingBox(minX, buffer.getDouble(8),
+                    buffer.getDouble(16), buffer.getDouble(24));
+        }
+        return boundingBox;
+    }
+
+    /**
+     * Get the number of shapes
+     *
+     * @param buffer projected geometry buffer
+     * @return shape count
+     */
+    public static int getShapeCount(ByteBuffer buffer) {
+        return buffer.getInt(SHAPE_COUNT_OFFSET);
+    }
+
+    /**
+     * Get the offset of the first shape
+     *
+     * @return shape offset
+     */
+    public static int getFirstShapeOffset() {
+        return SHAPES_OFFSET;
+    }
+
+    /**
+     * Get the geometry type of the shape
+     *
+     * @param buffer      projected geometry buffer
+     * @param shapeOffset shape offset
+     * @return geometry type
+     */
+    public static GeometryType getGeometryType(ByteBuffer buffer,
+                                               int shapeOffset) {
+        return GeometryType.values()[buffer.getInt(shapeOffset)];
+    }
+
+    /**
+     * Get the kind of the shape
+     *
+     * @param buffer      projected geometry buffer
+     * @param shapeOffset shape offset
+     * @return shape kind
+     */
+    public static int getShapeKind(ByteBuffer buffer, int shapeOffset) {
+        return buffer.getInt(shapeOffset + 4);
+    }
+
+    /**
+     * Get the number of parts of the shape
+     *
+     * @param buffer      projected geometry buffer
+     * @param shapeOffset shape offset
+     * @return part count
+     */
+    public static int getPartCount(ByteBuffer buffer, int shapeOffset) {
+        return buffer.getInt(shapeOffset + 8);
+    }
+
+    /**
+     * Get the offset of the first part of the shape
+     *
+     * @param shapeOffset shape offset
+     * @return part offset
+     */
+    public static int getFirstPartOffset(int shapeOffset) {
+        return shapeOffset + 12;
+    }
+
+    /**
+     * Get the number of points of the part
+     *
+     * @param buffer     projected geometry buffer
+     * @param partOffset part offset
+     * @return point count
+     */
+    public static int getPointCount(ByteBuffer buffer, int partOffset) {
+        return buffer.getInt(partOffset);
+    }
+
+    /**
+     * Get the x coordinate of a part point
+     *
+     * @param buffer     projected geometry buffer
+     * @param partOffset part offset
+     * @param index      point index
+     * @return x coordinate
+     */
+    public static double getX(ByteBuffer buffer, int partOffset, int index) {
+        return buffer.getDouble(partOffset + 4 + index * 16);
+    }
+
+    /**
+     * Get the y coordinate of a part point
+     *
+     * @param buffer     projected geometry buffer
+     * @param partOffset part offset
+     * @param index      point index
+     * @return y coordinate
+     */
+    public static double getY(ByteBuffer buffer, int partOffset, int index) {
+        return buffer.getDouble(partOffset + 12 + index * 16);
+    }
+
+    /**
+     * Get the offset of the part following the part, or of the shape
+     * following the last part of a shape
+     *
+     * @param buffer     projected geometry buffer
+     * @param partOffset part offset
+     * @return next offset
+     */
+    public static int getNextOffset(ByteBuffer buffer, int partOffset) {
+        return partOffset + 4 + getPointCount(buffer, partOffset) * 16;
+    }
+
+    /**
+     * Simplify the part points to a similar curve with fewer points, using
+     * the Ramer Douglas Peucker algorithm on the packed coordinates
+     *
+     * @param buffer     projected geometry buffer
+     * @param partOffset part offset
+     * @param tolerance  simplify tolerance in meters
+     * @return indices of the retained points in order
+     */
+    public static int[] simplify(ByteBuffer buffer, int partOffset,
+                                 double tolerance) {
+
+        int count = getPointCount(buffer, partOffset);
+
+        boolean[] keep = new boolean[count];
+        int kept = count;
+
+        if (count < 3) {
+            for (int i = 0; i < count; i++) {
+                keep[i] = true;
+            }
+        } else {
+
+            keep[0] = true;
+            keep[count - 1] = true;
+            kept = 2;
+
+            int[] stack = new int[count * 2];
+            int stackSize = 0;
+            stack[stackSize++] = 0;
+            stack[stackSize++] = count - 1;
+
+            while (stackSize > 0) {
+
+                int end = stack[--stackSize];
+                int start = stack[--stackSize];
+
+                double startX = getX(buffer, partOffset, start);
+                double startY = getY(buffer, partOffset, start);
+                double endX = getX(buffer, partOffset, end);
+                double endY = getY(buffer, partOffset, end);
+
+                double maxDistance = 0;
+                int index = 0;
+                for (int i = start + 1; i < end; i++) {
+                    double distance = perpendicularDistance(
+                            getX(buffer, partOffset, i),
+                            getY(buffer, partOffset, i), startX, startY,
+                            endX, endY);
+                    if (distance > maxDistance) {
+                        index = i;
+                        maxDistance = distance;
+                    }
+                }
+
+                if (maxDistance > tolerance) {
+                    keep[index] = true;
+                    kept++;
+                    if (index - start > 1) {
+                        stack[stackSize++] = start;
+                        stack[stackSize++] = index;
+                    }
+                    if (end - index > 1) {
+                        stack[stackSize++] = index;
+                        stack[stackSize++] = end;
+                    }
+                }
+            }
+        }
+
+        int[] indices = new int[kept];
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) {
+                indices[position++] = i;
+            }
+        }
+
+        return indices;
+    }
+
+    /**
+     * Calculate the perpendicular distance between the point and the line
+     * through the start and end points
+     *
+     * @param x      point x
+     * @param y      point y
+     * @param startX line start x
+     * @param startY line start y
+     * @param endX   line end x
+     * @param endY   line end y
+     * @return distance
+     */
+    private static double perpendicularDistance(double x, double y,
+                                                double startX, double startY, double endX, double endY) {
+
+        double distance;
+        double dx = endX - startX;
+        double dy = endY - startY;
+        if (dx == 0 && dy == 0) {
+            distance = Math.hypot(x - startX, y - startY);
+        } else {
+            distance = Math.abs(dy * x - dx * y + endX * startY - endY
+                    * startX)
+                    / Math.hypot(dx, dy);
+        }
+        return distance;
+    }
+
+    /**
+     * Add the drawable shapes of the geometry
+     *
+     * @param geometry geometry
+     * @param shapes   shapes
+     */
+    private static void addShapes(Geometry geometry, List<Shape> shapes) {
+
+        GeometryType geometryType = geometry.getGeometryType();
+
+        switch (geometryType) {
+
+            case POINT:
+                List<Point> point = new ArrayList<>();
+                point.add((Point) geometry);
+                shapes.add(new Shape(geometryType, SHAPE_POINTS).addPart(point));
+                break;
+            case MULTIPOINT:
+                shapes.add(new Shape(geometryType, SHAPE_POINTS)
+                        .addPart(((MultiPoint) geometry).getPoints()));
+                break;
+            case LINESTRING:
+            case CIRCULARSTRING:
+                shapes.add(new Shape(geometryType, SHAPE_LINES)
+                        .addLineString((LineString) geometry));
+                break;
+            case MULTILINESTRING:
+                Shape multiLineShape = new Shape(geometryType, SHAPE_LINES);
+                for (LineString lineString : ((MultiLineString) geometry).getLineStrings()) {
+                    multiLineShape.addLineString(lineString);
+                }
+                shapes.add(multiLineShape);
+                break;
+            case COMPOUNDCURVE:
+                Shape compoundCurveShape = new Shape(geometryType, SHAPE_LINES);
+                for (LineString lineString : ((CompoundCurve) geometry).getLineStrings()) {
+                    compoundCurveShape.addLineString(lineString);
+                }
+                shapes.add(compoundCurveShape);
+                break;
+            case POLYGON:
+            case TRIANGLE:
+                shapes.add(new Shape(geometryType, SHAPE_POLYGONS)
+                        .addPolygon((Polygon) geometry));
+                break;
+            case MULTIPOLYGON:
+                Shape multiPolygonShape = new Shape(geometryType, SHAPE_POLYGONS);
+                for (Polygon polygon : ((MultiPolygon) geometry).getPolygons()) {
+                    multiPolygonShape.addPolygon(polygon);
+                }
+                shapes.add(multiPolygonShape);
+                break;
+            case POLYHEDRALSURFACE:
+            case TIN:
+                Shape surfaceShape = new Shape(geometryType, SHAPE_POLYGONS);
+                for (Polygon polygon : ((PolyhedralSurface) geometry).getPolygons()) {
+                    surfaceShape.addPolygon(polygon);
+                }
+                shapes.add(surfaceShape);
+                break;
+            case GEOMETRYCOLLECTION:
+                @SuppressWarnings("unchecked")
+                GeometryCollection<Geometry> geometryCollection = (GeometryCollection) geometry;
+                for (Geometry collectionGeometry : geometryCollection.getGeometries()) {
+                    addShapes(collectionGeometry, shapes);
+                }
+                break;
+            default:
+                throw new GeoPackageException("Unsupported Geometry Type: "
+                        + geometryType.getName());
+        }
+    }
+
+    /**
+     * Cache key of a generalization level and feature id
+     */
+    private static final class Key {
+
+        /**
+         * Generalization level
+         */
+        private final int level;
+
+        /**
+         * Feature id
+         */
+        private final long id;
+
+        /**
+         * Constructor
+         *
+         * @param level generalization level
+         * @param id    feature id
+         */
+        private Key(int level, long id) {
+            this.level = level;
+            this.id = id;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object obj) {
+            boolean equal = this == obj;
+            if (!equal && obj instanceof Key) {
+                Key other = (Key) obj;
+                equal = level == other.level && id == other.id;
+            }
+            return equal;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return 31 * level + (int) (id ^ (id >>> 32));
+        }
+
+    }
+
+    /**
+     * Drawable shape of unprojected parts
+     */
+    private static class Shape {
+
+        /**
+         * Geometry type
+         */
+        private final GeometryType geometryType;
+
+        /**
+         * Shape kind
+         */
+        private final int kind;
+
+        /**
+         * Packed part coordinates
+         */
+        private final List<double[]> parts = new ArrayList<>();
+
+        /**
+         * Constructor
+         *
+         * @param geometryType geometry type
+         * @param kind         shape kind
+         */
+        private Shape(GeometryType geometryType, int kind) {
+            this.geometryType = geometryType;
+            this.kind = kind;
+        }
+
+        /**
+         * Add a part of points
+         *
+         * @param points points
+         * @return shape
+         */
+        private Shape addPart(List<Point> points) {
+            parts.add(ProjectionTransformCache.toCoordinates(points));
+            return this;
+        }
+
+        /**
+         * Add a line string part, when at least two points
+         *
+         * @param lineString line string
+         * @return shape
+         */
+        private Shape addLineString(LineString lineString) {
+            List<Point> points = lineString.getPoints();
+            if (points.size() >= 2) {
+                addPart(points);
+            }
+            return this;
+        }
+
+        /**
+         * Add the polygon ring parts, when the exterior ring has at least two
+         * points
+         *
+         * @param polygon polygon
+         * @return shape
+         */
+        private Shape addPolygon(Polygon polygon) {
+            List<LineString> rings = polygon.getRings();
+            if (!rings.isEmpty() && rings.get(0).getPoints().size() >= 2) {
+                for (LineString ring : rings) {
+                    addLineString(ring);
+                }
+            }
+            return this;
+        }
+
+    }
+
+}
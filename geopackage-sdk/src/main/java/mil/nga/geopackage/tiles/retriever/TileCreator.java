@@ -7,8 +7,6 @@ import android.graphics.Rect;
 import android.graphics.RectF;
 import android.util.Log;
 
-import org.locationtech.proj4j.ProjCoordinate;
-
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -18,6 +16,7 @@ import mil.nga.geopackage.GeoPackageException;
 import mil.nga.geopackage.extension.nga.scale.TileScaling;
 import mil.nga.geopackage.extension.nga.scale.TileScalingType;
 import mil.nga.geopackage.io.BitmapConverter;
+import mil.nga.geopackage.proj.ProjectionTransformCache;
 import mil.nga.geopackage.tiles.TileBoundingBoxAndroidUtils;
 import mil.nga.geopackage.tiles.TileBoundingBoxUtils;
 import mil.nga.geopackage.tiles.TileGrid;
@@ -258,7 +257,7 @@ public class TileCreator {
         boolean hasTile = false;
 
         // Transform to the projection of the tiles
-        ProjectionTransform transformRequestToTiles = requestProjection.getTransformation(tilesProjection);
+        ProjectionTransform transformRequestToTiles = ProjectionTransformCache.getTransformation(requestProjection, tilesProjection);
         BoundingBox tilesBoundingBox = requestBoundingBox.transform(transformRequestToTiles);
 
         List<TileMatrix> tileMatrices = getTileMatrices(tilesBoundingBox);
@@ -292,7 +291,7 @@ public class TileCreator {
         GeoPackageTile tile = null;
 
         // Transform to the projection of the tiles
-        ProjectionTransform transformRequestToTiles = requestProjection.getTransformation(tilesProjection);
+        ProjectionTransform transformRequestToTiles = ProjectionTransformCache.getTransformation(requestProjection, tilesProjection);
         BoundingBox tilesBoundingBox = requestBoundingBox.transform(transformRequestToTiles);
 
         List<TileMatrix> tileMatrices = getTileMatrices(tilesBoundingBox);
@@ -458,16 +457,24 @@ public class TileCreator {
         // Projected tile pixels to draw the reprojected tile
         int[] projectedPixels = new int[requestedTileWidth * requestedTileHeight];
 
+        // Projected coordinates of a row of pixels
+        double[] coordinates = new double[requestedTileWidth * 2];
+
         // Retrieve each pixel in the new tile from the unprojected tile
         for (int y = 0; y < requestedTileHeight; y++) {
+
+            // Transform the row of pixel coordinates as a single batch
+            double latitude = requestBoundingBox.getMaxLatitude() - (y * requestedHeightUnitsPerPixel);
+            for (int x = 0; x < requestedTileWidth; x++) {
+                coordinates[x * 2] = requestBoundingBox.getMinLongitude() + (x * requestedWidthUnitsPerPixel);
+                coordinates[x * 2 + 1] = latitude;
+            }
+            ProjectionTransformCache.transform(transformRequestToTiles, coordinates);
+
             for (int x = 0; x < requestedTileWidth; x++) {
 
-                double longitude = requestBoundingBox.getMinLongitude() + (x * requestedWidthUnitsPerPixel);
-                double latitude = requestBoundingBox.getMaxLatitude() - (y * requestedHeightUnitsPerPixel);
-                ProjCoordinate fromCoord = new ProjCoordinate(longitude, latitude);
-                ProjCoordinate toCoord = transformRequestToTiles.transform(fromCoord);
-                double projectedLongitude = toCoord.x;
-                double projectedLatitude = toCoord.y;
+                double projectedLongitude = coordinates[x * 2];
+                double projectedLatitude = coordinates[x * 2 + 1];
 
                 int xPixel = (int) Math.round(((projectedLongitude - tilesBoundingBox.getMinLongitude()) / tilesDistanceWidth) * width);
                 int yPixel = (int) Math.round(((tilesBoundingBox.getMaxLatitude() - projectedLatitude) / tilesDistanceHeight) * height);
@@ -10,6 +10,7 @@ import mil.nga.geopackage.BoundingBox;
 import mil.nga.geopackage.GeoPackageException;
 import mil.nga.geopackage.contents.Contents;
 import mil.nga.geopackage.db.GeoPackageConnection;
+import mil.nga.geopackage.proj.ProjectionTransformCache;
 import mil.nga.geopackage.srs.SpatialReferenceSystem;
 import mil.nga.geopackage.tiles.TileBoundingBoxUtils;
 import mil.nga.geopackage.tiles.TileGrid;
@@ -598,7 +599,7 @@ public class TileDao extends UserDao<TileColumn, TileTable, TileRow, TileCursor>
         // Convert the bounding box to wgs84
         BoundingBox boundingBox = tileMatrixSet.getBoundingBox();
         BoundingBox wgs84BoundingBox = boundingBox.transform(
-                projection.getTransformation(
+                ProjectionTransformCache.getTransformation(projection,
                         ProjectionConstants.EPSG_WORLD_GEODETIC_SYSTEM));
 
         boolean xyzTiles = false;
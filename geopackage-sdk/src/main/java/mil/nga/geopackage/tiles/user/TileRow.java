@@ -7,6 +7,7 @@ import android.graphics.BitmapFactory.Options;
 import java.io.IOException;
 
 import mil.nga.geopackage.io.BitmapConverter;
+import mil.nga.geopackage.user.UserBlobInputStream;
 import mil.nga.geopackage.user.UserRow;
 
 /**
@@ -200,6 +201,19 @@ public class TileRow extends UserRow<TileColumn, TileTable> {
         setValue(getTileDataColumnIndex(), tileData);
     }
 
+    /**
+     * Stream the tile data in chunks from the tile table, without reading the
+     * full tile into memory. The row must include the id column and may be
+     * queried without the tile data column.
+     *
+     * @param tileDao tile DAO
+     * @return tile data input stream, close when done
+     * @since 4.0.1
+     */
+    public UserBlobInputStream getTileDataStream(TileDao tileDao) {
+        return tileDao.readBlob(getTileDataColumn().getName(), getId());
+    }
+
     /**
      * Get the tile data bitmap
      *
@@ -0,0 +1,295 @@
+package mil.nga.geopackage.user;
+
+import android.database.Cursor;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.db.GeoPackageDatabase;
+
+/**
+ * Input stream of a single user row blob value, read in chunks without
+ * materializing the full blob. Every chunk is read with the same
+ * parameterized substring query, so the statement is prepared once by the
+ * connection statement cache. Android does not expose SQLite incremental blob
+ * I/O, so chunked substring reads are used for both the standard and bindings
+ * connections.
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public class UserBlobInputStream extends InputStream {
+
+    /**
+     * Default chunk size, half of the default 2 MB cursor window to ensure
+     * space
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1048576;
+
+    /**
+     * Database connection
+     */
+    private final GeoPackageDatabase db;
+
+    /**
+     * Chunk substring query SQL
+     */
+    private final String chunkSql;
+
+    /**
+     * Blob length query SQL
+     */
+    private final String lengthSql;
+
+    /**
+     * Row id argument
+     */
+    private final String id;
+
+    /**
+     * Chunk size
+     */
+    private final int chunkSize;
+
+    /**
+     * Current chunk
+     */
+    private byte[] chunk;
+
+    /**
+     * Read position within the current chunk
+     */
+    private int chunkPosition = 0;
+
+    /**
+     * Blob offset of the next chunk
+     */
+    private long nextOffset = 0;
+
+    /**
+     * Blob length, -2 when not yet queried
+     */
+    private long length = -2;
+
+    /**
+     * End of blob flag
+     */
+    private boolean end = false;
+
+    /**
+     * Constructor
+     *
+     * @param db        database connection
+     * @param table     table name
+     * @param column    blob column name
+     * @param pkColumn  primary key column name
+     * @param id        row id
+     */
+    public UserBlobInputStream(GeoPackageDatabase db, String table,
+                               String column, String pkColumn, long id) {
+        this(db, table, column, pkColumn, id, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param db        database connection
+     * @param table     table name
+     * @param column    blob column name
+     * @param pkColumn  primary key column name
+     * @param id        row id
+     * @param chunkSize chunk size in bytes
+     */
+    public UserBlobInputStream(GeoPackageDatabase db, String table,
+                               String column, String pkColumn, long id, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new GeoPackageException(
+                    "Chunk size must be at least 1: " + chunkSize);
+        }
+        this.db = db;
+        String quotedColumn = CoreSQLUtils.quoteWrap(column);
+        String from = " FROM " + CoreSQLUtils.quoteWrap(table) + " WHERE "
+                + CoreSQLUtils.quoteWrap(pkColumn) + " = ?";
+        this.chunkSql = "SELECT substr(" + quotedColumn + ", ?, ?)" + from;
+        this.lengthSql = "SELECT length(" + quotedColumn + ")" + from;
+        this.id = String.valueOf(id);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Get the chunk size
+     *
+     * @return chunk size in bytes
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Get the total blob length
+     *
+     * @return length in bytes, -1 if the row does not exist or the value is
+     * null
+     */
+    public long length() {
+        if (length == -2) {
+            length = -1;
+            Cursor cursor = db.rawQuery(lengthSql, new String[]{id});
+            try {
+                if (cursor.moveToNext() && !cursor.isNull(0)) {
+                    length = cursor.getLong(0);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Read the remaining blob bytes into a new array
+     *
+     * @return bytes, null if the row does not exist or the value is null
+     * @throws IOException upon error
+     */
+    public byte[] readAll() throws IOException {
+        long remaining = length();
+        if (remaining < 0) {
+            return null;
+        }
+        remaining -= position();
+        byte[] bytes = new byte[(int) Math.max(0, remaining)];
+        int read = 0;
+        while (read < bytes.length) {
+            int count = read(bytes, read, bytes.length - read);
+            if (count < 0) {
+                break;
+            }
+            read += count;
+        }
+        if (read < bytes.length) {
+            byte[] partial = new byte[read];
+            System.arraycopy(bytes, 0, partial, 0, read);
+            bytes = partial;
+        }
+        return bytes;
+    }
+
+    /**
+     * Get the current read position within the blob
+     *
+     * @return position in bytes
+     */
+    public long position() {
+        long position = nextOffset;
+        if (chunk != null) {
+            position -= chunk.length - chunkPosition;
+        }
+        return position;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read() throws IOException {
+        int value = -1;
+        if (fill()) {
+            value = chunk[chunkPosition++] & 0xff;
+        }
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int read = 0;
+        while (read < len && fill()) {
+            int count = Math.min(len - read, chunk.length - chunkPosition);
+            System.arraycopy(chunk, chunkPosition, b, off + read, count);
+            chunkPosition += count;
+            read += count;
+        }
+        return read > 0 ? read : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Skipped chunks are not read.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        if (n > 0) {
+            if (chunk != null) {
+                skipped = Math.min(n, chunk.length - chunkPosition);
+                chunkPosition += skipped;
+            }
+            long remaining = n - skipped;
+            if (remaining > 0 && !end) {
+                long skip = Math.max(0,
+                        Math.min(remaining, length() - nextOffset));
+                nextOffset += skip;
+                skipped += skip;
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int available() throws IOException {
+        return chunk != null ? chunk.length - chunkPosition : 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        end = true;
+        chunk = null;
+    }
+
+    /**
+     * Fill the current chunk when fully read
+     *
+     * @return true if bytes are available
+     */
+    private boolean fill() {
+        if (chunk != null && chunkPosition < chunk.length) {
+            return true;
+        }
+        if (end) {
+            return false;
+        }
+        byte[] bytes = null;
+        Cursor cursor = db.rawQuery(chunkSql, new String[]{
+                String.valueOf(nextOffset + 1), String.valueOf(chunkSize), id});
+        try {
+            if (cursor.moveToNext()) {
+                bytes = cursor.getBlob(0);
+            }
+        } finally {
+            cursor.close();
+        }
+        if (bytes == null) {
+            bytes = new byte[0];
+        }
+        chunk = bytes;
+        chunkPosition = 0;
+        nextOffset += bytes.length;
+        end = bytes.length < chunkSize;
+        return bytes.length > 0;
+    }
+
+}
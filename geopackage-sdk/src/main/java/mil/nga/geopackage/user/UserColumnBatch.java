@@ -0,0 +1,254 @@
+package mil.nga.geopackage.user;
+
+import mil.nga.geopackage.GeoPackageException;
+
+/**
+ * Reusable columnar batch of user rows, holding primary key ids, numeric
+ * column values, and blob column values in primitive arrays. Arrays are
+ * allocated once at the batch capacity and refilled by each scan batch.
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public class UserColumnBatch {
+
+    /**
+     * Batch capacity
+     */
+    private final int capacity;
+
+    /**
+     * Numeric column names
+     */
+    private final String[] numericColumns;
+
+    /**
+     * Blob column names
+     */
+    private final String[] blobColumns;
+
+    /**
+     * Primary key ids
+     */
+    private final long[] ids;
+
+    /**
+     * Numeric values by numeric column index
+     */
+    private final double[][] numericValues;
+
+    /**
+     * Numeric null flags by numeric column index
+     */
+    private final boolean[][] numericNulls;
+
+    /**
+     * Blob values by blob column index
+     */
+    private final byte[][][] blobValues;
+
+    /**
+     * Number of rows in the batch
+     */
+    private int size = 0;
+
+    /**
+     * Constructor
+     *
+     * @param capacity       batch capacity
+     * @param numericColumns numeric column names
+     * @param blobColumns    blob column names
+     */
+    public UserColumnBatch(int capacity, String[] numericColumns,
+                           String[] blobColumns) {
+        if (capacity < 1) {
+            throw new GeoPackageException(
+                    "Batch capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+        this.numericColumns = numericColumns != null ? numericColumns
+                : new String[0];
+        this.blobColumns = blobColumns != null ? blobColumns : new String[0];
+        ids = new long[capacity];
+        numericValues = new double[this.numericColumns.length][capacity];
+        numericNulls = new boolean[this.numericColumns.length][capacity];
+        blobValues = new byte[this.blobColumns.length][capacity][];
+    }
+
+    /**
+     * Get the batch capacity
+     *
+     * @return capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the number of rows in the batch
+     *
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the batch has no rows
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the numeric column names
+     *
+     * @return numeric column names
+     */
+    public String[] getNumericColumns() {
+        return numericColumns;
+    }
+
+    /**
+     * Get the blob column names
+     *
+     * @return blob column names
+     */
+    public String[] getBlobColumns() {
+        return blobColumns;
+    }
+
+    /**
+     * Get the primary key ids, valid up to the batch size
+     *
+     * @return ids
+     */
+    public long[] getIds() {
+        return ids;
+    }
+
+    /**
+     * Get the numeric column index
+     *
+     * @param columnName numeric column name
+     * @return numeric column index
+     */
+    public int getNumericIndex(String columnName) {
+        return index(numericColumns, columnName);
+    }
+
+    /**
+     * Get the numeric values of the numeric column, valid up to the batch
+     * size
+     *
+     * @param index numeric column index
+     * @return values, 0.0 for null values
+     */
+    public double[] getNumericValues(int index) {
+        return numericValues[index];
+    }
+
+    /**
+     * Get the numeric values of the numeric column, valid up to the batch
+     * size
+     *
+     * @param columnName numeric column name
+     * @return values, 0.0 for null values
+     */
+    public double[] getNumericValues(String columnName) {
+        return getNumericValues(getNumericIndex(columnName));
+    }
+
+    /**
+     * Get the numeric null flags of the numeric column, valid up to the batch
+     * size
+     *
+     * @param index numeric column index
+     * @return null flags
+     */
+    public boolean[] getNumericNulls(int index) {
+        return numericNulls[index];
+    }
+
+    /**
+     * Get the numeric null flags of the numeric column, valid up to the batch
+     * size
+     *
+     * @param columnName numeric column name
+     * @return null flags
+     */
+    public boolean[] getNumericNulls(String columnName) {
+        return getNumericNulls(getNumericIndex(columnName));
+    }
+
+    /**
+     * Get the blob column index
+     *
+     * @param columnName blob column name
+     * @return blob column index
+     */
+    public int getBlobIndex(String columnName) {
+        return index(blobColumns, columnName);
+    }
+
+    /**
+     * Get the blob values of the blob column, valid up to the batch size
+     *
+     * @param index blob column index
+     * @return blob values, null for null values
+     */
+    public byte[][] getBlobValues(int index) {
+        return blobValues[index];
+    }
+
+    /**
+     * Get the blob values of the blob column, valid up to the batch size
+     *
+     * @param columnName blob column name
+     * @return blob values, null for null values
+     */
+    public byte[][] getBlobValues(String columnName) {
+        return getBlobValues(getBlobIndex(columnName));
+    }
+
+    /**
+     * Clear the batch rows, releasing blob value references
+     */
+    public void clear() {
+        for (byte[][] blobs : blobValues) {
+            for (int row = 0; row < size; row++) {
+                blobs[row] = null;
+            }
+        }
+        size = 0;
+    }
+
+    /**
+     * Set the number of rows in the batch
+     *
+     * @param size size
+     */
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Find the column name index
+     *
+     * @param columns    column names
+     * @param columnName column name
+     * @return index
+     */
+    private static int index(String[] columns, String columnName) {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equalsIgnoreCase(columnName)) {
+                return i;
+            }
+        }
+        throw new GeoPackageException(
+                "Column is not in the batch: " + columnName);
+    }
+
+}
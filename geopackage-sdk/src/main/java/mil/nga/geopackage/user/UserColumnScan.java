@@ -0,0 +1,258 @@
+package mil.nga.geopackage.user;
+
+import android.database.Cursor;
+
+import com.j256.ormlite.misc.IOUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import mil.nga.geopackage.GeoPackageException;
+import mil.nga.geopackage.db.CoreSQLUtils;
+import mil.nga.geopackage.db.GeoPackageDatabase;
+
+/**
+ * Forward only columnar scan of user rows in primary key order, filling a
+ * reusable {@link UserColumnBatch} of primitive arrays per batch query. Rows
+ * are read directly from the cursor without building column type arrays,
+ * boxed values, or row objects. Every batch runs the same parameterized SQL,
+ * so the statement is prepared once by the connection statement cache.
+ *
+ * @author osbornb
+ * @since 4.0.1
+ */
+public class UserColumnScan implements Closeable {
+
+    /**
+     * User DAO
+     */
+    private final UserDao<?, ?, ?, ?> dao;
+
+    /**
+     * Batch query SQL
+     */
+    private final String batchSql;
+
+    /**
+     * Single row query SQL of ids and numeric values, for rows too large for
+     * the cursor window
+     */
+    private final String rowSql;
+
+    /**
+     * Query arguments, the last being the exclusive lower primary key bound
+     */
+    private final String[] args;
+
+    /**
+     * Reusable batch
+     */
+    private final UserColumnBatch batch;
+
+    /**
+     * Largest primary key read
+     */
+    private long lastId = Long.MIN_VALUE;
+
+    /**
+     * Number of batches queried
+     */
+    private int batches = 0;
+
+    /**
+     * Scan completed flag
+     */
+    private boolean done = false;
+
+    /**
+     * Constructor
+     *
+     * @param dao            user DAO
+     * @param numericColumns numeric column names
+     * @param blobColumns    blob column names
+     * @param where          where clause
+     * @param whereArgs      where arguments
+     * @param batchSize      batch size
+     */
+    public UserColumnScan(UserDao<?, ?, ?, ?> dao, String[] numericColumns,
+                          String[] blobColumns, String where, String[] whereArgs,
+                          int batchSize) {
+        this.dao = dao;
+        this.batch = new UserColumnBatch(batchSize, numericColumns,
+                blobColumns);
+
+        String pkColumn = CoreSQLUtils.quoteWrap(dao.getPkColumnName());
+
+        StringBuilder columns = new StringBuilder(pkColumn);
+        for (String column : batch.getNumericColumns()) {
+            columns.append(", ").append(CoreSQLUtils.quoteWrap(column));
+        }
+        String numericColumnsSql = columns.toString();
+        for (String column : batch.getBlobColumns()) {
+            columns.append(", ").append(CoreSQLUtils.quoteWrap(column));
+        }
+
+        StringBuilder from = new StringBuilder(" FROM ");
+        from.append(CoreSQLUtils.quoteWrap(dao.getTableName()));
+        from.append(" WHERE ");
+        if (where != null) {
+            from.append("(").append(where).append(") AND ");
+        }
+        from.append(pkColumn).append(" > ? ORDER BY ").append(pkColumn)
+                .append(" LIMIT ");
+
+        batchSql = "SELECT " + columns + from + batchSize;
+        rowSql = "SELECT " + numericColumnsSql + from + 1;
+
+        int argsLength = whereArgs != null ? whereArgs.length : 0;
+        args = new String[argsLength + 1];
+        if (argsLength > 0) {
+            System.arraycopy(whereArgs, 0, args, 0, argsLength);
+        }
+    }
+
+    /**
+     * Get the reusable batch, refilled by each call to {@link #next()}
+     *
+     * @return batch
+     */
+    public UserColumnBatch getBatch() {
+        return batch;
+    }
+
+    /**
+     * Get the number of batches queried
+     *
+     * @return batches
+     */
+    public int getBatches() {
+        return batches;
+    }
+
+    /**
+     * Fill the batch with the next rows
+     *
+     * @return true if the batch contains rows
+     */
+    public boolean next() {
+
+        batch.clear();
+
+        if (done) {
+            return false;
+        }
+
+        GeoPackageDatabase db = dao.getDatabaseConnection();
+        args[args.length - 1] = String.valueOf(lastId);
+
+        int size = 0;
+        boolean invalid = false;
+
+        Cursor cursor = db.rawQuery(batchSql, args);
+        try {
+            batches++;
+            while (size < batch.getCapacity() && cursor.moveToNext()) {
+                if (cursor.isNull(0)) {
+                    // Row too large for the cursor window
+                    invalid = true;
+                    break;
+                }
+                readRow(cursor, size++, true);
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (invalid && size == 0) {
+            size = readLargeRow(db);
+        } else if (!invalid) {
+            done = size < batch.getCapacity();
+        }
+
+        batch.setSize(size);
+        if (size > 0) {
+            lastId = batch.getIds()[size - 1];
+        } else {
+            done = true;
+        }
+
+        return size > 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        done = true;
+        batch.clear();
+    }
+
+    /**
+     * Read the cursor row into the batch
+     *
+     * @param cursor cursor
+     * @param row    batch row
+     * @param blobs  true to read blob values from the cursor
+     */
+    private void readRow(Cursor cursor, int row, boolean blobs) {
+
+        batch.getIds()[row] = cursor.getLong(0);
+
+        int index = 1;
+        for (int i = 0; i < batch.getNumericColumns().length; i++, index++) {
+            boolean isNull = cursor.isNull(index);
+            batch.getNumericNulls(i)[row] = isNull;
+            batch.getNumericValues(i)[row] = isNull ? 0.0
+                    : cursor.getDouble(index);
+        }
+
+        if (blobs) {
+            for (int i = 0; i < batch.getBlobColumns().length; i++, index++) {
+                batch.getBlobValues(i)[row] = cursor.getBlob(index);
+            }
+        }
+    }
+
+    /**
+     * Read the next row, too large for the cursor window, as a single row
+     * batch with streamed blob values
+     *
+     * @param db database
+     * @return batch size
+     */
+    private int readLargeRow(GeoPackageDatabase db) {
+
+        int size = 0;
+
+        Cursor cursor = db.rawQuery(rowSql, args);
+        try {
+            if (cursor.moveToNext()) {
+                readRow(cursor, 0, false);
+                size = 1;
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (size > 0) {
+            long id = batch.getIds()[0];
+            for (int i = 0; i < batch.getBlobColumns().length; i++) {
+                UserBlobInputStream stream = dao.readBlob(
+                        batch.getBlobColumns()[i], id);
+                try {
+                    batch.getBlobValues(i)[0] = stream.readAll();
+                } catch (IOException e) {
+                    throw new GeoPackageException("Failed to read blob. table: "
+                            + dao.getTableName() + ", column: "
+                            + batch.getBlobColumns()[i] + ", id: " + id, e);
+                } finally {
+                    IOUtils.closeQuietly(stream);
+                }
+            }
+        }
+
+        return size;
+    }
+
+}
@@ -29,6 +29,11 @@ public abstract class UserConnection<TColumn extends UserColumn, TTable extends
      */
     protected TTable table;
 
+    /**
+     * Cursor window size in bytes, 0 for the platform default
+     */
+    protected long cursorWindowSize = 0;
+
     /**
      * Constructor
      *
@@ -68,6 +73,27 @@ public abstract class UserConnection<TColumn extends UserColumn, TTable extends
         this.table = table;
     }
 
+    /**
+     * Get the cursor window size of query results
+     *
+     * @return window size in bytes, 0 for the platform default
+     * @since 4.0.1
+     */
+    public long getCursorWindowSize() {
+        return cursorWindowSize;
+    }
+
+    /**
+     * Set the cursor window size of query results, applied when supported
+     *
+     * @param cursorWindowSize window size in bytes, 0 for the platform default
+     * @see UserCursor#isWindowSizeSupported()
+     * @since 4.0.1
+     */
+    public void setCursorWindowSize(long cursorWindowSize) {
+        this.cursorWindowSize = cursorWindowSize;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -319,6 +345,9 @@ public abstract class UserConnection<TColumn extends UserColumn, TTable extends
             }
             result.setColumns(userColumns);
         }
+        if (cursorWindowSize > 0) {
+            result.setWindowSize(cursorWindowSize);
+        }
         return result;
     }
 
@@ -1,6 +1,10 @@
 package mil.nga.geopackage.user;
 
+import android.database.AbstractWindowedCursor;
 import android.database.Cursor;
+import android.database.CursorWindow;
+import android.database.CursorWrapper;
+import android.os.Build;
 
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
@@ -201,6 +205,43 @@ public abstract class UserCursor<TColumn extends UserColumn, TTable extends User
         return columns;
     }
 
+    /**
+     * Determine if cursor window sizes can be set, requires Android P (API
+     * level 28) or later
+     *
+     * @return true if supported
+     * @since 4.0.1
+     */
+    public static boolean isWindowSizeSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.P;
+    }
+
+    /**
+     * Set the size of the cursor window the rows are read into. Larger
+     * windows fit large blob rows that otherwise require an invalid row
+     * requery, smaller windows bound the memory of large scans. Should be set
+     * before moving the cursor.
+     *
+     * @param windowSize window size in bytes
+     * @return true if set, false when not supported
+     * @since 4.0.1
+     */
+    public boolean setWindowSize(long windowSize) {
+        boolean set = false;
+        if (windowSize > 0 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            Cursor cursor = getWrappedCursor();
+            while (cursor instanceof CursorWrapper) {
+                cursor = ((CursorWrapper) cursor).getWrappedCursor();
+            }
+            if (cursor instanceof AbstractWindowedCursor) {
+                ((AbstractWindowedCursor) cursor).setWindow(new CursorWindow(
+                        table != null ? table.getTableName() : null, windowSize));
+                set = true;
+            }
+        }
+        return set;
+    }
+
     /**
      * Get the invalid positions found when retrieving rows
      *
@@ -221,6 +262,38 @@ public abstract class UserCursor<TColumn extends UserColumn, TTable extends User
         return !invalidPositions.isEmpty();
     }
 
+    /**
+     * Determine if the current row did not fit in the cursor window, as
+     * indicated by a null primary key value. The position is recorded for the
+     * invalid row requery, so the row is returned again after the original
+     * query rows when requery is enabled.
+     *
+     * @return true if an invalid original query row
+     * @since 4.0.1
+     */
+    public boolean isInvalidRow() {
+        boolean invalid = false;
+        if (invalidCursor == null) {
+            TColumn pkColumn = columns.getPkColumn();
+            if (pkColumn != null && getType(columns.getColumnIndex(pkColumn.getName())) == FIELD_TYPE_NULL) {
+                invalidPositions.add(getPosition());
+                invalid = true;
+            }
+        }
+        return invalid;
+    }
+
+    /**
+     * Determine if the cursor is iterating through the requeried invalid
+     * rows, where large blob values are only available from {@link #getRow()}
+     *
+     * @return true if iterating requeried invalid rows
+     * @since 4.0.1
+     */
+    public boolean isInvalidRequery() {
+        return invalidCursor != null;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -2,10 +2,16 @@ package mil.nga.geopackage.user;
 
 import android.content.ContentValues;
 
+import mil.nga.geopackage.BoundingBox;
+import mil.nga.geopackage.GeoPackageException;
 import mil.nga.geopackage.db.AlterTable;
+import mil.nga.geopackage.db.CoreSQLUtils;
 import mil.nga.geopackage.db.GeoPackageConnection;
 import mil.nga.geopackage.db.GeoPackageDatabase;
 import mil.nga.geopackage.db.TableMapping;
+import mil.nga.geopackage.proj.ProjectionTransformCache;
+import mil.nga.sf.proj.Projection;
+import mil.nga.sf.proj.ProjectionTransform;
 
 /**
  * Abstract User DAO for reading user tables
@@ -34,6 +40,30 @@ public abstract class UserDao<TColumn extends UserColumn, TTable extends UserTab
      */
     private boolean invalidRequery = true;
 
+    /**
+     * Default stream chunk limit
+     *
+     * @since 4.0.1
+     */
+    public static final int DEFAULT_STREAM_CHUNK_LIMIT = 100;
+
+    /**
+     * Default stream cursor window size in bytes
+     *
+     * @since 4.0.1
+     */
+    public static final long DEFAULT_STREAM_WINDOW_SIZE = 256 * 1024;
+
+    /**
+     * Stream chunk limit
+     */
+    private int streamChunkLimit = DEFAULT_STREAM_CHUNK_LIMIT;
+
+    /**
+     * Stream cursor window size in bytes
+     */
+    private long streamWindowSize = DEFAULT_STREAM_WINDOW_SIZE;
+
     /**
      * Constructor
      *
@@ -59,6 +89,18 @@ public abstract class UserDao<TColumn extends UserColumn, TTable extends UserTab
         return (GeoPackageConnection) super.getDb();
     }
 
+    /**
+     * {@inheritDoc}
+     * Uses the cached projection transformation.
+     */
+    @Override
+    public BoundingBox projectBoundingBox(BoundingBox boundingBox,
+                                          Projection projection) {
+        ProjectionTransform projectionTransform = ProjectionTransformCache
+                .getTransformation(projection, getProjection());
+        return boundingBox.transform(projectionTransform);
+    }
+
     /**
      * Get the database connection
      *
@@ -102,6 +144,209 @@ public abstract class UserDao<TColumn extends UserColumn, TTable extends UserTab
         this.invalidRequery = invalidRequery;
     }
 
+    /**
+     * Get the cursor window size of query results
+     *
+     * @return window size in bytes, 0 for the platform default
+     * @since 4.0.1
+     */
+    public long getCursorWindowSize() {
+        return userDb.getCursorWindowSize();
+    }
+
+    /**
+     * Set the cursor window size of query results, applied when supported.
+     * Windows larger than the 2 MB default fit large geometry and tile blob
+     * rows without an invalid row requery.
+     *
+     * @param cursorWindowSize window size in bytes, 0 for the platform default
+     * @see UserCursor#isWindowSizeSupported()
+     * @since 4.0.1
+     */
+    public void setCursorWindowSize(long cursorWindowSize) {
+        userDb.setCursorWindowSize(cursorWindowSize);
+    }
+
+    /**
+     * Get the stream chunk limit
+     *
+     * @return chunk limit
+     * @since 4.0.1
+     */
+    public int getStreamChunkLimit() {
+        return streamChunkLimit;
+    }
+
+    /**
+     * Set the stream chunk limit, the number of rows read per chunk query
+     *
+     * @param streamChunkLimit chunk limit
+     * @since 4.0.1
+     */
+    public void setStreamChunkLimit(int streamChunkLimit) {
+        if (streamChunkLimit < 1) {
+            throw new GeoPackageException(
+                    "Stream chunk limit must be at least 1: " + streamChunkLimit);
+        }
+        this.streamChunkLimit = streamChunkLimit;
+    }
+
+    /**
+     * Get the stream cursor window size
+     *
+     * @return window size in bytes, 0 for the platform default
+     * @since 4.0.1
+     */
+    public long getStreamWindowSize() {
+        return streamWindowSize;
+    }
+
+    /**
+     * Set the stream cursor window size, applied when supported
+     *
+     * @param streamWindowSize window size in bytes, 0 for the platform default
+     * @see UserCursor#isWindowSizeSupported()
+     * @since 4.0.1
+     */
+    public void setStreamWindowSize(long streamWindowSize) {
+        this.streamWindowSize = streamWindowSize;
+    }
+
+    /**
+     * Stream all rows forward only in primary key order, using the stream
+     * chunk limit and window size
+     *
+     * @return stream, close when done
+     * @since 4.0.1
+     */
+    public UserStream<TColumn, TTable, TRow, TResult> queryForStream() {
+        return queryForStream(false, null, null, null);
+    }
+
+    /**
+     * Stream rows forward only in primary key order, using the stream chunk
+     * limit and window size
+     *
+     * @param columns columns, must include the primary key column
+     * @return stream, close when done
+     * @since 4.0.1
+     */
+    public UserStream<TColumn, TTable, TRow, TResult> queryForStream(
+            String[] columns) {
+        return queryForStream(false, columns, null, null);
+    }
+
+    /**
+     * Stream rows forward only in primary key order, using the stream chunk
+     * limit and window size
+     *
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return stream, close when done
+     * @since 4.0.1
+     */
+    public UserStream<TColumn, TTable, TRow, TResult> queryForStream(
+            String where, String[] whereArgs) {
+        return queryForStream(false, null, where, whereArgs);
+    }
+
+    /**
+     * Stream rows forward only in primary key order, using the stream chunk
+     * limit and window size
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns, must include the primary key column
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @return stream, close when done
+     * @since 4.0.1
+     */
+    public UserStream<TColumn, TTable, TRow, TResult> queryForStream(
+            boolean distinct, String[] columns, String where,
+            String[] whereArgs) {
+        return new UserStream<>(this, distinct, columns, where, whereArgs,
+                streamChunkLimit, streamWindowSize);
+    }
+
+    /**
+     * Scan all rows forward only in primary key order into reusable columnar
+     * batches of the stream chunk limit size
+     *
+     * @param numericColumns numeric column names
+     * @param blobColumns    blob column names
+     * @return columnar scan, close when done
+     * @since 4.0.1
+     */
+    public UserColumnScan scanColumns(String[] numericColumns,
+                                      String[] blobColumns) {
+        return scanColumns(numericColumns, blobColumns, null, null,
+                streamChunkLimit);
+    }
+
+    /**
+     * Scan rows forward only in primary key order into reusable columnar
+     * batches
+     *
+     * @param numericColumns numeric column names
+     * @param blobColumns    blob column names
+     * @param batchSize      rows per batch
+     * @return columnar scan, close when done
+     * @since 4.0.1
+     */
+    public UserColumnScan scanColumns(String[] numericColumns,
+                                      String[] blobColumns, int batchSize) {
+        return scanColumns(numericColumns, blobColumns, null, null, batchSize);
+    }
+
+    /**
+     * Scan rows forward only in primary key order into reusable columnar
+     * batches. Ids and numeric values are read into primitive arrays without
+     * allocating rows or boxed values.
+     *
+     * @param numericColumns numeric column names
+     * @param blobColumns    blob column names
+     * @param where          where clause
+     * @param whereArgs      where arguments
+     * @param batchSize      rows per batch
+     * @return columnar scan, close when done
+     * @since 4.0.1
+     */
+    public UserColumnScan scanColumns(String[] numericColumns,
+                                      String[] blobColumns, String where, String[] whereArgs,
+                                      int batchSize) {
+        return new UserColumnScan(this, numericColumns, blobColumns, where,
+                whereArgs, batchSize);
+    }
+
+    /**
+     * Stream a blob column value of a row in chunks, without reading the full
+     * value into memory
+     *
+     * @param columnName blob column name
+     * @param id         row id
+     * @return blob input stream, close when done
+     * @since 4.0.1
+     */
+    public UserBlobInputStream readBlob(String columnName, long id) {
+        return readBlob(columnName, id, UserBlobInputStream.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Stream a blob column value of a row in chunks, without reading the full
+     * value into memory
+     *
+     * @param columnName blob column name
+     * @param id         row id
+     * @param chunkSize  chunk size in bytes
+     * @return blob input stream, close when done
+     * @since 4.0.1
+     */
+    public UserBlobInputStream readBlob(String columnName, long id,
+                                        int chunkSize) {
+        return new UserBlobInputStream(db, getTableName(), columnName,
+                getPkColumnName(), id, chunkSize);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -185,6 +430,109 @@ public abstract class UserDao<TColumn extends UserColumn, TTable extends UserTab
         return (TResult) userDb.query(query);
     }
 
+    /**
+     * Query for a chunk of rows with primary key values greater than the
+     * provided id, ordered by primary key. Unlike offset based chunks, each
+     * chunk seeks directly to its starting key. Iterate all rows by passing the
+     * largest id of the previous chunk, starting from {@link Long#MIN_VALUE}.
+     *
+     * @param id    exclusive lower primary key bound
+     * @param limit chunk limit
+     * @return result
+     * @since 4.0.1
+     */
+    public TResult queryForChunkAfterId(long id, int limit) {
+        return queryForChunkAfterId(false, null, id, limit);
+    }
+
+    /**
+     * Query for a chunk of rows with primary key values greater than the
+     * provided id, ordered by primary key
+     *
+     * @param columns columns, must include the primary key column
+     * @param id      exclusive lower primary key bound
+     * @param limit   chunk limit
+     * @return result
+     * @since 4.0.1
+     */
+    public TResult queryForChunkAfterId(String[] columns, long id, int limit) {
+        return queryForChunkAfterId(false, columns, id, limit);
+    }
+
+    /**
+     * Query for a chunk of rows with primary key values greater than the
+     * provided id, ordered by primary key
+     *
+     * @param distinct distinct rows
+     * @param columns  columns, must include the primary key column
+     * @param id       exclusive lower primary key bound
+     * @param limit    chunk limit
+     * @return result
+     * @since 4.0.1
+     */
+    public TResult queryForChunkAfterId(boolean distinct, String[] columns,
+                                        long id, int limit) {
+        return queryForChunkAfterId(distinct, columns, null, null, id, limit);
+    }
+
+    /**
+     * Query for a chunk of rows with primary key values greater than the
+     * provided id, ordered by primary key
+     *
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @param id        exclusive lower primary key bound
+     * @param limit     chunk limit
+     * @return result
+     * @since 4.0.1
+     */
+    public TResult queryForChunkAfterId(String where, String[] whereArgs,
+                                        long id, int limit) {
+        return queryForChunkAfterId(false, null, where, whereArgs, id, limit);
+    }
+
+    /**
+     * Query for a chunk of rows with primary key values greater than the
+     * provided id, ordered by primary key
+     *
+     * @param distinct  distinct rows
+     * @param columns   columns, must include the primary key column
+     * @param where     where clause
+     * @param whereArgs where arguments
+     * @param id        exclusive lower primary key bound
+     * @param limit     chunk limit
+     * @return result
+     * @since 4.0.1
+     */
+    public TResult queryForChunkAfterId(boolean distinct, String[] columns,
+                                        String where, String[] whereArgs, long id, int limit) {
+
+        String pkColumn = CoreSQLUtils.quoteWrap(getTable().getPkColumnName());
+
+        StringBuilder chunkWhere = new StringBuilder();
+        if (where != null) {
+            chunkWhere.append("(").append(where).append(") AND ");
+        }
+        chunkWhere.append(pkColumn).append(" > ?");
+
+        int argsLength = whereArgs != null ? whereArgs.length : 0;
+        String[] chunkWhereArgs = new String[argsLength + 1];
+        if (argsLength > 0) {
+            System.arraycopy(whereArgs, 0, chunkWhereArgs, 0, argsLength);
+        }
+        chunkWhereArgs[argsLength] = String.valueOf(id);
+
+        if (columns == null) {
+            columns = getTable().getColumnNames();
+        }
+
+        TResult result = (TResult) userDb.query(distinct, getTableName(), columns,
+                chunkWhere.toString(), chunkWhereArgs, null, null, pkColumn,
+                String.valueOf(limit));
+
+        return prepareResult(result);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1,16 +1,13 @@
 package mil.nga.geopackage.user;
 
-import android.database.Cursor;
 import android.util.Log;
 
 import com.j256.ormlite.misc.IOUtils;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.List;
 
 import mil.nga.geopackage.GeoPackageException;
-import mil.nga.geopackage.db.CoreSQLUtils;
 import mil.nga.geopackage.db.GeoPackageDataType;
 
 /**
@@ -107,36 +104,16 @@ public abstract class UserInvalidCursor<TColumn extends UserColumn, TTable exten
      */
     private void readBlobValue(UserRow row, UserColumn column) {
 
-        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        UserBlobInputStream blobStream = dao.readBlob(column.getName(),
+                row.getId(), CHUNK_SIZE);
         try {
-
-            byte[] blobChunk = new byte[]{0};
-            for (int i = 1; blobChunk.length > 0; i += CHUNK_SIZE) {
-                if (i > 1) {
-                    byteStream.write(blobChunk);
-                }
-                blobChunk = new byte[]{};
-                String query = "select substr(" +
-                        CoreSQLUtils.quoteWrap(column.getName()) + ", " + i + ", " + CHUNK_SIZE + ") from "
-                        + CoreSQLUtils.quoteWrap(dao.getTableName()) + " where "
-                        + CoreSQLUtils.quoteWrap(row.getPkColumn().getName()) + " = " + row.getId();
-                Cursor blobCursor = dao.getDatabaseConnection().getDb().rawQuery(query, null);
-                try {
-                    if (blobCursor.moveToNext()) {
-                        blobChunk = blobCursor.getBlob(0);
-                    }
-                } finally {
-                    blobCursor.close();
-                }
-            }
-            byte[] blob = byteStream.toByteArray();
+            byte[] blob = blobStream.readAll();
             row.setValue(column.getIndex(), blob);
-
         } catch (IOException e) {
             Log.e(UserInvalidCursor.class.getSimpleName(), "Failed to read large blob value. Table: "
                     + dao.getTableName() + ", Column: " + column.getName() + ", Position: " + getPosition(), e);
         } finally {
-            IOUtils.closeQuietly(byteStream);
+            IOUtils.closeQuietly(blobStream);
         }
     }
 
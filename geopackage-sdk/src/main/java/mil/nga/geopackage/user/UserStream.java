@@ -0,0 +1,257 @@
+package mil.nga.geopackage.user;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import mil.nga.geopackage.GeoPackageException;
+
+/**
+ * Forward only stream of user rows, read as primary key ordered chunks into
+ * small cursor windows. Each chunk seeks to its starting key, so memory stays
+ * bounded by the chunk and window size and large scans avoid the pauses of
+ * filling and refilling a full size window.
+ *
+ * @param <TColumn> column type
+ * @param <TTable>  table type
+ * @param <TRow>    row type
+ * @param <TResult> result type
+ * @author osbornb
+ * @since 4.0.1
+ */
+public class UserStream<TColumn extends UserColumn, TTable extends UserTable<TColumn>, TRow extends UserRow<TColumn, TTable>, TResult extends UserCursor<TColumn, TTable, TRow>>
+        implements Iterable<TRow>, Closeable {
+
+    /**
+     * User DAO
+     */
+    private final UserDao<TColumn, TTable, TRow, TResult> dao;
+
+    /**
+     * Distinct rows flag
+     */
+    private final boolean distinct;
+
+    /**
+     * Columns
+     */
+    private final String[] columns;
+
+    /**
+     * Where clause
+     */
+    private final String where;
+
+    /**
+     * Where arguments
+     */
+    private final String[] whereArgs;
+
+    /**
+     * Chunk limit
+     */
+    private final int chunkLimit;
+
+    /**
+     * Cursor window size in bytes
+     */
+    private final long windowSize;
+
+    /**
+     * Current chunk cursor
+     */
+    private TResult cursor;
+
+    /**
+     * Rows read from the current chunk
+     */
+    private int chunkCount = 0;
+
+    /**
+     * Largest primary key read
+     */
+    private long lastId = Long.MIN_VALUE;
+
+    /**
+     * Number of chunks queried
+     */
+    private int chunks = 0;
+
+    /**
+     * Stream completed flag
+     */
+    private boolean done = false;
+
+    /**
+     * Constructor
+     *
+     * @param dao        user DAO
+     * @param distinct   distinct rows
+     * @param columns    columns, must include the primary key column
+     * @param where      where clause
+     * @param whereArgs  where arguments
+     * @param chunkLimit chunk limit
+     * @param windowSize cursor window size in bytes, 0 for the platform default
+     */
+    public UserStream(UserDao<TColumn, TTable, TRow, TResult> dao,
+                      boolean distinct, String[] columns, String where,
+                      String[] whereArgs, int chunkLimit, long windowSize) {
+        this.dao = dao;
+        this.distinct = distinct;
+        this.columns = columns;
+        this.where = where;
+        this.whereArgs = whereArgs;
+        this.chunkLimit = chunkLimit;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Get the chunk limit
+     *
+     * @return chunk limit
+     */
+    public int getChunkLimit() {
+        return chunkLimit;
+    }
+
+    /**
+     * Get the cursor window size
+     *
+     * @return window size in bytes, 0 for the platform default
+     */
+    public long getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Get the number of chunks queried
+     *
+     * @return chunks
+     */
+    public int getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Move to the next row, querying the next chunk as needed
+     *
+     * @return true if moved to a row
+     */
+    public boolean moveToNext() {
+
+        boolean hasNext = false;
+
+        while (!hasNext && !done) {
+
+            if (cursor == null) {
+                cursor = dao.queryForChunkAfterId(distinct, columns, where,
+                        whereArgs, lastId, chunkLimit);
+                if (windowSize > 0) {
+                    cursor.setWindowSize(windowSize);
+                }
+                chunkCount = 0;
+                chunks++;
+            }
+
+            if (cursor.moveToNext()) {
+                hasNext = true;
+                chunkCount++;
+                try {
+                    lastId = Math.max(lastId, cursor.getId());
+                } catch (GeoPackageException e) {
+                    // Invalid large rows are requeried at the end of the chunk
+                }
+            } else {
+                cursor.close();
+                cursor = null;
+                // A partial chunk is the last
+                done = chunkCount < chunkLimit;
+            }
+        }
+
+        return hasNext;
+    }
+
+    /**
+     * Get the current row
+     *
+     * @return row
+     */
+    public TRow getRow() {
+        return cursor.getRow();
+    }
+
+    /**
+     * Get the current chunk cursor
+     *
+     * @return cursor, null before moving or once completed
+     */
+    public TResult getCursor() {
+        return cursor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        done = true;
+        if (cursor != null) {
+            cursor.close();
+            cursor = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<TRow> iterator() {
+        return new Iterator<TRow>() {
+
+            /**
+             * Next row available flag
+             */
+            private boolean hasNext = false;
+
+            /**
+             * Moved to the next row flag
+             */
+            private boolean moved = false;
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public boolean hasNext() {
+                if (!moved) {
+                    hasNext = moveToNext();
+                    moved = true;
+                }
+                return hasNext;
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public TRow next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                moved = false;
+                return getRow();
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+        };
+    }
+
+}